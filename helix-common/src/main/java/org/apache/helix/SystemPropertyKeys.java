@@ -72,9 +72,25 @@ public class SystemPropertyKeys {
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 
+  // Rebuild the current state output from all the live instances in every pipeline run
+  public static final String CONTROLLER_INCREMENTAL_CURRENT_STATE_COMPUTATION_DISABLED =
+      "helix.controller.stages.CurrentStateComputationStage.incrementalComputationDisabled";
+
+  // Rebuild the whole cluster model in every WAGED partial rebalance
+  public static final String WAGED_INCREMENTAL_PARTIAL_REBALANCE_DISABLED =
+      "helix.controller.rebalancer.waged.incrementalPartialRebalanceDisabled";
+
+  // Persist the WAGED baseline and best possible assignments as deltas on top of checkpoints
+  public static final String WAGED_ASSIGNMENT_DELTA_PERSISTENCE_ENABLED =
+      "helix.controller.rebalancer.waged.assignmentDeltaPersistenceEnabled";
+
   // Message
   public static final String MESSAGE_EXPECTED_COMPLETION_PERIOD = "helix.controller.message.ExpectMessageCompletionPeriod";
 
+  // Resolve the message recipients from a watch-maintained index instead of reading the cluster
+  public static final String MESSAGING_CRITERIA_INDEX_ENABLED =
+      "helix.messaging.criteriaIndexEnabled";
+
 
   // MBean monitor for helix.
   public static final String HELIX_MONITOR_TIME_WINDOW_LENGTH_MS = "helix.monitor.slidingTimeWindow.ms";
@@ -90,4 +106,10 @@ public class SystemPropertyKeys {
 
   public static final String TASK_CURRENT_STATE_PATH_DISABLED =
       "helix.taskCurrentStatePathDisabled";
+
+  // Run the tasks of the Task Framework on virtual threads if the JVM supports them (JDK 21+)
+  public static final String TASK_VIRTUAL_THREAD_ENABLED = "helix.task.virtualThreadEnabled";
+
+  // The number of tasks a participant runs concurrently on virtual threads
+  public static final String TASK_VIRTUAL_THREAD_CAPACITY = "helix.task.virtualThreadCapacity";
 }
@@ -19,6 +19,7 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -148,6 +149,47 @@ public interface BaseDataAccessor<T> {
     throw new UnsupportedOperationException("createChildren with TTL support is not implemented.");
   }
 
+  /**
+   * Use it when creating a large number of children under a few parent nodes. The children under
+   * the same parent are created in ZK multi transactions of at most maxBatchSize ops, and up to
+   * maxInflightBatches transactions are pipelined at a time. If a transaction fails, its children
+   * are created one by one, so the result of each child is still reported.
+   * If the child already exists it will return false.
+   * @param paths the paths to the children ZNodes
+   * @param records List of data to write to each of the path
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   * @param maxBatchSize the maximum number of creates in a single transaction
+   * @param maxInflightBatches the maximum number of transactions in flight at a time
+   * @return For each child: true if creation succeeded, false otherwise (e.g. if the child exists)
+   */
+  default boolean[] createChildrenInBatches(List<String> paths, List<T> records, int options,
+      int maxBatchSize, int maxInflightBatches) {
+    return createChildrenInBatches(paths, records, options, maxBatchSize, maxInflightBatches,
+        null);
+  }
+
+  /**
+   * Same as {@link #createChildrenInBatches(List, List, int, int, int)}, and reports the batches
+   * that are actually submitted.
+   * @param paths the paths to the children ZNodes
+   * @param records List of data to write to each of the path
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   * @param maxBatchSize the maximum number of creates in a single transaction
+   * @param maxInflightBatches the maximum number of transactions in flight at a time
+   * @param batchSizes if not null, the number of children of each submitted transaction is added
+   *          to it, and each child that is created by a single create, including the fallback of
+   *          a failed transaction, is added as a batch of 1
+   * @return For each child: true if creation succeeded, false otherwise (e.g. if the child exists)
+   */
+  default boolean[] createChildrenInBatches(List<String> paths, List<T> records, int options,
+      int maxBatchSize, int maxInflightBatches, List<Integer> batchSizes) {
+    boolean[] success = createChildren(paths, records, options);
+    if (batchSizes != null) {
+      batchSizes.addAll(Collections.nCopies(paths.size(), 1));
+    }
+    return success;
+  }
+
   /**
    * can set multiple children under a parent node. This will use async api for better
    * performance. If this child does not exist it will create it.
@@ -26,7 +26,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
 
+import org.apache.helix.api.exceptions.HelixConflictException;
 import org.apache.helix.manager.zk.GenericZkHelixApiBuilder;
 import org.apache.helix.manager.zk.ZKUtil;
 import org.apache.helix.model.CloudConfig;
@@ -39,6 +43,7 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.RESTConfig;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.monitoring.mbeans.ConfigAccessorMonitor;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.util.StringTemplate;
@@ -48,6 +53,11 @@ import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.SharedZkClientFactory;
+import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +71,11 @@ public class ConfigAccessor {
 
   private static final StringTemplate template = new StringTemplate();
 
+  // The max attempts and the backoff of patch() on the version conflicts
+  public static final int PATCH_MAX_ATTEMPTS = 10;
+  private static final long PATCH_BASE_BACKOFF_MS = 10L;
+  private static final long PATCH_MAX_BACKOFF_MS = 1000L;
+
   static {
     // @formatter:off
     template.addEntry(ConfigScopeProperty.CLUSTER, 1, "/{clusterName}/CONFIGS/CLUSTER");
@@ -83,6 +98,9 @@ public class ConfigAccessor {
   // true if ConfigAccessor was instantiated with a HelixZkClient, false otherwise
   // This is used for close() to determine how ConfigAccessor should close the underlying ZkClient
   private final boolean _usesExternalZkClient;
+  // Registered on the first patch, so the accessors that never patch do not register MBeans.
+  private final ConfigAccessorMonitor _monitor = new ConfigAccessorMonitor();
+  private final AtomicBoolean _monitorRegistered = new AtomicBoolean(false);
 
   private ConfigAccessor(RealmAwareZkClient zkClient, boolean usesExternalZkClient) {
     _zkClient = zkClient;
@@ -862,9 +880,8 @@ public class ConfigAccessor {
    * presents. If there is new field in given config but not in current config, the field will be added into
    * the current config..
    * The list fields and map fields will be replaced as a single entry.
-   *
-   * The current Cluster config will be replaced with the given clusterConfig.
-   * WARNING: This is not thread-safe or concurrent updates safe.
+   * The update is applied as a {@link ConfigPatch}, so it is re-applied to the latest config on a
+   * concurrent write, and not written if it does not change the config.
    *
    * @param clusterName
    * @param resourceName
@@ -891,7 +908,7 @@ public class ConfigAccessor {
     if (overwrite) {
       ZKUtil.createOrReplace(_zkClient, zkPath, resourceConfig.getRecord(), true);
     } else {
-      ZKUtil.createOrUpdate(_zkClient, zkPath, resourceConfig.getRecord(), true, true);
+      patch(zkPath, ConfigPatch.fromUpdate(resourceConfig.getRecord()), true);
     }
   }
 
@@ -944,8 +961,8 @@ public class ConfigAccessor {
    * replaced with the value of the same field in given config if it presents. If there is new field
    * in given config but not in current config, the field will be added into the current config..
    * The list fields and map fields will be replaced as a single entry.
-   * The current instanceConfig will be replaced with the given instanceConfig. WARNING: This is not
-   * thread-safe or concurrent updates safe.
+   * The update is applied as a {@link ConfigPatch}, so it is re-applied to the latest config on a
+   * concurrent write, and not written if it does not change the config.
    * *
    *
    * @param clusterName
@@ -979,7 +996,165 @@ public class ConfigAccessor {
     if (overwrite) {
       ZKUtil.createOrReplace(_zkClient, zkPath, instanceConfig.getRecord(), true);
     } else {
-      ZKUtil.createOrUpdate(_zkClient, zkPath, instanceConfig.getRecord(), true, true);
+      patch(zkPath, ConfigPatch.fromUpdate(instanceConfig.getRecord()), false);
+    }
+  }
+
+  /**
+   * Apply a field-level patch to the config of the given full-key scope. The config is read with
+   * its version, patched, and written back only if the version is not changed in between. On a
+   * version conflict, the patch is re-applied to the latest config after a randomized exponential
+   * backoff, so the fields updated by the concurrent writers are kept. The write is skipped if the
+   * config already contains the patch. The config is created if it does not exist.
+   * @param scope the full-key config scope; only the simple key scopes are supported
+   * @param patch the patch to apply
+   * @return true if the config is written, false if the config is not changed by the patch
+   * @throws HelixConflictException if the patch cannot be applied within
+   *           {@link #PATCH_MAX_ATTEMPTS} attempts because of the concurrent writes
+   */
+  public boolean patch(HelixConfigScope scope, ConfigPatch patch) {
+    if (scope == null || scope.getType() == null || !scope.isFullKey()
+        || scope.getMapKey() != null) {
+      throw new IllegalArgumentException("fail to patch config. invalid config scope: " + scope);
+    }
+
+    String clusterName = scope.getClusterName();
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("fail to patch config. cluster: " + clusterName + " is NOT setup.");
+    }
+
+    if (scope.getType() == ConfigScopeProperty.PARTICIPANT) {
+      if (!ZKUtil.isInstanceSetup(_zkClient, scope.getClusterName(), scope.getParticipantName(),
+          InstanceType.PARTICIPANT)) {
+        throw new HelixException("fail to patch config. instance: " + scope.getParticipantName()
+            + " is NOT setup in cluster: " + clusterName);
+      }
+    }
+    return patch(scope.getZkPath(), patch, true);
+  }
+
+  /**
+   * Apply a field-level patch to the cluster config.
+   * @see #patch(HelixConfigScope, ConfigPatch)
+   */
+  public boolean patchClusterConfig(String clusterName, ConfigPatch patch) {
+    return patch(
+        new HelixConfigScopeBuilder(ConfigScopeProperty.CLUSTER).forCluster(clusterName).build(),
+        patch);
+  }
+
+  /**
+   * Apply a field-level patch to the resource config. The resource config is created if it does
+   * not exist.
+   * @see #patch(HelixConfigScope, ConfigPatch)
+   */
+  public boolean patchResourceConfig(String clusterName, String resourceName, ConfigPatch patch) {
+    return patch(new HelixConfigScopeBuilder(ConfigScopeProperty.RESOURCE).forCluster(clusterName)
+        .forResource(resourceName).build(), patch);
+  }
+
+  /**
+   * Apply a field-level patch to the instance config. Unlike the other configs, the instance
+   * config must already exist.
+   * @see #patch(HelixConfigScope, ConfigPatch)
+   */
+  public boolean patchInstanceConfig(String clusterName, String instanceName, ConfigPatch patch) {
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("fail to patch config. cluster: " + clusterName + " is NOT setup.");
+    }
+    HelixConfigScope scope =
+        new HelixConfigScopeBuilder(ConfigScopeProperty.PARTICIPANT).forCluster(clusterName)
+            .forParticipant(instanceName).build();
+    return patch(scope.getZkPath(), patch, false);
+  }
+
+  /**
+   * @return the number of the patches applied by this accessor, including the no-op ones
+   */
+  public long getPatchCount() {
+    return _monitor.getPatchCount();
+  }
+
+  /**
+   * @return the number of the version conflicts that caused a patch to be retried
+   */
+  public long getPatchConflictCount() {
+    return _monitor.getPatchConflictCount();
+  }
+
+  /**
+   * @return the number of the patches that did not change the config, so were not written
+   */
+  public long getPatchNoOpCount() {
+    return _monitor.getPatchNoOpCount();
+  }
+
+  /**
+   * @return the number of the patches that failed after {@link #PATCH_MAX_ATTEMPTS} attempts
+   */
+  public long getPatchAbortCount() {
+    return _monitor.getPatchAbortCount();
+  }
+
+  private boolean patch(String zkPath, ConfigPatch patch, boolean createIfAbsent) {
+    registerMonitorIfNeeded();
+    _monitor.increasePatchCounter();
+    for (int attempt = 1; attempt <= PATCH_MAX_ATTEMPTS; attempt++) {
+      Stat stat = new Stat();
+      ZNRecord record = _zkClient.readDataAndStat(zkPath, stat, true);
+      try {
+        if (record == null) {
+          if (!createIfAbsent) {
+            throw new HelixException(
+                "fail to patch config. config does not exist. path: " + zkPath);
+          }
+          // The config is created even if the patch is empty.
+          record = new ZNRecord(zkPath.substring(zkPath.lastIndexOf('/') + 1));
+          patch.applyTo(record);
+          _zkClient.create(zkPath, record, CreateMode.PERSISTENT);
+        } else {
+          if (!patch.applyTo(record)) {
+            _monitor.increasePatchNoOpCounter();
+            return false;
+          }
+          _zkClient.writeData(zkPath, record, stat.getVersion());
+        }
+        return true;
+      } catch (ZkBadVersionException | ZkNodeExistsException | ZkNoNodeException e) {
+        // The config is changed, created or deleted since it was read. Re-apply the patch to the
+        // latest config.
+        _monitor.increasePatchConflictCounter();
+        LOG.info("Config {} is concurrently modified, retry patching. attempt: {}.", zkPath,
+            attempt);
+        if (attempt < PATCH_MAX_ATTEMPTS) {
+          backOff(attempt);
+        }
+      }
+    }
+    _monitor.increasePatchAbortCounter();
+    throw new HelixConflictException(String
+        .format("fail to patch config %s after %d attempts because of concurrent writes.", zkPath,
+            PATCH_MAX_ATTEMPTS));
+  }
+
+  private void registerMonitorIfNeeded() {
+    if (_monitorRegistered.compareAndSet(false, true)) {
+      try {
+        _monitor.register();
+      } catch (JMException e) {
+        LOG.warn("Failed to register the config accessor monitor.", e);
+      }
+    }
+  }
+
+  private static void backOff(int attempt) {
+    // Full jitter, so the conflicting writers do not retry at the same time again.
+    long maxBackoffMs = Math.min(PATCH_MAX_BACKOFF_MS, PATCH_BASE_BACKOFF_MS << (attempt - 1));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoffMs + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixException("Interrupted while patching config.", e);
     }
   }
 
@@ -987,6 +1162,7 @@ public class ConfigAccessor {
    * Closes ConfigAccessor: closes the stateful resources including the ZkClient.
    */
   public void close() {
+    _monitor.unregister();
     if (_zkClient != null && !_usesExternalZkClient) {
       _zkClient.close();
     }
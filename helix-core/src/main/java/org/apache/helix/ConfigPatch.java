@@ -0,0 +1,198 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+
+/**
+ * A field-level delta of a config ZNRecord. The patch only carries the fields to be set or removed,
+ * so it can be re-applied to the latest version of the config when a concurrent write is detected,
+ * without overwriting the fields updated by the other writers.
+ * The operations are applied in the order they are added to the patch.
+ * @see ConfigAccessor#patch(org.apache.helix.model.HelixConfigScope, ConfigPatch)
+ */
+public class ConfigPatch {
+  private final List<FieldOperation> _operations = new ArrayList<>();
+
+  /**
+   * Create a patch that updates a config the same way as {@link ZNRecord#update(ZNRecord)}: the
+   * simple fields, list fields and map fields of the given record replace the existing ones.
+   * @param record the record to update the config with
+   * @return the patch
+   */
+  public static ConfigPatch fromUpdate(ZNRecord record) {
+    ConfigPatch patch = new ConfigPatch();
+    record.getSimpleFields().forEach(patch::setSimpleField);
+    record.getListFields().forEach(patch::setListField);
+    record.getMapFields().forEach(patch::setMapField);
+    return patch;
+  }
+
+  public ConfigPatch setSimpleField(String key, String value) {
+    _operations.add(record -> {
+      if (Objects.equals(record.getSimpleFields().get(key), value) && record.getSimpleFields()
+          .containsKey(key)) {
+        return false;
+      }
+      record.getSimpleFields().put(key, value);
+      return true;
+    });
+    return this;
+  }
+
+  public ConfigPatch removeSimpleField(String key) {
+    _operations.add(record -> {
+      if (!record.getSimpleFields().containsKey(key)) {
+        return false;
+      }
+      record.getSimpleFields().remove(key);
+      return true;
+    });
+    return this;
+  }
+
+  public ConfigPatch setListField(String key, List<String> value) {
+    List<String> copy = value == null ? null : new ArrayList<>(value);
+    _operations.add(record -> {
+      if (Objects.equals(record.getListFields().get(key), copy) && record.getListFields()
+          .containsKey(key)) {
+        return false;
+      }
+      record.getListFields().put(key, copy == null ? null : new ArrayList<>(copy));
+      return true;
+    });
+    return this;
+  }
+
+  public ConfigPatch removeListField(String key) {
+    _operations.add(record -> {
+      if (!record.getListFields().containsKey(key)) {
+        return false;
+      }
+      record.getListFields().remove(key);
+      return true;
+    });
+    return this;
+  }
+
+  /**
+   * Replace the whole map field.
+   */
+  public ConfigPatch setMapField(String key, Map<String, String> value) {
+    Map<String, String> copy = value == null ? null : new TreeMap<>(value);
+    _operations.add(record -> {
+      if (Objects.equals(record.getMapFields().get(key), copy) && record.getMapFields()
+          .containsKey(key)) {
+        return false;
+      }
+      record.getMapFields().put(key, copy == null ? null : new TreeMap<>(copy));
+      return true;
+    });
+    return this;
+  }
+
+  public ConfigPatch removeMapField(String key) {
+    _operations.add(record -> {
+      if (!record.getMapFields().containsKey(key)) {
+        return false;
+      }
+      record.getMapFields().remove(key);
+      return true;
+    });
+    return this;
+  }
+
+  /**
+   * Set one entry of the map field, and keep the other entries. The map field is created if it
+   * does not exist.
+   */
+  public ConfigPatch setMapFieldEntry(String key, String entryKey, String entryValue) {
+    _operations.add(record -> {
+      Map<String, String> mapField = record.getMapFields().get(key);
+      if (mapField == null) {
+        mapField = new TreeMap<>();
+        record.getMapFields().put(key, mapField);
+      } else if (Objects.equals(mapField.get(entryKey), entryValue) && mapField
+          .containsKey(entryKey)) {
+        return false;
+      }
+      mapField.put(entryKey, entryValue);
+      return true;
+    });
+    return this;
+  }
+
+  /**
+   * Remove one entry of the map field, and keep the other entries.
+   */
+  public ConfigPatch removeMapFieldEntry(String key, String entryKey) {
+    _operations.add(record -> {
+      Map<String, String> mapField = record.getMapFields().get(key);
+      if (mapField == null || !mapField.containsKey(entryKey)) {
+        return false;
+      }
+      mapField.remove(entryKey);
+      return true;
+    });
+    return this;
+  }
+
+  /**
+   * @return true if the patch does not have any operation
+   */
+  public boolean isEmpty() {
+    return _operations.isEmpty();
+  }
+
+  /**
+   * @return the number of the field operations of the patch
+   */
+  public int size() {
+    return _operations.size();
+  }
+
+  /**
+   * Apply the patch to the record in place.
+   * @param record the record to be patched
+   * @return true if any field of the record is changed, false if the record already contains the
+   *         patch and does not need to be written
+   */
+  public boolean applyTo(ZNRecord record) {
+    boolean changed = false;
+    for (FieldOperation operation : _operations) {
+      changed |= operation.apply(record);
+    }
+    return changed;
+  }
+
+  private interface FieldOperation {
+    /**
+     * @return true if the record is changed by the operation
+     */
+    boolean apply(ZNRecord record);
+  }
+}
@@ -20,11 +20,13 @@ package org.apache.helix;
  */
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import org.apache.helix.api.status.BulkOperationResult;
 import org.apache.helix.api.status.ClusterManagementMode;
 import org.apache.helix.api.status.ClusterManagementModeRequest;
 import org.apache.helix.api.topology.ClusterTopology;
@@ -156,6 +158,28 @@ public interface HelixAdmin {
    */
   void addResource(String clusterName, String resourceName, IdealState idealstate);
 
+  /**
+   * Add many resources to a cluster. The resources are added independently, so the failure of one
+   * resource does not stop adding the others.
+   * @param clusterName
+   * @param idealStates the ideal states of the resources, each named by its resource name
+   * @return resource name -> the result of adding the resource, in the order of the ideal states
+   */
+  default Map<String, BulkOperationResult> addResources(String clusterName,
+      List<IdealState> idealStates) {
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      try {
+        addResource(clusterName, resourceName, idealState);
+        results.put(resourceName, BulkOperationResult.success(resourceName));
+      } catch (Exception e) {
+        results.put(resourceName, BulkOperationResult.failure(resourceName, e.getMessage()));
+      }
+    }
+    return results;
+  }
+
   /**
    * Add a resource to a cluster
    * @param clusterName
@@ -226,6 +250,28 @@ public interface HelixAdmin {
    */
   void addInstance(String clusterName, InstanceConfig instanceConfig);
 
+  /**
+   * Add many instances to a cluster. The instances are added independently, so the failure of one
+   * instance does not stop adding the others.
+   * @param clusterName
+   * @param instanceConfigs
+   * @return instance id -> the result of adding the instance, in the order of the configs
+   */
+  default Map<String, BulkOperationResult> addInstances(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      String instanceName = instanceConfig.getId();
+      try {
+        addInstance(clusterName, instanceConfig);
+        results.put(instanceName, BulkOperationResult.success(instanceName));
+      } catch (Exception e) {
+        results.put(instanceName, BulkOperationResult.failure(instanceName, e.getMessage()));
+      }
+    }
+    return results;
+  }
+
   /**
    * Drop an instance from a cluster
    * @param clusterName
@@ -349,6 +395,32 @@ public interface HelixAdmin {
     throw new UnsupportedOperationException("setInstanceOperation is not implemented.");
   }
 
+  /**
+   * Set the instanceOperation of many instances with {@link InstanceConstants.InstanceOperation}.
+   * The instances are updated independently, so the failure of one instance does not stop
+   * updating the others.
+   *
+   * @param clusterName       The cluster name
+   * @param instanceNames     The instance names
+   * @param instanceOperation The instance operation type
+   * @param reason            The reason for the operation
+   * @return instance name -> the result of updating the instance, in the order of the names
+   */
+  default Map<String, BulkOperationResult> setInstanceOperations(String clusterName,
+      List<String> instanceNames, InstanceConstants.InstanceOperation instanceOperation,
+      String reason) {
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    for (String instanceName : instanceNames) {
+      try {
+        setInstanceOperation(clusterName, instanceName, instanceOperation, reason);
+        results.put(instanceName, BulkOperationResult.success(instanceName));
+      } catch (Exception e) {
+        results.put(instanceName, BulkOperationResult.failure(instanceName, e.getMessage()));
+      }
+    }
+    return results;
+  }
+
   /**
    * Disable or enable a resource
    * @param clusterName
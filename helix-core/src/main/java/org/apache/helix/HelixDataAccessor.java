@@ -19,6 +19,7 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -188,6 +189,42 @@ public interface HelixDataAccessor {
    */
   <T extends HelixProperty> boolean[] createChildren(List<PropertyKey> keys, List<T> children);
 
+  /**
+   * Adds multiple children in pipelined ZK multi transactions. The children under the same parent
+   * are created in transactions of at most maxBatchSize children, and at most maxInflightBatches
+   * transactions are in flight at a time. If a transaction fails, its children are created one by
+   * one, so the result is still reported per child.
+   * @param keys
+   * @param children
+   * @param maxBatchSize the maximum number of children in a single transaction
+   * @param maxInflightBatches the maximum number of transactions in flight at a time
+   * @return array where true means the child was added and false means it was not
+   */
+  default <T extends HelixProperty> boolean[] createChildrenInBatches(List<PropertyKey> keys,
+      List<T> children, int maxBatchSize, int maxInflightBatches) {
+    return createChildrenInBatches(keys, children, maxBatchSize, maxInflightBatches, null);
+  }
+
+  /**
+   * Same as {@link #createChildrenInBatches(List, List, int, int)}, and reports the batches that
+   * are actually submitted.
+   * @param keys
+   * @param children
+   * @param maxBatchSize the maximum number of children in a single transaction
+   * @param maxInflightBatches the maximum number of transactions in flight at a time
+   * @param batchSizes if not null, the number of children of each submitted transaction is added
+   *          to it, and each child that is added by a single create is added as a batch of 1
+   * @return array where true means the child was added and false means it was not
+   */
+  default <T extends HelixProperty> boolean[] createChildrenInBatches(List<PropertyKey> keys,
+      List<T> children, int maxBatchSize, int maxInflightBatches, List<Integer> batchSizes) {
+    boolean[] success = createChildren(keys, children);
+    if (batchSizes != null) {
+      batchSizes.addAll(Collections.nCopies(keys.size(), 1));
+    }
+    return success;
+  }
+
   /**
    * Sets multiple children under one parent
    * @param keys
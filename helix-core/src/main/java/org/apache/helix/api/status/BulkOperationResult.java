@@ -0,0 +1,67 @@
+package org.apache.helix.api.status;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The result of the operation on one entity in a bulk admin operation, such as adding many
+ * resources or instances at once.
+ */
+public class BulkOperationResult {
+  private final String _name;
+  private final boolean _succeeded;
+  private final String _error;
+
+  private BulkOperationResult(String name, boolean succeeded, String error) {
+    _name = name;
+    _succeeded = succeeded;
+    _error = error;
+  }
+
+  public static BulkOperationResult success(String name) {
+    return new BulkOperationResult(name, true, null);
+  }
+
+  public static BulkOperationResult failure(String name, String error) {
+    return new BulkOperationResult(name, false, error);
+  }
+
+  /**
+   * @return the name of the resource or the instance
+   */
+  public String getName() {
+    return _name;
+  }
+
+  public boolean isSucceeded() {
+    return _succeeded;
+  }
+
+  /**
+   * @return the reason of the failure, or null if the operation succeeded
+   */
+  public String getError() {
+    return _error;
+  }
+
+  @Override
+  public String toString() {
+    return _succeeded ? _name + ": succeeded" : _name + ": failed, " + _error;
+  }
+}
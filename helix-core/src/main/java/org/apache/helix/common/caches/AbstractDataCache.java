@@ -32,6 +32,7 @@ import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.controller.LogUtil;
+import org.apache.helix.util.StringInternPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,11 +43,31 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
   public static final String UNKNOWN_PIPELINE = "UNKNOWN_PIPELINE";
 
   protected ControlContextProvider _controlContextProvider;
+  private StringInternPool _stringInternPool;
 
   public AbstractDataCache(ControlContextProvider controlContextProvider) {
     _controlContextProvider = controlContextProvider;
   }
 
+  /**
+   * Set the pool used to de-duplicate the strings of the properties read from ZK. The properties
+   * are not interned if the pool is null.
+   * @param stringInternPool the intern pool shared by the caches of the same cluster
+   */
+  public void setStringInternPool(StringInternPool stringInternPool) {
+    _stringInternPool = stringInternPool;
+  }
+
+  /**
+   * Intern the strings of a property that is newly read from ZK, if an intern pool is set.
+   * @param property the property read from ZK
+   */
+  protected void internProperty(HelixProperty property) {
+    if (_stringInternPool != null) {
+      _stringInternPool.internProperty(property);
+    }
+  }
+
   /**
    * Selectively fetch Helix Properties from ZK by comparing the version of local cached one with the one on ZK.
    * If version on ZK is newer, fetch it from zk and update local cache.
@@ -90,6 +111,7 @@ public abstract class AbstractDataCache<T extends HelixProperty> {
     for (T property : reloadedProperty) {
       PropertyKey key = csKeyIter.next();
       if (property != null) {
+        internProperty(property);
         refreshedPropertyMap.put(key, property);
       } else {
         LOG.warn("znode is null for key: " + key);
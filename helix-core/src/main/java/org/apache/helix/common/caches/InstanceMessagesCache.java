@@ -41,6 +41,7 @@ import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.util.RebalanceUtil;
+import org.apache.helix.util.StringInternPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +75,7 @@ public class InstanceMessagesCache {
   private final long _relayMessageLifetime;
 
   private String _clusterName;
+  private StringInternPool _stringInternPool;
 
   public InstanceMessagesCache(String clusterName) {
     _clusterName = clusterName;
@@ -81,6 +83,15 @@ public class InstanceMessagesCache {
         .getSystemPropertyAsLong(RELAY_MESSAGE_LIFETIME, DEFAULT_RELAY_MESSAGE_LIFETIME);
   }
 
+  /**
+   * Set the pool used to de-duplicate the strings of the messages read from ZK. The messages are
+   * not interned if the pool is null.
+   * @param stringInternPool the intern pool shared by the caches of the same cluster
+   */
+  public void setStringInternPool(StringInternPool stringInternPool) {
+    _stringInternPool = stringInternPool;
+  }
+
   /**
    * This refreshes all pending messages in the cluster by re-fetching the data from zookeeper in an
    * efficient way current state must be refreshed before refreshing relay messages because we need
@@ -137,6 +148,9 @@ public class InstanceMessagesCache {
       List<Message> newMessages = accessor.getProperty(newMessageKeys, true);
       for (Message message : newMessages) {
         if (message != null) {
+          if (_stringInternPool != null) {
+            _stringInternPool.internProperty(message);
+          }
           Map<String, Message> cachedMap = _messageCache.get(message.getTgtName());
           cachedMap.put(message.getId(), message);
         }
@@ -166,6 +166,9 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
 
   private void doSimpleCacheRefresh(final HelixDataAccessor accessor) {
     _objCache = accessor.getChildValuesMap(_keyFuncs.getRootKey(accessor), true);
+    for (T property : _objCache.values()) {
+      internProperty(property);
+    }
     _objMap = new HashMap<>(_objCache);
   }
 
@@ -110,6 +110,9 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublisher;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublishers;
+import org.apache.helix.util.HierarchicalTimingWheel;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -178,12 +181,11 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
   private long _continuousTaskRebalanceFailureCount = 0;
 
   /**
-   * The executors that can periodically run the rebalancing pipeline. A
-   * SingleThreadScheduledExecutor will start if there is resource group that has the config to do
-   * periodically rebalance.
+   * The executors that can periodically run the rebalancing pipeline. The periodic task is
+   * scheduled if there is resource group that has the config to do periodically rebalance.
    */
   private final ScheduledExecutorService _periodicalRebalanceExecutor =
-      Executors.newSingleThreadScheduledExecutor();
+      new HierarchicalTimingWheel("GenericHelixController-periodicalRebalance");
   private ScheduledFuture _periodicRebalanceFutureTask = null;
   long _timerPeriod = Long.MAX_VALUE;
 
@@ -1345,6 +1347,13 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
       // This to-be-closed WAGED rebalancer will be reset later on a later event processing if
       // the controller becomes leader again.
       _rebalancerRef.invalidateRebalancer();
+      // The routing data published by this controller is not updated any more. Invalidate it so
+      // the spectators do not take it as the latest routing data.
+      RoutingSnapshotPublisher routingSnapshotPublisher =
+          RoutingSnapshotPublishers.getPublisher(_clusterName);
+      if (routingSnapshotPublisher != null) {
+        routingSnapshotPublisher.invalidate();
+      }
     }
 
     logger.info("END: GenericClusterController.onControllerChange() for cluster " + _clusterName);
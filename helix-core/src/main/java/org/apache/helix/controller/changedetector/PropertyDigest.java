@@ -0,0 +1,160 @@
+package org.apache.helix.controller.changedetector;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * PropertyDigest keeps a (possibly trimmed) HelixProperty of a ResourceChangeSnapshot together
+ * with the znode stat of the original property, so that two versions of a property can be compared
+ * without a deep ZNRecord comparison:
+ * 1. If both properties are read from the same znode version, they are not changed.
+ * 2. Otherwise, the 64-bit fingerprints of the records are compared. The fingerprint is computed
+ * at most once per digest, and the digest is carried over to the next snapshot as long as the
+ * znode version does not change.
+ * The properties that are not read from ZooKeeper have no creation time, so they are always
+ * compared by the fingerprints.
+ * Note a property modified in memory keeps the stat of the znode it is read from, and so does a copy
+ * created by the copy constructor. Such a modification is not detected until the znode changes, so
+ * the properties in the controller cache must not be modified in place.
+ * WARNING: the methods of this class are not thread-safe.
+ */
+class PropertyDigest<T extends HelixProperty> {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final T _property;
+  // The znode stat of the original property. Note the trimmed property does not have it.
+  private final int _version;
+  private final long _creationTime;
+  private boolean _hasFingerprint = false;
+  private long _fingerprint;
+
+  /**
+   * @param originalProperty the property read from the metadata store
+   * @param property the property to be kept in the snapshot, which could be a trimmed copy of
+   *                 the original property
+   */
+  PropertyDigest(T originalProperty, T property) {
+    _property = property;
+    _version = originalProperty.getStat().getVersion();
+    _creationTime = originalProperty.getStat().getCreationTime();
+  }
+
+  T getProperty() {
+    return _property;
+  }
+
+  /**
+   * @return true if the given property is read from the same znode version as this digest.
+   */
+  boolean isSameVersion(HelixProperty originalProperty) {
+    return isSameVersion(originalProperty.getStat().getVersion(),
+        originalProperty.getStat().getCreationTime());
+  }
+
+  /**
+   * @return true if the property of the other digest has the same content as this one.
+   */
+  boolean hasSameContent(PropertyDigest<?> other) {
+    return this == other || isSameVersion(other._version, other._creationTime)
+        || getFingerprint() == other.getFingerprint();
+  }
+
+  long getFingerprint() {
+    if (!_hasFingerprint) {
+      _fingerprint = fingerprint(_property.getRecord());
+      _hasFingerprint = true;
+    }
+    return _fingerprint;
+  }
+
+  private boolean isSameVersion(int version, long creationTime) {
+    // The properties that are not read from ZooKeeper do not have a creation time, so the version
+    // cannot tell whether they are changed.
+    return _creationTime > 0 && _creationTime == creationTime && _version == version;
+  }
+
+  /**
+   * Compute a 64-bit fingerprint of the simple, list and map fields of the record. Same as
+   * ZNRecord.equals(), the id and the stat of the record are not included.
+   */
+  static long fingerprint(ZNRecord record) {
+    long fingerprint = FNV_OFFSET_BASIS;
+    fingerprint = combine(fingerprint, hashMap(record.getSimpleFields(), PropertyDigest::hash));
+    fingerprint = combine(fingerprint, hashMap(record.getListFields(), PropertyDigest::hashList));
+    fingerprint = combine(fingerprint,
+        hashMap(record.getMapFields(), map -> hashMap(map, PropertyDigest::hash)));
+    return fingerprint;
+  }
+
+  /**
+   * The hash does not depend on the iteration order, so the maps that contain the same entries
+   * have the same hash regardless of the map implementation.
+   */
+  private static <V> long hashMap(Map<String, V> map, ToLongFunction<V> valueHash) {
+    if (map == null) {
+      return 0L;
+    }
+    long hash = map.size();
+    for (Map.Entry<String, V> entry : map.entrySet()) {
+      V value = entry.getValue();
+      hash += combine(hash(entry.getKey()), value == null ? 0L : valueHash.applyAsLong(value));
+    }
+    return hash;
+  }
+
+  private static long hashList(List<String> list) {
+    long hash = FNV_OFFSET_BASIS;
+    for (String value : list) {
+      hash = combine(hash, hash(value));
+    }
+    return hash;
+  }
+
+  // FNV-1a hash of the chars of the string
+  private static long hash(String value) {
+    if (value == null) {
+      return 0L;
+    }
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static long combine(long hash, long value) {
+    // The finalizer of MurmurHash3 spreads the bits of the combined value.
+    long h = hash * FNV_PRIME ^ value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb93e53f3a3b9L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
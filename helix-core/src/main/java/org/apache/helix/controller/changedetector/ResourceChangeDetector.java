@@ -29,9 +29,7 @@ import java.util.stream.Collectors;
 
 import com.google.common.collect.Sets;
 import org.apache.helix.HelixConstants;
-import org.apache.helix.HelixProperty;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
-import org.apache.helix.model.ClusterConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +37,8 @@ import org.slf4j.LoggerFactory;
  * ResourceChangeDetector implements ChangeDetector. It caches resource-related metadata from
  * Helix's main resource pipeline cache (DataProvider) and the computation results of change
  * detection.
+ * A property read from ZooKeeper is considered unchanged as long as its znode version is unchanged,
+ * so an in-memory modification of a cached property is not detected. See PropertyDigest.
  * WARNING: the methods of this class are not thread-safe.
  */
 public class ResourceChangeDetector implements ChangeDetector {
@@ -64,15 +64,17 @@ public class ResourceChangeDetector implements ChangeDetector {
 
   /**
    * Compare the underlying HelixProperty objects and produce a collection of names of changed
-   * properties.
+   * properties. The properties read from the same znode version are not compared, and the others
+   * are compared by their fingerprints instead of the whole records.
    * @return
    */
-  private Collection<String> getChangedItems(Map<String, ? extends HelixProperty> oldPropertyMap,
-      Map<String, ? extends HelixProperty> newPropertyMap) {
+  private Collection<String> getChangedItems(
+      Map<String, ? extends PropertyDigest<?>> oldPropertyMap,
+      Map<String, ? extends PropertyDigest<?>> newPropertyMap) {
     Collection<String> changedItems = new HashSet<>();
     oldPropertyMap.forEach((name, property) -> {
-      if (newPropertyMap.containsKey(name)
-          && !property.getRecord().equals(newPropertyMap.get(name).getRecord())) {
+      PropertyDigest<?> newProperty = newPropertyMap.get(name);
+      if (newProperty != null && !property.hasSameContent(newProperty)) {
         changedItems.add(name);
       }
     });
@@ -83,8 +85,8 @@ public class ResourceChangeDetector implements ChangeDetector {
    * Return a collection of names that are newly added.
    * @return
    */
-  private Collection<String> getAddedItems(Map<String, ? extends HelixProperty> oldPropertyMap,
-      Map<String, ? extends HelixProperty> newPropertyMap) {
+  private Collection<String> getAddedItems(Map<String, ?> oldPropertyMap,
+      Map<String, ?> newPropertyMap) {
     return Sets.difference(newPropertyMap.keySet(), oldPropertyMap.keySet());
   }
 
@@ -92,8 +94,8 @@ public class ResourceChangeDetector implements ChangeDetector {
    * Return a collection of names that were removed.
    * @return
    */
-  private Collection<String> getRemovedItems(Map<String, ? extends HelixProperty> oldPropertyMap,
-      Map<String, ? extends HelixProperty> newPropertyMap) {
+  private Collection<String> getRemovedItems(Map<String, ?> oldPropertyMap,
+      Map<String, ?> newPropertyMap) {
     return Sets.difference(oldPropertyMap.keySet(), newPropertyMap.keySet());
   }
 
@@ -109,30 +111,16 @@ public class ResourceChangeDetector implements ChangeDetector {
    * @param snapshot
    * @return
    */
-  private Map<String, ? extends HelixProperty> determinePropertyMapByType(
+  private Map<String, ? extends PropertyDigest<?>> determinePropertyMapByType(
       HelixConstants.ChangeType changeType, ResourceChangeSnapshot snapshot) {
-    switch (changeType) {
-    case INSTANCE_CONFIG:
-      return snapshot.getAssignableInstanceConfigMap();
-    case IDEAL_STATE:
-      return snapshot.getIdealStateMap();
-    case RESOURCE_CONFIG:
-      return snapshot.getResourceConfigMap();
-    case LIVE_INSTANCE:
-      return snapshot.getAssignableLiveInstances();
-    case CLUSTER_CONFIG:
-      ClusterConfig config = snapshot.getClusterConfig();
-      if (config == null) {
-        return Collections.emptyMap();
-      } else {
-        return Collections.singletonMap(config.getClusterName(), config);
-      }
-    default:
+    Map<String, ? extends PropertyDigest<?>> propertyMap = snapshot.getPropertyDigests(changeType);
+    if (propertyMap == null) {
       LOG.warn(
           "ResourceChangeDetector cannot determine propertyMap for the given ChangeType: {}. Returning an empty map.",
           changeType);
       return Collections.emptyMap();
     }
+    return propertyMap;
   }
 
   /**
@@ -143,7 +131,8 @@ public class ResourceChangeDetector implements ChangeDetector {
   public synchronized void updateSnapshots(ResourceControllerDataProvider dataProvider) {
     // If there are changes, update internal states
     _oldSnapshot = new ResourceChangeSnapshot(_newSnapshot);
-    _newSnapshot = new ResourceChangeSnapshot(dataProvider, _ignoreNonTopologyChange);
+    // The unchanged properties of the previous snapshot are reused instead of being trimmed again.
+    _newSnapshot = new ResourceChangeSnapshot(dataProvider, _ignoreNonTopologyChange, _oldSnapshot);
     dataProvider.clearRefreshedChangeTypes();
 
     // Invalidate cached computation
@@ -19,14 +19,19 @@ package org.apache.helix.controller.changedetector;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.google.common.collect.Maps;
 import org.apache.helix.HelixConstants;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.controller.changedetector.trimmer.ClusterConfigTrimmer;
+import org.apache.helix.controller.changedetector.trimmer.HelixPropertyTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.IdealStateTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.InstanceConfigTrimmer;
 import org.apache.helix.controller.changedetector.trimmer.ResourceConfigTrimmer;
@@ -46,17 +51,27 @@ import org.apache.helix.model.ResourceConfig;
  * 5. Changed property types
  * It serves as a snapshot of the main controller cache to enable the difference (change)
  * calculation between two rounds of the pipeline run.
+ * Each property is kept in a PropertyDigest. The digests of the properties whose znode versions
+ * are not changed since the previous snapshot are reused, so those properties are neither trimmed
+ * nor fingerprinted again.
  */
 class ResourceChangeSnapshot {
 
   private Set<HelixConstants.ChangeType> _changedTypes;
-  private Map<String, InstanceConfig> _allInstanceConfigMap;
-  private Map<String, InstanceConfig> _assignableInstanceConfigMap;
-  private Map<String, IdealState> _idealStateMap;
-  private Map<String, ResourceConfig> _resourceConfigMap;
-  private Map<String, LiveInstance> _allLiveInstances;
-  private Map<String, LiveInstance> _assignableLiveInstances;
-  private ClusterConfig _clusterConfig;
+  private Map<String, PropertyDigest<InstanceConfig>> _allInstanceConfigMap;
+  private Map<String, PropertyDigest<InstanceConfig>> _assignableInstanceConfigMap;
+  private Map<String, PropertyDigest<IdealState>> _idealStateMap;
+  private Map<String, PropertyDigest<ResourceConfig>> _resourceConfigMap;
+  private Map<String, PropertyDigest<LiveInstance>> _allLiveInstances;
+  private Map<String, PropertyDigest<LiveInstance>> _assignableLiveInstances;
+  private PropertyDigest<ClusterConfig> _clusterConfig;
+  // The read-only views of the properties kept in the digests, created once per snapshot
+  private Map<String, InstanceConfig> _allInstanceConfigView;
+  private Map<String, InstanceConfig> _assignableInstanceConfigView;
+  private Map<String, IdealState> _idealStateView;
+  private Map<String, ResourceConfig> _resourceConfigView;
+  private Map<String, LiveInstance> _allLiveInstanceView;
+  private Map<String, LiveInstance> _assignableLiveInstanceView;
 
   /**
    * Default constructor that constructs an empty snapshot.
@@ -70,6 +85,7 @@ class ResourceChangeSnapshot {
     _allLiveInstances = new HashMap<>();
     _assignableLiveInstances = new HashMap<>();
     _clusterConfig = null;
+    initPropertyViews();
   }
 
   /**
@@ -83,32 +99,41 @@ class ResourceChangeSnapshot {
    */
   ResourceChangeSnapshot(ResourceControllerDataProvider dataProvider,
       boolean ignoreNonTopologyChange) {
+    this(dataProvider, ignoreNonTopologyChange, new ResourceChangeSnapshot());
+  }
+
+  /**
+   * Constructor using controller cache (ResourceControllerDataProvider) and the previous snapshot.
+   * The previous snapshot must be taken with the same ignoreNonTopologyChange option.
+   *
+   * @param dataProvider
+   * @param ignoreNonTopologyChange if true, the snapshot won't record any trivial changes that
+   *                                 do not impact the fundamental structure of the cluster.
+   * @param previousSnapshot the snapshot whose unchanged property digests are reused
+   */
+  ResourceChangeSnapshot(ResourceControllerDataProvider dataProvider,
+      boolean ignoreNonTopologyChange, ResourceChangeSnapshot previousSnapshot) {
     _changedTypes = new HashSet<>(dataProvider.getRefreshedChangeTypes());
-    _allInstanceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getInstanceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> InstanceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getInstanceConfigMap());
-    _assignableInstanceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getAssignableInstanceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> InstanceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getAssignableInstanceConfigMap());
-    _idealStateMap = ignoreNonTopologyChange ?
-        dataProvider.getIdealStates().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> IdealStateTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getIdealStates());
-    _resourceConfigMap = ignoreNonTopologyChange ?
-        dataProvider.getResourceConfigMap().entrySet().parallelStream().collect(Collectors
-            .toMap(e -> e.getKey(),
-                e -> ResourceConfigTrimmer.getInstance().trimProperty(e.getValue()))) :
-        new HashMap<>(dataProvider.getResourceConfigMap());
-    _clusterConfig = ignoreNonTopologyChange ?
-        ClusterConfigTrimmer.getInstance().trimProperty(dataProvider.getClusterConfig()) :
-        dataProvider.getClusterConfig();
-    _allLiveInstances = new HashMap<>(dataProvider.getLiveInstances());
-    _assignableLiveInstances = new HashMap<>(dataProvider.getAssignableLiveInstances());
+    _allInstanceConfigMap = digestProperties(dataProvider.getInstanceConfigMap(),
+        ignoreNonTopologyChange ? InstanceConfigTrimmer.getInstance() : null,
+        previousSnapshot._allInstanceConfigMap);
+    _assignableInstanceConfigMap = digestProperties(dataProvider.getAssignableInstanceConfigMap(),
+        ignoreNonTopologyChange ? InstanceConfigTrimmer.getInstance() : null,
+        previousSnapshot._assignableInstanceConfigMap);
+    _idealStateMap = digestProperties(dataProvider.getIdealStates(),
+        ignoreNonTopologyChange ? IdealStateTrimmer.getInstance() : null,
+        previousSnapshot._idealStateMap);
+    _resourceConfigMap = digestProperties(dataProvider.getResourceConfigMap(),
+        ignoreNonTopologyChange ? ResourceConfigTrimmer.getInstance() : null,
+        previousSnapshot._resourceConfigMap);
+    _clusterConfig = digestProperty(dataProvider.getClusterConfig(),
+        ignoreNonTopologyChange ? ClusterConfigTrimmer.getInstance() : null,
+        previousSnapshot._clusterConfig);
+    _allLiveInstances =
+        digestProperties(dataProvider.getLiveInstances(), null, previousSnapshot._allLiveInstances);
+    _assignableLiveInstances = digestProperties(dataProvider.getAssignableLiveInstances(), null,
+        previousSnapshot._assignableLiveInstances);
+    initPropertyViews();
   }
 
   /**
@@ -124,6 +149,53 @@ class ResourceChangeSnapshot {
     _allLiveInstances = new HashMap<>(snapshot._allLiveInstances);
     _assignableLiveInstances = new HashMap<>(snapshot._assignableLiveInstances);
     _clusterConfig = snapshot._clusterConfig;
+    initPropertyViews();
+  }
+
+  private void initPropertyViews() {
+    _allInstanceConfigView = getProperties(_allInstanceConfigMap);
+    _assignableInstanceConfigView = getProperties(_assignableInstanceConfigMap);
+    _idealStateView = getProperties(_idealStateMap);
+    _resourceConfigView = getProperties(_resourceConfigMap);
+    _allLiveInstanceView = getProperties(_allLiveInstances);
+    _assignableLiveInstanceView = getProperties(_assignableLiveInstances);
+  }
+
+  /**
+   * Create the digests of the properties. The digest of the previous snapshot is reused if the
+   * property is read from the same znode version.
+   * @param properties
+   * @param trimmer the trimmer of the properties, or null if the properties are not trimmed
+   * @param previousDigests
+   */
+  private static <T extends HelixProperty> Map<String, PropertyDigest<T>> digestProperties(
+      Map<String, T> properties, HelixPropertyTrimmer<T> trimmer,
+      Map<String, PropertyDigest<T>> previousDigests) {
+    // Trimming copies the properties, so do it in parallel.
+    Stream<Map.Entry<String, T>> entries = trimmer == null ? properties.entrySet().stream()
+        : properties.entrySet().parallelStream();
+    return entries.collect(Collectors.toMap(Map.Entry::getKey,
+        e -> digestProperty(e.getValue(), trimmer, previousDigests.get(e.getKey()))));
+  }
+
+  private static <T extends HelixProperty> PropertyDigest<T> digestProperty(T property,
+      HelixPropertyTrimmer<T> trimmer, PropertyDigest<T> previousDigest) {
+    if (property == null) {
+      return null;
+    }
+    if (previousDigest != null && previousDigest.isSameVersion(property)) {
+      return previousDigest;
+    }
+    return new PropertyDigest<>(property,
+        trimmer == null ? property : trimmer.trimProperty(property));
+  }
+
+  /**
+   * @return a read-only view of the properties in the digests, which does not copy the map
+   */
+  private static <T extends HelixProperty> Map<String, T> getProperties(
+      Map<String, PropertyDigest<T>> digests) {
+    return Collections.unmodifiableMap(Maps.transformValues(digests, PropertyDigest::getProperty));
   }
 
   Set<HelixConstants.ChangeType> getChangedTypes() {
@@ -131,30 +203,57 @@ class ResourceChangeSnapshot {
   }
 
   Map<String, InstanceConfig> getInstanceConfigMap() {
-    return _allInstanceConfigMap;
+    return _allInstanceConfigView;
   }
 
   Map<String, InstanceConfig> getAssignableInstanceConfigMap() {
-    return _assignableInstanceConfigMap;
+    return _assignableInstanceConfigView;
   }
 
   Map<String, IdealState> getIdealStateMap() {
-    return _idealStateMap;
+    return _idealStateView;
   }
 
   Map<String, ResourceConfig> getResourceConfigMap() {
-    return _resourceConfigMap;
+    return _resourceConfigView;
   }
 
   Map<String, LiveInstance> getLiveInstances() {
-    return _allLiveInstances;
+    return _allLiveInstanceView;
   }
 
   Map<String, LiveInstance> getAssignableLiveInstances() {
-    return _assignableLiveInstances;
+    return _assignableLiveInstanceView;
   }
 
   ClusterConfig getClusterConfig() {
-    return _clusterConfig;
+    return _clusterConfig == null ? null : _clusterConfig.getProperty();
+  }
+
+  /**
+   * @return the property digests of the given change type, or null if the type is not tracked
+   *         by the snapshot.
+   */
+  Map<String, ? extends PropertyDigest<?>> getPropertyDigests(
+      HelixConstants.ChangeType changeType) {
+    switch (changeType) {
+    case INSTANCE_CONFIG:
+      return _assignableInstanceConfigMap;
+    case IDEAL_STATE:
+      return _idealStateMap;
+    case RESOURCE_CONFIG:
+      return _resourceConfigMap;
+    case LIVE_INSTANCE:
+      return _assignableLiveInstances;
+    case CLUSTER_CONFIG:
+      if (_clusterConfig == null) {
+        return Collections.emptyMap();
+      } else {
+        return Collections
+            .singletonMap(_clusterConfig.getProperty().getClusterName(), _clusterConfig);
+      }
+    default:
+      return null;
+    }
   }
 }
@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -64,6 +65,7 @@ import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.util.HelixUtil;
+import org.apache.helix.util.StringInternPool;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.slf4j.Logger;
@@ -79,6 +81,12 @@ import org.slf4j.LoggerFactory;
 public class BaseControllerDataProvider implements ControlContextProvider {
   private static final Logger logger = LoggerFactory.getLogger(BaseControllerDataProvider.class);
 
+  // The number of slots of the pool that de-duplicates the instance, partition and state names in
+  // the cached current states, ideal states, external views and messages. 0 disables the pool.
+  public static final String STRING_INTERN_POOL_CAPACITY =
+      "helix.controller.dataprovider.stringInternPoolCapacity";
+  private static final int DEFAULT_STRING_INTERN_POOL_CAPACITY = 1 << 16;
+
   // We only refresh EV and TEV the very first time the cluster data cache is initialized
   private static final List<HelixConstants.ChangeType> _noFullRefreshProperty = Arrays
       .asList(HelixConstants.ChangeType.EXTERNAL_VIEW,
@@ -98,6 +106,10 @@ public class BaseControllerDataProvider implements ControlContextProvider {
 
   // A map recording what data has changed
   protected Map<HelixConstants.ChangeType, AtomicBoolean> _propertyDataChangedMap;
+  // Bumped by every data change notification
+  private final AtomicLong _dataChangeVersion = new AtomicLong();
+  // The data change version when the last refresh started
+  private volatile long _refreshedDataChangeVersion = -1;
 
   // Property caches
   private final PropertyCache<ResourceConfig> _resourceConfigCache;
@@ -111,6 +123,7 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   private final CurrentStateCache _currentStateCache;
   protected TaskCurrentStateCache _taskCurrentStateCache;
   private final InstanceMessagesCache _instanceMessagesCache;
+  private final StringInternPool _stringInternPool;
 
   // Other miscellaneous caches
   private Map<String, Long> _instanceOfflineTimeMap;
@@ -274,6 +287,24 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     _currentStateCache = new CurrentStateCache(this);
     _taskCurrentStateCache = new TaskCurrentStateCache(this);
     _instanceMessagesCache = new InstanceMessagesCache(_clusterName);
+
+    // HelixUtil.getSystemPropertyAsInt ignores non-positive values, so it cannot disable the pool.
+    int internPoolCapacity =
+        Integer.getInteger(STRING_INTERN_POOL_CAPACITY, DEFAULT_STRING_INTERN_POOL_CAPACITY);
+    _stringInternPool = internPoolCapacity > 0 ? new StringInternPool(
+        Math.min(internPoolCapacity, StringInternPool.MAX_CAPACITY)) : null;
+    _idealStateCache.setStringInternPool(_stringInternPool);
+    _currentStateCache.setStringInternPool(_stringInternPool);
+    _taskCurrentStateCache.setStringInternPool(_stringInternPool);
+    _instanceMessagesCache.setStringInternPool(_stringInternPool);
+  }
+
+  /**
+   * @return the pool that de-duplicates the strings of the properties cached for this cluster,
+   *         or null if the pool is disabled
+   */
+  protected StringInternPool getStringInternPool() {
+    return _stringInternPool;
   }
 
   private void refreshClusterConfig(final HelixDataAccessor accessor,
@@ -539,6 +570,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
    */
   protected synchronized Set<HelixConstants.ChangeType> doRefresh(HelixDataAccessor accessor) {
     Set<HelixConstants.ChangeType> refreshedTypes = new HashSet<>();
+    // Read before the data, so a change notified during the refresh bumps the version again.
+    _refreshedDataChangeVersion = _dataChangeVersion.get();
 
     // Refresh raw data
     refreshClusterConfig(accessor, refreshedTypes);
@@ -1033,6 +1066,7 @@ public class BaseControllerDataProvider implements ControlContextProvider {
    */
   public void notifyDataChange(HelixConstants.ChangeType changeType) {
     _propertyDataChangedMap.get(changeType).set(true);
+    _dataChangeVersion.incrementAndGet();
   }
 
   /**
@@ -1159,6 +1193,18 @@ public class BaseControllerDataProvider implements ControlContextProvider {
         _propertyDataChangedMap.get(type).set(true);
       }
     }
+    _dataChangeVersion.incrementAndGet();
+  }
+
+  /**
+   * Get the version of the cluster data that the last refresh loaded. The version is bumped by
+   * every data change notification and full refresh request, so the same version means that the
+   * cached data, and anything computed only from it, did not change in between. A computation
+   * driven by timers, such as a delayed rebalance, may still change without a version change.
+   * @return the data change version, or -1 if the cache has not been refreshed
+   */
+  public long getRefreshedDataChangeVersion() {
+    return _refreshedDataChangeVersion;
   }
 
   /**
@@ -138,6 +138,8 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
         return obj.getResourceName();
       }
     }, true);
+    _externalViewCache.setStringInternPool(getStringInternPool());
+    _targetExternalViewCache.setStringInternPool(getStringInternPool());
     _resourceAssignmentCache = new HashMap<>();
     _idealMappingCache = new HashMap<>();
     _missingTopStateMap = new HashMap<>();
@@ -21,7 +21,6 @@ package org.apache.helix.controller.rebalancer.util;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -32,6 +31,7 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.util.HierarchicalTimingWheel;
 import org.apache.helix.util.RebalanceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,8 +61,9 @@ public class RebalanceScheduler {
   }
 
   private final Map<String, ScheduledTask> _rebalanceTasks = new HashMap<String, ScheduledTask>();
+  // All the schedulers share one timer, since a scheduler is not shut down with its owner.
   private final ScheduledExecutorService _rebalanceExecutor =
-      Executors.newSingleThreadScheduledExecutor();
+      HierarchicalTimingWheel.getSharedInstance();
 
   /**
    * Add a future rebalance task for resource at given startTime
@@ -20,13 +20,18 @@ package org.apache.helix.controller.rebalancer.waged;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixProperty;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.manager.zk.ZkBucketDataAccessor;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -35,19 +40,34 @@ import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 
 /**
- * A placeholder before we have the real assignment metadata store.
+ * Stores the baseline and the best possible assignment in the metadata store.
+ *
+ * If the delta persistence is enabled, an assignment is stored as a checkpoint of all the resources
+ * and a delta that contains the resources changed since the checkpoint. Every checkpoint has a new
+ * generation, and a delta only applies to the checkpoint of the same generation. Most rebalances
+ * only change a few resources, so writing the delta instead of the whole assignment reduces the
+ * bytes written to the metadata store. A new checkpoint is written once the delta has been written
+ * {@link #DEFAULT_CHECKPOINT_INTERVAL} times or covers more than half of the resources.
  */
 public class AssignmentMetadataStore {
   private static final String ASSIGNMENT_METADATA_KEY = "ASSIGNMENT_METADATA";
   private static final String BASELINE_TEMPLATE = "/%s/%s/BASELINE";
   private static final String BEST_POSSIBLE_TEMPLATE = "/%s/%s/BEST_POSSIBLE";
+  private static final String DELTA_SUFFIX = "_DELTA";
   private static final String BASELINE_KEY = "BASELINE";
   private static final String BEST_POSSIBLE_KEY = "BEST_POSSIBLE";
+  private static final String PERSISTENCE_METADATA_KEY = "PERSISTENCE_METADATA";
+  private static final String GENERATION_KEY = "GENERATION";
+  private static final String SEQUENCE_KEY = "SEQUENCE";
+  private static final String REMOVED_RESOURCES_KEY = "REMOVED_RESOURCES";
   private static final ZkSerializer SERIALIZER = new ZNRecordJacksonSerializer();
+  // The max number of deltas written on top of one checkpoint
+  static final int DEFAULT_CHECKPOINT_INTERVAL = 10;
 
   private final BucketDataAccessor _dataAccessor;
-  private final String _baselinePath;
-  private final String _bestPossiblePath;
+  private final boolean _deltaPersistenceEnabled;
+  private final PersistedState _baselineState;
+  private final PersistedState _bestPossibleState;
   // volatile for double-checked locking
   protected volatile Map<String, ResourceAssignment> _globalBaseline;
   protected volatile Map<String, ResourceAssignment> _bestPossibleAssignment;
@@ -59,9 +79,24 @@ public class AssignmentMetadataStore {
   }
 
   protected AssignmentMetadataStore(BucketDataAccessor bucketDataAccessor, String clusterName) {
+    this(bucketDataAccessor, clusterName,
+        Boolean.getBoolean(SystemPropertyKeys.WAGED_ASSIGNMENT_DELTA_PERSISTENCE_ENABLED));
+  }
+
+  /**
+   * @param deltaPersistenceEnabled if true, persist the changes since the last checkpoint as a
+   *                                delta. Note that the controllers that do not enable it cannot
+   *                                read the deltas, so it should only be enabled once all the
+   *                                controllers of the cluster support it.
+   */
+  protected AssignmentMetadataStore(BucketDataAccessor bucketDataAccessor, String clusterName,
+      boolean deltaPersistenceEnabled) {
     _dataAccessor = bucketDataAccessor;
-    _baselinePath = String.format(BASELINE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY);
-    _bestPossiblePath = String.format(BEST_POSSIBLE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY);
+    _deltaPersistenceEnabled = deltaPersistenceEnabled;
+    _baselineState = new PersistedState(BASELINE_KEY,
+        String.format(BASELINE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY));
+    _bestPossibleState = new PersistedState(BEST_POSSIBLE_KEY,
+        String.format(BEST_POSSIBLE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY));
   }
 
   public Map<String, ResourceAssignment> getBaseline() {
@@ -70,7 +105,7 @@ public class AssignmentMetadataStore {
       // double-checked locking
       synchronized (this) {
         if (_globalBaseline == null) {
-          _globalBaseline = fetchAssignmentOrDefault(_baselinePath);
+          _globalBaseline = fetchAssignmentOrDefault(_baselineState);
         }
       }
     }
@@ -93,39 +128,138 @@ public class AssignmentMetadataStore {
       // double-checked locking
       synchronized (this) {
         if (_bestPossibleAssignment == null) {
-          _bestPossibleAssignment = fetchAssignmentOrDefault(_bestPossiblePath);
+          _bestPossibleAssignment = fetchAssignmentOrDefault(_bestPossibleState);
         }
       }
     }
     return _bestPossibleAssignment;
   }
 
-  private Map<String, ResourceAssignment> fetchAssignmentOrDefault(String path) {
+  private Map<String, ResourceAssignment> fetchAssignmentOrDefault(PersistedState state) {
+    state.clear();
+    Map<String, String> serializedAssignments;
     try {
-      HelixProperty assignment = _dataAccessor.compressedBucketRead(path, HelixProperty.class);
-      return splitAssignments(assignment);
+      HelixProperty checkpoint =
+          _dataAccessor.compressedBucketRead(state._checkpointPath, HelixProperty.class);
+      serializedAssignments = new HashMap<>(checkpoint.getRecord().getSimpleFields());
+      state._generation = getPersistenceMetadata(checkpoint, GENERATION_KEY);
     } catch (ZkNoNodeException ex) {
       // Metadata does not exist, so return an empty map
       return new HashMap<>();
     }
+    // A checkpoint without generation is written with the delta persistence disabled, so there is
+    // no delta on top of it.
+    if (state._generation > 0) {
+      applyDelta(state, serializedAssignments);
+    }
+    serializedAssignments
+        .forEach((resource, assignmentStr) -> state._fingerprints.put(resource, fingerprint(assignmentStr)));
+    return splitAssignments(serializedAssignments);
+  }
+
+  /**
+   * Apply the delta of the same generation as the checkpoint to the serialized assignments.
+   */
+  private void applyDelta(PersistedState state, Map<String, String> serializedAssignments) {
+    HelixProperty delta;
+    try {
+      delta = _dataAccessor.compressedBucketRead(state._deltaPath, HelixProperty.class);
+    } catch (ZkNoNodeException ex) {
+      return;
+    }
+    // The delta is left behind by an earlier checkpoint, ignore it
+    if (getPersistenceMetadata(delta, GENERATION_KEY) != state._generation) {
+      return;
+    }
+    Map<String, String> updatedAssignments = delta.getRecord().getSimpleFields();
+    List<String> removedResources = delta.getRecord().getListField(REMOVED_RESOURCES_KEY);
+    serializedAssignments.putAll(updatedAssignments);
+    state._deltaResources.addAll(updatedAssignments.keySet());
+    if (removedResources != null) {
+      removedResources.forEach(serializedAssignments::remove);
+      state._deltaResources.addAll(removedResources);
+    }
+    state._deltaCount = (int) getPersistenceMetadata(delta, SEQUENCE_KEY);
   }
 
   /**
+   * Persist the assignment as a checkpoint or, if the delta persistence is enabled, as a delta on
+   * top of the current checkpoint. The persisted state must have been loaded.
    * @param newAssignment
-   * @param path the path of the assignment record
-   * @param key  the key of the assignment in the record
-   * @throws HelixException if the method failed to persist the baseline.
+   * @param state the persisted state of the assignment
+   * @throws HelixException if the method failed to persist the assignment.
    */
-  private void persistAssignmentToMetadataStore(Map<String, ResourceAssignment> newAssignment, String path, String key)
-      throws HelixException {
+  private void persistAssignmentToMetadataStore(Map<String, ResourceAssignment> newAssignment,
+      PersistedState state) throws HelixException {
+    Map<String, String> serializedAssignments = combineAssignments(newAssignment);
+    Map<String, Long> fingerprints = new HashMap<>();
+    Set<String> deltaResources = new HashSet<>(state._deltaResources);
+    serializedAssignments.forEach((resource, assignmentStr) -> {
+      Long fingerprint = fingerprint(assignmentStr);
+      fingerprints.put(resource, fingerprint);
+      if (!fingerprint.equals(state._fingerprints.get(resource))) {
+        deltaResources.add(resource);
+      }
+    });
+    for (String resource : state._fingerprints.keySet()) {
+      if (!serializedAssignments.containsKey(resource)) {
+        deltaResources.add(resource);
+      }
+    }
+
+    HelixProperty property = new HelixProperty(state._key);
+    String path;
+    boolean writeDelta = _deltaPersistenceEnabled && state._generation > 0
+        && state._deltaCount < DEFAULT_CHECKPOINT_INTERVAL
+        && deltaResources.size() * 2 <= serializedAssignments.size();
+    long generation = state._generation;
+    int deltaCount;
+    if (writeDelta) {
+      List<String> removedResources = new ArrayList<>();
+      for (String resource : deltaResources) {
+        String assignmentStr = serializedAssignments.get(resource);
+        if (assignmentStr == null) {
+          removedResources.add(resource);
+        } else {
+          property.getRecord().setSimpleField(resource, assignmentStr);
+        }
+      }
+      property.getRecord().setListField(REMOVED_RESOURCES_KEY, removedResources);
+      deltaCount = state._deltaCount + 1;
+      path = state._deltaPath;
+    } else {
+      property.getRecord().setSimpleFields(serializedAssignments);
+      // Use the timestamp as the generation, so a new checkpoint never picks up a stale delta even
+      // after the metadata is cleared.
+      generation =
+          _deltaPersistenceEnabled ? Math.max(state._generation + 1, System.currentTimeMillis()) : 0;
+      deltaCount = 0;
+      path = state._checkpointPath;
+    }
+    if (generation > 0) {
+      Map<String, String> metadata = new HashMap<>();
+      metadata.put(GENERATION_KEY, Long.toString(generation));
+      metadata.put(SEQUENCE_KEY, Integer.toString(deltaCount));
+      property.getRecord().setMapField(PERSISTENCE_METADATA_KEY, metadata);
+    }
+
     // TODO: Make the write async?
     // Persist to ZK
-    HelixProperty combinedAssignments = combineAssignments(key, newAssignment);
     try {
-      _dataAccessor.compressedBucketWrite(path, combinedAssignments);
+      _dataAccessor.compressedBucketWrite(path, property);
     } catch (IOException e) {
-      throw new HelixException(String.format("Failed to persist %s assignment to path %s", key, path), e);
+      throw new HelixException(String.format("Failed to persist %s assignment to path %s", state._key, path), e);
+    }
+
+    state._generation = generation;
+    state._deltaCount = deltaCount;
+    state._fingerprints = fingerprints;
+    if (writeDelta) {
+      state._deltaResources = deltaResources;
+    } else {
+      state._deltaResources.clear();
     }
+    state._lastPersistedBytes = estimateSize(property.getRecord());
   }
 
   /**
@@ -133,11 +267,13 @@ public class AssignmentMetadataStore {
    * @param globalBaseline
    */
   public synchronized void persistBaseline(Map<String, ResourceAssignment> globalBaseline) {
+    // load the persisted state before comparing with it
+    Map<String, ResourceAssignment> baseline = getBaseline();
     // write to metadata store
-    persistAssignmentToMetadataStore(globalBaseline, _baselinePath, BASELINE_KEY);
+    persistAssignmentToMetadataStore(globalBaseline, _baselineState);
     // write to memory
-    getBaseline().clear();
-    getBaseline().putAll(globalBaseline);
+    baseline.clear();
+    baseline.putAll(globalBaseline);
   }
 
   /**
@@ -146,11 +282,13 @@ public class AssignmentMetadataStore {
    * @param bestPossibleAssignment
    */
   public synchronized void persistBestPossibleAssignment(Map<String, ResourceAssignment> bestPossibleAssignment) {
+    // load the persisted state before comparing with it
+    Map<String, ResourceAssignment> currentAssignment = getBestPossibleAssignment();
     // write to metadata store
-    persistAssignmentToMetadataStore(bestPossibleAssignment, _bestPossiblePath, BEST_POSSIBLE_KEY);
+    persistAssignmentToMetadataStore(bestPossibleAssignment, _bestPossibleState);
     // write to memory
-    getBestPossibleAssignment().clear();
-    getBestPossibleAssignment().putAll(bestPossibleAssignment);
+    currentAssignment.clear();
+    currentAssignment.putAll(bestPossibleAssignment);
     _bestPossibleVersion++;
     _lastPersistedBestPossibleVersion = _bestPossibleVersion;
   }
@@ -179,14 +317,35 @@ public class AssignmentMetadataStore {
     return _bestPossibleVersion;
   }
 
+  /**
+   * @return the estimated number of bytes, before compression, written to the metadata store by the
+   * last persist of the baseline.
+   */
+  public long getLastPersistedBaselineBytes() {
+    return _baselineState._lastPersistedBytes;
+  }
+
+  /**
+   * @return the estimated number of bytes, before compression, written to the metadata store by the
+   * last persist of the best possible assignment.
+   */
+  public long getLastPersistedBestPossibleBytes() {
+    return _bestPossibleState._lastPersistedBytes;
+  }
+
   public synchronized void clearAssignmentMetadata() {
-    persistAssignmentToMetadataStore(Collections.emptyMap(), _baselinePath, BASELINE_KEY);
-    persistAssignmentToMetadataStore(Collections.emptyMap(), _bestPossiblePath, BEST_POSSIBLE_KEY);
-    getBaseline().clear();
-    getBestPossibleAssignment().clear();
+    Map<String, ResourceAssignment> baseline = getBaseline();
+    Map<String, ResourceAssignment> bestPossibleAssignment = getBestPossibleAssignment();
+    persistAssignmentToMetadataStore(Collections.emptyMap(), _baselineState);
+    persistAssignmentToMetadataStore(Collections.emptyMap(), _bestPossibleState);
+    baseline.clear();
+    bestPossibleAssignment.clear();
   }
 
   protected synchronized void reset() {
+    // The persisted states are reloaded together with the assignments
+    _baselineState.clear();
+    _bestPossibleState.clear();
     if (_bestPossibleAssignment != null) {
       _bestPossibleAssignment.clear();
       _bestPossibleAssignment = null;
@@ -208,36 +367,104 @@ public class AssignmentMetadataStore {
   }
 
   /**
-   * Produces one HelixProperty that contains all assignment data.
-   * @param name
+   * Serializes each resource's assignment.
    * @param assignmentMap
-   * @return
+   * @return a Map of (ResourceName, serialized ResourceAssignment) pairs
    */
-  private HelixProperty combineAssignments(String name,
-      Map<String, ResourceAssignment> assignmentMap) {
-    HelixProperty property = new HelixProperty(name);
-    // Add each resource's assignment as a simple field in one ZNRecord
+  private Map<String, String> combineAssignments(Map<String, ResourceAssignment> assignmentMap) {
+    Map<String, String> serializedAssignments = new HashMap<>();
     // Node that don't use Arrays.toString() for the record converting. The deserialize will fail.
-    assignmentMap.forEach((resource, assignment) -> property.getRecord().setSimpleField(resource,
+    assignmentMap.forEach((resource, assignment) -> serializedAssignments.put(resource,
         new String(SERIALIZER.serialize(assignment.getRecord()))));
-    return property;
+    return serializedAssignments;
   }
 
   /**
    * Returns a Map of (ResourceName, ResourceAssignment) pairs.
-   * @param property
+   * @param serializedAssignments
    * @return
    */
-  private Map<String, ResourceAssignment> splitAssignments(HelixProperty property) {
+  private Map<String, ResourceAssignment> splitAssignments(
+      Map<String, String> serializedAssignments) {
     Map<String, ResourceAssignment> assignmentMap = new HashMap<>();
     // Convert each resource's assignment String into a ResourceAssignment object and put it in a
     // map
-    property.getRecord().getSimpleFields()
-        .forEach((resource, assignmentStr) -> assignmentMap.put(resource,
-            new ResourceAssignment((ZNRecord) SERIALIZER.deserialize(assignmentStr.getBytes()))));
+    serializedAssignments.forEach((resource, assignmentStr) -> assignmentMap.put(resource,
+        new ResourceAssignment((ZNRecord) SERIALIZER.deserialize(assignmentStr.getBytes()))));
     return assignmentMap;
   }
 
+  private static long getPersistenceMetadata(HelixProperty property, String key) {
+    Map<String, String> metadata = property.getRecord().getMapField(PERSISTENCE_METADATA_KEY);
+    if (metadata == null || metadata.get(key) == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(metadata.get(key));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * @return the 64-bit FNV-1a hash of the serialized assignment
+   */
+  private static long fingerprint(String assignmentStr) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < assignmentStr.length(); i++) {
+      hash ^= assignmentStr.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static long estimateSize(ZNRecord record) {
+    long size = 0;
+    for (Map.Entry<String, String> entry : record.getSimpleFields().entrySet()) {
+      size += entry.getKey().length() + entry.getValue().length();
+    }
+    for (Map.Entry<String, List<String>> entry : record.getListFields().entrySet()) {
+      size += entry.getKey().length();
+      for (String value : entry.getValue()) {
+        size += value.length();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * The state of an assignment in the metadata store, which is used to find the resources to be
+   * written in the next delta.
+   */
+  private static class PersistedState {
+    private final String _key;
+    private final String _checkpointPath;
+    private final String _deltaPath;
+    // The generation of the checkpoint, 0 if the checkpoint does not have one
+    private long _generation;
+    // The number of deltas written on top of the checkpoint
+    private int _deltaCount;
+    // Resource -> fingerprint of the persisted assignment
+    private Map<String, Long> _fingerprints = new HashMap<>();
+    // The resources updated or removed since the checkpoint
+    private Set<String> _deltaResources = new HashSet<>();
+    // The estimated number of bytes written by the last persist
+    private volatile long _lastPersistedBytes;
+
+    PersistedState(String key, String checkpointPath) {
+      _key = key;
+      _checkpointPath = checkpointPath;
+      _deltaPath = checkpointPath + DELTA_SUFFIX;
+    }
+
+    void clear() {
+      _generation = 0;
+      _deltaCount = 0;
+      _fingerprints = new HashMap<>();
+      _deltaResources = new HashSet<>();
+    }
+  }
+
   protected boolean isBaselineChanged(Map<String, ResourceAssignment> newBaseline) {
     return !getBaseline().equals(newBaseline);
   }
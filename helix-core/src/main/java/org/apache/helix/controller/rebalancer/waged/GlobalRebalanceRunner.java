@@ -71,6 +71,7 @@ class GlobalRebalanceRunner implements AutoCloseable {
   private final AssignmentManager _assignmentManager;
   private final AssignmentMetadataStore _assignmentMetadataStore;
   private final LatencyMetric _writeLatency;
+  private final CountMetric _writeBytesCounter;
   private final CountMetric _baselineCalcCounter;
   private final LatencyMetric _baselineCalcLatency;
   private final CountMetric _rebalanceFailureCount;
@@ -88,6 +89,9 @@ class GlobalRebalanceRunner implements AutoCloseable {
     _assignmentMetadataStore = assignmentMetadataStore;
     _changeDetector = new ResourceChangeDetector(true);
     _writeLatency = writeLatency;
+    _writeBytesCounter = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateWriteBytesCounter.name(),
+        CountMetric.class);
     _baselineCalcCounter = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.GlobalBaselineCalcCounter.name(),
         CountMetric.class);
@@ -185,6 +189,7 @@ class GlobalRebalanceRunner implements AutoCloseable {
         _writeLatency.startMeasuringLatency();
         _assignmentMetadataStore.persistBaseline(newBaseline);
         _writeLatency.endMeasuringLatency();
+        _writeBytesCounter.increment(_assignmentMetadataStore.getLastPersistedBaselineBytes());
       } catch (Exception ex) {
         throw new HelixRebalanceException("Failed to persist the new baseline assignment.",
             HelixRebalanceException.Type.INVALID_REBALANCER_STATUS, ex);
@@ -27,10 +27,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
+import org.apache.helix.controller.rebalancer.waged.model.IncrementalPartialRebalanceCalculator;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
@@ -50,6 +52,9 @@ import org.slf4j.LoggerFactory;
  * minimal rebalance scope. In short, the rebalance scope only contains the following two types of partitions.
  * 1. The partition's current assignment becomes invalid.
  * 2. The Baseline contains some new partition assignments that do not exist in the current assignment.
+ * Unless disabled by {@link SystemPropertyKeys#WAGED_INCREMENTAL_PARTIAL_REBALANCE_DISABLED}, the
+ * calculation reuses the cluster model of the previous run and only re-places the replicas of the
+ * resources that are affected by the changes since then.
  */
 class PartialRebalanceRunner implements AutoCloseable {
 
@@ -62,6 +67,9 @@ class PartialRebalanceRunner implements AutoCloseable {
   private final CountMetric _rebalanceFailureCount;
   private final CountMetric _partialRebalanceCounter;
   private final LatencyMetric _partialRebalanceLatency;
+  private final CountMetric _incrementalPartialRebalanceCounter;
+  // Only accessed by the best possible calculation thread. Null if incremental calculation is disabled.
+  private final IncrementalPartialRebalanceCalculator _incrementalCalculator;
 
   private boolean _asyncPartialRebalanceEnabled;
   private Future<Boolean> _asyncPartialRebalanceResult;
@@ -76,6 +84,9 @@ class PartialRebalanceRunner implements AutoCloseable {
     _bestPossibleCalculateExecutor = Executors.newSingleThreadExecutor();
     _rebalanceFailureCount = rebalanceFailureCount;
     _asyncPartialRebalanceEnabled = isAsyncPartialRebalanceEnabled;
+    _incrementalCalculator =
+        Boolean.getBoolean(SystemPropertyKeys.WAGED_INCREMENTAL_PARTIAL_REBALANCE_DISABLED) ? null
+            : new IncrementalPartialRebalanceCalculator();
 
     _partialRebalanceCounter = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.PartialRebalanceCounter.name(),
@@ -87,6 +98,10 @@ class PartialRebalanceRunner implements AutoCloseable {
     _baselineDivergenceGauge = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.BaselineDivergenceGauge.name(),
         BaselineDivergenceGauge.class);
+    _incrementalPartialRebalanceCounter = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.IncrementalPartialRebalanceCounter
+            .name(),
+        CountMetric.class);
   }
 
   public void partialRebalance(ResourceControllerDataProvider clusterData, Map<String, Resource> resourceMap,
@@ -152,16 +167,25 @@ class PartialRebalanceRunner implements AutoCloseable {
     Map<String, ResourceAssignment> currentBestPossibleAssignment =
         _assignmentManager.getBestPossibleAssignment(_assignmentMetadataStore, currentStateOutput,
             resourceMap.keySet());
-    ClusterModel clusterModel;
-    try {
-      clusterModel = ClusterModelProvider
-          .generateClusterModelForPartialRebalance(clusterData, resourceMap, activeNodes,
-              currentBaseline, currentBestPossibleAssignment);
-    } catch (Exception ex) {
-      throw new HelixRebalanceException("Failed to generate cluster model for partial rebalance.",
-          HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
+    Map<String, ResourceAssignment> newAssignment;
+    if (_incrementalCalculator != null) {
+      newAssignment = _incrementalCalculator.calculateAssignment(clusterData, resourceMap,
+          activeNodes, currentBaseline, currentBestPossibleAssignment, algorithm);
+      if (_incrementalCalculator.isLastCalculationIncremental()) {
+        _incrementalPartialRebalanceCounter.increment(1L);
+      }
+    } else {
+      ClusterModel clusterModel;
+      try {
+        clusterModel = ClusterModelProvider
+            .generateClusterModelForPartialRebalance(clusterData, resourceMap, activeNodes,
+                currentBaseline, currentBestPossibleAssignment);
+      } catch (Exception ex) {
+        throw new HelixRebalanceException("Failed to generate cluster model for partial rebalance.",
+            HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
+      }
+      newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
     }
-    Map<String, ResourceAssignment> newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
 
     // Asynchronously report baseline divergence metric before persisting to metadata store,
     // just in case if persisting fails, we still have the metric.
@@ -89,6 +89,7 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
   private final MetricCollector _metricCollector;
   private final CountMetric _rebalanceFailureCount;
   private final LatencyMetric _writeLatency;
+  private final CountMetric _writeBytesCounter;
   private final CountMetric _emergencyRebalanceCounter;
   private final LatencyMetric _emergencyRebalanceLatency;
   private final CountMetric _rebalanceOverwriteCounter;
@@ -185,6 +186,9 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
     _writeLatency = _metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateWriteLatencyGauge.name(),
         LatencyMetric.class);
+    _writeBytesCounter = _metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateWriteBytesCounter.name(),
+        CountMetric.class);
     _assignmentManager = new AssignmentManager(_metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateReadLatencyGauge.name(),
         LatencyMetric.class));
@@ -580,6 +584,7 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
         _writeLatency.startMeasuringLatency();
         _assignmentMetadataStore.persistBestPossibleAssignment(bestPossibleAssignment);
         _writeLatency.endMeasuringLatency();
+        _writeBytesCounter.increment(_assignmentMetadataStore.getLastPersistedBestPossibleBytes());
       } catch (Exception ex) {
         throw new HelixRebalanceException("Failed to persist the new best possible assignment.",
             HelixRebalanceException.Type.INVALID_REBALANCER_STATUS, ex);
@@ -170,6 +170,23 @@ public class AssignableNode implements Comparable<AssignableNode> {
     }
   }
 
+  /**
+   * Release all the replicas of a resource from the node.
+   * @param resourceName - the resource to be released
+   */
+  void releaseResource(String resourceName) {
+    Map<String, AssignableReplica> partitionMap = _currentAssignedReplicaMap.remove(resourceName);
+    if (partitionMap == null) {
+      return;
+    }
+    for (AssignableReplica replica : partitionMap.values()) {
+      updateRemainingCapacity(replica.getCapacity(), _remainingCapacity, true);
+      if (replica.isReplicaTopState()) {
+        updateRemainingCapacity(replica.getCapacity(), _remainingTopStateCapacity, true);
+      }
+    }
+  }
+
   /**
    * @return A set of all assigned replicas on the node.
    */
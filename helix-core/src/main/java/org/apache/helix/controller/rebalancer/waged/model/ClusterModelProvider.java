@@ -276,7 +276,7 @@ public class ClusterModelProvider {
     return new ClusterModel(context, toBeAssignedReplicas, assignableNodes);
   }
 
-  private static Map<String, ResourceAssignment> generateResourceAssignmentMapLogicalIdView(
+  static Map<String, ResourceAssignment> generateResourceAssignmentMapLogicalIdView(
       Map<String, ResourceAssignment> resourceAssignmentMap,
       ClusterTopologyConfig clusterTopologyConfig, ResourceControllerDataProvider dataProvider) {
 
@@ -315,7 +315,7 @@ public class ClusterModelProvider {
 
   // Filter the replicas map so only the replicas that have been allocated in the existing
   // assignmentMap remain in the map.
-  private static void retainExistingReplicas(Map<String, Set<AssignableReplica>> replicaMap,
+  static void retainExistingReplicas(Map<String, Set<AssignableReplica>> replicaMap,
       Map<String, ResourceAssignment> assignmentMap) {
     replicaMap.entrySet().parallelStream().forEach(replicaSetEntry -> {
       // <partition, <state, instances set>>
@@ -358,7 +358,7 @@ public class ClusterModelProvider {
    * @param allocatedReplicas      A map of <Instance -> replicas> to return the allocated replicas grouped by the target instance name.
    * @return The replicas that need to be reassigned.
    */
-  private static Set<AssignableReplica> findToBeAssignedReplicasByComparingWithIdealAssignment(
+  static Set<AssignableReplica> findToBeAssignedReplicasByComparingWithIdealAssignment(
       Map<String, Set<AssignableReplica>> replicaMap, Set<String> activeInstances,
       Map<String, ResourceAssignment> idealAssignment,
       Map<String, ResourceAssignment> currentAssignment,
@@ -620,7 +620,7 @@ public class ClusterModelProvider {
    * @param assignableNodes All the active assignable nodes.
    * @return A map of assignable replica set, <ResourceName, replica set>.
    */
-  private static Map<String, Set<AssignableReplica>> getAllAssignableReplicas(
+  static Map<String, Set<AssignableReplica>> getAllAssignableReplicas(
       ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
       Set<AssignableNode> assignableNodes) {
     ClusterConfig clusterConfig = dataProvider.getClusterConfig();
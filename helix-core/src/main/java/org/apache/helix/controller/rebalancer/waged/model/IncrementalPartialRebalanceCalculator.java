@@ -0,0 +1,503 @@
+package org.apache.helix.controller.rebalancer.waged.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Sets;
+import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
+import org.apache.helix.controller.rebalancer.waged.RebalanceAlgorithm;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.ClusterTopologyConfig;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.StateModelDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates the partial rebalance assignment incrementally. The calculator keeps the assignable
+ * nodes of the previous calculation, together with the replicas they hold, as the capacity index
+ * of the cluster. On each calculation, only the resources whose inputs have changed since the
+ * previous calculation are released from the nodes and re-evaluated. The other resources keep
+ * their allocations, so only the replicas of the affected resources are re-placed by the
+ * algorithm.
+ *
+ * A resource is re-evaluated if any of the following is true:
+ * 1. Its ideal state, resource config, state model definition or expected state counts changed.
+ * 2. Its Baseline or Best Possible assignment changed.
+ * 3. Its assignments refer to an instance whose config or active status changed.
+ * 4. The previous calculation could not settle all its replicas with the existing allocations.
+ * Any change to the cluster config discards the cached state, so the next calculation is a full
+ * one. The result is the same as the one calculated with
+ * {@link ClusterModelProvider#generateClusterModelForPartialRebalance}.
+ *
+ * Note that this class is not thread safe.
+ */
+public class IncrementalPartialRebalanceCalculator {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(IncrementalPartialRebalanceCalculator.class.getName());
+
+  private ClusterConfig _clusterConfig;
+  private ClusterTopologyConfig _clusterTopologyConfig;
+  private Map<String, InstanceConfig> _instanceConfigMap = Collections.emptyMap();
+  private Set<String> _activeLogicalIds = Collections.emptySet();
+  // <instance name, node> of the active instances, holding the replicas of the last calculation.
+  private final Map<String, AssignableNode> _nodeMap = new HashMap<>();
+  private final Map<String, InstanceConfig> _nodeConfigMap = new HashMap<>();
+  // map{zoneName : map{resourceName : set(partitionNames)}} of the replicas held by the nodes.
+  private final Map<String, Map<String, Set<String>>> _assignmentForFaultZoneMap =
+      new HashMap<>();
+  private final Map<String, ResourceState> _resourceStates = new HashMap<>();
+
+  private boolean _lastCalculationIncremental;
+  private int _lastChangedResourceCount;
+  private int _lastReassignedReplicaCount;
+
+  /**
+   * Calculate a new Best Possible assignment for partial rebalance.
+   * @param dataProvider           The controller's data cache.
+   * @param resourceMap            The full list of the resources to be rebalanced.
+   * @param activeInstances        The active instances that will be used in the calculation.
+   * @param baselineAssignment     The persisted Baseline assignment.
+   * @param bestPossibleAssignment The persisted Best Possible assignment that was generated in the
+   *                               previous rebalance.
+   * @param algorithm              The rebalance algorithm.
+   * @return the new Best Possible assignment
+   * @throws HelixRebalanceException if the calculation fails. The cached state is discarded then.
+   */
+  public Map<String, ResourceAssignment> calculateAssignment(
+      ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
+      Set<String> activeInstances, Map<String, ResourceAssignment> baselineAssignment,
+      Map<String, ResourceAssignment> bestPossibleAssignment, RebalanceAlgorithm algorithm)
+      throws HelixRebalanceException {
+    Set<String> changedResources = new HashSet<>();
+    ClusterModel clusterModel;
+    try {
+      clusterModel = updateClusterModel(dataProvider, resourceMap, activeInstances,
+          baselineAssignment, bestPossibleAssignment, changedResources);
+    } catch (Exception ex) {
+      reset();
+      throw new HelixRebalanceException("Failed to generate cluster model for partial rebalance.",
+          HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
+    }
+
+    Map<String, ResourceAssignment> newAssignment;
+    try {
+      newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+    } catch (HelixRebalanceException | RuntimeException ex) {
+      // The nodes may hold a part of the failed assignment.
+      reset();
+      throw ex;
+    }
+
+    // Record where the replicas of the re-evaluated resources are placed, so they can be released
+    // in the next calculation.
+    for (String resourceName : changedResources) {
+      ResourceState state = _resourceStates.get(resourceName);
+      state._placedInstances.clear();
+      ResourceAssignment resourceAssignment = newAssignment.get(resourceName);
+      if (resourceAssignment != null) {
+        for (Partition partition : resourceAssignment.getMappedPartitions()) {
+          state._placedInstances.addAll(resourceAssignment.getReplicaMap(partition).keySet());
+        }
+      }
+    }
+    return newAssignment;
+  }
+
+  /**
+   * Discard the cached state, so the next calculation is a full one.
+   */
+  public void reset() {
+    _clusterConfig = null;
+    _clusterTopologyConfig = null;
+    _instanceConfigMap = Collections.emptyMap();
+    _activeLogicalIds = Collections.emptySet();
+    _nodeMap.clear();
+    _nodeConfigMap.clear();
+    _assignmentForFaultZoneMap.clear();
+    _resourceStates.clear();
+  }
+
+  /**
+   * @return true if the last calculation reused the cached state of the previous calculation
+   */
+  public boolean isLastCalculationIncremental() {
+    return _lastCalculationIncremental;
+  }
+
+  /**
+   * @return the number of resources that were re-evaluated in the last calculation
+   */
+  public int getLastChangedResourceCount() {
+    return _lastChangedResourceCount;
+  }
+
+  /**
+   * @return the number of replicas that were re-placed by the algorithm in the last calculation
+   */
+  public int getLastReassignedReplicaCount() {
+    return _lastReassignedReplicaCount;
+  }
+
+  private ClusterModel updateClusterModel(ResourceControllerDataProvider dataProvider,
+      Map<String, Resource> resourceMap, Set<String> activeInstances,
+      Map<String, ResourceAssignment> baselineAssignment,
+      Map<String, ResourceAssignment> bestPossibleAssignment, Set<String> changedResources) {
+    ClusterConfig clusterConfig = dataProvider.getClusterConfig();
+    _lastCalculationIncremental = clusterConfig == _clusterConfig;
+    if (!_lastCalculationIncremental) {
+      reset();
+      _clusterConfig = clusterConfig;
+      _clusterTopologyConfig = ClusterTopologyConfig.createFromClusterConfig(clusterConfig);
+    }
+
+    // 1. Find the instances whose config changed, including the added and removed ones.
+    Map<String, InstanceConfig> instanceConfigMap = dataProvider.getInstanceConfigMap();
+    Set<String> changedInstances = new HashSet<>();
+    Set<String> changedLogicalIds = new HashSet<>();
+    instanceConfigMap.forEach((instanceName, instanceConfig) -> {
+      InstanceConfig oldInstanceConfig = _instanceConfigMap.get(instanceName);
+      if (oldInstanceConfig != instanceConfig) {
+        changedInstances.add(instanceName);
+        changedLogicalIds.add(getLogicalId(instanceConfig));
+        if (oldInstanceConfig != null) {
+          changedLogicalIds.add(getLogicalId(oldInstanceConfig));
+        }
+      }
+    });
+    _instanceConfigMap.forEach((instanceName, oldInstanceConfig) -> {
+      if (!instanceConfigMap.containsKey(instanceName)) {
+        changedInstances.add(instanceName);
+        changedLogicalIds.add(getLogicalId(oldInstanceConfig));
+      }
+    });
+    _instanceConfigMap = new HashMap<>(instanceConfigMap);
+
+    // 2. Find the instances that became active or inactive.
+    Map<String, InstanceConfig> assignableInstanceConfigMap =
+        dataProvider.getAssignableInstanceConfigMap();
+    Set<String> activeLogicalIds = activeInstances.stream().map(instanceName -> getLogicalId(
+        assignableInstanceConfigMap.getOrDefault(instanceName, new InstanceConfig(instanceName))))
+        .collect(Collectors.toSet());
+    changedLogicalIds.addAll(Sets.symmetricDifference(activeLogicalIds, _activeLogicalIds));
+    _activeLogicalIds = activeLogicalIds;
+
+    // 3. Update the assignable nodes. A node is rebuilt if its instance config changed.
+    Set<String> removedNodes = new HashSet<>();
+    Iterator<Map.Entry<String, AssignableNode>> nodeIter = _nodeMap.entrySet().iterator();
+    while (nodeIter.hasNext()) {
+      Map.Entry<String, AssignableNode> nodeEntry = nodeIter.next();
+      String instanceName = nodeEntry.getKey();
+      InstanceConfig instanceConfig = activeInstances.contains(instanceName)
+          ? assignableInstanceConfigMap.get(instanceName) : null;
+      if (instanceConfig != _nodeConfigMap.get(instanceName)) {
+        nodeIter.remove();
+        _nodeConfigMap.remove(instanceName);
+        removedNodes.add(instanceName);
+        changedLogicalIds.add(nodeEntry.getValue().getLogicalId());
+      }
+    }
+    for (String instanceName : activeInstances) {
+      InstanceConfig instanceConfig = assignableInstanceConfigMap.get(instanceName);
+      if (instanceConfig != null && !_nodeMap.containsKey(instanceName)) {
+        AssignableNode node =
+            new AssignableNode(clusterConfig, _clusterTopologyConfig, instanceConfig, instanceName);
+        _nodeMap.put(instanceName, node);
+        _nodeConfigMap.put(instanceName, instanceConfig);
+        changedLogicalIds.add(node.getLogicalId());
+      }
+    }
+    Set<AssignableNode> assignableNodes = new HashSet<>(_nodeMap.values());
+    int activeFaultZoneCount = assignableNodes.stream().map(AssignableNode::getFaultZone)
+        .collect(Collectors.toSet()).size();
+
+    // 4. Find the resources to be re-evaluated, and release them from the nodes.
+    Iterator<Map.Entry<String, ResourceState>> stateIter = _resourceStates.entrySet().iterator();
+    while (stateIter.hasNext()) {
+      Map.Entry<String, ResourceState> stateEntry = stateIter.next();
+      if (!resourceMap.containsKey(stateEntry.getKey())) {
+        releaseResource(stateEntry.getKey(), stateEntry.getValue());
+        stateIter.remove();
+      }
+    }
+    Map<String, Resource> replicaChangedResources = new HashMap<>();
+    for (String resourceName : resourceMap.keySet()) {
+      ResourceState state = _resourceStates.get(resourceName);
+      IdealState idealState = dataProvider.getIdealState(resourceName);
+      ResourceConfig resourceConfig = dataProvider.getResourceConfig(resourceName);
+      StateModelDefinition stateModelDef =
+          idealState == null ? null : dataProvider.getStateModelDef(idealState.getStateModelDefRef());
+      Map<String, Integer> stateCountMap = stateModelDef == null ? null
+          : stateModelDef.getStateCountMap(activeFaultZoneCount,
+              idealState.getReplicaCount(assignableNodes.size()));
+      if (state == null || !state.hasSameReplicas(idealState, resourceConfig, stateModelDef,
+          stateCountMap)) {
+        if (state != null) {
+          releaseResource(resourceName, state);
+        }
+        _resourceStates.put(resourceName,
+            new ResourceState(idealState, resourceConfig, stateModelDef, stateCountMap));
+        replicaChangedResources.put(resourceName, resourceMap.get(resourceName));
+        changedResources.add(resourceName);
+      } else if (!state._settled
+          || !isSameAssignment(state._baseline, baselineAssignment.get(resourceName))
+          || !isSameAssignment(state._bestPossible, bestPossibleAssignment.get(resourceName))
+          || intersects(state._referencedInstances, changedInstances)
+          || intersects(state._referencedLogicalIds, changedLogicalIds)
+          || intersects(state._placedInstances, removedNodes)) {
+        releaseResource(resourceName, state);
+        changedResources.add(resourceName);
+      }
+    }
+    ClusterModelProvider.getAllAssignableReplicas(dataProvider, replicaChangedResources,
+        assignableNodes).forEach(
+        (resourceName, replicas) -> _resourceStates.get(resourceName)._replicas = replicas);
+
+    // 5. Re-evaluate the changed resources in the same way as the full partial rebalance does.
+    Map<String, ResourceAssignment> changedBaseline =
+        filterAssignment(baselineAssignment, changedResources);
+    Map<String, ResourceAssignment> changedBestPossible =
+        filterAssignment(bestPossibleAssignment, changedResources);
+    Map<String, ResourceAssignment> logicalIdChangedBaseline =
+        ClusterModelProvider.generateResourceAssignmentMapLogicalIdView(changedBaseline,
+            _clusterTopologyConfig, dataProvider);
+    Map<String, ResourceAssignment> logicalIdChangedBestPossible =
+        ClusterModelProvider.generateResourceAssignmentMapLogicalIdView(changedBestPossible,
+            _clusterTopologyConfig, dataProvider);
+    Map<String, Set<AssignableReplica>> replicaMap = new HashMap<>();
+    for (String resourceName : changedResources) {
+      replicaMap.put(resourceName, new HashSet<>(_resourceStates.get(resourceName)._replicas));
+    }
+    ClusterModelProvider.retainExistingReplicas(replicaMap, logicalIdChangedBaseline);
+    Map<String, Set<AssignableReplica>> allocatedReplicas = new HashMap<>();
+    Set<AssignableReplica> toBeAssignedReplicas =
+        ClusterModelProvider.findToBeAssignedReplicasByComparingWithIdealAssignment(replicaMap,
+            activeLogicalIds, logicalIdChangedBaseline, logicalIdChangedBestPossible,
+            allocatedReplicas);
+    Set<String> unsettledResources = toBeAssignedReplicas.stream()
+        .map(AssignableReplica::getResourceName).collect(Collectors.toSet());
+    for (String resourceName : changedResources) {
+      ResourceState state = _resourceStates.get(resourceName);
+      state.updateAssignment(baselineAssignment.get(resourceName),
+          bestPossibleAssignment.get(resourceName), logicalIdChangedBaseline.get(resourceName),
+          logicalIdChangedBestPossible.get(resourceName), replicaMap.get(resourceName),
+          !unsettledResources.contains(resourceName));
+    }
+
+    // 6. Allocate the replicas of the changed resources to the nodes.
+    Map<String, List<AssignableNode>> logicalIdNodeMap = new HashMap<>();
+    for (AssignableNode node : assignableNodes) {
+      logicalIdNodeMap.computeIfAbsent(node.getLogicalId(), key -> new ArrayList<>()).add(node);
+    }
+    allocatedReplicas.forEach((logicalId, replicas) -> {
+      for (AssignableNode node : logicalIdNodeMap.getOrDefault(logicalId,
+          Collections.emptyList())) {
+        node.assignInitBatch(replicas);
+        for (AssignableReplica replica : replicas) {
+          _assignmentForFaultZoneMap.computeIfAbsent(node.getFaultZone(), k -> new HashMap<>())
+              .computeIfAbsent(replica.getResourceName(), k -> new HashSet<>())
+              .add(replica.getPartitionName());
+          _resourceStates.get(replica.getResourceName())._placedInstances
+              .add(node.getInstanceName());
+        }
+      }
+    });
+
+    // 7. Construct the cluster context from the cached state of all the resources.
+    Set<AssignableReplica> allReplicas = new HashSet<>();
+    Map<String, ResourceAssignment> logicalIdBaseline = new HashMap<>();
+    Map<String, ResourceAssignment> logicalIdBestPossible = new HashMap<>();
+    for (Map.Entry<String, ResourceState> stateEntry : _resourceStates.entrySet()) {
+      ResourceState state = stateEntry.getValue();
+      allReplicas.addAll(state._retainedReplicas);
+      if (state._logicalIdBaseline != null) {
+        logicalIdBaseline.put(stateEntry.getKey(), state._logicalIdBaseline);
+      }
+      if (state._logicalIdBestPossible != null) {
+        logicalIdBestPossible.put(stateEntry.getKey(), state._logicalIdBestPossible);
+      }
+    }
+    // The assignments of the resources that are not rebalanced are not cached.
+    logicalIdBaseline.putAll(ClusterModelProvider.generateResourceAssignmentMapLogicalIdView(
+        filterAssignment(baselineAssignment, Sets.difference(baselineAssignment.keySet(),
+            resourceMap.keySet())), _clusterTopologyConfig, dataProvider));
+    logicalIdBestPossible.putAll(ClusterModelProvider.generateResourceAssignmentMapLogicalIdView(
+        filterAssignment(bestPossibleAssignment, Sets.difference(bestPossibleAssignment.keySet(),
+            resourceMap.keySet())), _clusterTopologyConfig, dataProvider));
+    ClusterContext context =
+        new ClusterContext(allReplicas, assignableNodes, logicalIdBaseline, logicalIdBestPossible,
+            clusterConfig);
+    // The algorithm updates the fault zone map in place, so it stays in line with the nodes.
+    context.setAssignmentForFaultZoneMap(_assignmentForFaultZoneMap);
+
+    _lastChangedResourceCount = changedResources.size();
+    _lastReassignedReplicaCount = toBeAssignedReplicas.size();
+    LOG.info("Re-evaluated {} of {} resources for partial rebalance, {} replicas to be assigned. "
+            + "Incremental: {}.", changedResources.size(), resourceMap.size(),
+        toBeAssignedReplicas.size(), _lastCalculationIncremental);
+    return new ClusterModel(context, toBeAssignedReplicas, assignableNodes);
+  }
+
+  /**
+   * Release all the replicas of the resource from the nodes and the fault zone map.
+   */
+  private void releaseResource(String resourceName, ResourceState state) {
+    for (String instanceName : state._placedInstances) {
+      AssignableNode node = _nodeMap.get(instanceName);
+      if (node != null) {
+        node.releaseResource(resourceName);
+      }
+    }
+    state._placedInstances.clear();
+    Iterator<Map<String, Set<String>>> zoneIter =
+        _assignmentForFaultZoneMap.values().iterator();
+    while (zoneIter.hasNext()) {
+      Map<String, Set<String>> resourcePartitionMap = zoneIter.next();
+      resourcePartitionMap.remove(resourceName);
+      if (resourcePartitionMap.isEmpty()) {
+        zoneIter.remove();
+      }
+    }
+  }
+
+  private String getLogicalId(InstanceConfig instanceConfig) {
+    return instanceConfig.getLogicalId(_clusterTopologyConfig.getEndNodeType());
+  }
+
+  private static Map<String, ResourceAssignment> filterAssignment(
+      Map<String, ResourceAssignment> assignment, Set<String> resourceNames) {
+    Map<String, ResourceAssignment> filteredAssignment = new HashMap<>();
+    for (String resourceName : resourceNames) {
+      ResourceAssignment resourceAssignment = assignment.get(resourceName);
+      if (resourceAssignment != null) {
+        filteredAssignment.put(resourceName, resourceAssignment);
+      }
+    }
+    return filteredAssignment;
+  }
+
+  private static boolean isSameAssignment(ResourceAssignment oldAssignment,
+      ResourceAssignment newAssignment) {
+    if (oldAssignment == newAssignment) {
+      return true;
+    }
+    if (oldAssignment == null || newAssignment == null) {
+      return false;
+    }
+    return oldAssignment.getRecord() == newAssignment.getRecord()
+        || oldAssignment.getRecord().equals(newAssignment.getRecord());
+  }
+
+  private static boolean intersects(Set<String> items, Set<String> changedItems) {
+    if (items.isEmpty() || changedItems.isEmpty()) {
+      return false;
+    }
+    Set<String> smaller = items.size() < changedItems.size() ? items : changedItems;
+    Set<String> larger = smaller == items ? changedItems : items;
+    for (String item : smaller) {
+      if (larger.contains(item)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The cached inputs and results of the last evaluation of a resource.
+   */
+  private static class ResourceState {
+    private final IdealState _idealState;
+    private final ResourceConfig _resourceConfig;
+    private final StateModelDefinition _stateModelDef;
+    private final Map<String, Integer> _stateCountMap;
+    // All the replicas of the resource
+    private Set<AssignableReplica> _replicas = Collections.emptySet();
+
+    private ResourceAssignment _baseline;
+    private ResourceAssignment _bestPossible;
+    private ResourceAssignment _logicalIdBaseline;
+    private ResourceAssignment _logicalIdBestPossible;
+    // The replicas that exist in the Baseline assignment
+    private Set<AssignableReplica> _retainedReplicas = Collections.emptySet();
+    // The instance names and the logical ids that the assignments refer to
+    private Set<String> _referencedInstances = Collections.emptySet();
+    private Set<String> _referencedLogicalIds = Collections.emptySet();
+    // The instances that hold the replicas of the resource
+    private final Set<String> _placedInstances = new HashSet<>();
+    // True if all the replicas were allocated without running the algorithm
+    private boolean _settled;
+
+    ResourceState(IdealState idealState, ResourceConfig resourceConfig,
+        StateModelDefinition stateModelDef, Map<String, Integer> stateCountMap) {
+      _idealState = idealState;
+      _resourceConfig = resourceConfig;
+      _stateModelDef = stateModelDef;
+      _stateCountMap = stateCountMap;
+    }
+
+    boolean hasSameReplicas(IdealState idealState, ResourceConfig resourceConfig,
+        StateModelDefinition stateModelDef, Map<String, Integer> stateCountMap) {
+      return _idealState == idealState && _resourceConfig == resourceConfig
+          && _stateModelDef == stateModelDef && _stateCountMap != null
+          && _stateCountMap.equals(stateCountMap);
+    }
+
+    void updateAssignment(ResourceAssignment baseline, ResourceAssignment bestPossible,
+        ResourceAssignment logicalIdBaseline, ResourceAssignment logicalIdBestPossible,
+        Set<AssignableReplica> retainedReplicas, boolean settled) {
+      _baseline = baseline;
+      _bestPossible = bestPossible;
+      _logicalIdBaseline = logicalIdBaseline;
+      _logicalIdBestPossible = logicalIdBestPossible;
+      _retainedReplicas = retainedReplicas;
+      _settled = settled;
+      _referencedInstances = new HashSet<>();
+      collectInstances(baseline, _referencedInstances);
+      collectInstances(bestPossible, _referencedInstances);
+      _referencedLogicalIds = new HashSet<>();
+      collectInstances(logicalIdBaseline, _referencedLogicalIds);
+      collectInstances(logicalIdBestPossible, _referencedLogicalIds);
+    }
+
+    private static void collectInstances(ResourceAssignment assignment, Set<String> instances) {
+      if (assignment != null) {
+        for (Partition partition : assignment.getMappedPartitions()) {
+          instances.addAll(assignment.getReplicaMap(partition).keySet());
+        }
+      }
+    }
+  }
+}
@@ -58,6 +58,7 @@ import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.monitoring.mbeans.ResourceMonitor;
 import org.apache.helix.task.TaskConstants;
@@ -106,13 +107,15 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     final Map<String, IdealState> idealStateMap = cache.getIdealStates();
     final Map<String, ExternalView> externalViewMap = cache.getExternalViews();
     final Map<String, ResourceConfig> resourceConfigMap = cache.getResourceConfigMap();
+    final long dataChangeVersion = cache.getRefreshedDataChangeVersion();
     asyncExecute(cache.getAsyncTasksThreadPool(), () -> {
       try {
         if (clusterStatusMonitor != null) {
+          long startTime = System.currentTimeMillis();
           clusterStatusMonitor.setPerInstanceResourceStatus(bestPossibleStateOutput,
-              allInstanceConfigMap, resourceMap,
-                  stateModelDefMap);
+              allInstanceConfigMap, resourceMap, stateModelDefMap, dataChangeVersion);
 
+          int updatedResourceCount = 0;
           for (String resourceName : idealStateMap.keySet()) {
             // TODO need to find a better way to process this monitoring config in a centralized
             // place instead of separately in every single usage.
@@ -123,9 +126,18 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
               continue;
             }
             IdealState is = idealStateMap.get(resourceName);
-            reportResourceState(clusterStatusMonitor, bestPossibleStateOutput, resourceName, is,
-                externalViewMap.get(resourceName), stateModelDefMap.get(is.getStateModelDefRef()));
+            if (reportResourceState(clusterStatusMonitor, bestPossibleStateOutput, resourceName,
+                is, externalViewMap.get(resourceName),
+                stateModelDefMap.get(is.getStateModelDefRef()), dataChangeVersion)) {
+              updatedResourceCount++;
+            }
           }
+          long duration = System.currentTimeMillis() - startTime;
+          clusterStatusMonitor.updateClusterEventDuration(
+              ClusterEventMonitor.PhaseName.ResourceStatusUpdate.name(), duration);
+          LogUtil.logDebug(logger, _eventId, String.format(
+              "Updated the status metrics of %d out of %d resources in %d ms",
+              updatedResourceCount, idealStateMap.size(), duration));
         }
       } catch (Exception e) {
         LogUtil.logError(logger, _eventId, "Could not update cluster status metrics!", e);
@@ -236,29 +248,25 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     }
   }
 
-  private void reportResourceState(ClusterStatusMonitor clusterStatusMonitor,
+  /**
+   * @return true if the resource state metrics are updated, false if they are unchanged
+   */
+  private boolean reportResourceState(ClusterStatusMonitor clusterStatusMonitor,
       BestPossibleStateOutput bestPossibleStateOutput, String resourceName, IdealState is,
-      ExternalView ev, StateModelDefinition stateModelDef) {
-    // Create a temporary local IdealState object for monitoring. This is to avoid modifying
-    // the IdealState cache.
-    IdealState tmpIdealState = new IdealState(is.getRecord());
-
+      ExternalView ev, StateModelDefinition stateModelDef, long dataChangeVersion) {
     if (bestPossibleStateOutput.containsResource(resourceName)) {
       // Merge the best possible state output for resource status monitoring.
-      Map<String, List<String>> preferenceLists =
-          bestPossibleStateOutput.getPreferenceLists(resourceName);
-      tmpIdealState.getRecord().setListFields(preferenceLists);
-      Map<Partition, Map<String, String>> stateMap =
-          bestPossibleStateOutput.getPartitionStateMap(resourceName).getStateMap();
-      tmpIdealState.getRecord().setMapFields(stateMap.entrySet().stream()
-          .collect(Collectors.toMap(e -> e.getKey().getPartitionName(), Map.Entry::getValue)));
-    } else {
-      LogUtil.logWarn(logger, _eventId, String.format(
-          "Cannot find the best possible state of resource %s. "
-              + "Will update the resource status based on the content of the IdealState.",
-          resourceName));
+      return clusterStatusMonitor.setResourceState(resourceName, ev, is, stateModelDef,
+          bestPossibleStateOutput.getPreferenceLists(resourceName),
+          bestPossibleStateOutput.getPartitionStateMap(resourceName).getStateMap(),
+          dataChangeVersion);
     }
-    clusterStatusMonitor.setResourceState(resourceName, ev, tmpIdealState, stateModelDef);
+    LogUtil.logWarn(logger, _eventId, String.format(
+        "Cannot find the best possible state of resource %s. "
+            + "Will update the resource status based on the content of the IdealState.",
+        resourceName));
+    return clusterStatusMonitor.setResourceState(resourceName, ev, is, stateModelDef, null, null,
+        dataChangeVersion);
   }
 
   private BestPossibleStateOutput compute(ClusterEvent event, Map<String, Resource> resourceMap,
@@ -445,7 +453,7 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
             .format("Failed to calculate the new Ideal States using the rebalancer %s due to %s",
                 wagedRebalancer.getClass().getSimpleName(), ex.getFailureType()), ex);
       }
-    } else {
+    } else if (!wagedRebalancedResourceMap.isEmpty()) {
       LogUtil.logWarn(logger, _eventId,
           "Skip rebalancing using the WAGED rebalancer since it is not configured in the rebalance pipeline.");
     }
@@ -19,8 +19,12 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -28,6 +32,8 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
@@ -61,11 +67,100 @@ import org.slf4j.LoggerFactory;
  * For each LiveInstances select currentState and message whose sessionId matches
  * sessionId from LiveInstance Get Partition,State for all the resources computed in
  * previous State [ResourceComputationStage]
+ *
+ * The output is maintained incrementally across the pipeline runs. The contribution of each live
+ * instance is kept together with the current states and messages it was computed from. Since the
+ * data provider keeps the same objects for the current states and messages that are not changed
+ * in ZK, only the instances with a changed input are recomputed, and only the resources touched
+ * by these instances are rebuilt in the new output. The entries of the other resources are shared
+ * with the previous output, so the outputs must not be modified once they are published.
  */
 public class CurrentStateComputationStage extends AbstractBaseStage {
   private static Logger LOG = LoggerFactory.getLogger(CurrentStateComputationStage.class);
   private boolean _isTaskFrameworkPipeline = false;
 
+  private final boolean _incrementalComputationEnabled = !Boolean
+      .getBoolean(SystemPropertyKeys.CONTROLLER_INCREMENTAL_CURRENT_STATE_COMPUTATION_DISABLED);
+  // If true, every incremental result is compared with a full rebuild. For testing only.
+  private boolean _validateIncrementalComputation = false;
+  private IncrementalState _incrementalState;
+
+  /**
+   * The contribution of one live instance to the current state outputs, and the inputs it was
+   * computed from.
+   */
+  private static class InstanceContribution {
+    private final String _sessionId;
+    private final Map<String, CurrentState> _currentStates;
+    private final Map<String, Message> _messages;
+    private final Map<String, Message> _relayMessages;
+    private final boolean _excludedAsUnknown;
+    private final CurrentStateOutput _output;
+    private final Set<String> _resourceNames;
+
+    InstanceContribution(String sessionId, Map<String, CurrentState> currentStates,
+        Map<String, Message> messages, Map<String, Message> relayMessages,
+        boolean excludedAsUnknown, CurrentStateOutput output) {
+      _sessionId = sessionId;
+      // The message maps of the data provider are updated in place, so keep copies of them.
+      _currentStates = new HashMap<>(currentStates);
+      _messages = new HashMap<>(messages);
+      _relayMessages = new HashMap<>(relayMessages);
+      _excludedAsUnknown = excludedAsUnknown;
+      _output = output;
+      _resourceNames = output.getResourceNames();
+    }
+
+    boolean hasSameInputs(String sessionId, Map<String, CurrentState> currentStates,
+        Map<String, Message> messages, Map<String, Message> relayMessages) {
+      return _sessionId.equals(sessionId) && isSameObjects(_currentStates, currentStates)
+          && isSameObjects(_messages, messages) && isSameObjects(_relayMessages, relayMessages);
+    }
+
+    private static <V> boolean isSameObjects(Map<String, V> cached, Map<String, V> current) {
+      if (cached.size() != current.size()) {
+        return false;
+      }
+      for (Map.Entry<String, V> entry : current.entrySet()) {
+        if (cached.get(entry.getKey()) != entry.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The state kept between two pipeline runs.
+   */
+  private static class IncrementalState {
+    private final BaseControllerDataProvider _cache;
+    private final Map<String, Resource> _resourceMap;
+    // Ordered as the live instances of the data provider, which decides the precedence of the
+    // resource level fields, e.g. the bucket size, when the instances disagree.
+    private final LinkedHashMap<String, InstanceContribution> _contributions;
+    private final CurrentStateOutput _currentStateOutput;
+    private final CurrentStateOutput _currentStateExcludingUnknown;
+
+    IncrementalState(BaseControllerDataProvider cache, Map<String, Resource> resourceMap,
+        LinkedHashMap<String, InstanceContribution> contributions,
+        CurrentStateOutput currentStateOutput, CurrentStateOutput currentStateExcludingUnknown) {
+      _cache = cache;
+      _resourceMap = resourceMap;
+      _contributions = contributions;
+      _currentStateOutput = currentStateOutput;
+      _currentStateExcludingUnknown = currentStateExcludingUnknown;
+    }
+
+    CurrentStateOutput getCurrentStateOutput() {
+      return _currentStateOutput;
+    }
+
+    CurrentStateOutput getCurrentStateExcludingUnknown() {
+      return _currentStateExcludingUnknown;
+    }
+  }
+
   @Override
   public void process(ClusterEvent event) throws Exception {
     _eventId = event.getEventId();
@@ -86,10 +181,210 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
           + ". Requires DataCache|RESOURCE");
     }
 
-    Map<String, LiveInstance> liveInstances = cache.getLiveInstances();
-    final CurrentStateOutput currentStateOutput = new CurrentStateOutput();
-    final CurrentStateOutput currentStateExcludingUnknown = new CurrentStateOutput();
+    final CurrentStateOutput currentStateOutput;
+    final CurrentStateOutput currentStateExcludingUnknown;
+    if (_incrementalComputationEnabled) {
+      _incrementalState = computeIncrementally(cache, resourceMap, _incrementalState);
+      currentStateOutput = _incrementalState.getCurrentStateOutput();
+      currentStateExcludingUnknown = _incrementalState.getCurrentStateExcludingUnknown();
+      if (_validateIncrementalComputation) {
+        validateIncrementalComputation(cache, resourceMap, currentStateOutput,
+            currentStateExcludingUnknown);
+      }
+    } else {
+      currentStateOutput = new CurrentStateOutput();
+      currentStateExcludingUnknown = new CurrentStateOutput();
+      computeFullCurrentStateOutput(cache, resourceMap, currentStateOutput,
+          currentStateExcludingUnknown);
+    }
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE_EXCLUDING_UNKNOWN.name(), currentStateExcludingUnknown);
+
+    final ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null && cache instanceof ResourceControllerDataProvider) {
+      final ResourceControllerDataProvider dataProvider = (ResourceControllerDataProvider) cache;
+      reportInstanceCapacityMetrics(clusterStatusMonitor, dataProvider, resourceToRebalance,
+          currentStateOutput);
+      reportResourcePartitionCapacityMetrics(dataProvider.getAsyncTasksThreadPool(),
+          clusterStatusMonitor, dataProvider.getResourceConfigMap().values());
+
+      handleResourceCapacityCalculation(event, (ResourceControllerDataProvider) cache, currentStateOutput);
+    }
+  }
+
+  /**
+   * Compute the current state outputs based on the state of the previous run. Only the live
+   * instances whose session, current states or messages have changed are recomputed. All the
+   * instances are recomputed if the data provider or the resources are changed, since the
+   * contributions depend on the resource partitions and the stale message bookkeeping of the
+   * data provider.
+   */
+  private IncrementalState computeIncrementally(BaseControllerDataProvider cache,
+      Map<String, Resource> resourceMap, IncrementalState previousState) {
+    long startTime = System.currentTimeMillis();
+    boolean recomputeAll = previousState == null || previousState._cache != cache
+        || !isSameResources(previousState._resourceMap, resourceMap);
+
+    LinkedHashMap<String, InstanceContribution> contributions = new LinkedHashMap<>();
+    Set<String> changedResources = new HashSet<>();
+    int recomputedInstanceCount = 0;
+    for (LiveInstance instance : cache.getLiveInstances().values()) {
+      String instanceName = instance.getInstanceName();
+      String instanceSessionId = instance.getEphemeralOwner();
+      boolean excludedAsUnknown =
+          isUnknownInstanceOperation(cache.getInstanceConfigMap().get(instanceName));
+      Map<String, CurrentState> currentStates =
+          cache.getCurrentState(instanceName, instanceSessionId, _isTaskFrameworkPipeline);
+      Map<String, Message> messages = cache.getMessages(instanceName);
+      Map<String, Message> relayMessages = cache.getRelayMessages(instanceName);
 
+      InstanceContribution previous =
+          recomputeAll ? null : previousState._contributions.get(instanceName);
+      InstanceContribution contribution;
+      if (previous != null && previous
+          .hasSameInputs(instanceSessionId, currentStates, messages, relayMessages)) {
+        if (previous._excludedAsUnknown == excludedAsUnknown) {
+          contribution = previous;
+        } else {
+          contribution = new InstanceContribution(instanceSessionId, currentStates, messages,
+              relayMessages, excludedAsUnknown, previous._output);
+          changedResources.addAll(contribution._resourceNames);
+        }
+      } else {
+        CurrentStateOutput output = new CurrentStateOutput();
+        updateCurrentStates(instance, currentStates.values(), output, resourceMap);
+        updatePendingMessages(instance, cache, messages.values(), relayMessages.values(),
+            cache.getStaleMessagesByInstance(instanceName), output, resourceMap);
+        contribution = new InstanceContribution(instanceSessionId, currentStates, messages,
+            relayMessages, excludedAsUnknown, output);
+        recomputedInstanceCount++;
+        changedResources.addAll(contribution._resourceNames);
+        if (previous != null) {
+          changedResources.addAll(previous._resourceNames);
+        }
+      }
+      contributions.put(instanceName, contribution);
+    }
+
+    boolean rebuildAll = recomputeAll || !new ArrayList<>(previousState._contributions.keySet())
+        .equals(new ArrayList<>(contributions.keySet()));
+    if (!rebuildAll) {
+      // The instance lists are the same, so no instance is gone.
+      if (changedResources.isEmpty()) {
+        LogUtil.logInfo(LOG, _eventId, String.format(
+            "No current state change, reused the current state output. Took %s ms.",
+            System.currentTimeMillis() - startTime));
+        return new IncrementalState(cache, resourceMap, contributions,
+            previousState._currentStateOutput, previousState._currentStateExcludingUnknown);
+      }
+    }
+
+    CurrentStateOutput currentStateOutput;
+    CurrentStateOutput currentStateExcludingUnknown;
+    if (rebuildAll) {
+      currentStateOutput = new CurrentStateOutput();
+      currentStateExcludingUnknown = new CurrentStateOutput();
+      for (InstanceContribution contribution : contributions.values()) {
+        currentStateOutput.mergeResources(contribution._output, contribution._resourceNames);
+        if (!contribution._excludedAsUnknown) {
+          currentStateExcludingUnknown
+              .mergeResources(contribution._output, contribution._resourceNames);
+        }
+      }
+    } else {
+      currentStateOutput = previousState._currentStateOutput.copyExcluding(changedResources);
+      currentStateExcludingUnknown =
+          previousState._currentStateExcludingUnknown.copyExcluding(changedResources);
+      for (InstanceContribution contribution : contributions.values()) {
+        List<String> resourcesToMerge = new ArrayList<>();
+        for (String resourceName : contribution._resourceNames) {
+          if (changedResources.contains(resourceName)) {
+            resourcesToMerge.add(resourceName);
+          }
+        }
+        currentStateOutput.mergeResources(contribution._output, resourcesToMerge);
+        if (!contribution._excludedAsUnknown) {
+          currentStateExcludingUnknown.mergeResources(contribution._output, resourcesToMerge);
+        }
+      }
+    }
+
+    LogUtil.logInfo(LOG, _eventId, String.format(
+        "Recomputed current states of %s out of %s live instances, rebuilt %s resources. Full "
+            + "rebuild: %s. Took %s ms.", recomputedInstanceCount, contributions.size(),
+        rebuildAll ? "all" : changedResources.size(), rebuildAll,
+        System.currentTimeMillis() - startTime));
+    return new IncrementalState(cache, resourceMap, contributions, currentStateOutput,
+        currentStateExcludingUnknown);
+  }
+
+  /**
+   * Compare the incrementally computed outputs with a full rebuild.
+   * @throws StageException if any resource is different
+   */
+  private void validateIncrementalComputation(BaseControllerDataProvider cache,
+      Map<String, Resource> resourceMap, CurrentStateOutput currentStateOutput,
+      CurrentStateOutput currentStateExcludingUnknown) throws StageException {
+    CurrentStateOutput fullCurrentStateOutput = new CurrentStateOutput();
+    CurrentStateOutput fullCurrentStateExcludingUnknown = new CurrentStateOutput();
+    computeFullCurrentStateOutput(cache, resourceMap, fullCurrentStateOutput,
+        fullCurrentStateExcludingUnknown);
+    Set<String> inconsistentResources =
+        currentStateOutput.getInconsistentResources(fullCurrentStateOutput);
+    inconsistentResources.addAll(
+        currentStateExcludingUnknown.getInconsistentResources(fullCurrentStateExcludingUnknown));
+    if (!inconsistentResources.isEmpty()) {
+      // Start over in the next run.
+      _incrementalState = null;
+      throw new StageException(String.format(
+          "The incrementally computed current states of resources %s are different from a full "
+              + "rebuild", inconsistentResources));
+    }
+  }
+
+  /**
+   * Enable or disable comparing every incremental result with a full rebuild.
+   */
+  @VisibleForTesting
+  void setValidateIncrementalComputation(boolean validateIncrementalComputation) {
+    _validateIncrementalComputation = validateIncrementalComputation;
+  }
+
+  private static boolean isSameResources(Map<String, Resource> previousResourceMap,
+      Map<String, Resource> resourceMap) {
+    if (previousResourceMap.size() != resourceMap.size()) {
+      return false;
+    }
+    for (Resource resource : resourceMap.values()) {
+      Resource previousResource = previousResourceMap.get(resource.getResourceName());
+      if (previousResource == null || !Objects
+          .equals(previousResource.getStateModelDefRef(), resource.getStateModelDefRef())
+          || previousResource.getPartitions().size() != resource.getPartitions().size()) {
+        return false;
+      }
+      for (Partition partition : resource.getPartitions()) {
+        if (previousResource.getPartition(partition.getPartitionName()) == null) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isUnknownInstanceOperation(InstanceConfig instanceConfig) {
+    return instanceConfig != null && instanceConfig.getInstanceOperation().getOperation()
+        .equals(InstanceConstants.InstanceOperation.UNKNOWN);
+  }
+
+  /**
+   * Build the current state outputs from the current states and the pending messages of all the
+   * live instances.
+   */
+  private void computeFullCurrentStateOutput(BaseControllerDataProvider cache,
+      Map<String, Resource> resourceMap, CurrentStateOutput currentStateOutput,
+      CurrentStateOutput currentStateExcludingUnknown) {
+    Map<String, LiveInstance> liveInstances = cache.getLiveInstances();
     for (LiveInstance instance : liveInstances.values()) {
       String instanceName = instance.getInstanceName();
       String instanceSessionId = instance.getEphemeralOwner();
@@ -108,9 +403,7 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
           existingStaleMessages, currentStateOutput, resourceMap);
 
       // Only update the currentStateExcludingUnknown if the instance is not in UNKNOWN InstanceOperation.
-      if (instanceConfig == null || !instanceConfig.getInstanceOperation()
-          .getOperation()
-          .equals(InstanceConstants.InstanceOperation.UNKNOWN)) {
+      if (!isUnknownInstanceOperation(instanceConfig)) {
         // update current states.
         updateCurrentStates(instance,
             cache.getCurrentState(instanceName, instanceSessionId, _isTaskFrameworkPipeline)
@@ -120,20 +413,6 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
             existingStaleMessages, currentStateExcludingUnknown, resourceMap);
       }
     }
-    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
-    event.addAttribute(AttributeName.CURRENT_STATE_EXCLUDING_UNKNOWN.name(), currentStateExcludingUnknown);
-
-    final ClusterStatusMonitor clusterStatusMonitor =
-        event.getAttribute(AttributeName.clusterStatusMonitor.name());
-    if (clusterStatusMonitor != null && cache instanceof ResourceControllerDataProvider) {
-      final ResourceControllerDataProvider dataProvider = (ResourceControllerDataProvider) cache;
-      reportInstanceCapacityMetrics(clusterStatusMonitor, dataProvider, resourceToRebalance,
-          currentStateOutput);
-      reportResourcePartitionCapacityMetrics(dataProvider.getAsyncTasksThreadPool(),
-          clusterStatusMonitor, dataProvider.getResourceConfigMap().values());
-
-      handleResourceCapacityCalculation(event, (ResourceControllerDataProvider) cache, currentStateOutput);
-    }
   }
 
   // update all pending messages to CurrentStateOutput.
@@ -19,9 +19,12 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import com.google.common.collect.Sets;
@@ -73,6 +76,130 @@ public class CurrentStateOutput {
     _infoMap = new HashMap<>();
   }
 
+  /**
+   * Create a copy that shares the per-resource entries of the given output, except for the
+   * excluded resources. The shared entries must not be modified afterward, so only the excluded
+   * resources could be set on the copy.
+   */
+  private CurrentStateOutput(CurrentStateOutput output, Set<String> excludedResources) {
+    _currentStateMap = copyExcluding(output._currentStateMap, excludedResources);
+    _pendingMessageMap = copyExcluding(output._pendingMessageMap, excludedResources);
+    _pendingRelayMessageMap = copyExcluding(output._pendingRelayMessageMap, excludedResources);
+    _cancellationMessageMap = copyExcluding(output._cancellationMessageMap, excludedResources);
+    _currentStateEndTimeMap = copyExcluding(output._currentStateEndTimeMap, excludedResources);
+    _resourceStateModelMap = copyExcluding(output._resourceStateModelMap, excludedResources);
+    _curStateMetaMap = copyExcluding(output._curStateMetaMap, excludedResources);
+    _requestedStateMap = copyExcluding(output._requestedStateMap, excludedResources);
+    _infoMap = copyExcluding(output._infoMap, excludedResources);
+  }
+
+  private static <V> Map<String, V> copyExcluding(Map<String, V> map, Set<String> excludedKeys) {
+    Map<String, V> copy = new HashMap<>(map);
+    copy.keySet().removeAll(excludedKeys);
+    return copy;
+  }
+
+  /**
+   * Create a new output that shares the entries of this output for all resources except the
+   * given ones, which are left empty to be rebuilt with {@link #mergeResources}. This output is
+   * not modified.
+   * @param excludedResources the resources to leave out of the new output
+   * @return a new output
+   */
+  CurrentStateOutput copyExcluding(Set<String> excludedResources) {
+    return new CurrentStateOutput(this, excludedResources);
+  }
+
+  /**
+   * Add all the entries of the given resources in the source output to this output.
+   * @param source the output to merge from
+   * @param resourceNames the resources to merge
+   */
+  void mergeResources(CurrentStateOutput source, Collection<String> resourceNames) {
+    for (String resourceName : resourceNames) {
+      String stateModelDef = source._resourceStateModelMap.get(resourceName);
+      if (stateModelDef != null) {
+        setResourceStateModelDef(resourceName, stateModelDef);
+      }
+      CurrentState curStateMeta = source._curStateMetaMap.get(resourceName);
+      if (curStateMeta != null) {
+        setBucketSize(resourceName, curStateMeta.getBucketSize());
+      }
+      mergeResource(source._currentStateMap, resourceName, _currentStateMap);
+      mergeResource(source._currentStateEndTimeMap, resourceName, _currentStateEndTimeMap);
+      mergeResource(source._requestedStateMap, resourceName, _requestedStateMap);
+      mergeResource(source._infoMap, resourceName, _infoMap);
+      mergeResource(source._pendingMessageMap, resourceName, _pendingMessageMap);
+      mergeResource(source._cancellationMessageMap, resourceName, _cancellationMessageMap);
+      mergeResource(source._pendingRelayMessageMap, resourceName, _pendingRelayMessageMap);
+    }
+  }
+
+  private static <V> void mergeResource(Map<String, Map<Partition, Map<String, V>>> sourceMap,
+      String resourceName, Map<String, Map<Partition, Map<String, V>>> targetMap) {
+    Map<Partition, Map<String, V>> sourcePartitionMap = sourceMap.get(resourceName);
+    if (sourcePartitionMap == null) {
+      return;
+    }
+    Map<Partition, Map<String, V>> targetPartitionMap =
+        targetMap.computeIfAbsent(resourceName, k -> new HashMap<>());
+    for (Map.Entry<Partition, Map<String, V>> entry : sourcePartitionMap.entrySet()) {
+      targetPartitionMap.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+          .putAll(entry.getValue());
+    }
+  }
+
+  /**
+   * @return the names of all the resources that have any entry in this output
+   */
+  Set<String> getResourceNames() {
+    Set<String> resourceNames = new HashSet<>();
+    resourceNames.addAll(_currentStateMap.keySet());
+    resourceNames.addAll(_currentStateEndTimeMap.keySet());
+    resourceNames.addAll(_requestedStateMap.keySet());
+    resourceNames.addAll(_infoMap.keySet());
+    resourceNames.addAll(_pendingMessageMap.keySet());
+    resourceNames.addAll(_cancellationMessageMap.keySet());
+    resourceNames.addAll(_pendingRelayMessageMap.keySet());
+    resourceNames.addAll(_resourceStateModelMap.keySet());
+    resourceNames.addAll(_curStateMetaMap.keySet());
+    return resourceNames;
+  }
+
+  /**
+   * Compare this output with another one, resource by resource.
+   * @param other the output to compare with
+   * @return the names of the resources whose entries differ between the two outputs
+   */
+  Set<String> getInconsistentResources(CurrentStateOutput other) {
+    Set<String> resourceNames = getResourceNames();
+    resourceNames.addAll(other.getResourceNames());
+    Set<String> inconsistentResources = new HashSet<>();
+    for (String resourceName : resourceNames) {
+      if (!Objects.equals(_currentStateMap.get(resourceName),
+          other._currentStateMap.get(resourceName))
+          || !Objects.equals(_currentStateEndTimeMap.get(resourceName),
+          other._currentStateEndTimeMap.get(resourceName))
+          || !Objects.equals(_requestedStateMap.get(resourceName),
+          other._requestedStateMap.get(resourceName))
+          || !Objects.equals(_infoMap.get(resourceName), other._infoMap.get(resourceName))
+          || !Objects.equals(_pendingMessageMap.get(resourceName),
+          other._pendingMessageMap.get(resourceName))
+          || !Objects.equals(_cancellationMessageMap.get(resourceName),
+          other._cancellationMessageMap.get(resourceName))
+          || !Objects.equals(_pendingRelayMessageMap.get(resourceName),
+          other._pendingRelayMessageMap.get(resourceName))
+          || !Objects.equals(_resourceStateModelMap.get(resourceName),
+          other._resourceStateModelMap.get(resourceName))
+          || _curStateMetaMap.containsKey(resourceName) != other._curStateMetaMap
+          .containsKey(resourceName)
+          || getBucketSize(resourceName) != other.getBucketSize(resourceName)) {
+        inconsistentResources.add(resourceName);
+      }
+    }
+    return inconsistentResources;
+  }
+
   public void setResourceStateModelDef(String resourceName, String stateModelDefName) {
     _resourceStateModelMap.put(resourceName, stateModelDefName);
   }
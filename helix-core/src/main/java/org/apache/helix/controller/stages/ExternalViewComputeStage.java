@@ -33,6 +33,7 @@ import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractAsyncBaseStage;
@@ -41,6 +42,8 @@ import org.apache.helix.controller.pipeline.StageException;
 import org.apache.helix.manager.zk.DefaultSchedulerMessageHandlerFactory;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageType;
 import org.apache.helix.model.Partition;
@@ -48,6 +51,9 @@ import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StatusUpdate;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.spectator.publisher.RoutingDataSnapshot;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublisher;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublishers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,6 +145,42 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
       }
     }
     cache.removeExternalViews(externalViewsToRemove);
+
+    RoutingSnapshotPublisher publisher =
+        RoutingSnapshotPublishers.getPublisher(cache.getClusterName());
+    // Do not publish again after the publisher is invalidated on the leadership loss.
+    if (publisher != null && manager.isLeader()) {
+      publishRoutingSnapshot(publisher, cache);
+    }
+  }
+
+  /**
+   * Publish the ExternalViews together with the routable instances to the spectators that
+   * subscribe to the publisher, so they do not need to read the ExternalViews back from ZK.
+   */
+  private void publishRoutingSnapshot(RoutingSnapshotPublisher publisher,
+      ResourceControllerDataProvider cache) {
+    try {
+      Map<String, InstanceConfig> routableInstanceConfigs = new HashMap<>();
+      for (Map.Entry<String, InstanceConfig> entry : cache.getInstanceConfigMap().entrySet()) {
+        if (!InstanceConstants.UNROUTABLE_INSTANCE_OPERATIONS.contains(
+            entry.getValue().getInstanceOperation().getOperation())) {
+          routableInstanceConfigs.put(entry.getKey(), entry.getValue());
+        }
+      }
+      Map<String, LiveInstance> routableLiveInstances = new HashMap<>();
+      for (Map.Entry<String, LiveInstance> entry : cache.getLiveInstances().entrySet()) {
+        if (routableInstanceConfigs.containsKey(entry.getKey())) {
+          routableLiveInstances.put(entry.getKey(), entry.getValue());
+        }
+      }
+      RoutingDataSnapshot snapshot = publisher.publish(cache.getExternalViews(),
+          routableInstanceConfigs, routableLiveInstances);
+      LogUtil.logDebug(LOG, _eventId, "Latest routing snapshot: " + snapshot);
+    } catch (Exception e) {
+      LogUtil.logError(LOG, _eventId,
+          "Failed to publish the routing snapshot of cluster " + cache.getClusterName(), e);
+    }
   }
 
   private void computeExternalView(final Resource resource,
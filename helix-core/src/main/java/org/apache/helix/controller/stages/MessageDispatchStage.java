@@ -37,6 +37,7 @@ import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
 import org.apache.helix.controller.pipeline.StageException;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
@@ -93,12 +94,13 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
       }
     }
 
-    List<Message> messagesSent = sendMessages(dataAccessor, outputMessages);
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    List<Message> messagesSent = sendMessages(dataAccessor, outputMessages,
+        cache.getClusterConfig(), clusterStatusMonitor);
 
     // TODO: Need also count messages from task rebalancer
     if (!(cache instanceof WorkflowControllerDataProvider)) {
-      ClusterStatusMonitor clusterStatusMonitor =
-          event.getAttribute(AttributeName.clusterStatusMonitor.name());
       if (clusterStatusMonitor != null) {
         clusterStatusMonitor.increaseMessageReceived(outputMessages);
       }
@@ -154,6 +156,20 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
 
   // return the messages actually sent
   protected List<Message> sendMessages(HelixDataAccessor dataAccessor, List<Message> messages) {
+    return sendMessages(dataAccessor, messages, null, null);
+  }
+
+  /**
+   * Create the messages in ZK. If message batching is enabled in the cluster config, the messages
+   * to the same instance are created in pipelined ZK multi transactions.
+   * @param dataAccessor
+   * @param messages
+   * @param clusterConfig the cluster config, null to disable message batching
+   * @param clusterStatusMonitor the monitor to record the dispatch stats, null to skip recording
+   * @return the messages actually sent
+   */
+  protected List<Message> sendMessages(HelixDataAccessor dataAccessor, List<Message> messages,
+      ClusterConfig clusterConfig, ClusterStatusMonitor clusterStatusMonitor) {
     List<Message> messageSent = new ArrayList<>();
     if (messages == null || messages.isEmpty()) {
       return messageSent;
@@ -184,7 +200,18 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
       keys.add(keyBuilder.message(message.getTgtName(), message.getId()));
     }
 
-    boolean[] results = dataAccessor.createChildren(keys, new ArrayList<>(messages));
+    int batchSize = clusterConfig == null ? 0 : clusterConfig.getMessageDispatchBatchSize();
+    long startTime = System.currentTimeMillis();
+    boolean[] results;
+    List<Integer> batchSizes = new ArrayList<>();
+    if (batchSize > 1) {
+      results = dataAccessor.createChildrenInBatches(keys, new ArrayList<>(messages), batchSize,
+          clusterConfig.getMessageDispatchMaxInflightBatches(), batchSizes);
+    } else {
+      results = dataAccessor.createChildren(keys, new ArrayList<>(messages));
+    }
+    long latency = System.currentTimeMillis() - startTime;
+
     for (int i = 0; i < results.length; i++) {
       if (!results[i]) {
         LogUtil.logError(logger, _eventId, "Failed to send message: " + keys.get(i));
@@ -192,7 +219,14 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
         messageSent.add(messages.get(i));
       }
     }
+    LogUtil.logDebug(logger, _eventId,
+        "Sending " + messages.size() + " messages in " + batchSizes.size() + " batches took "
+            + latency + " ms");
 
+    if (clusterStatusMonitor != null) {
+      clusterStatusMonitor.updateMessageDispatchStats(messageSent.size(),
+          messages.size() - messageSent.size(), batchSizes, latency);
+    }
     return messageSent;
   }
 }
@@ -53,6 +53,7 @@ import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.ParticipantHistory;
 import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.apache.helix.participant.StateMachineEngine;
 import org.apache.helix.participant.statemachine.ScheduledTaskStateModelFactory;
 import org.apache.helix.participant.statemachine.StateModel;
@@ -76,6 +77,8 @@ import org.slf4j.LoggerFactory;
  */
 public class ParticipantManager {
   private static Logger LOG = LoggerFactory.getLogger(ParticipantManager.class);
+  // Max number of current state nodes updated concurrently by the carry-over
+  private static final int CARRY_OVER_BATCH_SIZE = 1000;
   final RealmAwareZkClient _zkclient;
   final HelixManager _manager;
   final PropertyKey.Builder _keyBuilder;
@@ -159,7 +162,8 @@ public class ParticipantManager {
     createLiveInstance();
     if (shouldCarryOver()) {
       carryOverPreviousCurrentState(_dataAccessor, _instanceName, _sessionId,
-          _manager.getStateMachineEngine(), true);
+          _manager.getStateMachineEngine(), true,
+          _messagingService.getExecutor().getParticipantMonitor());
     }
     removePreviousTaskCurrentStates();
 
@@ -280,7 +284,7 @@ public class ParticipantManager {
     liveInstance.setHelixVersion(_manager.getVersion());
     liveInstance.setLiveInstance(ManagementFactory.getRuntimeMXBean().getName());
     liveInstance.setCurrentTaskThreadPoolSize(
-        TaskUtil.getTargetThreadPoolSize(_zkclient, _clusterName, _instanceName));
+        TaskUtil.getTaskExecutionCapacity(_zkclient, _clusterName, _instanceName));
 
     // LiveInstanceInfoProvider liveInstanceInfoProvider = _manager._liveInstanceInfoProvider;
     if (_liveInstanceInfoProvider != null) {
@@ -371,8 +375,27 @@ public class ParticipantManager {
   public static synchronized void carryOverPreviousCurrentState(HelixDataAccessor dataAccessor,
       String instanceName, String sessionId, StateMachineEngine stateMachineEngine,
       boolean setToInitState) {
+    carryOverPreviousCurrentState(dataAccessor, instanceName, sessionId, stateMachineEngine,
+        setToInitState, null);
+  }
+
+  /**
+   * carry over current-states from last sessions
+   * set to initial state for current session only when state doesn't exist in current session
+   * The current states of a previous session are updated with batched async operations of at
+   * most CARRY_OVER_BATCH_SIZE nodes each.
+   * @param monitor the monitor to report the carry-over to, or null
+   */
+  public static synchronized void carryOverPreviousCurrentState(HelixDataAccessor dataAccessor,
+      String instanceName, String sessionId, StateMachineEngine stateMachineEngine,
+      boolean setToInitState, ParticipantStatusMonitor monitor) {
+    long startTime = System.currentTimeMillis();
+    int carriedOverCount = 0;
     PropertyKey.Builder keyBuilder = dataAccessor.keyBuilder();
+    BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
     List<String> sessions = dataAccessor.getChildNames(keyBuilder.sessions(instanceName));
+    // The resources usually share a few state models, so read each definition once.
+    Map<String, StateModelDefinition> stateModelDefs = new HashMap<>();
 
     for (String session : sessions) {
       if (session.equals(sessionId)) {
@@ -383,6 +406,15 @@ public class ParticipantManager {
       List<CurrentState> lastCurStates =
           dataAccessor.getChildValues(keyBuilder.currentStates(instanceName, session), false);
 
+      // The resources of a session are distinct, so their current states are updated together.
+      List<String> paths = new ArrayList<>();
+      List<DataUpdater<ZNRecord>> updaters = new ArrayList<>();
+      // Bucketized current states, whose buckets are only updated once the parent is updated
+      List<String> bucketizedPaths = new ArrayList<>();
+      List<DataUpdater<ZNRecord>> bucketizedUpdaters = new ArrayList<>();
+      List<CurrentState> bucketizedCurStates = new ArrayList<>();
+      List<Map<String, String>> bucketizedExpectedStateMaps = new ArrayList<>();
+
       for (CurrentState lastCurState : lastCurStates) {
         LOG.info("Carrying over old session: " + session + ", resource: " + lastCurState.getId()
             + " to current session: " + sessionId + ", setToInitState: " + setToInitState);
@@ -400,8 +432,11 @@ public class ParticipantManager {
           continue;
         }
 
-        StateModelDefinition stateModelDef =
-            dataAccessor.getProperty(keyBuilder.stateModelDef(stateModelDefRef));
+        StateModelDefinition stateModelDef = stateModelDefs.get(stateModelDefRef);
+        if (stateModelDef == null) {
+          stateModelDef = dataAccessor.getProperty(keyBuilder.stateModelDef(stateModelDefRef));
+          stateModelDefs.put(stateModelDefRef, stateModelDef);
+        }
         String initState = stateModelDef.getInitialState();
         Map<String, String> partitionExpectedStateMap = new HashMap<>();
         if (setToInitState) {
@@ -420,7 +455,6 @@ public class ParticipantManager {
           });
         }
 
-        BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
         String curStatePath =
             keyBuilder.currentState(instanceName, sessionId, lastCurState.getResourceName())
                 .getPath();
@@ -429,34 +463,52 @@ public class ParticipantManager {
           // update parent node
           ZNRecord metaRecord = new ZNRecord(lastCurState.getId());
           metaRecord.setSimpleFields(lastCurState.getRecord().getSimpleFields());
-          DataUpdater<ZNRecord> metaRecordUpdater =
-              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, new CurrentState(metaRecord));
-          boolean success =
-              baseAccessor.update(curStatePath, metaRecordUpdater, AccessOption.PERSISTENT);
-          if (success) {
-            // update current state buckets
-            ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(lastCurState.getBucketSize());
-
-            Map<String, ZNRecord> map = bucketizer.bucketize(lastCurState.getRecord());
-            List<String> paths = new ArrayList<String>();
-            List<DataUpdater<ZNRecord>> updaters = new ArrayList<DataUpdater<ZNRecord>>();
-            for (String bucketName : map.keySet()) {
-              paths.add(curStatePath + "/" + bucketName);
-              updaters.add(new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, new CurrentState(map
-                  .get(bucketName))));
-            }
-
-            baseAccessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
-          }
+          bucketizedPaths.add(curStatePath);
+          bucketizedUpdaters.add(new CurStateCarryOverUpdater(sessionId,
+              partitionExpectedStateMap, new CurrentState(metaRecord)));
+          bucketizedCurStates.add(lastCurState);
+          bucketizedExpectedStateMaps.add(partitionExpectedStateMap);
+        } else {
+          paths.add(curStatePath);
+          updaters.add(
+              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, lastCurState));
+        }
+      }
 
+      // update the parents of the bucketized current states first
+      boolean[] parentSuccesses = updateInBatches(baseAccessor, bucketizedPaths,
+          bucketizedUpdaters);
+      for (int i = 0; i < bucketizedPaths.size(); i++) {
+        if (!parentSuccesses[i]) {
+          continue;
+        }
+        // update current state buckets
+        CurrentState lastCurState = bucketizedCurStates.get(i);
+        ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(lastCurState.getBucketSize());
+        Map<String, ZNRecord> map = bucketizer.bucketize(lastCurState.getRecord());
+        for (String bucketName : map.keySet()) {
+          paths.add(bucketizedPaths.get(i) + "/" + bucketName);
+          updaters.add(new CurStateCarryOverUpdater(sessionId,
+              bucketizedExpectedStateMaps.get(i), new CurrentState(map.get(bucketName))));
+        }
+      }
+      boolean[] successes = updateInBatches(baseAccessor, paths, updaters);
+      for (int i = 0; i < paths.size(); i++) {
+        if (successes[i]) {
+          carriedOverCount++;
         } else {
-          dataAccessor.getBaseDataAccessor().update(curStatePath,
-              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, lastCurState),
-              AccessOption.PERSISTENT);
+          LOG.warn("Failed to carry over current state to path: {}", paths.get(i));
         }
       }
     }
 
+    long duration = System.currentTimeMillis() - startTime;
+    LOG.info("Carried over {} current state nodes of instance {} to session {} in {} ms",
+        carriedOverCount, instanceName, sessionId, duration);
+    if (monitor != null) {
+      monitor.reportCurrentStateCarryOver(carriedOverCount, duration);
+    }
+
     /**
      * remove previous current state parent nodes
      */
@@ -474,6 +526,22 @@ public class ParticipantManager {
     }
   }
 
+  /**
+   * Update the nodes with batched async operations, so that at most CARRY_OVER_BATCH_SIZE updates
+   * are in flight at the same time.
+   */
+  private static boolean[] updateInBatches(BaseDataAccessor<ZNRecord> baseAccessor,
+      List<String> paths, List<DataUpdater<ZNRecord>> updaters) {
+    boolean[] successes = new boolean[paths.size()];
+    for (int start = 0; start < paths.size(); start += CARRY_OVER_BATCH_SIZE) {
+      int end = Math.min(start + CARRY_OVER_BATCH_SIZE, paths.size());
+      boolean[] batchSuccesses = baseAccessor.updateChildren(paths.subList(start, end),
+          updaters.subList(start, end), AccessOption.PERSISTENT);
+      System.arraycopy(batchSuccesses, 0, successes, start, end - start);
+    }
+    return successes;
+  }
+
   /**
    * Remove all previous task current state sessions
    */
@@ -26,10 +26,14 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +60,7 @@ import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.PropertyType;
 import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixConflictException;
+import org.apache.helix.api.status.BulkOperationResult;
 import org.apache.helix.api.status.ClusterManagementMode;
 import org.apache.helix.api.status.ClusterManagementModeRequest;
 import org.apache.helix.api.topology.ClusterTopology;
@@ -68,6 +73,7 @@ import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ClusterConstraints;
 import org.apache.helix.model.ClusterConstraints.ConstraintType;
 import org.apache.helix.model.ClusterStatus;
+import org.apache.helix.model.ClusterTopologyConfig;
 import org.apache.helix.model.ConstraintItem;
 import org.apache.helix.model.ControllerHistory;
 import org.apache.helix.model.CurrentState;
@@ -103,9 +109,15 @@ import org.apache.helix.zookeeper.impl.factory.SharedZkClientFactory;
 import org.apache.helix.zookeeper.routing.RoutingDataManager;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.NetworkUtil;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
+import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.ZooDefs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,6 +128,10 @@ public class ZKHelixAdmin implements HelixAdmin {
   public static final String CONNECTION_TIMEOUT = "helixAdmin.timeOutInSec";
   private static final String MAINTENANCE_ZNODE_ID = "maintenance";
   private static final int DEFAULT_SUPERCLUSTER_REPLICA = 3;
+  // The max number of the ZK operations in flight in a bulk operation
+  private static final int BULK_OPERATION_WINDOW_SIZE = 1000;
+  // The max number of the znodes created in one ZK multi transaction in a bulk operation
+  private static final int BULK_OPERATION_BATCH_SIZE = 100;
   private static final ImmutableSet<InstanceConstants.InstanceOperation>
       INSTANCE_OPERATION_TO_EXCLUDE_FROM_ASSIGNMENT =
       ImmutableSet.of(InstanceConstants.InstanceOperation.EVACUATE,
@@ -232,7 +248,13 @@ public class ZKHelixAdmin implements HelixAdmin {
           + " instead.", e);
     }
 
-    ZKUtil.createChildren(_zkClient, instanceConfigsPath, instanceConfig.getRecord());
+    createInstanceNodes(clusterName, instanceConfig);
+  }
+
+  private void createInstanceNodes(String clusterName, InstanceConfig instanceConfig) {
+    String nodeId = instanceConfig.getId();
+    ZKUtil.createChildren(_zkClient, PropertyPathBuilder.instanceConfig(clusterName),
+        instanceConfig.getRecord());
 
     _zkClient.createPersistent(PropertyPathBuilder.instanceMessage(clusterName, nodeId), true);
     _zkClient.createPersistent(PropertyPathBuilder.instanceCurrentState(clusterName, nodeId), true);
@@ -247,6 +269,164 @@ public class ZKHelixAdmin implements HelixAdmin {
     accessor.setProperty(keyBuilder.participantHistory(nodeId), new ParticipantHistory(nodeId));
   }
 
+  /**
+   * Add the instances with pipelined async ZK multi transactions, at most
+   * BULK_OPERATION_WINDOW_SIZE of them in flight. The znodes of each instance are created in one
+   * transaction, so an instance is either fully added or not added at all. The existing instance
+   * configs are read once for the validation of all the instances.
+   */
+  @Override
+  public Map<String, BulkOperationResult> addInstances(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    logger.info("Add {} instances to cluster {}.", instanceConfigs.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+    checkNoDuplicateNames(
+        instanceConfigs.stream().map(InstanceConfig::getId).collect(Collectors.toList()));
+
+    Map<String, InstanceConfig> knownInstanceConfigs = readInstanceConfigs(clusterName);
+    String logicalIdKey = ClusterTopologyConfig
+        .createFromClusterConfig(_configAccessor.getClusterConfig(clusterName)).getEndNodeType();
+
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    Deque<PendingInstanceCreation> inflightCreations = new ArrayDeque<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      String nodeId = instanceConfig.getId();
+      if (knownInstanceConfigs.containsKey(nodeId)) {
+        results.put(nodeId, BulkOperationResult
+            .failure(nodeId, "Node " + nodeId + " already exists in cluster " + clusterName));
+        continue;
+      }
+      List<InstanceConfig> matchingLogicalIdInstances = InstanceUtil
+          .findInstancesWithMatchingLogicalId(logicalIdKey, knownInstanceConfigs.values(),
+              instanceConfig);
+      if (matchingLogicalIdInstances.size() > 1) {
+        results.put(nodeId, BulkOperationResult.failure(nodeId,
+            "There are already more than one instance with the same logicalId in the cluster: "
+                + matchingLogicalIdInstances.stream().map(InstanceConfig::getInstanceName)
+                .collect(Collectors.joining(", "))));
+        continue;
+      }
+      InstanceConstants.InstanceOperation attemptedInstanceOperation =
+          instanceConfig.getInstanceOperation().getOperation();
+      try {
+        InstanceUtil.validateInstanceOperationTransition(matchingLogicalIdInstances,
+            InstanceConstants.InstanceOperation.UNKNOWN, attemptedInstanceOperation);
+      } catch (HelixException e) {
+        instanceConfig.setInstanceOperation(InstanceConstants.InstanceOperation.UNKNOWN);
+        logger.error("Failed to add instance " + nodeId + " to cluster " + clusterName
+            + " with instance operation " + attemptedInstanceOperation
+            + ". Setting INSTANCE_OPERATION to " + instanceConfig.getInstanceOperation()
+            .getOperation() + " instead.", e);
+      }
+      // The following instances are validated against this one, same as adding them one by one.
+      knownInstanceConfigs.put(nodeId, instanceConfig);
+
+      List<Op> ops;
+      try {
+        ops = createInstanceOps(clusterName, instanceConfig);
+      } catch (ZkMarshallingError e) {
+        results.put(nodeId, BulkOperationResult.failure(nodeId, e.getMessage()));
+        continue;
+      }
+      while (inflightCreations.size() >= BULK_OPERATION_WINDOW_SIZE) {
+        completeInstanceCreation(clusterName, inflightCreations.poll(), results);
+      }
+      // Reserve the position of the instance in the results.
+      results.put(nodeId, null);
+      PendingInstanceCreation creation = new PendingInstanceCreation(instanceConfig);
+      _zkClient.asyncMulti(ops, null, creation._callback);
+      inflightCreations.add(creation);
+    }
+    while (!inflightCreations.isEmpty()) {
+      completeInstanceCreation(clusterName, inflightCreations.poll(), results);
+    }
+    return results;
+  }
+
+  private List<Op> createInstanceOps(String clusterName, InstanceConfig instanceConfig) {
+    String nodeId = instanceConfig.getId();
+    List<Op> ops = new ArrayList<>();
+    ops.add(createPersistentOp(PropertyPathBuilder.instanceConfig(clusterName, nodeId),
+        instanceConfig.getRecord()));
+    ops.add(createPersistentOp(PropertyPathBuilder.instance(clusterName, nodeId), null));
+    for (String path : Arrays.asList(PropertyPathBuilder.instanceMessage(clusterName, nodeId),
+        PropertyPathBuilder.instanceCurrentState(clusterName, nodeId),
+        PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId),
+        PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId),
+        PropertyPathBuilder.instanceError(clusterName, nodeId),
+        PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId))) {
+      ops.add(createPersistentOp(path, null));
+    }
+    ops.add(createPersistentOp(PropertyPathBuilder.instanceHistory(clusterName, nodeId),
+        new ParticipantHistory(nodeId).getRecord()));
+    return ops;
+  }
+
+  private Op createPersistentOp(String path, ZNRecord record) {
+    byte[] data = record == null ? null : _zkClient.serialize(record, path);
+    return Op.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+  }
+
+  private void completeInstanceCreation(String clusterName, PendingInstanceCreation creation,
+      Map<String, BulkOperationResult> results) {
+    String nodeId = creation._instanceConfig.getId();
+    creation._callback.waitForSuccess();
+    Code rc = Code.get(creation._callback.getRc());
+    if (rc == Code.OK) {
+      results.put(nodeId, BulkOperationResult.success(nodeId));
+    } else if (rc == Code.NODEEXISTS && !_zkClient
+        .exists(PropertyPathBuilder.instanceConfig(clusterName, nodeId))) {
+      // Some znodes of the instance are left over, which the transaction cannot skip. Create the
+      // missing ones one by one as addInstance() does.
+      try {
+        createInstanceNodes(clusterName, creation._instanceConfig);
+        results.put(nodeId, BulkOperationResult.success(nodeId));
+      } catch (Exception e) {
+        results.put(nodeId, BulkOperationResult.failure(nodeId, e.getMessage()));
+      }
+    } else {
+      results.put(nodeId, BulkOperationResult
+          .failure(nodeId, "Failed to create the znodes of the instance, error: " + rc));
+    }
+  }
+
+  private static class PendingInstanceCreation {
+    private final InstanceConfig _instanceConfig;
+    private final ZkAsyncCallbacks.MultiCallbackHandler _callback =
+        new ZkAsyncCallbacks.MultiCallbackHandler();
+
+    PendingInstanceCreation(InstanceConfig instanceConfig) {
+      _instanceConfig = instanceConfig;
+    }
+  }
+
+  /**
+   * Read all the instance configs of the cluster with async reads.
+   * @return instance name -> instance config
+   */
+  private Map<String, InstanceConfig> readInstanceConfigs(String clusterName) {
+    Map<String, InstanceConfig> instanceConfigs = new HashMap<>();
+    for (ZNRecord record : _baseDataAccessor
+        .getChildren(PropertyPathBuilder.instanceConfig(clusterName), null,
+            AccessOption.PERSISTENT, 1, 0)) {
+      if (record != null) {
+        instanceConfigs.put(record.getId(), new InstanceConfig(record));
+      }
+    }
+    return instanceConfigs;
+  }
+
+  private static void checkNoDuplicateNames(List<String> names) {
+    Set<String> uniqueNames = new HashSet<>();
+    for (String name : names) {
+      if (!uniqueNames.add(name)) {
+        throw new IllegalArgumentException("Duplicate name in the bulk operation: " + name);
+      }
+    }
+  }
+
   @Override
   public void dropInstance(String clusterName, InstanceConfig instanceConfig) {
     logger.info("Drop instance {} from cluster {}.", instanceConfig.getInstanceName(), clusterName);
@@ -460,6 +640,81 @@ public class ZKHelixAdmin implements HelixAdmin {
         instanceOperationObj);
   }
 
+  /**
+   * Set the instance operation of the instances with async updates, at most
+   * BULK_OPERATION_WINDOW_SIZE of them in flight. The instance configs are read once for the
+   * validation of all the transitions.
+   */
+  @Override
+  public Map<String, BulkOperationResult> setInstanceOperations(String clusterName,
+      List<String> instanceNames, @Nullable InstanceConstants.InstanceOperation instanceOperation,
+      String reason) {
+    logger.info("Set instance operation {} of {} instances in cluster {}.", instanceOperation,
+        instanceNames.size(), clusterName);
+    checkNoDuplicateNames(instanceNames);
+    InstanceConfig.InstanceOperation instanceOperationObj =
+        new InstanceConfig.InstanceOperation.Builder().setOperation(
+            instanceOperation == null ? InstanceConstants.InstanceOperation.ENABLE
+                : instanceOperation).setReason(reason)
+            .setSource(InstanceConstants.InstanceOperationSource.USER).build();
+
+    Map<String, InstanceConfig> instanceConfigs = readInstanceConfigs(clusterName);
+    String logicalIdKey = ClusterTopologyConfig
+        .createFromClusterConfig(_configAccessor.getClusterConfig(clusterName)).getEndNodeType();
+
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    List<String> names = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    for (String instanceName : instanceNames) {
+      InstanceConfig instanceConfig = instanceConfigs.get(instanceName);
+      if (instanceConfig == null) {
+        results.put(instanceName, BulkOperationResult.failure(instanceName,
+            "Cluster " + clusterName + ", instance: " + instanceName
+                + ", instance config does not exist"));
+        continue;
+      }
+      try {
+        InstanceUtil.validateInstanceOperationTransition(InstanceUtil
+                .findInstancesWithMatchingLogicalId(logicalIdKey, instanceConfigs.values(),
+                    instanceConfig), instanceConfig.getInstanceOperation().getOperation(),
+            instanceOperationObj.getOperation());
+      } catch (HelixException e) {
+        results.put(instanceName, BulkOperationResult.failure(instanceName, e.getMessage()));
+        continue;
+      }
+      // The following instances are validated against the new operation, same as updating them
+      // one by one.
+      InstanceConfig updatedConfig = new InstanceConfig(new ZNRecord(instanceConfig.getRecord()));
+      updatedConfig.setInstanceOperation(instanceOperationObj);
+      instanceConfigs.put(instanceName, updatedConfig);
+
+      results.put(instanceName, null);
+      names.add(instanceName);
+      paths.add(PropertyPathBuilder.instanceConfig(clusterName, instanceName));
+    }
+
+    DataUpdater<ZNRecord> updater = currentData -> {
+      if (currentData == null) {
+        // The instance has been dropped, do not re-create its config.
+        return null;
+      }
+      InstanceConfig config = new InstanceConfig(currentData);
+      config.setInstanceOperation(instanceOperationObj);
+      return config.getRecord();
+    };
+    for (int start = 0; start < paths.size(); start += BULK_OPERATION_WINDOW_SIZE) {
+      int end = Math.min(start + BULK_OPERATION_WINDOW_SIZE, paths.size());
+      boolean[] success = _baseDataAccessor.updateChildren(paths.subList(start, end),
+          Collections.nCopies(end - start, updater), AccessOption.PERSISTENT);
+      for (int i = 0; i < success.length; i++) {
+        String instanceName = names.get(start + i);
+        results.put(instanceName, success[i] ? BulkOperationResult.success(instanceName)
+            : BulkOperationResult.failure(instanceName, "Failed to update instance operation."));
+      }
+    }
+    return results;
+  }
+
   @Override
   public boolean isEvacuateFinished(String clusterName, String instanceName) {
     if (!instanceHasFullAutoCurrentStateOrMessage(clusterName, instanceName)) {
@@ -1490,6 +1745,61 @@ public class ZKHelixAdmin implements HelixAdmin {
     ZKUtil.createChildren(_zkClient, idealStatePath, idealstate.getRecord());
   }
 
+  /**
+   * Create the ideal states in pipelined ZK multi transactions of at most
+   * BULK_OPERATION_BATCH_SIZE ideal states each. The state model definitions and the existing
+   * resources are read once for the validation of all the resources.
+   */
+  @Override
+  public Map<String, BulkOperationResult> addResources(String clusterName,
+      List<IdealState> idealStates) {
+    logger.info("Add {} resources in cluster {}.", idealStates.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+    checkNoDuplicateNames(
+        idealStates.stream().map(IdealState::getResourceName).collect(Collectors.toList()));
+
+    String idealStatePath = PropertyPathBuilder.idealState(clusterName);
+    Set<String> stateModelDefs =
+        new HashSet<>(_zkClient.getChildren(PropertyPathBuilder.stateModelDef(clusterName)));
+    Set<String> existingResources = new HashSet<>(_zkClient.getChildren(idealStatePath));
+
+    Map<String, BulkOperationResult> results = new LinkedHashMap<>();
+    List<String> names = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      String stateModelRef = idealState.getStateModelDefRef();
+      if (!stateModelDefs.contains(stateModelRef)) {
+        results.put(resourceName, BulkOperationResult.failure(resourceName,
+            "State model " + stateModelRef + " not found in the cluster STATEMODELDEFS path"));
+      } else if (existingResources.contains(resourceName)) {
+        results.put(resourceName, BulkOperationResult.failure(resourceName,
+            "Resource ideal state already exists: " + idealStatePath + "/" + resourceName));
+      } else {
+        results.put(resourceName, null);
+        names.add(resourceName);
+        paths.add(idealStatePath + "/" + resourceName);
+        records.add(idealState.getRecord());
+      }
+    }
+
+    if (!paths.isEmpty()) {
+      boolean[] success = _baseDataAccessor
+          .createChildrenInBatches(paths, records, AccessOption.PERSISTENT,
+              BULK_OPERATION_BATCH_SIZE, BULK_OPERATION_WINDOW_SIZE / BULK_OPERATION_BATCH_SIZE);
+      for (int i = 0; i < success.length; i++) {
+        String resourceName = names.get(i);
+        results.put(resourceName, success[i] ? BulkOperationResult.success(resourceName)
+            : BulkOperationResult.failure(resourceName,
+                "Failed to create the ideal state " + paths.get(i)));
+      }
+    }
+    return results;
+  }
+
   @Override
   public void addResource(String clusterName, String resourceName, int partitions,
       String stateModelRef, String rebalancerMode, int bucketSize) {
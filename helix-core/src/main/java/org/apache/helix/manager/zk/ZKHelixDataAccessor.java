@@ -519,6 +519,22 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     return _baseDataAccessor.createChildren(paths, records, options);
   }
 
+  @Override
+  public <T extends HelixProperty> boolean[] createChildrenInBatches(List<PropertyKey> keys,
+      List<T> children, int maxBatchSize, int maxInflightBatches, List<Integer> batchSizes) {
+    int options = -1;
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      PropertyKey key = keys.get(i);
+      paths.add(key.getPath());
+      records.add(children.get(i).getRecord());
+      options = constructOptions(key.getType());
+    }
+    return _baseDataAccessor.createChildrenInBatches(paths, records, options, maxBatchSize,
+        maxInflightBatches, batchSizes);
+  }
+
   @Override
   public <T extends HelixProperty> boolean[] setChildren(List<PropertyKey> keys, List<T> children) {
     int options = -1;
@@ -19,11 +19,14 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +41,8 @@ import org.apache.helix.store.zk.ZNode;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.SessionAwareZNRecord;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.exception.ZkClientException;
@@ -51,6 +56,7 @@ import org.apache.helix.zookeeper.zkclient.ZkClient;
 import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
 import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
@@ -60,6 +66,7 @@ import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
 import org.apache.zookeeper.Op;
 import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.server.DataTree;
 import org.slf4j.Logger;
@@ -122,6 +129,10 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
   private static Logger LOG = LoggerFactory.getLogger(ZkBaseDataAccessor.class);
 
+  // Keep a multi transaction well below the ZK request size limit (jute.maxbuffer)
+  private static final int MULTI_BATCH_BYTES_LIMIT =
+      Integer.getInteger(ZkSystemPropertyKeys.JUTE_MAXBUFFER, ZNRecord.SIZE_LIMIT) / 2;
+
   private final RealmAwareZkClient _zkClient;
 
   // true if ZkBaseDataAccessor was instantiated with a RealmAwareZkClient, false otherwise
@@ -970,6 +981,158 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * async create in pipelined ZK multi transactions, grouped by parent path.
+   * Fall back to async create of each child if a transaction fails.
+   */
+  @Override
+  public boolean[] createChildrenInBatches(List<String> paths, List<T> records, int options,
+      int maxBatchSize, int maxInflightBatches, List<Integer> batchSizes) {
+    CreateMode mode = AccessOption.getMode(options);
+    if (maxBatchSize <= 1 || mode == null || mode.isTTL()) {
+      return BaseDataAccessor.super
+          .createChildrenInBatches(paths, records, options, maxBatchSize, maxInflightBatches,
+              batchSizes);
+    }
+    if (records == null || records.size() != paths.size()) {
+      throw new IllegalArgumentException("paths and records should be of same size");
+    }
+
+    boolean[] success = new boolean[paths.size()];
+    // A transaction could only be submitted under one session, so group the children by both the
+    // parent path and the expected session.
+    Map<String, List<Integer>> childrenByParent = new LinkedHashMap<>();
+    for (int i = 0; i < paths.size(); i++) {
+      String groupKey =
+          HelixUtil.getZkParentPath(paths.get(i)) + "|" + getExpectedSessionId(records.get(i));
+      childrenByParent.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(i);
+    }
+
+    List<Integer> fallbackIndices = new ArrayList<>();
+    Deque<MultiBatch> inflightBatches = new ArrayDeque<>();
+    int inflightLimit = Math.max(1, maxInflightBatches);
+    List<Integer> submittedBatchSizes = batchSizes == null ? new ArrayList<>() : batchSizes;
+    long startT = System.nanoTime();
+    try {
+      for (List<Integer> children : childrenByParent.values()) {
+        MultiBatch batch = new MultiBatch(getExpectedSessionId(records.get(children.get(0))));
+        for (int index : children) {
+          String path = paths.get(index);
+          byte[] data;
+          try {
+            data = _zkClient.serialize(records.get(index), path);
+          } catch (ZkMarshallingError e) {
+            // Let the async create report the failure of this child.
+            fallbackIndices.add(index);
+            continue;
+          }
+          int dataSize = data == null ? 0 : data.length;
+          if (!batch._indices.isEmpty() && (batch._indices.size() >= maxBatchSize
+              || batch._bytes + dataSize > MULTI_BATCH_BYTES_LIMIT)) {
+            submitMultiBatch(batch, inflightBatches, inflightLimit, success, fallbackIndices,
+                submittedBatchSizes);
+            batch = new MultiBatch(batch._expectedSessionId);
+          }
+          batch.add(index, Op.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, mode), dataSize);
+        }
+        submitMultiBatch(batch, inflightBatches, inflightLimit, success, fallbackIndices,
+            submittedBatchSizes);
+      }
+    } finally {
+      // Wait for the submitted transactions even if submitting the others failed, so none of
+      // them is still in flight when this method returns.
+      while (!inflightBatches.isEmpty()) {
+        completeMultiBatch(inflightBatches.poll(), success, fallbackIndices);
+      }
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("create_multi, size: " + paths.size() + ", batches: "
+            + submittedBatchSizes.size() + ", fallbacks: " + fallbackIndices.size() + ", time: "
+            + (System.nanoTime() - startT) + " ns");
+      }
+    }
+
+    if (!fallbackIndices.isEmpty()) {
+      Collections.sort(fallbackIndices);
+      List<String> fallbackPaths = new ArrayList<>(fallbackIndices.size());
+      List<T> fallbackRecords = new ArrayList<>(fallbackIndices.size());
+      for (int index : fallbackIndices) {
+        fallbackPaths.add(paths.get(index));
+        fallbackRecords.add(records.get(index));
+      }
+      boolean[] fallbackSuccess = createChildren(fallbackPaths, fallbackRecords, options);
+      for (int i = 0; i < fallbackSuccess.length; i++) {
+        success[fallbackIndices.get(i)] = fallbackSuccess[i];
+      }
+      // Each fallback child is created by a single create.
+      submittedBatchSizes.addAll(Collections.nCopies(fallbackIndices.size(), 1));
+    }
+    return success;
+  }
+
+  /**
+   * Submit the batch as a multi transaction once there is a free slot in the in-flight window.
+   * A batch of a single child is created by the plain async create instead.
+   */
+  private void submitMultiBatch(MultiBatch batch, Deque<MultiBatch> inflightBatches,
+      int inflightLimit, boolean[] success, List<Integer> fallbackIndices,
+      List<Integer> batchSizes) {
+    if (batch._indices.size() <= 1) {
+      fallbackIndices.addAll(batch._indices);
+      return;
+    }
+    while (inflightBatches.size() >= inflightLimit) {
+      completeMultiBatch(inflightBatches.poll(), success, fallbackIndices);
+    }
+    _zkClient.asyncMulti(batch._ops, batch._expectedSessionId, batch._callback);
+    inflightBatches.add(batch);
+    batchSizes.add(batch._indices.size());
+  }
+
+  private void completeMultiBatch(MultiBatch batch, boolean[] success,
+      List<Integer> fallbackIndices) {
+    batch._callback.waitForSuccess();
+    if (Code.get(batch._callback.getRc()) == Code.OK) {
+      for (int index : batch._indices) {
+        success[index] = true;
+      }
+    } else {
+      // The transaction is rolled back as a whole. Retry each child individually so the result
+      // of every child is reported, and the missing parents are created.
+      LOG.debug("Multi create failed with rc {}, fall back to async create of {} children.",
+          Code.get(batch._callback.getRc()), batch._indices.size());
+      fallbackIndices.addAll(batch._indices);
+    }
+  }
+
+  private static String getExpectedSessionId(Object record) {
+    if (record instanceof SessionAwareZNRecord) {
+      return ((SessionAwareZNRecord) record).getExpectedSessionId();
+    }
+    return null;
+  }
+
+  /**
+   * The ops and the child indices of a single multi transaction
+   */
+  private static class MultiBatch {
+    private final String _expectedSessionId;
+    private final List<Integer> _indices = new ArrayList<>();
+    private final List<Op> _ops = new ArrayList<>();
+    private final ZkAsyncCallbacks.MultiCallbackHandler _callback =
+        new ZkAsyncCallbacks.MultiCallbackHandler();
+    private int _bytes = 0;
+
+    MultiBatch(String expectedSessionId) {
+      _expectedSessionId = expectedSessionId;
+    }
+
+    void add(int index, Op op, int bytes) {
+      _indices.add(index);
+      _ops.add(op);
+      _bytes += bytes;
+    }
+  }
+
   /**
    * async set
    * TODO: rename to set
@@ -99,11 +99,12 @@ public class CriteriaEvaluator {
     // TODO: match result eventually.
     Set<String> liveParticipants =
         accessor.getChildValuesMap(keyBuilder.liveInstances(), false).keySet();
+    CriteriaPatterns patterns = new CriteriaPatterns(recipientCriteria);
     List<ZNRecordRow> result = Lists.newArrayList();
     for (ZNRecordRow row : allRows) {
       // The participant instance name is stored in the return value of either getRecordId() or
       // getMapSubKey()
-      if (rowMatches(recipientCriteria, row) && (liveParticipants.contains(row.getRecordId())
+      if (rowMatches(patterns, row) && (liveParticipants.contains(row.getRecordId())
           || liveParticipants.contains(row.getMapSubKey()))) {
         result.add(row);
       }
@@ -113,38 +114,41 @@ public class CriteriaEvaluator {
 
     // deduplicate and convert the matches into the required format
     for (ZNRecordRow row : result) {
-      Map<String, String> resultRow = new HashMap<String, String>();
-      resultRow.put("instanceName", !recipientCriteria.getInstanceName().equals("")
-          ? (!Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId())
-          : "");
-      resultRow.put("resourceName",
-          !recipientCriteria.getResource().equals("") ? row.getRecordId() : "");
-      resultRow.put("partitionName",
-          !recipientCriteria.getPartition().equals("") ? row.getMapKey() : "");
-      resultRow.put("partitionState",
-          !recipientCriteria.getPartitionState().equals("") ? row.getMapValue() : "");
-      selected.add(resultRow);
+      selected.add(toResultRow(recipientCriteria,
+          !Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId(),
+          row.getRecordId(), row.getMapKey(), row.getMapValue()));
     }
     logger.info("Query returned " + selected.size() + " rows");
     return Lists.newArrayList(selected);
   }
 
+  /**
+   * Convert a matched row into the required format. A field is left empty if it is not specified
+   * in the criteria.
+   */
+  static Map<String, String> toResultRow(Criteria criteria, String instanceName,
+      String resourceName, String partitionName, String partitionState) {
+    Map<String, String> resultRow = new HashMap<String, String>();
+    resultRow.put("instanceName", !criteria.getInstanceName().equals("") ? instanceName : "");
+    resultRow.put("resourceName", !criteria.getResource().equals("") ? resourceName : "");
+    resultRow.put("partitionName", !criteria.getPartition().equals("") ? partitionName : "");
+    resultRow.put("partitionState",
+        !criteria.getPartitionState().equals("") ? partitionState : "");
+    return resultRow;
+  }
+
   /**
    * Check if a given row matches the specified criteria
-   * @param criteria the criteria
+   * @param patterns the compiled patterns of the criteria
    * @param row row of currently persisted data
    * @return true if it matches, false otherwise
    */
-  private boolean rowMatches(Criteria criteria, ZNRecordRow row) {
-    String instanceName = normalizePattern(criteria.getInstanceName());
-    String resourceName = normalizePattern(criteria.getResource());
-    String partitionName = normalizePattern(criteria.getPartition());
-    String partitionState = normalizePattern(criteria.getPartitionState());
-    return (stringMatches(instanceName, Strings.nullToEmpty(row.getMapSubKey()))
-        || stringMatches(instanceName, Strings.nullToEmpty(row.getRecordId())))
-        && stringMatches(resourceName, Strings.nullToEmpty(row.getRecordId()))
-        && stringMatches(partitionName, Strings.nullToEmpty(row.getMapKey()))
-        && stringMatches(partitionState, Strings.nullToEmpty(row.getMapValue()));
+  private boolean rowMatches(CriteriaPatterns patterns, ZNRecordRow row) {
+    return (patterns.instanceMatches(Strings.nullToEmpty(row.getMapSubKey()))
+        || patterns.instanceMatches(Strings.nullToEmpty(row.getRecordId())))
+        && patterns.resourceMatches(Strings.nullToEmpty(row.getRecordId()))
+        && patterns.partitionMatches(Strings.nullToEmpty(row.getMapKey()))
+        && patterns.stateMatches(Strings.nullToEmpty(row.getMapValue()));
   }
 
   /**
@@ -152,7 +156,7 @@ public class CriteriaEvaluator {
    * @param pattern SQL like match pattern (i.e. contains '%'s and '_'s)
    * @return Java matches expression (i.e. contains ".*?"s and '.'s)
    */
-  private String normalizePattern(String pattern) {
+  private static String normalizePattern(String pattern) {
     if (pattern == null || pattern.equals("") || pattern.equals("*")) {
       pattern = "%";
     }
@@ -171,14 +175,42 @@ public class CriteriaEvaluator {
   }
 
   /**
-   * Check if a string matches a pattern
-   * @param pattern pattern allowed by Java regex matching
-   * @param value the string to check
-   * @return true if they match, false otherwise
+   * The match patterns of the fields of a {@link Criteria}. The patterns are compiled once per
+   * evaluation instead of once per row.
    */
-  private boolean stringMatches(String pattern, String value) {
-    Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    return p.matcher(value).matches();
+  static class CriteriaPatterns {
+    private final Pattern _instancePattern;
+    private final Pattern _resourcePattern;
+    private final Pattern _partitionPattern;
+    private final Pattern _statePattern;
+
+    CriteriaPatterns(Criteria criteria) {
+      _instancePattern = compilePattern(criteria.getInstanceName());
+      _resourcePattern = compilePattern(criteria.getResource());
+      _partitionPattern = compilePattern(criteria.getPartition());
+      _statePattern = compilePattern(criteria.getPartitionState());
+    }
+
+    boolean instanceMatches(String value) {
+      return _instancePattern.matcher(value).matches();
+    }
+
+    boolean resourceMatches(String value) {
+      return _resourcePattern.matcher(value).matches();
+    }
+
+    boolean partitionMatches(String value) {
+      return _partitionPattern.matcher(value).matches();
+    }
+
+    boolean stateMatches(String value) {
+      return _statePattern.matcher(value).matches();
+    }
+
+    private static Pattern compilePattern(String criteriaField) {
+      return Pattern.compile(normalizePattern(criteriaField),
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
   }
 
   private List<HelixProperty> getProperty(HelixDataAccessor accessor, String dataSpec,
@@ -21,6 +21,7 @@ package org.apache.helix.messaging;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +56,8 @@ import org.slf4j.LoggerFactory;
 public class DefaultMessagingService implements ClusterMessagingService {
   private final HelixManager _manager;
   private final CriteriaEvaluator _evaluator;
+  // Not null if the recipients are resolved from the criteria index
+  private final IndexedCriteriaEvaluator _indexedEvaluator;
   private final HelixTaskExecutor _taskExecutor;
   // TODO:rename to factory, this is not a service
   private final AsyncCallbackService _asyncCallbackService;
@@ -66,7 +69,13 @@ public class DefaultMessagingService implements ClusterMessagingService {
 
   public DefaultMessagingService(HelixManager manager) {
     _manager = manager;
-    _evaluator = new CriteriaEvaluator();
+    if (Boolean.getBoolean(SystemPropertyKeys.MESSAGING_CRITERIA_INDEX_ENABLED)) {
+      _indexedEvaluator = new IndexedCriteriaEvaluator(manager);
+      _evaluator = _indexedEvaluator;
+    } else {
+      _indexedEvaluator = null;
+      _evaluator = new CriteriaEvaluator();
+    }
 
     boolean isParticipant = false;
     if (manager.getInstanceType() == InstanceType.PARTICIPANT || manager.getInstanceType() == InstanceType.CONTROLLER_PARTICIPANT) {
@@ -194,11 +203,17 @@ public class DefaultMessagingService implements ClusterMessagingService {
     if (!matchedList.isEmpty()) {
       Map<String, String> sessionIdMap = new HashMap<String, String>();
       if (recipientCriteria.isSessionSpecific()) {
-        Builder keyBuilder = targetDataAccessor.keyBuilder();
-        // For backward compatibility, allow partial read for the live instances.
-        // Note that this may cause the pending message to be sent with null target session Id.
-        List<LiveInstance> liveInstances =
-            targetDataAccessor.getChildValues(keyBuilder.liveInstances(), false);
+        Collection<LiveInstance> liveInstances = null;
+        if (_indexedEvaluator != null && targetDataAccessor == _manager.getHelixDataAccessor()) {
+          Map<String, LiveInstance> indexedLiveInstances = _indexedEvaluator.getLiveInstances();
+          liveInstances = indexedLiveInstances == null ? null : indexedLiveInstances.values();
+        }
+        if (liveInstances == null) {
+          Builder keyBuilder = targetDataAccessor.keyBuilder();
+          // For backward compatibility, allow partial read for the live instances.
+          // Note that this may cause the pending message to be sent with null target session Id.
+          liveInstances = targetDataAccessor.getChildValues(keyBuilder.liveInstances(), false);
+        }
 
         for (LiveInstance liveInstance : liveInstances) {
           sessionIdMap.put(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner());
@@ -344,6 +359,14 @@ public class DefaultMessagingService implements ClusterMessagingService {
     return _taskExecutor;
   }
 
+  /**
+   * @return the evaluator that resolves the recipients from the criteria index, which reports the
+   *         index hits and the fallbacks, or null if the index is not enabled
+   */
+  public IndexedCriteriaEvaluator getIndexedCriteriaEvaluator() {
+    return _indexedEvaluator;
+  }
+
   @VisibleForTesting
   int getTaskThreadpoolResetTimeout() {
     return _taskThreadpoolResetTimeout;
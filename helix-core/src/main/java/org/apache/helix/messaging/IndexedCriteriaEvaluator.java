@@ -0,0 +1,293 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Strings;
+import org.apache.helix.Criteria;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixManager;
+import org.apache.helix.NotificationContext;
+import org.apache.helix.api.listeners.ExternalViewChangeListener;
+import org.apache.helix.api.listeners.LiveInstanceChangeListener;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CriteriaEvaluator} that resolves the recipients in the manager's cluster from an
+ * in-memory index instead of reading the cluster on every evaluation. The index maps
+ * resource -> partition -> state -> instances, and is rebuilt from the external views and the
+ * live instances delivered to the listeners this evaluator registers on the manager the first
+ * time it is queried.
+ *
+ * The matching semantics are the same as the ones of {@link CriteriaEvaluator}. A criteria falls
+ * back to the scan of the persisted data if the index cannot serve it, i.e. the criteria targets
+ * another cluster or a data source other than EXTERNALVIEW and LIVEINSTANCES, the index is not
+ * initialized, or the specified resource or instance is not in the index.
+ */
+public class IndexedCriteriaEvaluator extends CriteriaEvaluator
+    implements ExternalViewChangeListener, LiveInstanceChangeListener {
+  private static final Logger LOG = LoggerFactory.getLogger(IndexedCriteriaEvaluator.class);
+
+  private final HelixManager _manager;
+  private final AtomicLong _indexHitCount = new AtomicLong();
+  private final AtomicLong _fallbackCount = new AtomicLong();
+
+  // resource -> partition -> state -> instances, null if the index is not maintained
+  private volatile Map<String, Map<String, Map<String, List<String>>>> _externalViewIndex;
+  // instance name -> live instance, null if the index is not maintained
+  private volatile Map<String, LiveInstance> _liveInstances;
+
+  public IndexedCriteriaEvaluator(HelixManager manager) {
+    _manager = manager;
+  }
+
+  /**
+   * Match the wildcards in {@link Criteria} with the index if the accessor is the one of the
+   * manager, otherwise examine the persisted data.
+   * @param recipientCriteria Criteria specifying the message destinations
+   * @param accessor connection to the persisted data
+   * @return map of evaluated criteria
+   */
+  @Override
+  public List<Map<String, String>> evaluateCriteria(Criteria recipientCriteria,
+      HelixDataAccessor accessor) {
+    if (accessor == _manager.getHelixDataAccessor()) {
+      registerListenersIfNeeded();
+      List<Map<String, String>> result = evaluateFromIndex(recipientCriteria);
+      if (result != null) {
+        _indexHitCount.incrementAndGet();
+        LOG.debug("Index query returned {} rows", result.size());
+        return result;
+      }
+    }
+    _fallbackCount.incrementAndGet();
+    return super.evaluateCriteria(recipientCriteria, accessor);
+  }
+
+  /**
+   * @return the number of evaluations served by the index
+   */
+  public long getIndexHitCount() {
+    return _indexHitCount.get();
+  }
+
+  /**
+   * @return the number of evaluations that fell back to the scan of the persisted data
+   */
+  public long getFallbackCount() {
+    return _fallbackCount.get();
+  }
+
+  /**
+   * @return the indexed live instances keyed by instance name, or null if the index is not
+   *         maintained
+   */
+  public Map<String, LiveInstance> getLiveInstances() {
+    return _liveInstances;
+  }
+
+  @Override
+  public void onExternalViewChange(List<ExternalView> externalViewList,
+      NotificationContext changeContext) {
+    if (changeContext != null && changeContext.getType() == NotificationContext.Type.FINALIZE) {
+      // The listener is removed. It will be registered again by the next evaluation.
+      _externalViewIndex = null;
+      return;
+    }
+    Map<String, Map<String, Map<String, List<String>>>> externalViewIndex = new HashMap<>();
+    for (ExternalView externalView : externalViewList) {
+      if (externalView == null) {
+        continue;
+      }
+      Map<String, Map<String, List<String>>> partitionMap = new HashMap<>();
+      for (Map.Entry<String, Map<String, String>> partitionEntry : externalView.getRecord()
+          .getMapFields().entrySet()) {
+        Map<String, List<String>> stateMap = new HashMap<>();
+        for (Map.Entry<String, String> instanceEntry : partitionEntry.getValue().entrySet()) {
+          stateMap.computeIfAbsent(instanceEntry.getValue(), state -> new ArrayList<>())
+              .add(instanceEntry.getKey());
+        }
+        partitionMap.put(partitionEntry.getKey(), stateMap);
+      }
+      externalViewIndex.put(externalView.getResourceName(), partitionMap);
+    }
+    _externalViewIndex = externalViewIndex;
+  }
+
+  @Override
+  public void onLiveInstanceChange(List<LiveInstance> liveInstances,
+      NotificationContext changeContext) {
+    if (changeContext != null && changeContext.getType() == NotificationContext.Type.FINALIZE) {
+      _liveInstances = null;
+      return;
+    }
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    for (LiveInstance liveInstance : liveInstances) {
+      if (liveInstance != null) {
+        liveInstanceMap.put(liveInstance.getInstanceName(), liveInstance);
+      }
+    }
+    _liveInstances = Collections.unmodifiableMap(liveInstanceMap);
+  }
+
+  private void registerListenersIfNeeded() {
+    if (_externalViewIndex != null && _liveInstances != null || !_manager.isConnected()) {
+      return;
+    }
+    try {
+      // The manager skips a listener that is already registered on the same path.
+      _manager.addExternalViewChangeListener(this);
+      _manager.addLiveInstanceChangeListener(this);
+    } catch (Exception e) {
+      LOG.warn("Failed to register the listeners of the criteria index for cluster {}",
+          _manager.getClusterName(), e);
+    }
+  }
+
+  /**
+   * @return the evaluated criteria, or null if the index cannot serve the criteria
+   */
+  private List<Map<String, String>> evaluateFromIndex(Criteria criteria) {
+    Map<String, Map<String, Map<String, List<String>>>> externalViewIndex = _externalViewIndex;
+    Map<String, LiveInstance> liveInstances = _liveInstances;
+    if (externalViewIndex == null || liveInstances == null) {
+      return null;
+    }
+    switch (criteria.getDataSource()) {
+    case EXTERNALVIEW:
+      return evaluateExternalViews(criteria, externalViewIndex, liveInstances.keySet());
+    case LIVEINSTANCES:
+      return evaluateLiveInstances(criteria, liveInstances);
+    default:
+      return null;
+    }
+  }
+
+  private List<Map<String, String>> evaluateExternalViews(Criteria criteria,
+      Map<String, Map<String, Map<String, List<String>>>> externalViewIndex,
+      Set<String> liveParticipants) {
+    Map<String, Map<String, Map<String, List<String>>>> resources =
+        selectEntries(externalViewIndex, criteria.getResource());
+    if (resources == null) {
+      return null;
+    }
+    CriteriaPatterns patterns = new CriteriaPatterns(criteria);
+    Set<Map<String, String>> selected = new HashSet<>();
+    for (Map.Entry<String, Map<String, Map<String, List<String>>>> resourceEntry : resources
+        .entrySet()) {
+      String resource = resourceEntry.getKey();
+      if (!patterns.resourceMatches(resource)) {
+        continue;
+      }
+      if (liveParticipants.contains(resource)) {
+        // The rows of the simple and the list fields of this external view match the live
+        // participants as well. The index does not keep these fields, so leave it to the scan.
+        return null;
+      }
+      // The instance pattern is matched against either the instance or the resource name.
+      boolean instanceMatchesResource = patterns.instanceMatches(resource);
+      for (Map.Entry<String, Map<String, List<String>>> partitionEntry : resourceEntry.getValue()
+          .entrySet()) {
+        String partition = partitionEntry.getKey();
+        if (!patterns.partitionMatches(partition)) {
+          continue;
+        }
+        for (Map.Entry<String, List<String>> stateEntry : partitionEntry.getValue().entrySet()) {
+          String state = stateEntry.getKey();
+          if (!patterns.stateMatches(Strings.nullToEmpty(state))) {
+            continue;
+          }
+          for (String instance : stateEntry.getValue()) {
+            if (liveParticipants.contains(instance) && (instanceMatchesResource || patterns
+                .instanceMatches(instance))) {
+              selected.add(toResultRow(criteria, instance, resource, partition, state));
+            }
+          }
+        }
+      }
+    }
+    return new ArrayList<>(selected);
+  }
+
+  private List<Map<String, String>> evaluateLiveInstances(Criteria criteria,
+      Map<String, LiveInstance> liveInstances) {
+    Map<String, LiveInstance> instances = selectEntries(liveInstances, criteria.getInstanceName());
+    if (instances == null) {
+      return null;
+    }
+    CriteriaPatterns patterns = new CriteriaPatterns(criteria);
+    // A live instance only has the rows of its simple and list fields, which have no partition
+    // and no state.
+    if (!patterns.partitionMatches("") || !patterns.stateMatches("")) {
+      return new ArrayList<>();
+    }
+    boolean instanceMatchesEmpty = patterns.instanceMatches("");
+    Set<Map<String, String>> selected = new HashSet<>();
+    for (Map.Entry<String, LiveInstance> instanceEntry : instances.entrySet()) {
+      String instance = instanceEntry.getKey();
+      ZNRecord record = instanceEntry.getValue().getRecord();
+      if (!record.getMapFields().isEmpty()) {
+        return null;
+      }
+      if (hasRows(record) && patterns.resourceMatches(instance) && (instanceMatchesEmpty
+          || patterns.instanceMatches(instance))) {
+        selected.add(toResultRow(criteria, instance, instance, "", ""));
+      }
+    }
+    return new ArrayList<>(selected);
+  }
+
+  /**
+   * Select the entries of the specified name in the same way as the scan reads the persisted data.
+   * @return all the entries if the name is not specified or is the wildcard, the entry of the name
+   *         if it exists, or null otherwise
+   */
+  private static <T> Map<String, T> selectEntries(Map<String, T> entries, String name) {
+    if (Strings.isNullOrEmpty(name) || name.equals(MATCH_ALL_SYM)) {
+      return entries;
+    }
+    T entry = entries.get(name);
+    return entry == null ? null : Collections.singletonMap(name, entry);
+  }
+
+  private static boolean hasRows(ZNRecord record) {
+    if (!record.getSimpleFields().isEmpty()) {
+      return true;
+    }
+    for (List<String> values : record.getListFields().values()) {
+      if (!values.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -30,13 +30,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -77,6 +76,7 @@ import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.util.HelixUtil;
+import org.apache.helix.util.HierarchicalTimingWheel;
 import org.apache.helix.util.StatusUpdateUtil;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
@@ -147,6 +147,8 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   private LiveInstanceStatus _liveInstanceStatus;
   private static final int SESSION_SYNC_INTERVAL = 2000; // 2 seconds
   private static final String SESSION_SYNC = "SESSION-SYNC";
+  // The number of threads that run the expired message timeouts
+  private static final int TIMEOUT_THREAD_POOL_SIZE = 2;
 
   /**
    * Map of MsgType->MsgHandlerFactoryRegistryItem
@@ -166,8 +168,10 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   final Set<String> _transitionTypeThreadpoolChecked;
   final Set<String> _msgInfoBasedThreadpoolChecked;
 
-  // timer for schedule timeout tasks
-  final Timer _timer;
+  // schedules the message timeouts, which are mostly canceled when the messages complete
+  final HierarchicalTimingWheel _timeoutScheduler;
+  // runs the expired message timeouts, so a slow timeout does not delay the others
+  final ExecutorService _timeoutExecutorService;
 
   private boolean _isShuttingDown;
 
@@ -200,8 +204,16 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _lock = new Object();
     _statusUpdateUtil = new StatusUpdateUtil();
 
-    // created as a daemon timer thread to handle task timeout
-    _timer = new Timer("HelixTaskExecutor_Timer", true);
+    // created with daemon threads to handle task timeout. The timeouts only cancel the tasks, so a
+    // few threads are enough, and a burst of timeouts is queued instead of creating more threads.
+    _timeoutExecutorService = Executors.newFixedThreadPool(TIMEOUT_THREAD_POOL_SIZE, r -> {
+      Thread thread = new Thread(r, "HelixTaskExecutor_MessageTimeout");
+      thread.setDaemon(true);
+      return thread;
+    });
+    _timeoutScheduler = new HierarchicalTimingWheel("HelixTaskExecutor_Timer",
+        HierarchicalTimingWheel.DEFAULT_TICK_MS, HierarchicalTimingWheel.DEFAULT_WHEEL_SIZE,
+        _timeoutExecutorService);
 
     _isShuttingDown = false;
     _liveInstanceStatus = LiveInstanceStatus.NORMAL;
@@ -425,9 +437,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       if (_taskMap.containsKey(taskId)) {
         MessageTaskInfo info = _taskMap.get(taskId);
         removeMessageFromTaskAndFutureMap(task.getMessage());
-        if (info._timerTask != null) {
-          info._timerTask.cancel();
-        }
+        cancelMessageTimeout(info);
         return true;
       }
       return false;
@@ -471,17 +481,20 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
               .putIfAbsent(getMessageTarget(message.getResourceName(), message.getPartitionName()),
                   taskId);
 
-          TimerTask timerTask = null;
+          ScheduledFuture<?> timeoutFuture = null;
+          MessageTimeoutTask timeoutTask = null;
           if (message.getExecutionTimeout() > 0) {
-            timerTask = new MessageTimeoutTask(this, task);
-            _timer.schedule(timerTask, message.getExecutionTimeout());
+            timeoutTask = new MessageTimeoutTask(this, task);
+            timeoutFuture = _timeoutScheduler.schedule(timeoutTask,
+                message.getExecutionTimeout(), TimeUnit.MILLISECONDS);
+            _monitor.reportMessageTimeoutScheduled();
             LOG.info(
                 "Message starts with timeout " + message.getExecutionTimeout() + " MsgId: " + task
                     .getTaskId());
           } else {
             LOG.debug("Message does not have timeout. MsgId: " + task.getTaskId());
           }
-          _taskMap.put(taskId, new MessageTaskInfo(task, future, timerTask));
+          _taskMap.put(taskId, new MessageTaskInfo(task, future, timeoutFuture, timeoutTask));
 
           LOG.info("Message: " + taskId + " handling task scheduled");
           return true;
@@ -509,9 +522,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       if (_taskMap.containsKey(taskId)) {
         MessageTaskInfo taskInfo = _taskMap.get(taskId);
         // cancel timeout task
-        if (taskInfo._timerTask != null) {
-          taskInfo._timerTask.cancel();
-        }
+        cancelMessageTimeout(taskInfo);
 
         // cancel task
         Future<HelixTaskResult> future = taskInfo.getFuture();
@@ -552,16 +563,39 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       if (_taskMap.containsKey(taskId)) {
         MessageTaskInfo info = _taskMap.remove(taskId);
         removeMessageFromTaskAndFutureMap(message);
-        if (info._timerTask != null) {
-          // ok to cancel multiple times
-          info._timerTask.cancel();
-        }
+        // ok to cancel multiple times
+        cancelMessageTimeout(info);
       } else {
         LOG.warn("message " + taskId + " not found in task map");
       }
     }
   }
 
+  /**
+   * Cancel the timeout of the message task. The canceled timeout is removed from the scheduler
+   * right away instead of staying there until its deadline. A timeout that already started
+   * running is reported as fired, not canceled.
+   */
+  private void cancelMessageTimeout(MessageTaskInfo info) {
+    if (info == null) {
+      return;
+    }
+    if (info._timeoutTask != null) {
+      if (info._timeoutTask.cancel()) {
+        if (info._timeoutFuture != null) {
+          info._timeoutFuture.cancel(false);
+        }
+        _monitor.reportMessageTimeoutCanceled();
+      }
+    } else if (info._timeoutFuture != null && info._timeoutFuture.cancel(false)) {
+      _monitor.reportMessageTimeoutCanceled();
+    }
+  }
+
+  void reportMessageTimeoutFired() {
+    _monitor.reportMessageTimeoutFired();
+  }
+
   private void updateMessageState(Collection<Message> msgsToBeUpdated, HelixDataAccessor accessor,
       String instanceName) {
     if (msgsToBeUpdated.isEmpty()) {
@@ -741,6 +775,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     // Log all tasks that fail to terminate
     for (String taskId : _taskMap.keySet()) {
       MessageTaskInfo info = _taskMap.get(taskId);
+      cancelMessageTimeout(info);
       sb.append("Task: " + taskId + " fails to terminate. Message: " + info._task.getMessage() + "\n");
     }
 
@@ -1301,7 +1336,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
         future.cancel(false);
         _messageTaskMap.remove(targetMessageName);
-        _taskMap.remove(taskId);
+        cancelMessageTimeout(_taskMap.remove(taskId));
         messageState = ProcessedMessageState.COMPLETED;
       } else {
         messageState = ProcessedMessageState.DISCARDED;
@@ -1422,7 +1457,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
         if (_freezeSessionId != null && !_freezeSessionId.equals(sessionId)) {
           syncFactoryState();
           ParticipantManager.carryOverPreviousCurrentState(accessor, instanceName, sessionId,
-              manager.getStateMachineEngine(), false);
+              manager.getStateMachineEngine(), false, _monitor);
         }
         _freezeSessionId = null;
         _liveInstanceStatus = toStatus;
@@ -1471,7 +1506,8 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   public void shutdown() {
     LOG.info("Shutting down HelixTaskExecutor");
     _isShuttingDown = true;
-    _timer.cancel();
+    _timeoutScheduler.shutdownNow();
+    _timeoutExecutorService.shutdownNow();
 
     shutdownExecutors();
     reset();
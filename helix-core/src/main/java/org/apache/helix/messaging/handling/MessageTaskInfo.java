@@ -21,16 +21,29 @@ package org.apache.helix.messaging.handling;
 
 import java.util.TimerTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 
 public class MessageTaskInfo {
   final MessageTask _task;
   final Future<HelixTaskResult> _future;
-  final TimerTask _timerTask;
+  final ScheduledFuture<?> _timeoutFuture;
+  final TimerTask _timeoutTask;
 
+  /**
+   * @deprecated The message timeouts are no longer scheduled on a {@link java.util.Timer}. Use
+   *             {@link #MessageTaskInfo(MessageTask, Future, ScheduledFuture, TimerTask)} instead.
+   */
+  @Deprecated
   public MessageTaskInfo(MessageTask task, Future<HelixTaskResult> future, TimerTask timerTask) {
+    this(task, future, null, timerTask);
+  }
+
+  public MessageTaskInfo(MessageTask task, Future<HelixTaskResult> future,
+      ScheduledFuture<?> timeoutFuture, TimerTask timeoutTask) {
     _task = task;
     _future = future;
-    _timerTask = timerTask;
+    _timeoutFuture = timeoutFuture;
+    _timeoutTask = timeoutTask;
   }
 
   public Future<HelixTaskResult> getFuture() {
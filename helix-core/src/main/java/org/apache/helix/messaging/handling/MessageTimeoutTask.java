@@ -20,6 +20,7 @@ package org.apache.helix.messaging.handling;
  */
 
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.model.Message;
 import org.slf4j.Logger;
@@ -30,19 +31,37 @@ public class MessageTimeoutTask extends TimerTask {
 
   final HelixTaskExecutor _executor;
   final MessageTask _task;
+  // Set once the timeout either starts running or is canceled, so only one of them is reported.
+  private final AtomicBoolean _resolved = new AtomicBoolean(false);
 
   public MessageTimeoutTask(HelixTaskExecutor executor, MessageTask task) {
     _executor = executor;
     _task = task;
   }
 
+  /**
+   * Cancel the timeout if it has not started running. Unlike {@link TimerTask#cancel()}, this
+   * also works when the task is run by an executor instead of a {@link java.util.Timer}.
+   * @return true if the timeout is canceled before it starts running
+   */
+  @Override
+  public boolean cancel() {
+    super.cancel();
+    return _resolved.compareAndSet(false, true);
+  }
+
   @Override
   public void run() {
+    if (!_resolved.compareAndSet(false, true)) {
+      // The timeout is canceled.
+      return;
+    }
     Message message = _task.getMessage();
     // NotificationContext context = _task.getNotificationContext();
     // System.out.println("msg: " + message.getMsgId() + " timeouot.");
     LOG.warn("Message time out, canceling. id:" + message.getMsgId() + " timeout : "
         + message.getExecutionTimeout());
+    _executor.reportMessageTimeoutFired();
     _task.onTimeout();
     _executor.cancelTask(_task);
   }
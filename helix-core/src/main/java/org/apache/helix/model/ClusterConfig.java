@@ -165,7 +165,13 @@ public class ClusterConfig extends HelixProperty {
     LAST_ON_DEMAND_REBALANCE_TIMESTAMP,
 
     // List of Preferred scoring keys used in evenness score computation
-    PREFERRED_SCORING_KEYS
+    PREFERRED_SCORING_KEYS,
+
+    // The maximum number of messages the controller creates for one instance in a single ZK multi
+    // transaction. Batching is disabled if the value is 1 or less.
+    MESSAGE_DISPATCH_BATCH_SIZE,
+    // The maximum number of message batches the controller keeps in flight at a time.
+    MESSAGE_DISPATCH_MAX_INFLIGHT_BATCHES
   }
 
   public enum GlobalRebalancePreferenceKey {
@@ -198,6 +204,8 @@ public class ClusterConfig extends HelixProperty {
   private final static int MAX_REBALANCE_PREFERENCE = 1000;
   private final static int MIN_REBALANCE_PREFERENCE = 0;
   public final static boolean DEFAULT_GLOBAL_REBALANCE_ASYNC_MODE_ENABLED = true;
+  public final static int DEFAULT_MESSAGE_DISPATCH_BATCH_SIZE = 0;
+  public final static int DEFAULT_MESSAGE_DISPATCH_MAX_INFLIGHT_BATCHES = 16;
   public final static boolean DEFAULT_PARTIAL_REBALANCE_ASYNC_MODE_ENABLED = true;
   private static final int GLOBAL_TARGET_TASK_THREAD_POOL_SIZE_NOT_SET = -1;
   private static final int OFFLINE_NODE_TIME_OUT_FOR_MAINTENANCE_MODE_NOT_SET = -1;
@@ -1255,4 +1263,44 @@ public class ClusterConfig extends HelixProperty {
     _record.setListField(ClusterConfigProperty.PREFERRED_SCORING_KEYS.name(),
         preferredScoringKeys);
   }
+
+  /**
+   * Get the maximum number of messages that are created for one instance in a single ZK multi
+   * transaction.
+   * @return the batch size. Batching is disabled if the value is 1 or less.
+   */
+  public int getMessageDispatchBatchSize() {
+    return _record.getIntField(ClusterConfigProperty.MESSAGE_DISPATCH_BATCH_SIZE.name(),
+        DEFAULT_MESSAGE_DISPATCH_BATCH_SIZE);
+  }
+
+  /**
+   * Set the maximum number of messages that are created for one instance in a single ZK multi
+   * transaction. Set it to 1 or less to disable batching.
+   * @param batchSize the batch size
+   */
+  public void setMessageDispatchBatchSize(int batchSize) {
+    _record.setIntField(ClusterConfigProperty.MESSAGE_DISPATCH_BATCH_SIZE.name(), batchSize);
+  }
+
+  /**
+   * Get the maximum number of message batches that are in flight at a time.
+   * @return the maximum number of in-flight batches
+   */
+  public int getMessageDispatchMaxInflightBatches() {
+    return _record.getIntField(ClusterConfigProperty.MESSAGE_DISPATCH_MAX_INFLIGHT_BATCHES.name(),
+        DEFAULT_MESSAGE_DISPATCH_MAX_INFLIGHT_BATCHES);
+  }
+
+  /**
+   * Set the maximum number of message batches that are in flight at a time.
+   * @param maxInflightBatches the maximum number of in-flight batches
+   */
+  public void setMessageDispatchMaxInflightBatches(int maxInflightBatches) {
+    if (maxInflightBatches <= 0) {
+      throw new IllegalArgumentException("Max in-flight batches must be positive!");
+    }
+    _record.setIntField(ClusterConfigProperty.MESSAGE_DISPATCH_MAX_INFLIGHT_BATCHES.name(),
+        maxInflightBatches);
+  }
 }
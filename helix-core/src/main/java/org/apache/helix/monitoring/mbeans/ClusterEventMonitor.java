@@ -35,7 +35,9 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   public enum PhaseName {
     Callback,
     InQueue,
-    TotalProcessed
+    TotalProcessed,
+    // The update of the resource status metrics, which runs asynchronously to the pipeline
+    ResourceStatusUpdate
   }
 
   private static final String CLUSTEREVENT_DN_KEY = "ClusterEventStatus";
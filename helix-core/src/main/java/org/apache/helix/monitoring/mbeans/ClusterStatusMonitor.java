@@ -20,24 +20,25 @@ package org.apache.helix.monitoring.mbeans;
  */
 
 import java.lang.management.ManagementFactory;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.Sets;
+import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.stages.BestPossibleStateOutput;
 import org.apache.helix.model.ExternalView;
@@ -67,22 +68,20 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   static final String JOB_TYPE_DN_KEY = "jobType";
   static final String DEFAULT_WORKFLOW_JOB_TYPE = "DEFAULT";
   public static final String DEFAULT_TAG = "DEFAULT";
+  private static final long MBEAN_REGISTRATION_FLUSH_TIMEOUT_MS = 30 * 1000L;
 
   private final String _clusterName;
   private final MBeanServer _beanServer;
+  // Registers and unregisters the instance, resource, per-instance resource, event, workflow and
+  // job MBeans off the pipeline threads
+  private final MBeanRegistrationWorker _mbeanRegistrationWorker;
 
   private boolean _enabled = true;
   private boolean _inMaintenance = false;
   private boolean _paused = false;
 
-  private Set<String> _liveInstances = Collections.emptySet();
-  private Set<String> _instances = Collections.emptySet();
-  private Set<String> _disabledInstances = Collections.emptySet();
-  private Map<String, Map<String, List<String>>> _disabledPartitions = Collections.emptyMap();
-  private Map<String, List<String>> _oldDisabledPartitions = Collections.emptyMap();
-  private AtomicLong _totalMsgQueueSize = new AtomicLong(0L);
-  private AtomicLong _maxInstanceMsgQueueSize = new AtomicLong(0L);
-  private AtomicLong _totalPastDueMsgSize = new AtomicLong(0L);
+  // Replaced as a whole by every instance status update
+  private volatile InstanceStatusSnapshot _instanceStatus = InstanceStatusSnapshot.EMPTY;
   private boolean _rebalanceFailure = false;
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousResourceRebalanceFailureCount = new AtomicLong(0L);
@@ -99,12 +98,26 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   private CustomizedViewMonitor _customizedViewMonitor;
 
+  private final AtomicReference<MessageDispatchMonitor> _messageDispatchMonitor =
+      new AtomicReference<>();
+
   /**
    * PerInstanceResource monitor map: beanName->monitor
    */
   private final Map<PerInstanceResourceMonitor.BeanName, PerInstanceResourceMonitor> _perInstanceResourceMonitorMap =
       new ConcurrentHashMap<>();
 
+  // The data change version of the last per-instance status update, or -1 to update again
+  private volatile long _perInstanceResourceDataVersion = -1;
+  // The hash code of the best possible states of the last per-instance status update
+  private volatile int _perInstanceResourceStateHash;
+
+  // resource -> inputs of the last resource state update
+  private final Map<String, ResourceStateInputs> _resourceStateInputMap =
+      new ConcurrentHashMap<>();
+  // The resource monitors whose registration has been requested
+  private final Set<ResourceMonitor> _registeredResourceMonitors = ConcurrentHashMap.newKeySet();
+
   private final Map<String, WorkflowMonitor> _perTypeWorkflowMonitorMap = new ConcurrentHashMap<>();
 
   private final Map<String, JobMonitor> _perTypeJobMonitorMap = new ConcurrentHashMap<>();
@@ -112,6 +125,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   public ClusterStatusMonitor(String clusterName) {
     _clusterName = clusterName;
     _beanServer = ManagementFactory.getPlatformMBeanServer();
+    _mbeanRegistrationWorker = new MBeanRegistrationWorker(clusterName);
   }
 
   public ObjectName getObjectName(String name) throws MalformedObjectNameException {
@@ -124,23 +138,25 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   @Override
   public long getDownInstanceGauge() {
-    return _instances.size() - _liveInstances.size();
+    InstanceStatusSnapshot instanceStatus = _instanceStatus;
+    return instanceStatus._instances.size() - instanceStatus._liveInstances.size();
   }
 
   @Override
   public long getInstancesGauge() {
-    return _instances.size();
+    return _instanceStatus._instances.size();
   }
 
   @Override
   public long getDisabledInstancesGauge() {
-    return _disabledInstances.size();
+    return _instanceStatus._disabledInstances.size();
   }
 
   @Override
   public long getDisabledPartitionsGauge() {
+    InstanceStatusSnapshot instanceStatus = _instanceStatus;
     int numDisabled = 0;
-    for (Map<String, List<String>> perInstance : _disabledPartitions.values()) {
+    for (Map<String, List<String>> perInstance : instanceStatus._disabledPartitions.values()) {
       for (List<String> partitions : perInstance.values()) {
         if (partitions != null) {
           numDisabled += partitions.size();
@@ -149,7 +165,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
 
     // TODO : Get rid of this after old API removed.
-    for (List<String> partitions : _oldDisabledPartitions.values()) {
+    for (List<String> partitions : instanceStatus._oldDisabledPartitions.values()) {
       if (partitions != null) {
         numDisabled += partitions.size();
       }
@@ -179,17 +195,17 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   @Override
   public long getMaxMessageQueueSizeGauge() {
-    return _maxInstanceMsgQueueSize.get();
+    return _instanceStatus._maxInstanceMsgQueueSize;
   }
 
   @Override
   public long getInstanceMessageQueueBacklog() {
-    return _totalMsgQueueSize.get();
+    return _instanceStatus._totalMsgQueueSize;
   }
 
   @Override
   public long getTotalPastDueMessageGauge() {
-    return _totalPastDueMsgSize.get();
+    return _instanceStatus._totalPastDueMsgSize;
   }
 
   private void register(Object bean, ObjectName name) {
@@ -233,94 +249,83 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       Set<String> disabledInstanceSet, Map<String, Map<String, List<String>>> disabledPartitions,
       Map<String, List<String>> oldDisabledPartitions, Map<String, Set<String>> tags,
       Map<String, Set<Message>> instanceMessageMap) {
-    synchronized (_instanceMonitorMap) {
-      // Unregister beans for instances that are no longer configured
-      Set<String> toUnregister = Sets.newHashSet(_instanceMonitorMap.keySet());
-      toUnregister.removeAll(instanceSet);
-      unregisterInstances(toUnregister);
-
-      // Register beans for instances that are newly configured
-      Set<String> toRegister = Sets.newHashSet(instanceSet);
-      toRegister.removeAll(_instanceMonitorMap.keySet());
-      Set<InstanceMonitor> monitorsToRegister = Sets.newHashSet();
-      for (String instanceName : toRegister) {
+    // Unregister beans for instances that are no longer configured
+    Iterator<Map.Entry<String, InstanceMonitor>> monitorIter =
+        _instanceMonitorMap.entrySet().iterator();
+    while (monitorIter.hasNext()) {
+      Map.Entry<String, InstanceMonitor> monitorEntry = monitorIter.next();
+      if (!instanceSet.contains(monitorEntry.getKey())) {
+        monitorIter.remove();
+        _mbeanRegistrationWorker.unregister(monitorEntry.getValue());
+      }
+    }
+
+    // message related counts
+    long totalMsgQueueSize = 0L;
+    long maxInstanceMsgQueueSize = 0L;
+    long totalPastDueMsgSize = 0L;
+    long now = System.currentTimeMillis();
+
+    for (String instanceName : instanceSet) {
+      InstanceMonitor bean = _instanceMonitorMap.get(instanceName);
+      boolean isNewBean = false;
+      if (bean == null) {
+        // Register beans for instances that are newly configured
         try {
           ObjectName objectName = getObjectName(getInstanceBeanName(instanceName));
-          InstanceMonitor bean = new InstanceMonitor(_clusterName, instanceName, objectName);
-          bean.updateInstance(tags.get(instanceName), disabledPartitions.get(instanceName),
-              oldDisabledPartitions.get(instanceName), liveInstanceSet.contains(instanceName),
-              !disabledInstanceSet.contains(instanceName));
-          monitorsToRegister.add(bean);
+          bean = new InstanceMonitor(_clusterName, instanceName, objectName);
         } catch (MalformedObjectNameException ex) {
           LOG.error("Failed to create instance monitor for instance: {}.", instanceName);
+          continue;
         }
+        InstanceMonitor existingBean = _instanceMonitorMap.putIfAbsent(instanceName, bean);
+        isNewBean = existingBean == null;
+        bean = isNewBean ? bean : existingBean;
       }
 
-      try {
-        registerInstances(monitorsToRegister);
-      } catch (JMException e) {
-        LOG.error("Could not register instances with MBean server: {}.", toRegister, e);
-      }
-
-      // Update all the sets
-      _instances = instanceSet;
-      _liveInstances = liveInstanceSet;
-      _disabledInstances = disabledInstanceSet;
-      _disabledPartitions = disabledPartitions;
-      _oldDisabledPartitions = oldDisabledPartitions;
-
-      // message related counts
-      long totalMsgQueueSize = 0L;
-      long maxInstanceMsgQueueSize = 0L;
-      long totalPastDueMsgSize = 0L;
-      long now = System.currentTimeMillis();
-
-      // Update the instance MBeans
-      for (String instanceName : instanceSet) {
-        if (_instanceMonitorMap.containsKey(instanceName)) {
-          // Update the bean
-          InstanceMonitor bean = _instanceMonitorMap.get(instanceName);
-          String oldSensorName = bean.getSensorName();
-          bean.updateInstance(tags.get(instanceName), disabledPartitions.get(instanceName),
-              oldDisabledPartitions.get(instanceName), liveInstanceSet.contains(instanceName),
-              !disabledInstanceSet.contains(instanceName));
-
-          // calculate and update instance level message related gauges
-          Set<Message> messages = instanceMessageMap.get(instanceName);
-          if (messages != null) {
-            long msgQueueSize = messages.size();
-            bean.updateMessageQueueSize(msgQueueSize);
-            totalMsgQueueSize += msgQueueSize;
-            if (msgQueueSize > maxInstanceMsgQueueSize) {
-              maxInstanceMsgQueueSize = msgQueueSize;
-            }
-
-            long pastDueMsgCount =
-                messages.stream().filter(m -> (m.getCompletionDueTimeStamp() <= now)).count();
-            bean.updatePastDueMessageGauge(pastDueMsgCount);
-            totalPastDueMsgSize += pastDueMsgCount;
-            LOG.debug("There are totally {} messages, {} are past due on instance {}", msgQueueSize,
-                pastDueMsgCount, instanceName);
-          }
-
-          // If the sensor name changed, re-register the bean so that listeners won't miss it
-          String newSensorName = bean.getSensorName();
-          if (!oldSensorName.equals(newSensorName)) {
-            try {
-              unregisterInstances(Arrays.asList(instanceName));
-              registerInstances(Arrays.asList(bean));
-            } catch (JMException e) {
-              LOG.error("Could not refresh registration with MBean server: {}", instanceName, e);
-            }
-          }
+      // Update the bean
+      String oldSensorName = bean.getSensorName();
+      bean.updateInstance(tags.get(instanceName), disabledPartitions.get(instanceName),
+          oldDisabledPartitions.get(instanceName), liveInstanceSet.contains(instanceName),
+          !disabledInstanceSet.contains(instanceName));
+
+      // calculate and update instance level message related gauges
+      Set<Message> messages = instanceMessageMap.get(instanceName);
+      if (messages != null) {
+        long msgQueueSize = messages.size();
+        bean.updateMessageQueueSize(msgQueueSize);
+        totalMsgQueueSize += msgQueueSize;
+        if (msgQueueSize > maxInstanceMsgQueueSize) {
+          maxInstanceMsgQueueSize = msgQueueSize;
         }
+
+        long pastDueMsgCount =
+            messages.stream().filter(m -> (m.getCompletionDueTimeStamp() <= now)).count();
+        bean.updatePastDueMessageGauge(pastDueMsgCount);
+        totalPastDueMsgSize += pastDueMsgCount;
+        LOG.debug("There are totally {} messages, {} are past due on instance {}", msgQueueSize,
+            pastDueMsgCount, instanceName);
       }
 
-      // Update cluster level message related gauges
-      _maxInstanceMsgQueueSize.set(maxInstanceMsgQueueSize);
-      _totalMsgQueueSize.set(totalMsgQueueSize);
-      _totalPastDueMsgSize.set(totalPastDueMsgSize);
+      if (isNewBean) {
+        registerInstanceMonitor(bean);
+      } else if (!oldSensorName.equals(bean.getSensorName())) {
+        // If the sensor name changed, re-register the bean so that listeners won't miss it
+        _mbeanRegistrationWorker.unregister(bean);
+        registerInstanceMonitor(bean);
+      }
     }
+
+    // Publish the cluster level gauges
+    _instanceStatus = new InstanceStatusSnapshot(liveInstanceSet, instanceSet,
+        disabledInstanceSet, disabledPartitions, oldDisabledPartitions, totalMsgQueueSize,
+        maxInstanceMsgQueueSize, totalPastDueMsgSize);
+  }
+
+  private void registerInstanceMonitor(InstanceMonitor monitor) {
+    // Retry with a new monitor in the next update if the registration fails.
+    _mbeanRegistrationWorker.register(monitor,
+        () -> _instanceMonitorMap.remove(monitor.getInstanceName(), monitor));
   }
 
   /**
@@ -352,23 +357,55 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _customizedViewMonitor;
   }
 
-  private ClusterEventMonitor getOrCreateClusterEventMonitor(String phase) {
-    try {
-      if (!_clusterEventMonitorMap.containsKey(phase)) {
-        synchronized (_clusterEventMonitorMap) {
-          if (!_clusterEventMonitorMap.containsKey(phase)) {
-            ClusterEventMonitor monitor = new ClusterEventMonitor(this, phase);
-            monitor.register();
-            _clusterEventMonitorMap.put(phase, monitor);
-          }
-        }
+  /**
+   * Record the result of one message dispatch of the controller.
+   * @param sentCount the number of messages that are successfully created
+   * @param failedCount the number of messages that failed to be created
+   * @param batchSizes the number of messages in each ZK write batch
+   * @param latencyInMs the time spent writing all the messages
+   */
+  public void updateMessageDispatchStats(long sentCount, long failedCount,
+      List<Integer> batchSizes, long latencyInMs) {
+    MessageDispatchMonitor monitor = getOrCreateMessageDispatchMonitor();
+    if (monitor != null) {
+      monitor.recordDispatch(sentCount, failedCount, batchSizes, latencyInMs);
+    }
+  }
+
+  private MessageDispatchMonitor getOrCreateMessageDispatchMonitor() {
+    MessageDispatchMonitor monitor = _messageDispatchMonitor.get();
+    if (monitor == null) {
+      MessageDispatchMonitor newMonitor = new MessageDispatchMonitor(this);
+      if (_messageDispatchMonitor.compareAndSet(null, newMonitor)) {
+        monitor = newMonitor;
+        _mbeanRegistrationWorker.register(newMonitor,
+            () -> _messageDispatchMonitor.compareAndSet(newMonitor, null));
+      } else {
+        monitor = _messageDispatchMonitor.get();
       }
-    } catch (JMException e) {
-      LOG.error("Failed to register ClusterEventMonitorMbean for cluster " + _clusterName
-          + " and phase type: " + phase, e);
     }
+    return monitor;
+  }
+
+  private void unregisterMessageDispatchMonitor() {
+    MessageDispatchMonitor monitor = _messageDispatchMonitor.getAndSet(null);
+    if (monitor != null) {
+      monitor.unregister();
+    }
+  }
 
-    return _clusterEventMonitorMap.get(phase);
+  private ClusterEventMonitor getOrCreateClusterEventMonitor(String phase) {
+    ClusterEventMonitor monitor = _clusterEventMonitorMap.get(phase);
+    if (monitor == null) {
+      ClusterEventMonitor newMonitor = new ClusterEventMonitor(this, phase);
+      monitor = _clusterEventMonitorMap.putIfAbsent(phase, newMonitor);
+      if (monitor == null) {
+        monitor = newMonitor;
+        _mbeanRegistrationWorker.register(newMonitor,
+            () -> _clusterEventMonitorMap.remove(phase, newMonitor));
+      }
+    }
+    return monitor;
   }
 
   /**
@@ -438,68 +475,106 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   }
 
   /**
-   * Update gauges for resource at instance level
-   * @param bestPossibleStates
-   * @param resourceMap
-   * @param stateModelDefMap
+   * Update gauges for resource at instance level.
+   * @param bestPossibleStates the best possible states of all the resources
+   * @param instanceConfigMap the instance configs, for the instance tags
+   * @param resourceMap the resources
+   * @param stateModelDefMap the state model definitions
    */
   public void setPerInstanceResourceStatus(BestPossibleStateOutput bestPossibleStates,
       Map<String, InstanceConfig> instanceConfigMap, Map<String, Resource> resourceMap,
       Map<String, StateModelDefinition> stateModelDefMap) {
+    setPerInstanceResourceStatus(bestPossibleStates, instanceConfigMap, resourceMap,
+        stateModelDefMap, -1);
+  }
+
+  /**
+   * Update gauges for resource at instance level. The update is skipped if the cluster data has not
+   * changed since the last update, according to the data change version of the controller cache,
+   * and the hash code of the best possible states is unchanged. The hash code catches the best
+   * possible changes without any data change, such as the expiry of a rebalance delay.
+   * A bean that failed to register is retried on the next update.
+   * @param bestPossibleStates the best possible states of all the resources
+   * @param instanceConfigMap the instance configs, for the instance tags
+   * @param resourceMap the resources
+   * @param stateModelDefMap the state model definitions
+   * @param dataChangeVersion the data change version of the cache that the best possible states
+   *          are computed from, or -1 to always update
+   * @return true if the gauges are updated, false if the update is skipped
+   * @see BaseControllerDataProvider#getRefreshedDataChangeVersion()
+   */
+  public boolean setPerInstanceResourceStatus(BestPossibleStateOutput bestPossibleStates,
+      Map<String, InstanceConfig> instanceConfigMap, Map<String, Resource> resourceMap,
+      Map<String, StateModelDefinition> stateModelDefMap, long dataChangeVersion) {
+    int stateHash = 0;
+    for (String resource : bestPossibleStates.resourceSet()) {
+      stateHash += Objects.hash(resource, bestPossibleStates.getResourceMap(resource));
+    }
+    if (dataChangeVersion >= 0 && dataChangeVersion == _perInstanceResourceDataVersion
+        && stateHash == _perInstanceResourceStateHash) {
+      return false;
+    }
+    // Reset first, so a registration failure during the update is retried next time.
+    _perInstanceResourceDataVersion = -1;
 
     // Convert to perInstanceResource beanName->partition->state
     Map<PerInstanceResourceMonitor.BeanName, Map<Partition, String>> beanMap = new HashMap<>();
-    Set<String> resourceSet = new HashSet<>(bestPossibleStates.resourceSet());
-    for (String resource : resourceSet) {
+    for (String resource : bestPossibleStates.resourceSet()) {
       Map<Partition, Map<String, String>> partitionStateMap =
-          new HashMap<>(bestPossibleStates.getResourceMap(resource));
-      for (Partition partition : partitionStateMap.keySet()) {
-        Map<String, String> instanceStateMap = partitionStateMap.get(partition);
-        for (String instance : instanceStateMap.keySet()) {
-          String state = instanceStateMap.get(instance);
+          bestPossibleStates.getResourceMap(resource);
+      for (Map.Entry<Partition, Map<String, String>> partitionEntry : partitionStateMap
+          .entrySet()) {
+        for (Map.Entry<String, String> instanceEntry : partitionEntry.getValue().entrySet()) {
           PerInstanceResourceMonitor.BeanName beanName =
-              new PerInstanceResourceMonitor.BeanName(_clusterName, instance, resource);
-          beanMap.computeIfAbsent(beanName, k -> new HashMap<>()).put(partition, state);
+              new PerInstanceResourceMonitor.BeanName(_clusterName, instanceEntry.getKey(),
+                  resource);
+          beanMap.computeIfAbsent(beanName, k -> new HashMap<>())
+              .put(partitionEntry.getKey(), instanceEntry.getValue());
         }
       }
     }
-    synchronized (_perInstanceResourceMonitorMap) {
-      // Unregister beans for per-instance resources that no longer exist
-      Set<PerInstanceResourceMonitor.BeanName> toUnregister =
-          Sets.newHashSet(_perInstanceResourceMonitorMap.keySet());
-      toUnregister.removeAll(beanMap.keySet());
-      try {
-        unregisterPerInstanceResources(toUnregister);
-      } catch (MalformedObjectNameException e) {
-        LOG.error("Fail to unregister per-instance resource from MBean server: " + toUnregister, e);
+
+    // Unregister beans for per-instance resources that no longer exist
+    Iterator<Map.Entry<PerInstanceResourceMonitor.BeanName, PerInstanceResourceMonitor>> monitorIter =
+        _perInstanceResourceMonitorMap.entrySet().iterator();
+    while (monitorIter.hasNext()) {
+      Map.Entry<PerInstanceResourceMonitor.BeanName, PerInstanceResourceMonitor> monitorEntry =
+          monitorIter.next();
+      if (!beanMap.containsKey(monitorEntry.getKey())) {
+        monitorIter.remove();
+        _mbeanRegistrationWorker.unregister(monitorEntry.getValue());
       }
-      // Register beans for per-instance resources that are newly configured
-      Set<PerInstanceResourceMonitor.BeanName> toRegister = Sets.newHashSet(beanMap.keySet());
-      toRegister.removeAll(_perInstanceResourceMonitorMap.keySet());
-      Set<PerInstanceResourceMonitor> monitorsToRegister = Sets.newHashSet();
-      for (PerInstanceResourceMonitor.BeanName beanName : toRegister) {
-        PerInstanceResourceMonitor bean = new PerInstanceResourceMonitor(_clusterName,
-            beanName.instanceName(), beanName.resourceName());
-        String stateModelDefName = resourceMap.get(beanName.resourceName()).getStateModelDefRef();
-        InstanceConfig config = instanceConfigMap.get(beanName.instanceName());
-        bean.update(beanMap.get(beanName), Sets.newHashSet(config.getTags()),
-            stateModelDefMap.get(stateModelDefName));
-        monitorsToRegister.add(bean);
+    }
+    // Register beans for per-instance resources that are newly configured
+    for (PerInstanceResourceMonitor.BeanName beanName : beanMap.keySet()) {
+      if (_perInstanceResourceMonitorMap.containsKey(beanName)) {
+        continue;
       }
-      try {
-        registerPerInstanceResources(monitorsToRegister);
-      } catch (JMException e) {
-        LOG.error("Fail to register per-instance resource with MBean server: " + toRegister, e);
+      PerInstanceResourceMonitor bean = new PerInstanceResourceMonitor(_clusterName,
+          beanName.instanceName(), beanName.resourceName());
+      if (_perInstanceResourceMonitorMap.putIfAbsent(beanName, bean) == null) {
+        _mbeanRegistrationWorker.register(bean, () -> {
+          _perInstanceResourceMonitorMap.remove(beanName, bean);
+          _perInstanceResourceDataVersion = -1;
+        });
       }
-      // Update existing beans
-      for (PerInstanceResourceMonitor.BeanName beanName : _perInstanceResourceMonitorMap.keySet()) {
-        PerInstanceResourceMonitor bean = _perInstanceResourceMonitorMap.get(beanName);
-        String stateModelDefName = resourceMap.get(beanName.resourceName()).getStateModelDefRef();
-        InstanceConfig config = instanceConfigMap.get(beanName.instanceName());
-        bean.update(beanMap.get(beanName), Sets.newHashSet(config.getTags()),
-            stateModelDefMap.get(stateModelDefName));
+    }
+    // Update all the beans
+    for (Map.Entry<PerInstanceResourceMonitor.BeanName, Map<Partition, String>> beanEntry : beanMap
+        .entrySet()) {
+      PerInstanceResourceMonitor.BeanName beanName = beanEntry.getKey();
+      PerInstanceResourceMonitor bean = _perInstanceResourceMonitorMap.get(beanName);
+      if (bean == null) {
+        continue;
       }
+      String stateModelDefName = resourceMap.get(beanName.resourceName()).getStateModelDefRef();
+      InstanceConfig config = instanceConfigMap.get(beanName.instanceName());
+      bean.update(beanEntry.getValue(), Sets.newHashSet(config.getTags()),
+          stateModelDefMap.get(stateModelDefName));
     }
+    _perInstanceResourceStateHash = stateHash;
+    _perInstanceResourceDataVersion = dataChangeVersion;
+    return true;
   }
 
   /**
@@ -507,28 +582,28 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
    * @param resourceNames the resources that still exist
    */
   public void retainResourceMonitor(Set<String> resourceNames) {
-    Set<String> resourcesToRemove = new HashSet<>();
-    synchronized (_resourceMonitorMap) {
-      resourceNames.retainAll(_resourceMonitorMap.keySet());
-      resourcesToRemove.addAll(_resourceMonitorMap.keySet());
-    }
-    resourcesToRemove.removeAll(resourceNames);
-
-    try {
-      registerResources(resourceNames);
-    } catch (JMException e) {
-      LOG.error(String.format("Could not register beans for the following resources: %s",
-          Joiner.on(',').join(resourceNames)), e);
+    resourceNames.retainAll(_resourceMonitorMap.keySet());
+    Iterator<Map.Entry<String, ResourceMonitor>> monitorIter =
+        _resourceMonitorMap.entrySet().iterator();
+    while (monitorIter.hasNext()) {
+      Map.Entry<String, ResourceMonitor> monitorEntry = monitorIter.next();
+      if (!resourceNames.contains(monitorEntry.getKey())) {
+        monitorIter.remove();
+        _resourceStateInputMap.remove(monitorEntry.getKey());
+        _registeredResourceMonitors.remove(monitorEntry.getValue());
+        _mbeanRegistrationWorker.unregister(monitorEntry.getValue());
+      }
     }
 
-    try {
-      unregisterResources(resourcesToRemove);
-    } catch (Exception e) {
-      LOG.error(String.format("Could not unregister beans for the following resources: %s",
-          Joiner.on(',').join(resourcesToRemove)), e);
+    for (String resourceName : resourceNames) {
+      ResourceMonitor monitor = _resourceMonitorMap.get(resourceName);
+      // Only request the registration once, since this is called in every pipeline run.
+      if (monitor != null && _registeredResourceMonitors.add(monitor)) {
+        _mbeanRegistrationWorker.register(monitor,
+            () -> _registeredResourceMonitors.remove(monitor));
+      }
     }
   }
-
   public void setResourceState(String resourceName, ExternalView externalView,
       IdealState idealState, StateModelDefinition stateModelDef) {
     try {
@@ -538,10 +613,64 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
         resourceMonitor.updateResourceState(externalView, idealState, stateModelDef);
       }
     } catch (Exception e) {
+      _resourceStateInputMap.remove(resourceName);
       LOG.error("Fail to set resource status, resource: " + idealState.getResourceName(), e);
     }
   }
 
+  /**
+   * Update the state gauges of the resource with the best possible assignment merged into the
+   * ideal state. The update is skipped if none of the inputs changed since the last update. The
+   * external view, the ideal state and the state model definition are compared by identity, since
+   * the controller caches keep the same objects until the data changes. The best possible
+   * assignment is recomputed in every pipeline run, so it is considered unchanged as long as the
+   * data change version of the cache it is computed from and its hash code are unchanged. The hash
+   * code catches the changes without any data change, such as the expiry of a rebalance delay.
+   * @param resourceName the resource name
+   * @param externalView the external view of the resource
+   * @param idealState the ideal state of the resource, which is not modified
+   * @param stateModelDef the state model definition of the resource
+   * @param bestPossiblePreferenceLists the best possible preference lists, or null if the best
+   *          possible assignment is not computed for the resource
+   * @param bestPossibleStateMap the best possible partition state map, or null if the best
+   *          possible assignment is not computed for the resource
+   * @param dataChangeVersion the data change version of the cache that the best possible
+   *          assignment is computed from, or -1 to always update
+   * @return true if the gauges are updated, false if the update is skipped
+   * @see BaseControllerDataProvider#getRefreshedDataChangeVersion()
+   */
+  public boolean setResourceState(String resourceName, ExternalView externalView,
+      IdealState idealState, StateModelDefinition stateModelDef,
+      Map<String, List<String>> bestPossiblePreferenceLists,
+      Map<Partition, Map<String, String>> bestPossibleStateMap, long dataChangeVersion) {
+    ResourceMonitor resourceMonitor = getOrCreateResourceMonitor(resourceName);
+    if (resourceMonitor == null) {
+      return false;
+    }
+    ResourceStateInputs inputs =
+        new ResourceStateInputs(resourceMonitor, externalView, idealState, stateModelDef,
+            dataChangeVersion, Objects.hash(bestPossiblePreferenceLists, bestPossibleStateMap));
+    ResourceStateInputs lastInputs = _resourceStateInputMap.get(resourceName);
+    if (lastInputs != null && lastInputs.isSameAs(inputs)) {
+      return false;
+    }
+
+    // Create a temporary local IdealState object for monitoring. This is to avoid modifying
+    // the IdealState cache.
+    IdealState mergedIdealState = new IdealState(idealState.getRecord());
+    if (bestPossibleStateMap != null) {
+      mergedIdealState.getRecord().setListFields(bestPossiblePreferenceLists);
+      Map<String, Map<String, String>> mapFields = new HashMap<>();
+      for (Map.Entry<Partition, Map<String, String>> entry : bestPossibleStateMap.entrySet()) {
+        mapFields.put(entry.getKey().getPartitionName(), entry.getValue());
+      }
+      mergedIdealState.getRecord().setMapFields(mapFields);
+    }
+    _resourceStateInputMap.put(resourceName, inputs);
+    setResourceState(resourceName, externalView, mergedIdealState, stateModelDef);
+    return true;
+  }
+
   public void setResourcePendingMessages(String resourceName, int messageCount) {
     try {
       ResourceMonitor resourceMonitor = getOrCreateResourceMonitor(resourceName);
@@ -604,22 +733,20 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   }
 
   private ResourceMonitor getOrCreateResourceMonitor(String resourceName) {
+    ResourceMonitor monitor = _resourceMonitorMap.get(resourceName);
+    if (monitor != null) {
+      return monitor;
+    }
     try {
-      if (!_resourceMonitorMap.containsKey(resourceName)) {
-        synchronized (_resourceMonitorMap) {
-          if (!_resourceMonitorMap.containsKey(resourceName)) {
-            String beanName = getResourceBeanName(resourceName);
-            ResourceMonitor bean =
-                new ResourceMonitor(_clusterName, resourceName, getObjectName(beanName));
-            _resourceMonitorMap.put(resourceName, bean);
-          }
-        }
-      }
+      String beanName = getResourceBeanName(resourceName);
+      ResourceMonitor bean =
+          new ResourceMonitor(_clusterName, resourceName, getObjectName(beanName));
+      monitor = _resourceMonitorMap.putIfAbsent(resourceName, bean);
+      return monitor == null ? bean : monitor;
     } catch (JMException ex) {
       LOG.error("Fail to register resource mbean, resource: " + resourceName);
+      return null;
     }
-
-    return _resourceMonitorMap.get(resourceName);
   }
 
   public void resetMaxMissingTopStateGauge() {
@@ -639,24 +766,29 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   public void reset() {
     LOG.info("Reset ClusterStatusMonitor");
+    // Apply the pending requests first, so no MBean is registered after it is unregistered below.
+    try {
+      if (!flushMBeanRegistrations(MBEAN_REGISTRATION_FLUSH_TIMEOUT_MS)) {
+        LOG.warn("Timed out waiting for the pending MBean registrations of cluster {}.",
+            _clusterName);
+      }
+    } catch (InterruptedException e) {
+      LOG.warn("Interrupted waiting for the pending MBean registrations of cluster {}.",
+          _clusterName);
+      Thread.currentThread().interrupt();
+    }
     try {
       unregisterAllResources();
       unregisterAllInstances();
       unregisterAllPerInstanceResources();
       unregister(getObjectName(clusterBeanName()));
       unregisterAllEventMonitors();
+      unregisterMessageDispatchMonitor();
       unregisterAllWorkflowsMonitor();
       unregisterAllJobs();
 
-      _liveInstances.clear();
-      _instances.clear();
-      _disabledInstances.clear();
-      _disabledPartitions.clear();
-      _oldDisabledPartitions.clear();
+      _instanceStatus = InstanceStatusSnapshot.EMPTY;
       _rebalanceFailure = false;
-      _maxInstanceMsgQueueSize.set(0L);
-      _totalPastDueMsgSize.set(0L);
-      _totalMsgQueueSize.set(0L);
       _rebalanceFailureCount.set(0L);
       _continuousResourceRebalanceFailureCount.set(0L);
       _continuousTaskRebalanceFailureCount.set(0L);
@@ -665,6 +797,17 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  /**
+   * Wait until the MBean registrations and unregistrations requested so far are applied. They are
+   * applied on a background thread, so the MBeans may not be registered yet when the update
+   * methods return.
+   * @param timeoutMs the max time to wait
+   * @return true if the requests are applied, false if timed out
+   */
+  public boolean flushMBeanRegistrations(long timeoutMs) throws InterruptedException {
+    return _mbeanRegistrationWorker.flush(timeoutMs, TimeUnit.MILLISECONDS);
+  }
+
   public void refreshWorkflowsStatus(WorkflowControllerDataProvider cache) {
     for (Map.Entry<String, WorkflowMonitor> workflowMonitor : _perTypeWorkflowMonitorMap
         .entrySet()) {
@@ -710,17 +853,11 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       workflowType = DEFAULT_WORKFLOW_JOB_TYPE;
     }
 
-    synchronized (_perTypeWorkflowMonitorMap) {
-      if (!_perTypeWorkflowMonitorMap.containsKey(workflowType)) {
-        WorkflowMonitor monitor = new WorkflowMonitor(_clusterName, workflowType);
-        try {
-          monitor.register();
-        } catch (JMException e) {
-          LOG.error("Failed to register object for workflow type : " + workflowType, e);
-        }
-        _perTypeWorkflowMonitorMap.put(workflowType, monitor);
-      }
-    }
+    _perTypeWorkflowMonitorMap.computeIfAbsent(workflowType, type -> {
+      WorkflowMonitor monitor = new WorkflowMonitor(_clusterName, type);
+      _mbeanRegistrationWorker.register(monitor, null);
+      return monitor;
+    });
     return workflowType;
   }
 
@@ -800,148 +937,76 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       jobType = DEFAULT_WORKFLOW_JOB_TYPE;
     }
 
-    synchronized (_perTypeJobMonitorMap) {
-      if (!_perTypeJobMonitorMap.containsKey(jobType)) {
-        String jobMonitorBeanName = getJobBeanName(jobType);
-        JobMonitor monitor = null;
-        try {
-          monitor = new JobMonitor(_clusterName, jobType, getObjectName(jobMonitorBeanName));
-          monitor.register(); // Necessary for dynamic metrics
-        } catch (Exception e) {
-          LOG.error("Failed to register job type : " + jobType, e);
-        }
-        if (monitor != null) {
-          _perTypeJobMonitorMap.put(jobType, monitor);
-        }
+    _perTypeJobMonitorMap.computeIfAbsent(jobType, type -> {
+      JobMonitor monitor;
+      try {
+        monitor = new JobMonitor(_clusterName, type, getObjectName(getJobBeanName(type)));
+      } catch (Exception e) {
+        LOG.error("Failed to register job type : " + type, e);
+        return null;
       }
-    }
+      _mbeanRegistrationWorker.register(monitor, null); // Necessary for dynamic metrics
+      return monitor;
+    });
     return jobType;
   }
 
-  private void registerInstances(Collection<InstanceMonitor> instances)
-      throws JMException {
-    synchronized (_instanceMonitorMap) {
-      for (InstanceMonitor monitor : instances) {
-        String instanceName = monitor.getInstanceName();
-        // If this instance MBean is already registered, unregister it.
-        InstanceMonitor removedMonitor = _instanceMonitorMap.remove(instanceName);
-        if (removedMonitor != null) {
-          removedMonitor.unregister();
-        }
-        monitor.register();
-        _instanceMonitorMap.put(instanceName, monitor);
-      }
-    }
-  }
-
   private void unregisterAllInstances() {
-    synchronized (_instanceMonitorMap) {
-      unregisterInstances(_instanceMonitorMap.keySet());
-    }
-  }
-
-  private void unregisterInstances(Collection<String> instances) {
-    synchronized (_instanceMonitorMap) {
-      for (String instanceName : instances) {
-        InstanceMonitor monitor = _instanceMonitorMap.remove(instanceName);
-        if (monitor != null) {
-          monitor.unregister();
-        }
-      }
-    }
-  }
-
-  private void registerResources(Collection<String> resources) throws JMException {
-    synchronized (_resourceMonitorMap) {
-      for (String resourceName : resources) {
-        ResourceMonitor monitor = _resourceMonitorMap.get(resourceName);
-        if (monitor != null) {
-          monitor.register();
-        }
-      }
+    Iterator<InstanceMonitor> monitorIter = _instanceMonitorMap.values().iterator();
+    while (monitorIter.hasNext()) {
+      InstanceMonitor monitor = monitorIter.next();
+      monitorIter.remove();
+      monitor.unregister();
     }
   }
 
   private void unregisterAllResources() {
-    synchronized (_resourceMonitorMap) {
-      unregisterResources(_resourceMonitorMap.keySet());
-    }
-  }
-
-  private void unregisterResources(Collection<String> resources) {
-    synchronized (_resourceMonitorMap) {
-      for (String resourceName : resources) {
-        ResourceMonitor monitor = _resourceMonitorMap.get(resourceName);
-        if (monitor != null) {
-          monitor.unregister();
-        }
-      }
-      _resourceMonitorMap.keySet().removeAll(resources);
+    Iterator<ResourceMonitor> monitorIter = _resourceMonitorMap.values().iterator();
+    while (monitorIter.hasNext()) {
+      ResourceMonitor monitor = monitorIter.next();
+      monitorIter.remove();
+      monitor.unregister();
     }
+    _resourceStateInputMap.clear();
+    _registeredResourceMonitors.clear();
   }
 
   private void unregisterAllEventMonitors() {
-    synchronized (_clusterEventMonitorMap) {
-      for (ClusterEventMonitor monitor : _clusterEventMonitorMap.values()) {
-        monitor.unregister();
-      }
-      _clusterEventMonitorMap.clear();
-    }
-  }
-
-  private void registerPerInstanceResources(Collection<PerInstanceResourceMonitor> monitors)
-      throws JMException {
-    synchronized (_perInstanceResourceMonitorMap) {
-      for (PerInstanceResourceMonitor monitor : monitors) {
-        String instanceName = monitor.getInstanceName();
-        String resourceName = monitor.getResourceName();
-        monitor.register();
-        _perInstanceResourceMonitorMap
-            .put(new PerInstanceResourceMonitor.BeanName(_clusterName, instanceName, resourceName),
-                monitor);
-      }
+    Iterator<ClusterEventMonitor> monitorIter = _clusterEventMonitorMap.values().iterator();
+    while (monitorIter.hasNext()) {
+      ClusterEventMonitor monitor = monitorIter.next();
+      monitorIter.remove();
+      monitor.unregister();
     }
   }
 
-  private void unregisterAllPerInstanceResources() throws MalformedObjectNameException {
-    synchronized (_perInstanceResourceMonitorMap) {
-      unregisterPerInstanceResources(_perInstanceResourceMonitorMap.keySet());
-    }
-  }
-
-  private void unregisterPerInstanceResources(
-      Collection<PerInstanceResourceMonitor.BeanName> beanNames)
-      throws MalformedObjectNameException {
-    synchronized (_perInstanceResourceMonitorMap) {
-      for (PerInstanceResourceMonitor.BeanName beanName : beanNames) {
-        if (_perInstanceResourceMonitorMap.get(beanName) != null) {
-          _perInstanceResourceMonitorMap.get(beanName).unregister();
-        }
-      }
-      _perInstanceResourceMonitorMap.keySet().removeAll(beanNames);
+  private void unregisterAllPerInstanceResources() {
+    Iterator<PerInstanceResourceMonitor> monitorIter =
+        _perInstanceResourceMonitorMap.values().iterator();
+    while (monitorIter.hasNext()) {
+      PerInstanceResourceMonitor monitor = monitorIter.next();
+      monitorIter.remove();
+      monitor.unregister();
     }
+    _perInstanceResourceDataVersion = -1;
   }
 
   private void unregisterAllWorkflowsMonitor() {
-    synchronized (_perTypeWorkflowMonitorMap) {
-      Iterator<Map.Entry<String, WorkflowMonitor>> workflowIter =
-          _perTypeWorkflowMonitorMap.entrySet().iterator();
-      while (workflowIter.hasNext()) {
-        Map.Entry<String, WorkflowMonitor> workflowEntry = workflowIter.next();
-        workflowEntry.getValue().unregister();
-        workflowIter.remove();
-      }
+    Iterator<Map.Entry<String, WorkflowMonitor>> workflowIter =
+        _perTypeWorkflowMonitorMap.entrySet().iterator();
+    while (workflowIter.hasNext()) {
+      Map.Entry<String, WorkflowMonitor> workflowEntry = workflowIter.next();
+      workflowEntry.getValue().unregister();
+      workflowIter.remove();
     }
   }
 
   private void unregisterAllJobs() {
-    synchronized (_perTypeJobMonitorMap) {
-      Iterator<Map.Entry<String, JobMonitor>> jobIter = _perTypeJobMonitorMap.entrySet().iterator();
-      while (jobIter.hasNext()) {
-        Map.Entry<String, JobMonitor> jobEntry = jobIter.next();
-        jobEntry.getValue().unregister();
-        jobIter.remove();
-      }
+    Iterator<Map.Entry<String, JobMonitor>> jobIter = _perTypeJobMonitorMap.entrySet().iterator();
+    while (jobIter.hasNext()) {
+      Map.Entry<String, JobMonitor> jobEntry = jobIter.next();
+      jobEntry.getValue().unregister();
+      jobIter.remove();
     }
   }
 
@@ -1137,4 +1202,67 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
     return total;
   }
+
+  /**
+   * The instance level gauges of the cluster. A new snapshot is published by every instance status
+   * update, so the MBean getters never observe a partially applied update.
+   */
+  private static class InstanceStatusSnapshot {
+    static final InstanceStatusSnapshot EMPTY =
+        new InstanceStatusSnapshot(Collections.emptySet(), Collections.emptySet(),
+            Collections.emptySet(), Collections.emptyMap(), Collections.emptyMap(), 0L, 0L, 0L);
+
+    private final Set<String> _liveInstances;
+    private final Set<String> _instances;
+    private final Set<String> _disabledInstances;
+    private final Map<String, Map<String, List<String>>> _disabledPartitions;
+    private final Map<String, List<String>> _oldDisabledPartitions;
+    private final long _totalMsgQueueSize;
+    private final long _maxInstanceMsgQueueSize;
+    private final long _totalPastDueMsgSize;
+
+    InstanceStatusSnapshot(Set<String> liveInstances, Set<String> instances,
+        Set<String> disabledInstances, Map<String, Map<String, List<String>>> disabledPartitions,
+        Map<String, List<String>> oldDisabledPartitions, long totalMsgQueueSize,
+        long maxInstanceMsgQueueSize, long totalPastDueMsgSize) {
+      _liveInstances = Collections.unmodifiableSet(liveInstances);
+      _instances = Collections.unmodifiableSet(instances);
+      _disabledInstances = Collections.unmodifiableSet(disabledInstances);
+      _disabledPartitions = Collections.unmodifiableMap(disabledPartitions);
+      _oldDisabledPartitions = Collections.unmodifiableMap(oldDisabledPartitions);
+      _totalMsgQueueSize = totalMsgQueueSize;
+      _maxInstanceMsgQueueSize = maxInstanceMsgQueueSize;
+      _totalPastDueMsgSize = totalPastDueMsgSize;
+    }
+  }
+
+  /**
+   * The inputs of the resource state gauges of a resource.
+   */
+  private static class ResourceStateInputs {
+    private final ResourceMonitor _monitor;
+    private final ExternalView _externalView;
+    private final IdealState _idealState;
+    private final StateModelDefinition _stateModelDef;
+    private final long _dataChangeVersion;
+    private final int _bestPossibleHash;
+
+    ResourceStateInputs(ResourceMonitor monitor, ExternalView externalView,
+        IdealState idealState, StateModelDefinition stateModelDef, long dataChangeVersion,
+        int bestPossibleHash) {
+      _monitor = monitor;
+      _externalView = externalView;
+      _idealState = idealState;
+      _stateModelDef = stateModelDef;
+      _dataChangeVersion = dataChangeVersion;
+      _bestPossibleHash = bestPossibleHash;
+    }
+
+    boolean isSameAs(ResourceStateInputs that) {
+      // A re-created monitor always needs an update.
+      return _dataChangeVersion >= 0 && _dataChangeVersion == that._dataChangeVersion
+          && _bestPossibleHash == that._bestPossibleHash && _monitor == that._monitor && _externalView == that._externalView
+          && _idealState == that._idealState && _stateModelDef == that._stateModelDef;
+    }
+  }
 }
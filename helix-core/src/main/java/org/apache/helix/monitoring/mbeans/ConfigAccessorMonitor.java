@@ -0,0 +1,98 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Reports the field-level config patches applied by a ConfigAccessor.
+ */
+public class ConfigAccessorMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Config Accessor Monitor";
+  private static final String MONITOR_TYPE_KEY = "MonitorType";
+  private static final String CONFIG_PATCH = "ConfigPatch";
+
+  private final SimpleDynamicMetric<Long> _patchCounter;
+  private final SimpleDynamicMetric<Long> _patchConflictCounter;
+  private final SimpleDynamicMetric<Long> _patchNoOpCounter;
+  private final SimpleDynamicMetric<Long> _patchAbortCounter;
+
+  public ConfigAccessorMonitor() {
+    _patchCounter = new SimpleDynamicMetric<>("PatchCounter", 0L);
+    _patchConflictCounter = new SimpleDynamicMetric<>("PatchConflictCounter", 0L);
+    _patchNoOpCounter = new SimpleDynamicMetric<>("PatchNoOpCounter", 0L);
+    _patchAbortCounter = new SimpleDynamicMetric<>("PatchAbortCounter", 0L);
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s", MonitorDomainNames.ConfigAccessor.name(), CONFIG_PATCH);
+  }
+
+  public synchronized void increasePatchCounter() {
+    incrementSimpleDynamicMetric(_patchCounter);
+  }
+
+  public synchronized void increasePatchConflictCounter() {
+    incrementSimpleDynamicMetric(_patchConflictCounter);
+  }
+
+  public synchronized void increasePatchNoOpCounter() {
+    incrementSimpleDynamicMetric(_patchNoOpCounter);
+  }
+
+  public synchronized void increasePatchAbortCounter() {
+    incrementSimpleDynamicMetric(_patchAbortCounter);
+  }
+
+  public synchronized long getPatchCount() {
+    return _patchCounter.getValue();
+  }
+
+  public synchronized long getPatchConflictCount() {
+    return _patchConflictCounter.getValue();
+  }
+
+  public synchronized long getPatchNoOpCount() {
+    return _patchNoOpCounter.getValue();
+  }
+
+  public synchronized long getPatchAbortCount() {
+    return _patchAbortCounter.getValue();
+  }
+
+  @Override
+  public ConfigAccessorMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_patchCounter);
+    attributeList.add(_patchConflictCounter);
+    attributeList.add(_patchNoOpCounter);
+    attributeList.add(_patchAbortCounter);
+    doRegister(attributeList, MBEAN_DESCRIPTION, MonitorDomainNames.ConfigAccessor.name(),
+        MONITOR_TYPE_KEY, CONFIG_PATCH);
+    return this;
+  }
+}
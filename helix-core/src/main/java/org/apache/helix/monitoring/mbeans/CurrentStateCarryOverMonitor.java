@@ -0,0 +1,83 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Reports the carry-over of the current states of the previous sessions when a participant
+ * establishes a new session.
+ */
+public class CurrentStateCarryOverMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Current State Carry-over Monitor";
+  private final String _sensorName;
+  private final String _domainName;
+  private final String _participantName;
+
+  private SimpleDynamicMetric<Long> _totalCarryOverCount;
+  private SimpleDynamicMetric<Long> _totalCarriedOverCurrentStates;
+  private HistogramDynamicMetric _carryOverLatencyGauge;
+
+  public CurrentStateCarryOverMonitor(String domainName, String participantName) {
+    _domainName = domainName;
+    _participantName = participantName;
+    _sensorName = String.format("%s.%s", ParticipantMessageMonitor.PARTICIPANT_STATUS_KEY,
+        "CurrentStateCarryOver");
+
+    _carryOverLatencyGauge = new HistogramDynamicMetric("CarryOverLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _totalCarryOverCount = new SimpleDynamicMetric("TotalCarryOverCount", 0L);
+    _totalCarriedOverCurrentStates = new SimpleDynamicMetric("TotalCarriedOverCurrentStates", 0L);
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  public synchronized void updateCarryOver(int currentStateCount, long latency) {
+    _totalCarryOverCount.updateValue(_totalCarryOverCount.getValue() + 1);
+    _totalCarriedOverCurrentStates
+        .updateValue(_totalCarriedOverCurrentStates.getValue() + currentStateCount);
+    _carryOverLatencyGauge.updateValue(latency);
+  }
+
+  @Override
+  public CurrentStateCarryOverMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_totalCarryOverCount);
+    attributeList.add(_totalCarriedOverCurrentStates);
+    attributeList.add(_carryOverLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
+        ParticipantStatusMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
+        CurrentStateCarryOverMonitor.class.getSimpleName());
+    return this;
+  }
+}
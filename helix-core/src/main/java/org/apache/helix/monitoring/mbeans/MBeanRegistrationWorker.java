@@ -0,0 +1,149 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers and unregisters MBeans on a background thread, so the JMX calls do not block the
+ * threads that update the metrics. The requests are applied in the order they are submitted, and
+ * all the requests queued while the worker is busy are applied in one batch.
+ * The worker thread exits once it is idle, so the worker does not need to be shut down.
+ */
+class MBeanRegistrationWorker {
+  private static final Logger LOG = LoggerFactory.getLogger(MBeanRegistrationWorker.class);
+  private static final long IDLE_TIMEOUT_MS = 60 * 1000L;
+
+  private final ConcurrentLinkedQueue<Runnable> _requests = new ConcurrentLinkedQueue<>();
+  // true if a batch is scheduled or running
+  private final AtomicBoolean _scheduled = new AtomicBoolean(false);
+  private final AtomicLong _appliedCount = new AtomicLong(0L);
+  private final AtomicLong _batchCount = new AtomicLong(0L);
+  private final ThreadPoolExecutor _executor;
+
+  MBeanRegistrationWorker(String name) {
+    _executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+          Thread thread = new Thread(r, "MBeanRegistrationWorker-" + name);
+          thread.setDaemon(true);
+          return thread;
+        });
+    _executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Register the MBean of the monitor. Registering a registered monitor is a no-op.
+   * @param monitor the monitor to register
+   * @param onFailure called on the worker thread if the registration fails, or null
+   */
+  void register(DynamicMBeanProvider monitor, Runnable onFailure) {
+    submit(() -> {
+      try {
+        monitor.register();
+      } catch (Exception e) {
+        LOG.error("Failed to register MBean: {}.", monitor.getSensorName(), e);
+        if (onFailure != null) {
+          onFailure.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Unregister the MBean of the monitor. Unregistering a monitor that is not registered is a
+   * no-op.
+   */
+  void unregister(DynamicMBeanProvider monitor) {
+    submit(monitor::unregister);
+  }
+
+  /**
+   * Wait until all the requests submitted before this call are applied.
+   * @return true if the requests are applied, false if timed out
+   */
+  boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+    CountDownLatch applied = new CountDownLatch(1);
+    submit(applied::countDown);
+    return applied.await(timeout, unit);
+  }
+
+  /**
+   * @return the number of requests that are not applied yet
+   */
+  int getPendingRequestCount() {
+    return _requests.size();
+  }
+
+  /**
+   * @return the number of requests applied so far
+   */
+  long getAppliedRequestCount() {
+    return _appliedCount.get();
+  }
+
+  /**
+   * @return the number of batches applied so far
+   */
+  long getBatchCount() {
+    return _batchCount.get();
+  }
+
+  private void submit(Runnable request) {
+    _requests.add(request);
+    scheduleIfIdle();
+  }
+
+  private void scheduleIfIdle() {
+    if (_scheduled.compareAndSet(false, true)) {
+      _executor.execute(this::applyRequests);
+    }
+  }
+
+  private void applyRequests() {
+    try {
+      Runnable request;
+      while ((request = _requests.poll()) != null) {
+        try {
+          request.run();
+        } catch (Exception e) {
+          LOG.error("Failed to apply MBean registration request.", e);
+        }
+        _appliedCount.incrementAndGet();
+      }
+      _batchCount.incrementAndGet();
+    } finally {
+      _scheduled.set(false);
+    }
+    // A request may be queued after the queue is drained but before the flag is cleared.
+    if (!_requests.isEmpty()) {
+      scheduleIfIdle();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitor of the messages that the controller writes to ZK in the message dispatch stages.
+ */
+public class MessageDispatchMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Controller Message Dispatch Monitor";
+  private static final String MESSAGE_DISPATCH_DN_KEY = "MessageDispatch";
+  private static final String DEFAULT_DISPATCH_NAME = "Messages";
+
+  private final ClusterStatusMonitor _clusterStatusMonitor;
+
+  private SimpleDynamicMetric<Long> _sentMessageCounter;
+  private SimpleDynamicMetric<Long> _failedMessageCounter;
+  private SimpleDynamicMetric<Long> _batchCounter;
+  private HistogramDynamicMetric _batchSizeGauge;
+  private HistogramDynamicMetric _messagesPerSecondGauge;
+  private HistogramDynamicMetric _dispatchLatencyGauge;
+
+  public MessageDispatchMonitor(ClusterStatusMonitor clusterStatusMonitor) {
+    _clusterStatusMonitor = clusterStatusMonitor;
+
+    _sentMessageCounter = new SimpleDynamicMetric<>("SentMessageCounter", 0L);
+    _failedMessageCounter = new SimpleDynamicMetric<>("FailedMessageCounter", 0L);
+    _batchCounter = new SimpleDynamicMetric<>("MessageBatchCounter", 0L);
+    _batchSizeGauge = new HistogramDynamicMetric("MessageBatchSizeGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _messagesPerSecondGauge = new HistogramDynamicMetric("MessagesPerSecondGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _dispatchLatencyGauge = new HistogramDynamicMetric("MessageDispatchLatencyGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  /**
+   * Record the result of one dispatch of messages.
+   * @param sentCount the number of messages that are successfully created
+   * @param failedCount the number of messages that failed to be created
+   * @param batchSizes the number of messages in each batch
+   * @param latencyInMs the time spent writing all the messages
+   */
+  public synchronized void recordDispatch(long sentCount, long failedCount,
+      List<Integer> batchSizes, long latencyInMs) {
+    incrementSimpleDynamicMetric(_sentMessageCounter, sentCount);
+    incrementSimpleDynamicMetric(_failedMessageCounter, failedCount);
+    incrementSimpleDynamicMetric(_batchCounter, batchSizes.size());
+    for (int batchSize : batchSizes) {
+      _batchSizeGauge.updateValue((long) batchSize);
+    }
+    _dispatchLatencyGauge.updateValue(latencyInMs);
+    // Round the latency up to 1 ms so a fast dispatch does not divide by zero.
+    _messagesPerSecondGauge
+        .updateValue((sentCount + failedCount) * 1000L / Math.max(1L, latencyInMs));
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s.%s", MonitorDomainNames.ClusterStatus.name(),
+        _clusterStatusMonitor.getClusterName(), ClusterStatusMonitor.DEFAULT_TAG,
+        MESSAGE_DISPATCH_DN_KEY);
+  }
+
+  private String getBeanName() {
+    return String.format("%s,%s=%s", _clusterStatusMonitor.clusterBeanName(),
+        MESSAGE_DISPATCH_DN_KEY, DEFAULT_DISPATCH_NAME);
+  }
+
+  @Override
+  public MessageDispatchMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_sentMessageCounter);
+    attributeList.add(_failedMessageCounter);
+    attributeList.add(_batchCounter);
+    attributeList.add(_batchSizeGauge);
+    attributeList.add(_messagesPerSecondGauge);
+    attributeList.add(_dispatchLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION,
+        _clusterStatusMonitor.getObjectName(getBeanName()));
+    return this;
+  }
+}
@@ -39,6 +39,8 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _completedMessages;
   private SimpleDynamicMetric<Long> _failedMessages;
   private SimpleDynamicMetric<Long> _pendingMessages;
+  private SimpleDynamicMetric<Long> _outstandingMessageTimeouts;
+  private SimpleDynamicMetric<Long> _firedMessageTimeouts;
 
   /**
    * The current processed state of the message
@@ -57,6 +59,8 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     _completedMessages = new SimpleDynamicMetric("CompletedMessages", 0L);
     _failedMessages = new SimpleDynamicMetric("FailedMessages", 0L);
     _pendingMessages = new SimpleDynamicMetric("PendingMessages", 0L);
+    _outstandingMessageTimeouts = new SimpleDynamicMetric("OutstandingMessageTimeouts", 0L);
+    _firedMessageTimeouts = new SimpleDynamicMetric("FiredMessageTimeouts", 0L);
   }
 
   public void incrementReceivedMessages(long count) {
@@ -83,6 +87,18 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     incrementSimpleDynamicMetric(_pendingMessages, -1 * count);
   }
 
+  public void incrementOutstandingMessageTimeouts(int count) {
+    incrementSimpleDynamicMetric(_outstandingMessageTimeouts, count);
+  }
+
+  public void decrementOutstandingMessageTimeouts(int count) {
+    incrementSimpleDynamicMetric(_outstandingMessageTimeouts, -1 * count);
+  }
+
+  public void incrementFiredMessageTimeouts(int count) {
+    incrementSimpleDynamicMetric(_firedMessageTimeouts, count);
+  }
+
   @Override
   public String getSensorName() {
     return PARTICIPANT_STATUS_KEY;
@@ -101,6 +117,8 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     attributeList.add(_completedMessages);
     attributeList.add(_failedMessages);
     attributeList.add(_pendingMessages);
+    attributeList.add(_outstandingMessageTimeouts);
+    attributeList.add(_firedMessageTimeouts);
     doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
         ParticipantStatusMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
         ParticipantMessageMonitor.class.getSimpleName());
@@ -46,6 +46,7 @@ public class ParticipantStatusMonitor {
   private MBeanServer _beanServer;
   private ParticipantMessageMonitor _messageMonitor;
   private MessageLatencyMonitor _messageLatencyMonitor;
+  private CurrentStateCarryOverMonitor _carryOverMonitor;
   private Map<String, ThreadPoolExecutorMonitor> _executorMonitors;
 
   public ParticipantStatusMonitor(boolean isParticipant, String instanceName) {
@@ -61,6 +62,10 @@ public class ParticipantStatusMonitor {
             new MessageLatencyMonitor(MonitorDomainNames.CLMParticipantReport.name(),
                 _instanceName);
         _messageLatencyMonitor.register();
+        _carryOverMonitor =
+            new CurrentStateCarryOverMonitor(MonitorDomainNames.CLMParticipantReport.name(),
+                _instanceName);
+        _carryOverMonitor.register();
         _executorMonitors = new ConcurrentHashMap<>();
       }
     } catch (Exception e) {
@@ -98,6 +103,36 @@ public class ParticipantStatusMonitor {
     }
   }
 
+  public synchronized void reportMessageTimeoutScheduled() {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.incrementOutstandingMessageTimeouts(1);
+    }
+  }
+
+  public synchronized void reportMessageTimeoutCanceled() {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.decrementOutstandingMessageTimeouts(1);
+    }
+  }
+
+  public synchronized void reportMessageTimeoutFired() {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.decrementOutstandingMessageTimeouts(1);
+      _messageMonitor.incrementFiredMessageTimeouts(1);
+    }
+  }
+
+  /**
+   * Report the carry-over of the current states of the previous sessions to a new session.
+   * @param currentStateCount the number of current state nodes carried over
+   * @param duration the time the carry-over took in ms
+   */
+  public void reportCurrentStateCarryOver(int currentStateCount, long duration) {
+    if (_carryOverMonitor != null) {  // is participant
+      _carryOverMonitor.updateCarryOver(currentStateCount, duration);
+    }
+  }
+
   public void reportTransitionStat(StateTransitionContext cxt, StateTransitionDataPoint data) {
     if (_beanServer == null) {
       LOG.warn("bean server is null, skip reporting");
@@ -136,6 +171,9 @@ public class ParticipantStatusMonitor {
   }
 
   public void shutDown() {
+    if (_carryOverMonitor != null) {
+      _carryOverMonitor.unregister();
+    }
     if (_messageLatencyMonitor != null) {
       _messageLatencyMonitor.unregister();
     }
@@ -65,7 +65,13 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     GlobalBaselineCalcCounter,
     PartialRebalanceCounter,
     EmergencyRebalanceCounter,
-    RebalanceOverwriteCounter
+    RebalanceOverwriteCounter,
+
+    // Count of the partial rebalances that only re-evaluated the changed resources.
+    IncrementalPartialRebalanceCounter,
+
+    // Total bytes of the assignments written to the metadata store, before compression.
+    StateWriteBytesCounter
   }
 
   public WagedRebalancerMetricCollector(String clusterName) {
@@ -125,6 +131,10 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
         new RebalanceCounter(WagedRebalancerMetricNames.EmergencyRebalanceCounter.name());
     CountMetric rebalanceOverwriteCounter =
         new RebalanceCounter(WagedRebalancerMetricNames.RebalanceOverwriteCounter.name());
+    CountMetric incrementalPartialRebalanceCounter = new RebalanceCounter(
+        WagedRebalancerMetricNames.IncrementalPartialRebalanceCounter.name());
+    CountMetric stateWriteBytesCounter =
+        new RebalanceCounter(WagedRebalancerMetricNames.StateWriteBytesCounter.name());
 
     // Add metrics to WagedRebalancerMetricCollector
     addMetric(globalBaselineCalcLatencyGauge);
@@ -139,5 +149,7 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     addMetric(partialRebalanceCounter);
     addMetric(emergencyRebalanceCounter);
     addMetric(rebalanceOverwriteCounter);
+    addMetric(incrementalPartialRebalanceCounter);
+    addMetric(stateWriteBytesCounter);
   }
 }
@@ -0,0 +1,357 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * An immutable, allocation-free lookup structure over a RoutingTable.
+ * It is built once per routing table snapshot. Partitions of every resource are addressed by an
+ * int index, and the instances of each {partition, state} pair are kept in a precomputed
+ * InstanceConfig array. All the lookup methods return shared read-only views, so the caller must
+ * not try to modify the returned collections.
+ * For resources that use the default partition naming ("{resourceName}_{id}"), the partition
+ * index equals the partition id, and {@link ResourceLookup#getPartitionIndexForHash(int, int)} can
+ * be used to route a key hash to a partition without building the partition name.
+ */
+public class RoutingLookupTable {
+  private static final List<InstanceConfig> EMPTY_INSTANCE_LIST = Collections.emptyList();
+  private static final Set<InstanceConfig> EMPTY_INSTANCE_SET = Collections.emptySet();
+
+  // mapping a resourceName to the ResourceLookup
+  private final Map<String, ResourceLookup> _resourceLookupMap;
+
+  RoutingLookupTable(Map<String, RoutingTable.ResourceInfo> resourceInfoMap) {
+    Map<String, ResourceLookup> resourceLookupMap = new HashMap<>();
+    for (Map.Entry<String, RoutingTable.ResourceInfo> entry : resourceInfoMap.entrySet()) {
+      resourceLookupMap.put(entry.getKey(), new ResourceLookup(entry.getKey(), entry.getValue()));
+    }
+    _resourceLookupMap = Collections.unmodifiableMap(resourceLookupMap);
+  }
+
+  /**
+   * Returns the lookup of a single resource. Hot paths could hold on to the returned object to
+   * avoid the resource name lookup on each call.
+   * @param resourceName
+   * @return null if the resource does not exist in the routing table
+   */
+  public ResourceLookup getResourceLookup(String resourceName) {
+    return _resourceLookupMap.get(resourceName);
+  }
+
+  /**
+   * returns the index of {partition} in {resource}.
+   * @param resourceName
+   * @param partitionName
+   * @return -1 if the resource or the partition does not exist
+   */
+  public int getPartitionIndex(String resourceName, String partitionName) {
+    ResourceLookup resourceLookup = _resourceLookupMap.get(resourceName);
+    return resourceLookup == null ? -1 : resourceLookup.getPartitionIndex(partitionName);
+  }
+
+  /**
+   * returns the instances for {resource, partition index} pair that are in a specific {state}.
+   * @param resourceName
+   * @param partitionIndex
+   * @param state
+   * @return empty list if there is no instance in a given state
+   */
+  public List<InstanceConfig> getInstances(String resourceName, int partitionIndex,
+      String state) {
+    ResourceLookup resourceLookup = _resourceLookupMap.get(resourceName);
+    return resourceLookup == null ? EMPTY_INSTANCE_LIST
+        : resourceLookup.getInstances(partitionIndex, state);
+  }
+
+  /**
+   * returns the instances for {resource, partition} pair that are in a specific {state}.
+   * @param resourceName
+   * @param partitionName
+   * @param state
+   * @return empty list if there is no instance in a given state
+   */
+  public List<InstanceConfig> getInstances(String resourceName, String partitionName,
+      String state) {
+    ResourceLookup resourceLookup = _resourceLookupMap.get(resourceName);
+    return resourceLookup == null ? EMPTY_INSTANCE_LIST
+        : resourceLookup.getInstances(partitionName, state);
+  }
+
+  /**
+   * returns all instances for {resource} that are in a specific {state}.
+   * @param resourceName
+   * @param state
+   * @return empty set if there is no instance in a given state
+   */
+  public Set<InstanceConfig> getInstances(String resourceName, String state) {
+    ResourceLookup resourceLookup = _resourceLookupMap.get(resourceName);
+    return resourceLookup == null ? EMPTY_INSTANCE_SET : resourceLookup.getInstances(state);
+  }
+
+  /**
+   * Parse the partition id from a partition name that follows the default partition naming.
+   * @param resourceName
+   * @param partitionName
+   * @return the partition id, or -1 if the name does not follow the default naming
+   */
+  static int parseDefaultPartitionId(String resourceName, String partitionName) {
+    int prefixLength = resourceName.length() + 1;
+    if (partitionName.length() <= prefixLength || !partitionName.startsWith(resourceName)
+        || partitionName.charAt(resourceName.length()) != '_') {
+      return -1;
+    }
+    // Only plain non-negative decimal ids without leading zeros map back to the same name.
+    if (partitionName.charAt(prefixLength) == '0' && partitionName.length() > prefixLength + 1) {
+      return -1;
+    }
+    int id = 0;
+    for (int i = prefixLength; i < partitionName.length(); i++) {
+      char c = partitionName.charAt(i);
+      if (c < '0' || c > '9' || id > (Integer.MAX_VALUE - (c - '0')) / 10) {
+        return -1;
+      }
+      id = id * 10 + (c - '0');
+    }
+    return id;
+  }
+
+  /**
+   * The precomputed lookup of a single resource.
+   */
+  public static class ResourceLookup {
+    private final String _resourceName;
+    // partition index -> partition name, null if the slot has no partition in the routing table
+    private final String[] _partitionNames;
+    private final Map<String, Integer> _partitionIndexMap;
+    // state -> partition index -> instances
+    private final Map<String, InstanceConfig[][]> _stateInstanceArrays;
+    // read-only views wrapping _stateInstanceArrays, created once so lookups do not allocate
+    private final Map<String, List<List<InstanceConfig>>> _stateInstanceViews;
+    // state -> all instances of the resource in that state
+    private final Map<String, Set<InstanceConfig>> _resourceStateViews;
+    private final boolean _defaultPartitionNaming;
+    // true if some partition ids below the largest one are not in the routing table
+    private final boolean _hasPartitionIdGaps;
+
+    private ResourceLookup(String resourceName, RoutingTable.ResourceInfo resourceInfo) {
+      _resourceName = resourceName;
+      Map<String, RoutingTable.PartitionInfo> partitionInfoMap = resourceInfo.partitionInfoMap;
+
+      int maxPartitionId = -1;
+      boolean defaultNaming = !partitionInfoMap.isEmpty();
+      for (String partitionName : partitionInfoMap.keySet()) {
+        int partitionId = parseDefaultPartitionId(resourceName, partitionName);
+        if (partitionId < 0) {
+          defaultNaming = false;
+          break;
+        }
+        maxPartitionId = Math.max(maxPartitionId, partitionId);
+      }
+      // Avoid allocating huge sparse arrays for the resources that only have a few partitions
+      // with very large ids.
+      if (defaultNaming && maxPartitionId >= 2 * partitionInfoMap.size()) {
+        defaultNaming = false;
+      }
+      _defaultPartitionNaming = defaultNaming;
+      _hasPartitionIdGaps = defaultNaming && maxPartitionId + 1 != partitionInfoMap.size();
+
+      int numPartitions = defaultNaming ? maxPartitionId + 1 : partitionInfoMap.size();
+      _partitionNames = new String[numPartitions];
+      Map<String, Integer> partitionIndexMap = new HashMap<>();
+      int nextIndex = 0;
+      for (String partitionName : partitionInfoMap.keySet()) {
+        int index =
+            defaultNaming ? parseDefaultPartitionId(resourceName, partitionName) : nextIndex++;
+        _partitionNames[index] = partitionName;
+        partitionIndexMap.put(partitionName, index);
+      }
+      _partitionIndexMap = Collections.unmodifiableMap(partitionIndexMap);
+
+      Map<String, InstanceConfig[][]> stateInstanceArrays = new HashMap<>();
+      for (int index = 0; index < numPartitions; index++) {
+        if (_partitionNames[index] == null) {
+          continue;
+        }
+        RoutingTable.PartitionInfo partitionInfo = partitionInfoMap.get(_partitionNames[index]);
+        for (Map.Entry<String, List<InstanceConfig>> stateEntry : partitionInfo.stateInfoMap
+            .entrySet()) {
+          InstanceConfig[][] instanceArrays = stateInstanceArrays.get(stateEntry.getKey());
+          if (instanceArrays == null) {
+            instanceArrays = new InstanceConfig[numPartitions][];
+            stateInstanceArrays.put(stateEntry.getKey(), instanceArrays);
+          }
+          instanceArrays[index] = stateEntry.getValue().toArray(new InstanceConfig[0]);
+        }
+      }
+
+      Map<String, List<List<InstanceConfig>>> stateInstanceViews = new HashMap<>();
+      for (Map.Entry<String, InstanceConfig[][]> entry : stateInstanceArrays.entrySet()) {
+        InstanceConfig[][] instanceArrays = entry.getValue();
+        List<List<InstanceConfig>> views = new ArrayList<>(numPartitions);
+        for (int index = 0; index < numPartitions; index++) {
+          views.add(instanceArrays[index] == null ? EMPTY_INSTANCE_LIST
+              : Collections.unmodifiableList(Arrays.asList(instanceArrays[index])));
+        }
+        stateInstanceViews.put(entry.getKey(), views);
+      }
+      _stateInstanceArrays = stateInstanceArrays;
+      _stateInstanceViews = stateInstanceViews;
+
+      Map<String, Set<InstanceConfig>> resourceStateViews = new HashMap<>();
+      for (Map.Entry<String, Set<InstanceConfig>> entry : resourceInfo.stateInfoMap.entrySet()) {
+        resourceStateViews.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+      }
+      _resourceStateViews = resourceStateViews;
+    }
+
+    public String getResourceName() {
+      return _resourceName;
+    }
+
+    /**
+     * Returns the size of the partition index space. For the resources using the default
+     * partition naming, this is the largest partition id in the routing table plus one, so the
+     * slots of the partitions that are not in the routing table are empty.
+     */
+    public int getNumPartitions() {
+      return _partitionNames.length;
+    }
+
+    /**
+     * @return true if all the partitions of this resource follow the default partition naming,
+     *         so that the partition index equals the partition id.
+     */
+    public boolean isDefaultPartitionNaming() {
+      return _defaultPartitionNaming;
+    }
+
+    /**
+     * @param partitionName
+     * @return the index of the partition, or -1 if the partition does not exist
+     */
+    public int getPartitionIndex(String partitionName) {
+      Integer index = _partitionIndexMap.get(partitionName);
+      return index == null ? -1 : index;
+    }
+
+    /**
+     * @param partitionIndex
+     * @return the name of the partition at the index, or null if there is no such partition
+     */
+    public String getPartitionName(int partitionIndex) {
+      if (partitionIndex < 0 || partitionIndex >= _partitionNames.length) {
+        return null;
+      }
+      return _partitionNames[partitionIndex];
+    }
+
+    /**
+     * Maps a key hash to a partition index, assuming the keys are distributed over the partitions
+     * as hash modulo the configured number of partitions. Only supported for the resources using
+     * the default partition naming.
+     * @param hash
+     * @param numPartitions the configured partition count of the resource
+     * @return the partition index, or -1 if the resource does not use the default naming
+     */
+    public int getPartitionIndexForHash(int hash, int numPartitions) {
+      if (!_defaultPartitionNaming || numPartitions <= 0) {
+        return -1;
+      }
+      return Math.floorMod(hash, numPartitions);
+    }
+
+    /**
+     * Maps a key hash to a partition index, taking the partition count from the routing table.
+     * The count is only known if the ids of the partitions in the routing table have no gaps, and
+     * it is still smaller than the configured one if the partitions with the largest ids are not
+     * in the routing table. Use {@link #getPartitionIndexForHash(int, int)} if the configured
+     * partition count is known.
+     * @param hash
+     * @return the partition index, or -1 if the resource does not use the default naming or the
+     *         partition ids have gaps
+     */
+    public int getPartitionIndexForHash(int hash) {
+      if (_hasPartitionIdGaps) {
+        return -1;
+      }
+      return getPartitionIndexForHash(hash, _partitionNames.length);
+    }
+
+    /**
+     * returns the instances for {partition index} that are in a specific {state}.
+     * @param partitionIndex
+     * @param state
+     * @return empty list if there is no instance in a given state
+     */
+    public List<InstanceConfig> getInstances(int partitionIndex, String state) {
+      List<List<InstanceConfig>> views = _stateInstanceViews.get(state);
+      if (views == null || partitionIndex < 0 || partitionIndex >= views.size()) {
+        return EMPTY_INSTANCE_LIST;
+      }
+      return views.get(partitionIndex);
+    }
+
+    /**
+     * returns the instances for {partition} that are in a specific {state}.
+     * @param partitionName
+     * @param state
+     * @return empty list if there is no instance in a given state
+     */
+    public List<InstanceConfig> getInstances(String partitionName, String state) {
+      Integer index = _partitionIndexMap.get(partitionName);
+      return index == null ? EMPTY_INSTANCE_LIST : getInstances(index, state);
+    }
+
+    /**
+     * returns all instances of this resource that are in a specific {state}.
+     * @param state
+     * @return empty set if there is no instance in a given state
+     */
+    public Set<InstanceConfig> getInstances(String state) {
+      Set<InstanceConfig> instances = _resourceStateViews.get(state);
+      return instances == null ? EMPTY_INSTANCE_SET : instances;
+    }
+
+    /**
+     * Returns the number of instances for {partition index} in a specific {state} without
+     * creating any view.
+     * @param partitionIndex
+     * @param state
+     * @return 0 if there is no instance in a given state
+     */
+    public int getInstanceCount(int partitionIndex, String state) {
+      InstanceConfig[][] instanceArrays = _stateInstanceArrays.get(state);
+      if (instanceArrays == null || partitionIndex < 0 || partitionIndex >= instanceArrays.length
+          || instanceArrays[partitionIndex] == null) {
+        return 0;
+      }
+      return instanceArrays[partitionIndex].length;
+    }
+  }
+}
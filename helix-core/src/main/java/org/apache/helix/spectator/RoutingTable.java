@@ -57,6 +57,9 @@ class RoutingTable {
 
   private final PropertyType _propertyType;
 
+  // lazily built since the subclasses keep adding entries after this class is constructed
+  private volatile RoutingLookupTable _lookupTable;
+
   @Deprecated
   public RoutingTable() {
     this(Collections.<ExternalView> emptyList(), Collections.<InstanceConfig> emptyList(),
@@ -200,22 +203,34 @@ class RoutingTable {
     return _resourceGroupInfoMap.get(resourceGroupName);
   }
 
+  /**
+   * Returns the immutable lookup table of this RoutingTable. It is built on the first call, and
+   * shared by all the following lookups.
+   * @return the RoutingLookupTable
+   */
+  RoutingLookupTable getLookupTable() {
+    RoutingLookupTable lookupTable = _lookupTable;
+    if (lookupTable == null) {
+      synchronized (this) {
+        lookupTable = _lookupTable;
+        if (lookupTable == null) {
+          lookupTable = new RoutingLookupTable(_resourceInfoMap);
+          _lookupTable = lookupTable;
+        }
+      }
+    }
+    return lookupTable;
+  }
+
   /**
    * returns all instances for {resource} that are in a specific {state}.
+   * The returned set is a shared read-only view.
    * @param resourceName
    * @param state
    * @return empty list if there is no instance in a given state
    */
   public Set<InstanceConfig> getInstancesForResource(String resourceName, String state) {
-    Set<InstanceConfig> instanceSet = null;
-    ResourceInfo resourceInfo = get(resourceName);
-    if (resourceInfo != null) {
-      instanceSet = resourceInfo.getInstances(state);
-    }
-    if (instanceSet == null) {
-      instanceSet = Collections.emptySet();
-    }
-    return instanceSet;
+    return getLookupTable().getInstances(resourceName, state);
   }
 
   /**
@@ -264,7 +279,7 @@ class RoutingTable {
 
   /**
    * returns the instances for {resource,partition} pair that are in a specific
-   * {state}
+   * {state}. The returned list is a shared read-only view.
    * @param resourceName
    * @param partitionName
    * @param state
@@ -272,18 +287,7 @@ class RoutingTable {
    */
   public List<InstanceConfig> getInstancesForResource(String resourceName, String partitionName,
       String state) {
-    List<InstanceConfig> instanceList = null;
-    ResourceInfo resourceInfo = get(resourceName);
-    if (resourceInfo != null) {
-      PartitionInfo keyInfo = resourceInfo.get(partitionName);
-      if (keyInfo != null) {
-        instanceList = keyInfo.get(state);
-      }
-    }
-    if (instanceList == null) {
-      instanceList = Collections.emptyList();
-    }
-    return instanceList;
+    return getLookupTable().getInstances(resourceName, partitionName, state);
   }
 
   /**
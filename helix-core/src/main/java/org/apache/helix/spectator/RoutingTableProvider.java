@@ -64,6 +64,9 @@ import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.monitoring.mbeans.RoutingTableProviderMonitor;
+import org.apache.helix.spectator.publisher.RoutingDataSnapshot;
+import org.apache.helix.spectator.publisher.RoutingSnapshotListener;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +82,11 @@ public class RoutingTableProvider
   private final Map<PropertyType, List<String>> _sourceDataTypeMap;
   private final Map<RoutingTableChangeListener, ListenerContext> _routingTableChangeListenerMap;
   private final Map<PropertyType, RoutingTableProviderMonitor> _monitorMap;
+  // For the routing data published by the controller
+  private final RoutingSnapshotPublisher _routingSnapshotPublisher;
+  private final RoutingSnapshotListener _routingSnapshotListener;
+  // Only accessed by the RouterUpdater thread
+  private long _appliedSnapshotVersion = -1;
 
   // For periodic refresh
   private long _lastRefreshTimestamp;
@@ -94,7 +102,7 @@ public class RoutingTableProvider
 
 
   public RoutingTableProvider() {
-    this(null);
+    this((HelixManager) null);
   }
 
   public RoutingTableProvider(HelixManager helixManager) throws HelixException {
@@ -137,6 +145,26 @@ public class RoutingTableProvider
   public RoutingTableProvider(HelixManager helixManager,
       Map<PropertyType, List<String>> sourceDataTypeMap, boolean isPeriodicRefreshEnabled,
       long periodRefreshInterval) throws HelixException {
+    this(helixManager, sourceDataTypeMap, isPeriodicRefreshEnabled, periodRefreshInterval, null);
+  }
+
+  /**
+   * Initialize an instance of RoutingTableProvider that builds the ExternalView routing table
+   * from the routing data snapshots published by the controller, instead of reading the
+   * ExternalViews, InstanceConfigs and LiveInstances from ZooKeeper.
+   * @param routingSnapshotPublisher the publisher that the controller of the cluster publishes to
+   * @throws HelixException
+   */
+  public RoutingTableProvider(RoutingSnapshotPublisher routingSnapshotPublisher)
+      throws HelixException {
+    this(null, ImmutableMap.of(PropertyType.EXTERNALVIEW, Collections.emptyList()), false,
+        DEFAULT_PERIODIC_REFRESH_INTERVAL, routingSnapshotPublisher);
+  }
+
+  private RoutingTableProvider(HelixManager helixManager,
+      Map<PropertyType, List<String>> sourceDataTypeMap, boolean isPeriodicRefreshEnabled,
+      long periodRefreshInterval, RoutingSnapshotPublisher routingSnapshotPublisher)
+      throws HelixException {
 
     validateSourceDataTypeMap(sourceDataTypeMap);
 
@@ -144,7 +172,9 @@ public class RoutingTableProvider
     _helixManager = helixManager;
     _sourceDataTypeMap = sourceDataTypeMap;
     _routingTableChangeListenerMap = new ConcurrentHashMap<>();
-    String clusterName = _helixManager != null ? _helixManager.getClusterName() : null;
+    _routingSnapshotPublisher = routingSnapshotPublisher;
+    String clusterName = _helixManager != null ? _helixManager.getClusterName()
+        : _routingSnapshotPublisher != null ? _routingSnapshotPublisher.getClusterName() : null;
 
     // Initialize the tables
     for (PropertyType propertyType : _sourceDataTypeMap.keySet()) {
@@ -189,6 +219,16 @@ public class RoutingTableProvider
     _routerUpdater = new RouterUpdater(clusterName, sourceDataTypeMap);
     _routerUpdater.start();
 
+    // Subscribe to the published routing data
+    if (_routingSnapshotPublisher != null) {
+      _routingSnapshotListener = snapshot -> _routerUpdater.queueSnapshotEvent();
+      _routingSnapshotPublisher.subscribe(_routingSnapshotListener);
+      // Apply the snapshot that has been published before the subscription.
+      _routerUpdater.queueSnapshotEvent();
+    } else {
+      _routingSnapshotListener = null;
+    }
+
     // Add listeners
     addListeners();
 
@@ -324,6 +364,9 @@ public class RoutingTableProvider
       _periodicRefreshExecutor.purge();
       _periodicRefreshExecutor.shutdown();
     }
+    if (_routingSnapshotPublisher != null) {
+      _routingSnapshotPublisher.unsubscribe(_routingSnapshotListener);
+    }
     _routerUpdater.shutdown();
 
     for (PropertyType propertyType : _monitorMap.keySet()) {
@@ -410,6 +453,23 @@ public class RoutingTableProvider
     return snapshots;
   }
 
+  /**
+   * Get the age of the routing data published by the controller, which the ExternalView routing
+   * table is built from. The routing table is kept when the publishing controller loses the
+   * leadership, so the age keeps growing until the new leader publishes again. The callers can
+   * check the age to decide whether the routing table is too stale to use.
+   * @return the time in ms since the routing data was last published, or -1 if this provider does
+   *         not use the published routing data or nothing has been published
+   */
+  public long getRoutingSnapshotAge() {
+    if (_routingSnapshotPublisher == null) {
+      return -1;
+    }
+    long lastPublishTime = _routingSnapshotPublisher.getLastPublishTime();
+    return lastPublishTime <= 0 ? -1
+        : Math.max(0, System.currentTimeMillis() - lastPublishTime);
+  }
+
 
   /**
    * Add RoutingTableChangeListener with user defined context
@@ -479,6 +539,17 @@ public class RoutingTableProvider
         .getInstancesForResource(resourceName, partitionName, state);
   }
 
+  /**
+   * Returns the immutable lookup table of the current routing table. The lookup table is built once
+   * per routing table refresh, and all its lookups return shared read-only views without
+   * allocation. Callers could hold on to the returned table to get a consistent view across
+   * multiple lookups.
+   * @return the lookup table of current routing table
+   */
+  public RoutingLookupTable getRoutingLookupTable() {
+    return getRoutingTableRef(DEFAULT_PROPERTY_TYPE, DEFAULT_STATE_TYPE).getLookupTable();
+  }
+
   /**
    * returns the instances for {resource group,partition} pair in all resources belongs to the given
    * resource group that are in a specific {state}.
@@ -845,6 +916,27 @@ public class RoutingTableProvider
     resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
   }
 
+  /**
+   * Refresh the ExternalView routing table with the latest published routing data snapshot. The
+   * snapshot events are merged in the event queue, so the snapshots published in between are
+   * skipped.
+   */
+  private void refreshRoutingSnapshot() {
+    long startTime = System.currentTimeMillis();
+    RoutingDataSnapshot snapshot = _routingSnapshotPublisher.getLatestSnapshot();
+    // The snapshot is null when the publisher is invalidated. Keep the current routing table until
+    // a new snapshot is published, and report its age by getRoutingSnapshotAge().
+    if (snapshot == null || snapshot.getVersion() <= _appliedSnapshotVersion) {
+      return;
+    }
+    String keyReference = generateReferenceKey(PropertyType.EXTERNALVIEW.name(), DEFAULT_STATE_TYPE);
+    refreshExternalView(snapshot.getExternalViews().values(),
+        snapshot.getInstanceConfigs().values(), snapshot.getLiveInstances().values(),
+        keyReference);
+    _appliedSnapshotVersion = snapshot.getVersion();
+    _monitorMap.get(PropertyType.EXTERNALVIEW).increaseDataRefreshCounters(startTime);
+  }
+
   private void resetRoutingTableAndNotify(long startTime, RoutingTable newRoutingTable, String referenceKey) {
     _routingTableRefMap.get(referenceKey).set(newRoutingTable);
     String clusterName = _helixManager != null ? _helixManager.getClusterName() : null;
@@ -888,6 +980,10 @@ public class RoutingTableProvider
 
     @Override
     protected void handleEvent(ClusterEvent event) {
+      if (_routingSnapshotPublisher != null) {
+        refreshRoutingSnapshot();
+        return;
+      }
       NotificationContext changeContext = event.getAttribute(AttributeName.changeContext.name());
       HelixConstants.ChangeType changeType = changeContext.getChangeType();
 
@@ -1021,6 +1117,13 @@ public class RoutingTableProvider
         _monitorMap.get(propertyType).increaseCallbackCounters(_eventQueue.size());
       }
     }
+
+    public void queueSnapshotEvent() {
+      queueEvent(new ClusterEvent(_clusterName, ClusterEventType.ExternalViewChange));
+      for (PropertyType propertyType : _monitorMap.keySet()) {
+        _monitorMap.get(propertyType).increaseCallbackCounters(_eventQueue.size());
+      }
+    }
   }
 
   protected class ListenerContext {
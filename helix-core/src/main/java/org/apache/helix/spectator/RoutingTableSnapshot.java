@@ -67,6 +67,15 @@ public class RoutingTableSnapshot {
     return _routingTable.getInstancesForResource(resourceName, partitionName, state);
   }
 
+  /**
+   * Returns the immutable, allocation-free lookup table of this snapshot. It is built once per
+   * snapshot and is recommended for the hot paths that look up instances very frequently.
+   * @return the RoutingLookupTable
+   */
+  public RoutingLookupTable getLookupTable() {
+    return _routingTable.getLookupTable();
+  }
+
   /**
    * returns all instances for resources contains any given tags in {resource group} that are in a
    * specific {state}
@@ -0,0 +1,114 @@
+package org.apache.helix.spectator.publisher;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A RoutingSnapshotPublisher that shares the snapshots in process, for the spectators that run in
+ * the same JVM as the controller. The snapshots are delivered to the listeners synchronously on the
+ * publishing thread.
+ */
+public class LocalRoutingSnapshotPublisher implements RoutingSnapshotPublisher {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalRoutingSnapshotPublisher.class);
+
+  private final String _clusterName;
+  private final Set<RoutingSnapshotListener> _listeners = new CopyOnWriteArraySet<>();
+  private volatile RoutingDataSnapshot _latestSnapshot;
+  private volatile long _lastPublishTime;
+  // Guarded by this
+  private long _latestVersion;
+
+  public LocalRoutingSnapshotPublisher(String clusterName) {
+    if (clusterName == null || clusterName.isEmpty()) {
+      throw new IllegalArgumentException("Cluster name must not be null or empty.");
+    }
+    _clusterName = clusterName;
+  }
+
+  @Override
+  public String getClusterName() {
+    return _clusterName;
+  }
+
+  @Override
+  public RoutingDataSnapshot publish(Map<String, ExternalView> externalViews,
+      Map<String, InstanceConfig> instanceConfigs, Map<String, LiveInstance> liveInstances) {
+    RoutingDataSnapshot snapshot;
+    synchronized (this) {
+      _lastPublishTime = System.currentTimeMillis();
+      RoutingDataSnapshot latestSnapshot = _latestSnapshot;
+      if (latestSnapshot != null && latestSnapshot.hasSameData(externalViews, instanceConfigs,
+          liveInstances)) {
+        return latestSnapshot;
+      }
+      snapshot = new RoutingDataSnapshot(_clusterName, ++_latestVersion, externalViews,
+          instanceConfigs, liveInstances);
+      _latestSnapshot = snapshot;
+    }
+    LOG.debug("Published {}", snapshot);
+    for (RoutingSnapshotListener listener : _listeners) {
+      try {
+        listener.onRoutingSnapshot(snapshot);
+      } catch (Exception e) {
+        LOG.error("Failed to deliver routing snapshot {} of cluster {} to listener {}.",
+            snapshot.getVersion(), _clusterName, listener, e);
+      }
+    }
+    return snapshot;
+  }
+
+  @Override
+  public RoutingDataSnapshot getLatestSnapshot() {
+    return _latestSnapshot;
+  }
+
+  @Override
+  public long getLastPublishTime() {
+    return _lastPublishTime;
+  }
+
+  @Override
+  public synchronized void invalidate() {
+    if (_latestSnapshot != null) {
+      LOG.info("Invalidated routing snapshot {} of cluster {}.", _latestSnapshot.getVersion(),
+          _clusterName);
+      _latestSnapshot = null;
+    }
+  }
+
+  @Override
+  public void subscribe(RoutingSnapshotListener listener) {
+    _listeners.add(listener);
+  }
+
+  @Override
+  public void unsubscribe(RoutingSnapshotListener listener) {
+    _listeners.remove(listener);
+  }
+}
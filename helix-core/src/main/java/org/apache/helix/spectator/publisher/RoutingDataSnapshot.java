@@ -0,0 +1,119 @@
+package org.apache.helix.spectator.publisher;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+
+/**
+ * A versioned, immutable snapshot of the routing data of a cluster, published by the leader
+ * controller after it computes the ExternalViews. The version increases with every snapshot
+ * published for the cluster, so a subscriber can skip the snapshots older than the one it applied.
+ * <p>
+ * The ExternalViews, InstanceConfigs and LiveInstances are shared with the controller cache and
+ * the other subscribers instead of being copied, so they must be treated as read-only.
+ */
+public class RoutingDataSnapshot {
+  private final String _clusterName;
+  private final long _version;
+  private final long _publishTime;
+  private final Map<String, ExternalView> _externalViews;
+  private final Map<String, InstanceConfig> _instanceConfigs;
+  private final Map<String, LiveInstance> _liveInstances;
+
+  public RoutingDataSnapshot(String clusterName, long version,
+      Map<String, ExternalView> externalViews, Map<String, InstanceConfig> instanceConfigs,
+      Map<String, LiveInstance> liveInstances) {
+    _clusterName = clusterName;
+    _version = version;
+    _publishTime = System.currentTimeMillis();
+    _externalViews = Collections.unmodifiableMap(new HashMap<>(externalViews));
+    _instanceConfigs = Collections.unmodifiableMap(new HashMap<>(instanceConfigs));
+    _liveInstances = Collections.unmodifiableMap(new HashMap<>(liveInstances));
+  }
+
+  public String getClusterName() {
+    return _clusterName;
+  }
+
+  public long getVersion() {
+    return _version;
+  }
+
+  public long getPublishTime() {
+    return _publishTime;
+  }
+
+  /**
+   * @return resource name -> ExternalView of the resources that have an ExternalView
+   */
+  public Map<String, ExternalView> getExternalViews() {
+    return _externalViews;
+  }
+
+  /**
+   * @return instance name -> InstanceConfig of the routable instances
+   */
+  public Map<String, InstanceConfig> getInstanceConfigs() {
+    return _instanceConfigs;
+  }
+
+  /**
+   * @return instance name -> LiveInstance of the routable live instances
+   */
+  public Map<String, LiveInstance> getLiveInstances() {
+    return _liveInstances;
+  }
+
+  /**
+   * Check if the snapshot holds the same routing data as the given maps. The controller cache
+   * reuses the objects of the unchanged properties, so the objects are compared by reference.
+   * @return true if all the maps contain the same keys mapped to the same objects
+   */
+  public boolean hasSameData(Map<String, ExternalView> externalViews,
+      Map<String, InstanceConfig> instanceConfigs, Map<String, LiveInstance> liveInstances) {
+    return isSameMap(_externalViews, externalViews) && isSameMap(_instanceConfigs,
+        instanceConfigs) && isSameMap(_liveInstances, liveInstances);
+  }
+
+  private static <T> boolean isSameMap(Map<String, T> snapshotMap, Map<String, T> map) {
+    if (snapshotMap.size() != map.size()) {
+      return false;
+    }
+    for (Map.Entry<String, T> entry : map.entrySet()) {
+      if (snapshotMap.get(entry.getKey()) != entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "RoutingDataSnapshot{cluster=" + _clusterName + ", version=" + _version
+        + ", externalViews=" + _externalViews.size() + ", instanceConfigs="
+        + _instanceConfigs.size() + ", liveInstances=" + _liveInstances.size() + "}";
+  }
+}
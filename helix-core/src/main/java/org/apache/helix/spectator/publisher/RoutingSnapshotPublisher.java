@@ -0,0 +1,83 @@
+package org.apache.helix.spectator.publisher;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+
+/**
+ * Publishes the routing data computed by the leader controller to the spectators, so they do not
+ * need to read the ExternalViews back from ZooKeeper. A publisher serves one cluster. It is
+ * registered to {@link RoutingSnapshotPublishers} to be used by the controller, and passed to the
+ * RoutingTableProvider of the spectators.
+ */
+public interface RoutingSnapshotPublisher {
+  /**
+   * @return the name of the cluster of the published routing data
+   */
+  String getClusterName();
+
+  /**
+   * Publish the routing data as a new snapshot if it is different from the latest snapshot.
+   * @param externalViews resource name -> ExternalView
+   * @param instanceConfigs instance name -> InstanceConfig of the routable instances
+   * @param liveInstances instance name -> LiveInstance of the routable live instances
+   * @return the latest snapshot after the publish
+   */
+  RoutingDataSnapshot publish(Map<String, ExternalView> externalViews,
+      Map<String, InstanceConfig> instanceConfigs, Map<String, LiveInstance> liveInstances);
+
+  /**
+   * @return the latest published snapshot, or null if nothing has been published since the
+   *         publisher is created or invalidated
+   */
+  RoutingDataSnapshot getLatestSnapshot();
+
+  /**
+   * @return the time in ms when the routing data was last published, including the publishes that
+   *         found the data unchanged, or 0 if nothing has been published. It is not reset by
+   *         {@link #invalidate()}, so the age of the routing data keeps growing until the next
+   *         publish.
+   */
+  long getLastPublishTime();
+
+  /**
+   * Invalidate the latest snapshot when the publishing controller stops maintaining the routing
+   * data, e.g. it loses the leadership. {@link #getLatestSnapshot()} returns null until the next
+   * publish. The versions of the later snapshots keep increasing, so the subscribers do not skip
+   * them.
+   */
+  void invalidate();
+
+  /**
+   * Subscribe to the snapshots published after this call. The listener is not invoked for the
+   * current snapshot, which can be read by {@link #getLatestSnapshot()}.
+   * @param listener
+   */
+  void subscribe(RoutingSnapshotListener listener);
+
+  /**
+   * @param listener
+   */
+  void unsubscribe(RoutingSnapshotListener listener);
+}
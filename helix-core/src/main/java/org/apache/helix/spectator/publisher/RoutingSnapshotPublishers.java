@@ -0,0 +1,61 @@
+package org.apache.helix.spectator.publisher;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the RoutingSnapshotPublishers in this process. When a publisher is registered
+ * for a cluster, the controller of the cluster publishes the routing data to it after computing
+ * the ExternalViews, in addition to writing the ExternalViews to ZooKeeper.
+ */
+public class RoutingSnapshotPublishers {
+  private static final Map<String, RoutingSnapshotPublisher> PUBLISHERS =
+      new ConcurrentHashMap<>();
+
+  private RoutingSnapshotPublishers() {
+  }
+
+  /**
+   * Register the publisher for its cluster, replacing the previously registered one.
+   * @param publisher
+   */
+  public static void register(RoutingSnapshotPublisher publisher) {
+    PUBLISHERS.put(publisher.getClusterName(), publisher);
+  }
+
+  /**
+   * Unregister the publisher of the cluster.
+   * @param clusterName
+   * @return the unregistered publisher, or null if none is registered
+   */
+  public static RoutingSnapshotPublisher unregister(String clusterName) {
+    return PUBLISHERS.remove(clusterName);
+  }
+
+  /**
+   * @param clusterName
+   * @return the publisher registered for the cluster, or null if none is registered
+   */
+  public static RoutingSnapshotPublisher getPublisher(String clusterName) {
+    return PUBLISHERS.get(clusterName);
+  }
+}
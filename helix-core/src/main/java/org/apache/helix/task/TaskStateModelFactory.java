@@ -37,6 +37,7 @@ import org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
 import org.apache.helix.participant.statemachine.StateModelFactory;
 import org.apache.helix.util.HelixUtil;
+import org.apache.helix.util.HierarchicalTimingWheel;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
@@ -73,14 +74,9 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
     _manager = manager;
     _taskFactoryRegistry = taskFactoryRegistry;
     _taskExecutor = taskExecutor;
-    // TODO: Hunter: I'm not sure why this needs to be a single thread executor. We could certainly
-    // use more threads for timer tasks.
-    _timerTaskExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-      @Override
-      public Thread newThread(Runnable r) {
-        return new Thread(r, "TaskStateModelFactory-timeTask_thread");
-      }
-    });
+    // Most of the task timeouts are canceled before they expire, which the timing wheel does in
+    // constant time.
+    _timerTaskExecutor = new HierarchicalTimingWheel("TaskStateModelFactory-timeTask_thread");
     if (_taskExecutor instanceof ThreadPoolExecutor) {
       try {
         _monitor = new ThreadPoolExecutorMonitor(TaskConstants.STATE_MODEL_NAME,
@@ -178,19 +174,34 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
     // want to enforce it, which may cause backward incompatibility.
     RealmAwareZkClient zkClient = createZkClient(manager);
     int targetThreadPoolSize;
+    boolean virtualThreadEnabled = TaskUtil.isVirtualThreadEnabled();
 
     // Ensure the zkClient is closed after reading the pool size;
     try {
       targetThreadPoolSize = TaskUtil
-          .getTargetThreadPoolSize(zkClient, manager.getClusterName(), manager.getInstanceName());
+          .getTaskExecutionCapacity(zkClient, manager.getClusterName(), manager.getInstanceName());
     } finally {
       zkClient.close();
     }
 
     LOG.info(
-        "Obtained target thread pool size: {} from cluster {} for instance {}. Creating thread pool.",
-        targetThreadPoolSize, manager.getClusterName(), manager.getInstanceName());
-    return Executors.newScheduledThreadPool(targetThreadPoolSize,
-            new ThreadFactoryBuilder().setNameFormat("TaskStateModelFactory-task_thread-%d").build());
+        "Obtained target thread pool size: {} from cluster {} for instance {}. Creating thread pool"
+            + " of {} threads.", targetThreadPoolSize, manager.getClusterName(),
+        manager.getInstanceName(), virtualThreadEnabled ? "virtual" : "platform");
+    return createTaskExecutor(targetThreadPoolSize, virtualThreadEnabled);
+  }
+
+  /**
+   * Create the executor of the tasks. With virtual threads, a task blocked on I/O does not hold an
+   * OS thread, so the pool size only bounds the number of concurrent tasks.
+   * @param poolSize the number of tasks that run concurrently
+   * @param virtualThreadEnabled whether the tasks run on virtual threads
+   */
+  @VisibleForTesting
+  static ScheduledExecutorService createTaskExecutor(int poolSize, boolean virtualThreadEnabled) {
+    ThreadFactory threadFactory = virtualThreadEnabled
+        ? new VirtualThreadFactory("TaskStateModelFactory-virtual_task_thread-")
+        : new ThreadFactoryBuilder().setNameFormat("TaskStateModelFactory-task_thread-%d").build();
+    return Executors.newScheduledThreadPool(poolSize, threadFactory);
   }
 }
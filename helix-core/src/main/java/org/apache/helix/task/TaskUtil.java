@@ -41,6 +41,7 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.InstanceType;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.rebalancer.util.RebalanceScheduler;
 import org.apache.helix.manager.zk.ZKUtil;
@@ -1163,6 +1164,40 @@ public class TaskUtil {
     }
   }
 
+  /**
+   * @return true if the tasks run on virtual threads, i.e. the virtual thread mode is enabled and
+   *         the JVM supports virtual threads
+   */
+  public static boolean isVirtualThreadEnabled() {
+    return Boolean.getBoolean(SystemPropertyKeys.TASK_VIRTUAL_THREAD_ENABLED)
+        && VirtualThreadFactory.isSupported();
+  }
+
+  /**
+   * Get the number of tasks the participant runs concurrently. If the tasks run on virtual
+   * threads and a positive virtual thread capacity is set, the capacity is returned. Otherwise it is the
+   * target thread pool size, see {@link #getTargetThreadPoolSize}.
+   * @param zkClient - ZooKeeper connection for config reading
+   * @param clusterName - the cluster name for InstanceConfig and ClusterConfig
+   * @param instanceName - the instance name for InstanceConfig
+   * @return the task execution capacity
+   */
+  public static int getTaskExecutionCapacity(RealmAwareZkClient zkClient, String clusterName,
+      String instanceName) {
+    if (isVirtualThreadEnabled()) {
+      Integer capacity = Integer.getInteger(SystemPropertyKeys.TASK_VIRTUAL_THREAD_CAPACITY);
+      if (capacity != null) {
+        if (capacity > 0) {
+          return capacity;
+        }
+        // A task executor without capacity would never run a task.
+        LOG.warn("Invalid virtual thread task capacity {}, it must be positive. Use the target"
+            + " thread pool size instead.", capacity);
+      }
+    }
+    return getTargetThreadPoolSize(zkClient, clusterName, instanceName);
+  }
+
   /**
    * Get target thread pool size from InstanceConfig first; if InstanceConfig doesn't exist or the
    * value is undefined, try ClusterConfig; if the value is undefined in ClusterConfig, fall back
@@ -0,0 +1,95 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ThreadFactory} that creates virtual threads. Virtual threads are only available since
+ * JDK 21 while Helix is built for older JDKs, so the JDK API is looked up reflectively.
+ *
+ * A virtual thread releases its carrier thread while it is blocked, so a task that mostly waits
+ * on I/O does not hold an OS thread. Note that a virtual thread blocked inside a synchronized block
+ * still pins its carrier thread before JDK 24.
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadFactory.class);
+
+  // Thread.ofVirtual(), Thread.Builder.name(String, long) and Thread.Builder.factory(). They are
+  // null if the JVM does not support virtual threads.
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_FACTORY;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      // Virtual threads are a preview feature in JDK 19 and 20, so creating a builder fails unless
+      // the preview features are enabled.
+      ofVirtual.invoke(null);
+    } catch (Exception e) {
+      LOG.debug("Virtual threads are not supported by the JVM.", e);
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+  }
+
+  private final ThreadFactory _factory;
+
+  /**
+   * @param namePrefix the prefix of the thread names, which are suffixed with a counter
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public VirtualThreadFactory(String namePrefix) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require JDK 21 or later.");
+    }
+    try {
+      Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+      _factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Failed to create the virtual thread factory.", e);
+    }
+  }
+
+  /**
+   * @return true if the JVM supports virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  @Override
+  public Thread newThread(Runnable r) {
+    return _factory.newThread(r);
+  }
+}
@@ -23,9 +23,11 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -44,6 +46,7 @@ import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixException;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.api.status.BulkOperationResult;
 import org.apache.helix.cloud.azure.AzureConstants;
 import org.apache.helix.cloud.constants.CloudProvider;
 import org.apache.helix.manager.zk.GenericZkHelixApiBuilder;
@@ -268,11 +271,19 @@ public class ClusterSetup {
   }
 
   public void addInstancesToCluster(String clusterName, String[] instanceInfoArray) {
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
     for (String instanceInfo : instanceInfoArray) {
       if (instanceInfo.length() > 0) {
-        addInstanceToCluster(clusterName, instanceInfo);
+        instanceConfigs.add(InstanceConfig.toInstanceConfig(instanceInfo));
       }
     }
+    List<String> failures = _admin.addInstances(clusterName, instanceConfigs).values().stream()
+        .filter(result -> !result.isSucceeded()).map(BulkOperationResult::toString)
+        .collect(Collectors.toList());
+    if (!failures.isEmpty()) {
+      throw new HelixException(
+          "Failed to add instances to cluster " + clusterName + ": " + failures);
+    }
   }
 
   public void addInstanceToCluster(String clusterName, String instanceId) {
@@ -29,10 +29,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDefinedState;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.controller.common.PartitionStateMap;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.util.DelayedRebalanceUtil;
+import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
 import org.apache.helix.controller.rebalancer.waged.ReadOnlyWagedRebalancer;
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.BestPossibleStateCalcStage;
@@ -45,8 +49,11 @@ import org.apache.helix.manager.zk.ZkBucketDataAccessor;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.util.RebalanceUtil;
@@ -62,14 +69,44 @@ import org.slf4j.LoggerFactory;
  * to the external view to ensure that they match. When they match, the cluster has converged.
  * Note: The best possible state compared to the external view includes the non-persisted state
  * mappings generated when handling MIN_ACTIVE replicas.
+ * <p>
+ * With the incremental verification enabled, the verifier keeps its cache between the
+ * verifications and only re-reads the changed znodes. A resource that has been verified is not
+ * verified again until its IdealState, ResourceConfig or ExternalView changes, or a cluster level
+ * input (cluster config, live instances, instance configs or state model definitions) changes.
+ * The resources whose best possible states could change with time alone, i.e. the resources with
+ * the delayed rebalance or a periodic rebalance enabled, are verified on every verification.
+ * This is intended for verifying a large cluster continuously with the same verifier.
  */
 public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
   private static Logger LOG = LoggerFactory.getLogger(BestPossibleExternalViewVerifier.class);
+  // The cached data that is refreshed before every incremental verification. The caches only
+  // reload the znodes whose stats have changed.
+  private static final List<HelixConstants.ChangeType> INCREMENTAL_REFRESH_TYPES = Arrays
+      .asList(HelixConstants.ChangeType.CLUSTER_CONFIG, HelixConstants.ChangeType.IDEAL_STATE,
+          HelixConstants.ChangeType.LIVE_INSTANCE, HelixConstants.ChangeType.INSTANCE_CONFIG,
+          HelixConstants.ChangeType.RESOURCE_CONFIG, HelixConstants.ChangeType.EXTERNAL_VIEW);
 
   private final Map<String, Map<String, String>> _errStates;
   private final Set<String> _resources;
   private final Set<String> _expectLiveInstances;
   private final ResourceControllerDataProvider _dataProvider;
+  private final boolean _incrementalVerification;
+
+  // The following are only used by the incremental verification.
+  // The stats of the cluster level inputs when the verified resources are verified
+  private Map<String, HelixProperty.Stat> _verifiedClusterInputs = Collections.emptyMap();
+  private boolean _verifiedInMaintenanceMode = false;
+  // resource name -> the stats of the resource inputs when the resource is verified
+  private final Map<String, List<HelixProperty.Stat>> _verifiedResourceInputs = new HashMap<>();
+
+  // The resources whose states were compared with the best possible states by the last verification
+  private Set<String> _lastVerifiedResources = Collections.emptySet();
+
+  // The time of the first verification that finds the cluster not converged, or -1 if the last
+  // verification finds the cluster converged.
+  private long _unconvergedSinceMs = -1L;
+  private long _lastTimeToConvergenceMs = -1L;
 
   /**
    * Deprecated - please use the Builder to construct this class.
@@ -88,11 +125,18 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
   @Deprecated
   public BestPossibleExternalViewVerifier(String zkAddr, String clusterName, Set<String> resources,
       Map<String, Map<String, String>> errStates, Set<String> expectLiveInstances, int waitTillVerify) {
+    this(zkAddr, clusterName, resources, errStates, expectLiveInstances, waitTillVerify, false);
+  }
+
+  private BestPossibleExternalViewVerifier(String zkAddr, String clusterName,
+      Set<String> resources, Map<String, Map<String, String>> errStates,
+      Set<String> expectLiveInstances, int waitTillVerify, boolean incrementalVerification) {
     super(zkAddr, clusterName, waitTillVerify);
     _errStates = errStates;
     _resources = resources;
     _expectLiveInstances = expectLiveInstances;
     _dataProvider = new ResourceControllerDataProvider();
+    _incrementalVerification = incrementalVerification;
     // _zkClient should be closed with BestPossibleExternalViewVerifier
   }
 
@@ -108,7 +152,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
   public BestPossibleExternalViewVerifier(RealmAwareZkClient zkClient, String clusterName,
       Set<String> resources, Map<String, Map<String, String>> errStates,
       Set<String> expectLiveInstances) {
-    this(zkClient, clusterName, errStates, resources, expectLiveInstances, 0, true);
+    this(zkClient, clusterName, errStates, resources, expectLiveInstances, 0, true, false);
   }
 
   @Deprecated
@@ -117,12 +161,14 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       Set<String> expectLiveInstances, int waitTillVerify) {
     // usesExternalZkClient = true because ZkClient is given by the caller
     // at close(), we will not close this ZkClient because it might be being used elsewhere
-    this(zkClient, clusterName, errStates, resources, expectLiveInstances, waitTillVerify, true);
+    this(zkClient, clusterName, errStates, resources, expectLiveInstances, waitTillVerify, true,
+        false);
   }
 
   private BestPossibleExternalViewVerifier(RealmAwareZkClient zkClient, String clusterName,
       Map<String, Map<String, String>> errStates, Set<String> resources,
-      Set<String> expectLiveInstances, int waitPeriodTillVerify, boolean usesExternalZkClient) {
+      Set<String> expectLiveInstances, int waitPeriodTillVerify, boolean usesExternalZkClient,
+      boolean incrementalVerification) {
     // Initialize BestPossibleExternalViewVerifier with usesExternalZkClient = false so that
     // BestPossibleExternalViewVerifier::close() would close ZkClient to prevent thread leakage
     super(zkClient, clusterName, usesExternalZkClient, waitPeriodTillVerify);
@@ -135,6 +181,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     _expectLiveInstances =
         expectLiveInstances == null ? new HashSet<>() : new HashSet<>(expectLiveInstances);
     _dataProvider = new ResourceControllerDataProvider();
+    _incrementalVerification = incrementalVerification;
   }
 
   public static class Builder extends ZkHelixClusterVerifier.Builder<Builder> {
@@ -143,6 +190,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     private Set<String> _resources;
     private Set<String> _expectLiveInstances;
     private RealmAwareZkClient _zkClient;
+    private boolean _incrementalVerification = false;
 
     public Builder(String clusterName) {
       _clusterName = clusterName;
@@ -156,20 +204,20 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       // _usesExternalZkClient == true
       if (_zkClient != null) {
         return new BestPossibleExternalViewVerifier(_zkClient, _clusterName, _errStates, _resources,
-            _expectLiveInstances, _waitPeriodTillVerify, true);
+            _expectLiveInstances, _waitPeriodTillVerify, true, _incrementalVerification);
       }
       // _usesExternalZkClient == false
       if (_realmAwareZkConnectionConfig == null || _realmAwareZkClientConfig == null) {
         // For backward-compatibility
         return new BestPossibleExternalViewVerifier(_zkAddress, _clusterName, _resources,
-            _errStates, _expectLiveInstances, _waitPeriodTillVerify);
+            _errStates, _expectLiveInstances, _waitPeriodTillVerify, _incrementalVerification);
       }
 
       validate();
       return new BestPossibleExternalViewVerifier(
           createZkClient(RealmAwareZkClient.RealmMode.SINGLE_REALM, _realmAwareZkConnectionConfig,
               _realmAwareZkClientConfig, _zkAddress), _clusterName, _errStates, _resources,
-          _expectLiveInstances, _waitPeriodTillVerify, false);
+          _expectLiveInstances, _waitPeriodTillVerify, false, _incrementalVerification);
     }
 
     public String getClusterName() {
@@ -211,6 +259,20 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       _zkClient = zkClient;
       return this;
     }
+
+    public boolean isIncrementalVerification() {
+      return _incrementalVerification;
+    }
+
+    /**
+     * Only verify the resources whose inputs have changed since the last verification, with a
+     * cache that is kept between the verifications. Intended for a verifier that is used to verify
+     * the same cluster repeatedly.
+     */
+    public Builder setIncrementalVerification(boolean incrementalVerification) {
+      _incrementalVerification = incrementalVerification;
+      return this;
+    }
   }
 
   @Override
@@ -243,119 +305,312 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
 
   @Override
   protected synchronized boolean verifyState() {
+    boolean converged;
+    _lastVerifiedResources = new HashSet<>();
     try {
-      PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
-
-      _dataProvider.requireFullRefresh();
-      _dataProvider.refresh(_accessor);
-      _dataProvider.setClusterEventId("ClusterStateVerifier");
+      converged =
+          _incrementalVerification ? verifyChangedResources() : verifyAllResources();
+    } catch (Exception e) {
+      LOG.error("exception in verification", e);
+      converged = false;
+    }
+    recordConvergence(converged);
+    return converged;
+  }
 
-      Map<String, IdealState> idealStates = new HashMap<>(_dataProvider.getIdealStates());
+  /**
+   * @return the time in milliseconds from the first verification that found the cluster not
+   * converged to the following verification that found it converged, 0 if the cluster was
+   * converged at the first verification, or -1 if the cluster has not been found converged yet.
+   */
+  public synchronized long getLastTimeToConvergenceMs() {
+    return _lastTimeToConvergenceMs;
+  }
 
-      // filter out all resources that use Task state model
-      idealStates.entrySet()
-          .removeIf(pair -> pair.getValue().getStateModelDefRef().equals(TaskConstants.STATE_MODEL_NAME));
+  /**
+   * @return the resources that the last verification compared with the best possible states. The
+   * full verification stops at the first resource that is not converged. The incremental
+   * verification skips the resources that are converged and unchanged since they were verified.
+   */
+  public synchronized Set<String> getLastVerifiedResources() {
+    return Collections.unmodifiableSet(new HashSet<>(_lastVerifiedResources));
+  }
 
-      // verify live instances.
-      if (_expectLiveInstances != null && !_expectLiveInstances.isEmpty()) {
-        Set<String> actualLiveNodes = _dataProvider.getLiveInstances().keySet();
-        if (!_expectLiveInstances.equals(actualLiveNodes)) {
-          LOG.warn("Live instances are not as expected. Actual live nodes: " + actualLiveNodes
-              .toString());
-          return false;
-        }
+  private void recordConvergence(boolean converged) {
+    long now = System.currentTimeMillis();
+    if (!converged) {
+      if (_unconvergedSinceMs < 0) {
+        _unconvergedSinceMs = now;
       }
+    } else if (_unconvergedSinceMs >= 0) {
+      _lastTimeToConvergenceMs = now - _unconvergedSinceMs;
+      _unconvergedSinceMs = -1L;
+      LOG.info("Cluster {} converged in {} ms.", _clusterName, _lastTimeToConvergenceMs);
+    } else if (_lastTimeToConvergenceMs < 0) {
+      _lastTimeToConvergenceMs = 0L;
+    }
+  }
 
-      Map<String, ExternalView> extViews =
-          _accessor.getChildValuesMap(keyBuilder.externalViews(), true);
-      if (extViews == null) {
-        extViews = Collections.emptyMap();
-      }
+  private boolean verifyAllResources() throws Exception {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+
+    _dataProvider.requireFullRefresh();
+    _dataProvider.refresh(_accessor);
+    _dataProvider.setClusterEventId("ClusterStateVerifier");
 
-      // Filter resources if requested
-      if (_resources != null && !_resources.isEmpty()) {
-        idealStates.keySet().retainAll(_resources);
-        extViews.keySet().retainAll(_resources);
+    if (!verifyLiveInstances()) {
+      return false;
+    }
+
+    Map<String, ExternalView> extViews =
+        _accessor.getChildValuesMap(keyBuilder.externalViews(), true);
+    if (extViews == null) {
+      extViews = Collections.emptyMap();
+    }
+    Map<String, IdealState> idealStates = getIdealStatesToVerify(extViews);
+
+    // calculate best possible state
+    BestPossibleStateOutput bestPossOutput = calcBestPossState(_dataProvider, _resources);
+    setErrStates(bestPossOutput);
+
+    for (String resourceName : idealStates.keySet()) {
+      _lastVerifiedResources.add(resourceName);
+      if (!verifyResource(idealStates.get(resourceName), extViews.get(resourceName),
+          bestPossOutput)) {
+        return false;
       }
+    }
+    return true;
+  }
+
+  /**
+   * Refresh the cache selectively, and only verify the resources that are not converged or whose
+   * inputs have changed since they were verified. All the resources are verified again if any of
+   * the cluster level inputs has changed.
+   * Note the current states are not compared: a change of the current states that changes the
+   * state of a resource also changes its ExternalView.
+   */
+  private boolean verifyChangedResources() throws Exception {
+    for (HelixConstants.ChangeType changeType : INCREMENTAL_REFRESH_TYPES) {
+      _dataProvider.notifyDataChange(changeType);
+    }
+    _dataProvider.refresh(_accessor);
+    _dataProvider.setClusterEventId("ClusterStateVerifier");
+
+    if (!verifyLiveInstances()) {
+      return false;
+    }
 
-      // if externalView is not empty and idealState doesn't exist
-      // add empty idealState for the resource
-      for (String resource : extViews.keySet()) {
-        if (!idealStates.containsKey(resource)) {
-          ExternalView ev = extViews.get(resource);
-          IdealState is = new IdealState(resource);
-          is.getRecord().setSimpleFields(ev.getRecord().getSimpleFields());
-          idealStates.put(resource, is);
+    Map<String, HelixProperty.Stat> clusterInputs = getClusterInputs();
+    if (!clusterInputs.equals(_verifiedClusterInputs)
+        || _dataProvider.isMaintenanceModeEnabled() != _verifiedInMaintenanceMode) {
+      _verifiedResourceInputs.clear();
+      _verifiedClusterInputs = clusterInputs;
+      _verifiedInMaintenanceMode = _dataProvider.isMaintenanceModeEnabled();
+    }
+
+    Map<String, ExternalView> extViews = new HashMap<>(_dataProvider.getExternalViews());
+    Map<String, IdealState> idealStates = getIdealStatesToVerify(extViews);
+
+    // Forget the removed resources and the resources whose inputs have changed.
+    Map<String, List<HelixProperty.Stat>> resourceInputs = new HashMap<>();
+    for (String resourceName : idealStates.keySet()) {
+      resourceInputs.put(resourceName,
+          getResourceInputs(idealStates.get(resourceName), extViews.get(resourceName)));
+    }
+    _verifiedResourceInputs.entrySet()
+        .removeIf(entry -> !entry.getValue().equals(resourceInputs.get(entry.getKey())));
+
+    Set<String> resourcesToVerify = new HashSet<>(resourceInputs.keySet());
+    resourcesToVerify.removeAll(_verifiedResourceInputs.keySet());
+    // The WAGED rebalancer assigns all of its resources together, so the change of one resource
+    // could change the best possible states of the others.
+    if (resourcesToVerify.stream()
+        .anyMatch(resource -> WagedValidationUtil.isWagedEnabled(idealStates.get(resource)))) {
+      idealStates.forEach((resourceName, idealState) -> {
+        if (WagedValidationUtil.isWagedEnabled(idealState)) {
+          resourcesToVerify.add(resourceName);
         }
+      });
+    }
+    if (resourcesToVerify.isEmpty()) {
+      return true;
+    }
+
+    BestPossibleStateOutput bestPossOutput = calcBestPossState(_dataProvider, resourcesToVerify);
+    setErrStates(bestPossOutput);
+
+    // Verify all the resources instead of stopping at the first failure, so the converged ones
+    // are not verified again.
+    boolean converged = true;
+    for (String resourceName : resourcesToVerify) {
+      _lastVerifiedResources.add(resourceName);
+      IdealState idealState = idealStates.get(resourceName);
+      if (!verifyResource(idealState, extViews.get(resourceName), bestPossOutput)) {
+        converged = false;
+      } else if (!isTimeDependent(idealState)) {
+        _verifiedResourceInputs.put(resourceName, resourceInputs.get(resourceName));
       }
+    }
+    LOG.info("Verified {} resources of cluster {}, {} of {} resources are converged.",
+        resourcesToVerify.size(), _clusterName, _verifiedResourceInputs.size(),
+        resourceInputs.size());
+    return converged;
+  }
 
-      // calculate best possible state
-      BestPossibleStateOutput bestPossOutput = calcBestPossState(_dataProvider, _resources);
-      Map<String, Map<Partition, Map<String, String>>> bestPossStateMap =
-          bestPossOutput.getStateMap();
-
-      // set error states
-      if (_errStates != null) {
-        for (String resourceName : _errStates.keySet()) {
-          Map<String, String> partErrStates = _errStates.get(resourceName);
-          for (String partitionName : partErrStates.keySet()) {
-            String instanceName = partErrStates.get(partitionName);
-
-            if (!bestPossStateMap.containsKey(resourceName)) {
-              bestPossStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
-            }
-            Partition partition = new Partition(partitionName);
-            if (!bestPossStateMap.get(resourceName).containsKey(partition)) {
-              bestPossStateMap.get(resourceName).put(partition, new HashMap<String, String>());
-            }
-            bestPossStateMap.get(resourceName).get(partition)
-                .put(instanceName, HelixDefinedState.ERROR.toString());
-          }
-        }
+  private boolean verifyLiveInstances() {
+    if (_expectLiveInstances != null && !_expectLiveInstances.isEmpty()) {
+      Set<String> actualLiveNodes = _dataProvider.getLiveInstances().keySet();
+      if (!_expectLiveInstances.equals(actualLiveNodes)) {
+        LOG.warn("Live instances are not as expected. Actual live nodes: " + actualLiveNodes
+            .toString());
+        return false;
       }
+    }
+    return true;
+  }
 
-      for (String resourceName : idealStates.keySet()) {
-        IdealState is = idealStates.get(resourceName);
-        ExternalView extView = extViews.get(resourceName);
-        if (extView == null) {
-          if (is.isExternalViewDisabled()) {
-            continue;
-          }
-          LOG.warn("externalView for " + resourceName
-              + " is not available, check if best possible state is available.");
-          extView = new ExternalView(resourceName);
-        }
+  /**
+   * Get the IdealStates of the resources to verify. Note the ExternalViews of the resources that
+   * should not be verified are removed from the given map.
+   */
+  private Map<String, IdealState> getIdealStatesToVerify(Map<String, ExternalView> extViews) {
+    Map<String, IdealState> idealStates = new HashMap<>(_dataProvider.getIdealStates());
 
-        // step 0: remove empty map and DROPPED state from best possible state
-        PartitionStateMap bpStateMap =
-            bestPossOutput.getPartitionStateMap(resourceName);
+    // filter out all resources that use Task state model
+    idealStates.entrySet()
+        .removeIf(pair -> pair.getValue().getStateModelDefRef().equals(TaskConstants.STATE_MODEL_NAME));
 
-        StateModelDefinition stateModelDef = _dataProvider.getStateModelDef(is.getStateModelDefRef());
-        if (stateModelDef == null) {
-          LOG.error(
-              "State model definition " + is.getStateModelDefRef() + " for resource not found!" + is
-                  .getResourceName());
-          return false;
-        }
+    // Filter resources if requested
+    if (_resources != null && !_resources.isEmpty()) {
+      idealStates.keySet().retainAll(_resources);
+      extViews.keySet().retainAll(_resources);
+    }
+
+    // if externalView is not empty and idealState doesn't exist
+    // add empty idealState for the resource
+    for (String resource : extViews.keySet()) {
+      if (!idealStates.containsKey(resource)) {
+        ExternalView ev = extViews.get(resource);
+        IdealState is = new IdealState(resource);
+        is.getRecord().setSimpleFields(ev.getRecord().getSimpleFields());
+        idealStates.put(resource, is);
+      }
+    }
+    return idealStates;
+  }
+
+  /**
+   * @return the stats of the inputs that the best possible states of all the resources depend on
+   */
+  private Map<String, HelixProperty.Stat> getClusterInputs() {
+    Map<String, HelixProperty.Stat> clusterInputs = new HashMap<>();
+    ClusterConfig clusterConfig = _dataProvider.getClusterConfig();
+    if (clusterConfig != null) {
+      clusterInputs.put("ClusterConfig", clusterConfig.getStat());
+    }
+    for (LiveInstance liveInstance : _dataProvider.getLiveInstances().values()) {
+      clusterInputs.put("LiveInstance/" + liveInstance.getId(), liveInstance.getStat());
+    }
+    for (InstanceConfig instanceConfig : _dataProvider.getInstanceConfigMap().values()) {
+      clusterInputs.put("InstanceConfig/" + instanceConfig.getId(), instanceConfig.getStat());
+    }
+    for (StateModelDefinition stateModelDef : _dataProvider.getStateModelDefMap().values()) {
+      clusterInputs.put("StateModelDefinition/" + stateModelDef.getId(), stateModelDef.getStat());
+    }
+    return clusterInputs;
+  }
+
+  /**
+   * @return the stats of the inputs that the verification of the resource depends on
+   */
+  private List<HelixProperty.Stat> getResourceInputs(IdealState idealState,
+      ExternalView extView) {
+    ResourceConfig resourceConfig = _dataProvider.getResourceConfig(idealState.getResourceName());
+    return Arrays.asList(idealState.getStat(),
+        resourceConfig == null ? null : resourceConfig.getStat(),
+        extView == null ? null : extView.getStat());
+  }
+
+  /**
+   * @return true if the best possible state of the resource could change without any change of
+   * its inputs, for example, when the rebalance delay of an offline instance expires.
+   */
+  private boolean isTimeDependent(IdealState idealState) {
+    ClusterConfig clusterConfig = _dataProvider.getClusterConfig();
+    if (idealState.getRebalanceTimerPeriod() > 0 || clusterConfig.getRebalanceTimePeriod() > 0) {
+      return true;
+    }
+    if (idealState.getRebalanceMode() != IdealState.RebalanceMode.FULL_AUTO) {
+      return false;
+    }
+    // The WAGED rebalancer only respects the cluster level delayed rebalance config.
+    return WagedValidationUtil.isWagedEnabled(idealState) ? DelayedRebalanceUtil
+        .isDelayRebalanceEnabled(clusterConfig)
+        : DelayedRebalanceUtil.isDelayRebalanceEnabled(idealState, clusterConfig);
+  }
+
+  private void setErrStates(BestPossibleStateOutput bestPossOutput) {
+    Map<String, Map<Partition, Map<String, String>>> bestPossStateMap =
+        bestPossOutput.getStateMap();
 
-        boolean result = verifyExternalView(extView, bpStateMap, stateModelDef);
+    // set error states
+    if (_errStates != null) {
+      for (String resourceName : _errStates.keySet()) {
+        Map<String, String> partErrStates = _errStates.get(resourceName);
+        for (String partitionName : partErrStates.keySet()) {
+          String instanceName = partErrStates.get(partitionName);
 
-        if (!result) {
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("verifyExternalView fails for " + resourceName + "! ExternalView: " + extView
-                + " BestPossibleState: " + bpStateMap);
-          } else {
-            LOG.warn("verifyExternalView fails for " + resourceName
-                + "! ExternalView does not match BestPossibleState");
+          if (!bestPossStateMap.containsKey(resourceName)) {
+            bestPossStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
+          }
+          Partition partition = new Partition(partitionName);
+          if (!bestPossStateMap.get(resourceName).containsKey(partition)) {
+            bestPossStateMap.get(resourceName).put(partition, new HashMap<String, String>());
           }
-          return false;
+          bestPossStateMap.get(resourceName).get(partition)
+              .put(instanceName, HelixDefinedState.ERROR.toString());
         }
       }
-      return true;
-    } catch (Exception e) {
-      LOG.error("exception in verification", e);
+    }
+  }
+
+  private boolean verifyResource(IdealState is, ExternalView extView,
+      BestPossibleStateOutput bestPossOutput) {
+    String resourceName = is.getResourceName();
+    if (extView == null) {
+      if (is.isExternalViewDisabled()) {
+        return true;
+      }
+      LOG.warn("externalView for " + resourceName
+          + " is not available, check if best possible state is available.");
+      extView = new ExternalView(resourceName);
+    }
+
+    // step 0: remove empty map and DROPPED state from best possible state
+    PartitionStateMap bpStateMap =
+        bestPossOutput.getPartitionStateMap(resourceName);
+
+    StateModelDefinition stateModelDef = _dataProvider.getStateModelDef(is.getStateModelDefRef());
+    if (stateModelDef == null) {
+      LOG.error(
+          "State model definition " + is.getStateModelDefRef() + " for resource not found!" + is
+              .getResourceName());
       return false;
     }
+
+    boolean result = verifyExternalView(extView, bpStateMap, stateModelDef);
+
+    if (!result) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("verifyExternalView fails for " + resourceName + "! ExternalView: " + extView
+            + " BestPossibleState: " + bpStateMap);
+      } else {
+        LOG.warn("verifyExternalView fails for " + resourceName
+            + "! ExternalView does not match BestPossibleState");
+      }
+    }
+    return result;
   }
 
   private boolean verifyExternalView(ExternalView externalView,
@@ -368,7 +623,10 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
 
     removeEntryWithIgnoredStates(bestPossibleStateMap.entrySet().iterator(), ignoreStates);
 
-    Map<String, Map<String, String>> externalViewMap = externalView.getRecord().getMapFields();
+    // Copy the map fields since the ExternalView could be cached by the data provider.
+    Map<String, Map<String, String>> externalViewMap = new HashMap<>();
+    externalView.getRecord().getMapFields()
+        .forEach((partition, stateMap) -> externalViewMap.put(partition, new HashMap<>(stateMap)));
     removeEntryWithIgnoredStates(externalViewMap.entrySet().iterator(), ignoreStates);
 
     return externalViewMap.equals(bestPossibleStateMap);
@@ -432,8 +690,18 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     }
 
     RebalanceUtil.runStage(event, new CurrentStateComputationStage());
-    // Note the readOnlyWagedRebalancer is just for one time usage
 
+    // The dryrun WAGED rebalancer connects to ZK to read the assignment metadata, so only create it
+    // when there are WAGED resources to calculate.
+    Map<String, Resource> resourceMapToRebalance =
+        event.getAttribute(AttributeName.RESOURCES_TO_REBALANCE.name());
+    if (resourceMapToRebalance == null || resourceMapToRebalance.keySet().stream()
+        .noneMatch(resource -> WagedValidationUtil.isWagedEnabled(cache.getIdealState(resource)))) {
+      RebalanceUtil.runStage(event, new BestPossibleStateCalcStage());
+      return event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+    }
+
+    // Note the readOnlyWagedRebalancer is just for one time usage
     try (
         // Pass the zkAddress to constructor to ensure the correct ZkClient is created with ByteArraySerializer
         ZkBucketDataAccessor zkBucketDataAccessor = new ZkBucketDataAccessor(
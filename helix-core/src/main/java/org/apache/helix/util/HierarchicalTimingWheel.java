@@ -0,0 +1,674 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ScheduledExecutorService} backed by a hierarchical timing wheel, for components that
+ * keep a large number of pending timeouts which are mostly canceled before they expire.
+ *
+ * A task is appended to the bucket of the wheel that covers its deadline, and a task whose
+ * deadline is beyond the span of a wheel goes to the next, coarser wheel and moves down to the
+ * finer wheels as the time advances. Scheduling and canceling a task is O(1): a canceled task is
+ * unlinked from its bucket right away, so it does not stay in the queue until its deadline. Only
+ * the non-empty buckets are kept in a delay queue, which is what the timer thread waits on.
+ *
+ * The timer thread only moves the tasks between the buckets. The expired tasks run on a separate
+ * executor, so a slow task does not delay the other timeouts. The deadlines are rounded up to the
+ * tick of the wheel. The timer thread is started when the first task is scheduled, and the worker
+ * threads when the first task expires, so an unused timing wheel does not hold any thread.
+ *
+ * Same as the default policies of {@link java.util.concurrent.ScheduledThreadPoolExecutor}, the
+ * pending delayed tasks still run at their deadlines after {@link #shutdown()}, while the periodic
+ * tasks are canceled. {@link #shutdownNow()} cancels all the pending tasks.
+ */
+public class HierarchicalTimingWheel extends AbstractExecutorService
+    implements ScheduledExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+  public static final long DEFAULT_TICK_MS = 1L;
+  public static final int DEFAULT_WHEEL_SIZE = 64;
+  // The shared timing wheel runs the tasks of unrelated components, so one slow task should not
+  // hold up all the others.
+  static final int SHARED_WORKER_POOL_SIZE = 4;
+  private static final long WORKER_KEEP_ALIVE_MS = 60000L;
+  // How often the timer thread checks whether the pending tasks are done after shutdown
+  private static final long SHUTDOWN_CHECK_INTERVAL_MS = 100L;
+
+  private static class SharedInstanceHolder {
+    private static final HierarchicalTimingWheel INSTANCE =
+        new HierarchicalTimingWheel("HelixSharedTimingWheel", DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE,
+            SHARED_WORKER_POOL_SIZE, true);
+  }
+
+  private final String _name;
+  private final boolean _shared;
+  private final Wheel _wheel;
+  // the non-empty buckets of all the wheels ordered by their expiration
+  private final DelayQueue<Bucket> _delayQueue = new DelayQueue<>();
+  // the tasks in the buckets
+  private final AtomicInteger _pendingTaskCount = new AtomicInteger();
+  // Scheduling tasks shares the lock, while advancing the clock takes it exclusively.
+  private final ReentrantReadWriteLock _lock = new ReentrantReadWriteLock();
+  private final ExecutorService _taskExecutor;
+  private final boolean _ownsTaskExecutor;
+  // started by the first scheduled task
+  private final Thread _timerThread;
+  private final AtomicBoolean _timerStarted = new AtomicBoolean();
+  // no new task is accepted
+  private volatile boolean _shutdown;
+  // the pending tasks are canceled and the timer thread stops
+  private volatile boolean _stopped;
+
+  /**
+   * Create a timing wheel with the default tick and wheel size, which runs the expired tasks on a
+   * single daemon thread.
+   * @param name the prefix of the thread names
+   */
+  public HierarchicalTimingWheel(String name) {
+    this(name, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE, 1, false);
+  }
+
+  /**
+   * @param name the prefix of the thread names
+   * @param tickMs the time span of a bucket of the finest wheel in ms
+   * @param wheelSize the number of buckets of each wheel
+   * @param taskExecutor the executor to run the expired tasks on, or null to run them on a single
+   *          daemon thread owned by this timing wheel. A provided executor is not shut down with
+   *          this timing wheel.
+   */
+  public HierarchicalTimingWheel(String name, long tickMs, int wheelSize,
+      ExecutorService taskExecutor) {
+    this(name, tickMs, wheelSize, taskExecutor == null ? createWorkerPool(name, 1) : taskExecutor,
+        taskExecutor == null, false);
+  }
+
+  private HierarchicalTimingWheel(String name, long tickMs, int wheelSize, int workerPoolSize,
+      boolean shared) {
+    this(name, tickMs, wheelSize, createWorkerPool(name, workerPoolSize), true, shared);
+  }
+
+  private HierarchicalTimingWheel(String name, long tickMs, int wheelSize,
+      ExecutorService taskExecutor, boolean ownsTaskExecutor, boolean shared) {
+    if (tickMs <= 0 || wheelSize <= 1) {
+      throw new IllegalArgumentException(
+          "Invalid tick " + tickMs + " ms or wheel size " + wheelSize + " of timing wheel " + name);
+    }
+    _name = name;
+    _shared = shared;
+    _wheel = new Wheel(tickMs, wheelSize, now());
+    _taskExecutor = taskExecutor;
+    _ownsTaskExecutor = ownsTaskExecutor;
+    _timerThread = daemonThreadFactory(name + "-timer").newThread(this::advanceClock);
+  }
+
+  /**
+   * A pool of daemon worker threads, which are only created when the tasks expire, and exit after
+   * being idle for a while.
+   */
+  private static ThreadPoolExecutor createWorkerPool(String name, int poolSize) {
+    AtomicInteger threadIndex = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, WORKER_KEEP_ALIVE_MS,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, name + "-worker-" + threadIndex.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * @return a timing wheel shared by the components that do not manage the lifecycle of their
+   *         scheduler. It cannot be shut down, so shutting it down only logs a warning.
+   */
+  public static HierarchicalTimingWheel getSharedInstance() {
+    return SharedInstanceHolder.INSTANCE;
+  }
+
+  /**
+   * @return the number of scheduled tasks that did not expire yet
+   */
+  public int getPendingTaskCount() {
+    return _pendingTaskCount.get();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+    WheelFuture<Void> future =
+        new WheelFuture<>(Executors.<Void> callable(command, null), triggerTime(delay, unit), 0L);
+    schedule(future);
+    return future;
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    if (callable == null || unit == null) {
+      throw new NullPointerException();
+    }
+    WheelFuture<V> future = new WheelFuture<>(callable, triggerTime(delay, unit), 0L);
+    schedule(future);
+    return future;
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+      TimeUnit unit) {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+    if (period <= 0) {
+      throw new IllegalArgumentException("The period must be positive: " + period);
+    }
+    WheelFuture<Void> future =
+        new WheelFuture<>(Executors.<Void> callable(command, null),
+            triggerTime(initialDelay, unit), Math.max(1L, unit.toMillis(period)));
+    schedule(future);
+    return future;
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+      long delay, TimeUnit unit) {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+    if (delay <= 0) {
+      throw new IllegalArgumentException("The delay must be positive: " + delay);
+    }
+    WheelFuture<Void> future =
+        new WheelFuture<>(Executors.<Void> callable(command, null),
+            triggerTime(initialDelay, unit), -Math.max(1L, unit.toMillis(delay)));
+    schedule(future);
+    return future;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    schedule(command, 0L, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop accepting new tasks and cancel the pending periodic tasks. The pending delayed tasks still
+   * run at their deadlines, and the threads exit once all of them are done.
+   */
+  @Override
+  public void shutdown() {
+    if (_shared) {
+      LOG.warn("The shared timing wheel {} cannot be shut down.", _name);
+      return;
+    }
+    List<WheelFuture<?>> periodicTasks = new ArrayList<>();
+    boolean timerStarted;
+    _lock.writeLock().lock();
+    try {
+      if (_shutdown) {
+        return;
+      }
+      _shutdown = true;
+      _wheel.removeIf(entry -> entry._future.isPeriodic(),
+          entry -> periodicTasks.add(entry._future));
+      timerStarted = _timerStarted.get();
+    } finally {
+      _lock.writeLock().unlock();
+    }
+    for (WheelFuture<?> task : periodicTasks) {
+      task.cancel(false);
+    }
+    if (timerStarted) {
+      // Wake up the timer thread, which exits once the pending tasks are done.
+      _timerThread.interrupt();
+    } else if (_ownsTaskExecutor) {
+      _taskExecutor.shutdown();
+    }
+    LOG.info("Shut down timing wheel {}, canceled {} periodic tasks, {} delayed tasks are pending",
+        _name, periodicTasks.size(), getPendingTaskCount());
+  }
+
+  /**
+   * Cancel all the pending tasks and stop the timer thread. The tasks that already expired may
+   * still run.
+   * @return the canceled tasks
+   */
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pendingTasks = new ArrayList<>();
+    if (_shared) {
+      LOG.warn("The shared timing wheel {} cannot be shut down.", _name);
+      return pendingTasks;
+    }
+    _lock.writeLock().lock();
+    try {
+      if (_stopped) {
+        return pendingTasks;
+      }
+      _shutdown = true;
+      _stopped = true;
+      _wheel.removeIf(entry -> true, entry -> pendingTasks.add(entry._future));
+    } finally {
+      _lock.writeLock().unlock();
+    }
+    for (Runnable task : pendingTasks) {
+      ((WheelFuture<?>) task).cancel(false);
+    }
+    _timerThread.interrupt();
+    if (_ownsTaskExecutor) {
+      _taskExecutor.shutdown();
+    }
+    LOG.info("Shut down timing wheel {}, canceled {} pending tasks", _name, pendingTasks.size());
+    return pendingTasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return _shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return _shutdown && !_timerThread.isAlive() && (!_ownsTaskExecutor || _taskExecutor
+        .isTerminated());
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    _timerThread.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+    if (_ownsTaskExecutor) {
+      _taskExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    return isTerminated();
+  }
+
+  private static long now() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  private static long triggerTime(long delay, TimeUnit unit) {
+    return now() + Math.max(0L, unit.toMillis(delay));
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private void schedule(WheelFuture<?> future) {
+    _lock.readLock().lock();
+    try {
+      if (_shutdown) {
+        throw new RejectedExecutionException("Timing wheel " + _name + " is shut down.");
+      }
+      if (!_timerStarted.get() && _timerStarted.compareAndSet(false, true)) {
+        _timerThread.start();
+      }
+      addOrRun(new TaskEntry(future));
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Add the entry to the wheel, or run its task if it is expired.
+   */
+  private void addOrRun(TaskEntry entry) {
+    if (!_wheel.add(entry) && !entry._future.isCancelled()) {
+      try {
+        _taskExecutor.execute(entry._future);
+      } catch (RejectedExecutionException e) {
+        LOG.warn("Timing wheel {} failed to run an expired task.", _name, e);
+        entry._future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * The loop of the timer thread, which waits for the next bucket to expire, advances the clock
+   * and moves the tasks of the bucket down to the finer wheels or runs them.
+   */
+  private void advanceClock() {
+    while (!_stopped && !(_shutdown && _pendingTaskCount.get() == 0)) {
+      try {
+        Bucket bucket = _shutdown ? _delayQueue
+            .poll(SHUTDOWN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS) : _delayQueue.take();
+        _lock.writeLock().lock();
+        try {
+          while (bucket != null && !_stopped) {
+            _wheel.advanceClock(bucket.getExpiration());
+            bucket.flush(this::addOrRun);
+            bucket = _delayQueue.poll();
+          }
+        } finally {
+          _lock.writeLock().unlock();
+        }
+      } catch (InterruptedException e) {
+        if (!_shutdown) {
+          LOG.warn("Timer thread of timing wheel {} is interrupted.", _name);
+        }
+      } catch (Throwable t) {
+        LOG.error("Timer thread of timing wheel {} failed to advance the clock.", _name, t);
+      }
+    }
+    // Let the expired tasks finish.
+    if (_ownsTaskExecutor) {
+      _taskExecutor.shutdown();
+    }
+  }
+
+  /**
+   * A level of the hierarchy. Each bucket covers tickMs, and a wheel covers tickMs * wheelSize,
+   * which is the tick of the next level.
+   */
+  private class Wheel {
+    private final long _tickMs;
+    private final int _wheelSize;
+    private final long _interval;
+    private final Bucket[] _buckets;
+    // the start of the current tick, only advanced by the timer thread
+    private volatile long _currentTime;
+    private volatile Wheel _overflowWheel;
+
+    Wheel(long tickMs, int wheelSize, long startMs) {
+      _tickMs = tickMs;
+      _wheelSize = wheelSize;
+      _interval = tickMs * wheelSize;
+      _buckets = new Bucket[wheelSize];
+      for (int i = 0; i < wheelSize; i++) {
+        _buckets[i] = new Bucket(_pendingTaskCount);
+      }
+      _currentTime = startMs - (startMs % tickMs);
+    }
+
+    /**
+     * @return false if the entry is expired or canceled, so it was not added
+     */
+    boolean add(TaskEntry entry) {
+      long expiration = entry._expirationMs;
+      if (entry._future.isCancelled()) {
+        return false;
+      }
+      long currentTime = _currentTime;
+      if (expiration < currentTime + _tickMs) {
+        return false;
+      }
+      if (expiration < currentTime + _interval) {
+        long virtualId = expiration / _tickMs;
+        Bucket bucket = _buckets[(int) (virtualId % _wheelSize)];
+        bucket.add(entry);
+        // The bucket is queued again only if it was flushed since it was last queued
+        if (bucket.setExpiration(virtualId * _tickMs)) {
+          _delayQueue.offer(bucket);
+        }
+        return true;
+      }
+      return getOverflowWheel().add(entry);
+    }
+
+    void advanceClock(long timeMs) {
+      if (timeMs >= _currentTime + _tickMs) {
+        _currentTime = timeMs - (timeMs % _tickMs);
+        Wheel overflowWheel = _overflowWheel;
+        if (overflowWheel != null) {
+          overflowWheel.advanceClock(_currentTime);
+        }
+      }
+    }
+
+    /**
+     * Remove the entries that match the filter from all the levels, and pass them to the consumer.
+     */
+    void removeIf(Predicate<TaskEntry> filter, Consumer<TaskEntry> consumer) {
+      for (Bucket bucket : _buckets) {
+        bucket.removeIf(filter, consumer);
+      }
+      Wheel overflowWheel = _overflowWheel;
+      if (overflowWheel != null) {
+        overflowWheel.removeIf(filter, consumer);
+      }
+    }
+
+    private Wheel getOverflowWheel() {
+      Wheel overflowWheel = _overflowWheel;
+      if (overflowWheel == null) {
+        synchronized (this) {
+          overflowWheel = _overflowWheel;
+          if (overflowWheel == null) {
+            overflowWheel = new Wheel(_interval, _wheelSize, _currentTime);
+            _overflowWheel = overflowWheel;
+          }
+        }
+      }
+      return overflowWheel;
+    }
+  }
+
+  /**
+   * A doubly linked list of the task entries that expire in the same tick.
+   */
+  private static class Bucket implements Delayed {
+    private final AtomicInteger _pendingTaskCount;
+    // sentinel of the circular list
+    private final TaskEntry _root = new TaskEntry(null);
+    private final AtomicLong _expiration = new AtomicLong(-1L);
+
+    Bucket(AtomicInteger pendingTaskCount) {
+      _pendingTaskCount = pendingTaskCount;
+      _root._next = _root;
+      _root._prev = _root;
+    }
+
+    /**
+     * @return true if the expiration changed
+     */
+    boolean setExpiration(long expirationMs) {
+      return _expiration.getAndSet(expirationMs) != expirationMs;
+    }
+
+    long getExpiration() {
+      return _expiration.get();
+    }
+
+    void add(TaskEntry entry) {
+      boolean done = false;
+      while (!done) {
+        // An entry belongs to at most one bucket
+        entry.remove();
+        synchronized (this) {
+          synchronized (entry) {
+            if (entry._bucket == null) {
+              TaskEntry tail = _root._prev;
+              entry._next = _root;
+              entry._prev = tail;
+              entry._bucket = this;
+              tail._next = entry;
+              _root._prev = entry;
+              _pendingTaskCount.incrementAndGet();
+              done = true;
+            }
+          }
+        }
+      }
+    }
+
+    synchronized void remove(TaskEntry entry) {
+      synchronized (entry) {
+        if (entry._bucket == this) {
+          entry._next._prev = entry._prev;
+          entry._prev._next = entry._next;
+          entry._next = null;
+          entry._prev = null;
+          entry._bucket = null;
+          _pendingTaskCount.decrementAndGet();
+        }
+      }
+    }
+
+    /**
+     * Remove all the entries and pass them to the consumer.
+     */
+    synchronized void flush(Consumer<TaskEntry> consumer) {
+      TaskEntry head = _root._next;
+      while (head != _root) {
+        remove(head);
+        consumer.accept(head);
+        head = _root._next;
+      }
+      _expiration.set(-1L);
+    }
+
+    /**
+     * Remove the entries that match the filter and pass them to the consumer. The expiration is
+     * kept, so the bucket is simply flushed empty when it expires.
+     */
+    synchronized void removeIf(Predicate<TaskEntry> filter, Consumer<TaskEntry> consumer) {
+      TaskEntry entry = _root._next;
+      while (entry != _root) {
+        TaskEntry next = entry._next;
+        if (filter.test(entry)) {
+          remove(entry);
+          consumer.accept(entry);
+        }
+        entry = next;
+      }
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(Math.max(getExpiration() - now(), 0L), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+    }
+  }
+
+  private static class TaskEntry {
+    private final WheelFuture<?> _future;
+    private final long _expirationMs;
+    private volatile Bucket _bucket;
+    private TaskEntry _next;
+    private TaskEntry _prev;
+
+    TaskEntry(WheelFuture<?> future) {
+      _future = future;
+      _expirationMs = future == null ? -1L : future._time;
+      if (future != null) {
+        future._entry = this;
+      }
+    }
+
+    void remove() {
+      Bucket bucket = _bucket;
+      while (bucket != null) {
+        bucket.remove(this);
+        bucket = _bucket;
+      }
+    }
+  }
+
+  private class WheelFuture<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+    // 0 for a one-shot task, positive for a fixed rate and negative for a fixed delay in ms
+    private final long _period;
+    // the trigger time in ms of the wheel clock
+    private volatile long _time;
+    private volatile TaskEntry _entry;
+
+    WheelFuture(Callable<V> callable, long time, long period) {
+      super(callable);
+      _time = time;
+      _period = period;
+    }
+
+    @Override
+    public boolean isPeriodic() {
+      return _period != 0L;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(_time - now(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      if (other == this) {
+        return 0;
+      }
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean canceled = super.cancel(mayInterruptIfRunning);
+      TaskEntry entry = _entry;
+      if (canceled && entry != null) {
+        entry.remove();
+      }
+      return canceled;
+    }
+
+    @Override
+    public void run() {
+      if (!isPeriodic()) {
+        super.run();
+      } else if (super.runAndReset()) {
+        _time = _period > 0 ? _time + _period : now() - _period;
+        try {
+          HierarchicalTimingWheel.this.schedule(this);
+        } catch (RejectedExecutionException e) {
+          cancel(false);
+        }
+      }
+    }
+  }
+}
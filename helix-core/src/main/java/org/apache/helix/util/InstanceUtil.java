@@ -19,9 +19,11 @@ package org.apache.helix.util;
  * under the License.
  */
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
@@ -105,6 +107,31 @@ public class InstanceUtil {
       String clusterName, InstanceConfig instanceConfig,
       InstanceConstants.InstanceOperation currentOperation,
       InstanceConstants.InstanceOperation targetOperation) {
+    validateInstanceOperationTransition(
+        () -> findInstancesWithMatchingLogicalId(configAccessor, clusterName, instanceConfig),
+        currentOperation, targetOperation);
+  }
+
+  /**
+   * Validates if the transition from the current operation to the target operation is valid,
+   * with the instances that have a matching logical ID already found.
+   *
+   * @param matchingLogicalIdInstances The instances that have a matching logical ID
+   * @param currentOperation           The current operation
+   * @param targetOperation            The target operation
+   */
+  public static void validateInstanceOperationTransition(
+      List<InstanceConfig> matchingLogicalIdInstances,
+      InstanceConstants.InstanceOperation currentOperation,
+      InstanceConstants.InstanceOperation targetOperation) {
+    validateInstanceOperationTransition(() -> matchingLogicalIdInstances, currentOperation,
+        targetOperation);
+  }
+
+  private static void validateInstanceOperationTransition(
+      Supplier<List<InstanceConfig>> matchingLogicalIdInstances,
+      InstanceConstants.InstanceOperation currentOperation,
+      InstanceConstants.InstanceOperation targetOperation) {
     // Check if the current operation and target operation are in the valid transitions map
     if (!validInstanceOperationTransitions.containsKey(currentOperation)
         || !validInstanceOperationTransitions.get(currentOperation).containsKey(targetOperation)) {
@@ -115,7 +142,7 @@ public class InstanceUtil {
 
     // Throw exception if the validation fails
     if (!validInstanceOperationTransitions.get(currentOperation).get(targetOperation)
-        .apply(findInstancesWithMatchingLogicalId(configAccessor, clusterName, instanceConfig))) {
+        .apply(matchingLogicalIdInstances.get())) {
       throw new HelixException(
           "Failed validation for instance operation transition from " + currentOperation + " to "
               + targetOperation);
@@ -137,10 +164,25 @@ public class InstanceUtil {
             .getEndNodeType();
 
     // Retrieve and filter instances with matching logical ID
-    return configAccessor.getKeys(
+    return findInstancesWithMatchingLogicalId(logicalIdKey, configAccessor.getKeys(
             new HelixConfigScopeBuilder(HelixConfigScope.ConfigScopeProperty.PARTICIPANT,
                 clusterName).build()).stream()
-        .map(instanceName -> configAccessor.getInstanceConfig(clusterName, instanceName)).filter(
+        .map(instanceName -> configAccessor.getInstanceConfig(clusterName, instanceName))
+        .collect(Collectors.toList()), instanceConfig);
+  }
+
+  /**
+   * Finds the instances that have a matching logical ID with the given instance among the given
+   * instance configs, so the configs can be read once for many instances.
+   *
+   * @param logicalIdKey    The end node type of the cluster topology
+   * @param instanceConfigs The instance configurations to search
+   * @param instanceConfig  The instance configuration to match
+   * @return A list of matching instances
+   */
+  public static List<InstanceConfig> findInstancesWithMatchingLogicalId(String logicalIdKey,
+      Collection<InstanceConfig> instanceConfigs, InstanceConfig instanceConfig) {
+    return instanceConfigs.stream().filter(
             potentialInstanceConfig ->
                 !potentialInstanceConfig.getInstanceName().equals(instanceConfig.getInstanceName())
                     && potentialInstanceConfig.getLogicalId(logicalIdKey)
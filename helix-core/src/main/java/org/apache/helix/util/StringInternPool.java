@@ -0,0 +1,160 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * A bounded pool that de-duplicates the strings repeated across ZNRecords, such as the instance
+ * names, partition names and state names in current states, ideal states, external views and
+ * messages. Every record read from ZK carries its own copies of these strings, so a controller
+ * caching a large cluster holds the same names many thousands of times.
+ *
+ * The pool is a fixed size, direct-mapped table of weak references. A lookup costs one array read
+ * and a colliding string simply replaces the slot, so the pool never grows beyond its capacity
+ * and never pins a string that is no longer referenced by any cached record. Unlike
+ * {@link String#intern()}, the pool is owned by one cache and is discarded together with it.
+ *
+ * This class is thread safe.
+ */
+public class StringInternPool {
+  public static final int MAX_CAPACITY = 1 << 24;
+
+  private final AtomicReferenceArray<WeakReference<String>> _table;
+  private final int _mask;
+
+  /**
+   * @param capacity the number of slots in the pool, rounded up to the next power of two
+   */
+  public StringInternPool(int capacity) {
+    if (capacity <= 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(
+          "The capacity of the intern pool must be in (0, " + MAX_CAPACITY + "], got " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    _table = new AtomicReferenceArray<>(size);
+    _mask = size - 1;
+  }
+
+  /**
+   * @return the number of slots in the pool
+   */
+  public int getCapacity() {
+    return _table.length();
+  }
+
+  /**
+   * Return a canonical instance of the given string. If an equal string is already pooled, the
+   * pooled instance is returned. Otherwise the given string is pooled and returned.
+   * @param str the string to intern, may be null
+   * @return a string that is equal to the given one
+   */
+  public String intern(String str) {
+    if (str == null) {
+      return null;
+    }
+    int hash = str.hashCode();
+    // Spread the higher bits so names sharing a long common prefix do not cluster.
+    int index = (hash ^ (hash >>> 16)) & _mask;
+    WeakReference<String> ref = _table.get(index);
+    if (ref != null) {
+      String pooled = ref.get();
+      if (pooled != null && (pooled == str || pooled.equals(str))) {
+        return pooled;
+      }
+    }
+    _table.set(index, new WeakReference<>(str));
+    return str;
+  }
+
+  /**
+   * Replace the keys and the values of all the fields of the property's record with the pooled
+   * instances. See {@link #internRecord(ZNRecord)}.
+   * @param property the property to intern, may be null
+   */
+  public void internProperty(HelixProperty property) {
+    if (property != null) {
+      internRecord(property.getRecord());
+    }
+  }
+
+  /**
+   * Replace the keys and the values of the simple, list and map fields of the record with the
+   * pooled instances. The field maps are rebuilt since the keys of a map cannot be swapped in
+   * place, keeping their iteration order. The record id is final and is left as is.
+   * @param record the record to intern, may be null
+   */
+  public void internRecord(ZNRecord record) {
+    if (record == null) {
+      return;
+    }
+
+    Map<String, String> simpleFields = newMapLike(record.getSimpleFields());
+    for (Map.Entry<String, String> entry : record.getSimpleFields().entrySet()) {
+      simpleFields.put(intern(entry.getKey()), intern(entry.getValue()));
+    }
+    record.setSimpleFields(simpleFields);
+
+    Map<String, List<String>> listFields = newMapLike(record.getListFields());
+    for (Map.Entry<String, List<String>> entry : record.getListFields().entrySet()) {
+      List<String> values = entry.getValue();
+      List<String> internedValues = null;
+      if (values != null) {
+        internedValues = new ArrayList<>(values.size());
+        for (String value : values) {
+          internedValues.add(intern(value));
+        }
+      }
+      listFields.put(intern(entry.getKey()), internedValues);
+    }
+    record.setListFields(listFields);
+
+    Map<String, Map<String, String>> mapFields = newMapLike(record.getMapFields());
+    for (Map.Entry<String, Map<String, String>> entry : record.getMapFields().entrySet()) {
+      Map<String, String> values = entry.getValue();
+      Map<String, String> internedValues = null;
+      if (values != null) {
+        internedValues = newMapLike(values);
+        for (Map.Entry<String, String> valueEntry : values.entrySet()) {
+          internedValues.put(intern(valueEntry.getKey()), intern(valueEntry.getValue()));
+        }
+      }
+      mapFields.put(intern(entry.getKey()), internedValues);
+    }
+    record.setMapFields(mapFields);
+  }
+
+  private static <V> Map<String, V> newMapLike(Map<String, V> map) {
+    return map instanceof SortedMap ? new TreeMap<String, V>() : new LinkedHashMap<String, V>();
+  }
+}
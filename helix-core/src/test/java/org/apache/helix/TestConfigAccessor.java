@@ -19,9 +19,15 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.helix.cloud.constants.CloudProvider;
 import org.apache.helix.manager.zk.ZKHelixAdmin;
@@ -31,8 +37,10 @@ import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.RESTConfig;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.ConfigScopeBuilder;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
 import org.apache.helix.tools.ClusterSetup;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -209,6 +217,111 @@ public class TestConfigAccessor extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testPatchConfig() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    ZKHelixAdmin admin = new ZKHelixAdmin(_gZkClient);
+    admin.addCluster(clusterName, true);
+    ConfigAccessor configAccessor = new ConfigAccessor(_gZkClient);
+    String instanceName = "localhost_12918";
+
+    try {
+      configAccessor.patchInstanceConfig(clusterName, instanceName,
+          new ConfigPatch().setSimpleField("key", "value"));
+      Assert.fail("Except fail to patch the instance config that does not exist");
+    } catch (HelixException e) {
+      // OK
+    }
+    admin.addInstance(clusterName, new InstanceConfig(instanceName));
+    String instancePath = PropertyPathBuilder.instanceConfig(clusterName, instanceName);
+    int initialVersion = _gZkClient.getStat(instancePath).getVersion();
+
+    // The concurrent patches of the different fields are all kept.
+    int numWriters = 5;
+    int numPatchesPerWriter = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numWriters);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int w = 0; w < numWriters; w++) {
+      String writer = "writer_" + w;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < numPatchesPerWriter; i++) {
+          configAccessor.patchInstanceConfig(clusterName, instanceName,
+              new ConfigPatch().setMapFieldEntry("PATCHED", writer + "_" + i, "true")
+                  .setSimpleField(writer, String.valueOf(i)));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    InstanceConfig instanceConfig = configAccessor.getInstanceConfig(clusterName, instanceName);
+    Assert.assertEquals(instanceConfig.getRecord().getMapField("PATCHED").size(),
+        numWriters * numPatchesPerWriter);
+    for (int w = 0; w < numWriters; w++) {
+      Assert.assertEquals(instanceConfig.getRecord().getSimpleField("writer_" + w),
+          String.valueOf(numPatchesPerWriter - 1));
+    }
+    Assert.assertEquals(configAccessor.getPatchCount(), numWriters * numPatchesPerWriter);
+    Assert.assertEquals(configAccessor.getPatchAbortCount(), 0);
+    // A conflicting patch is retried, but every patch is written exactly once.
+    Assert.assertEquals(_gZkClient.getStat(instancePath).getVersion() - initialVersion,
+        numWriters * numPatchesPerWriter);
+
+    // A patch that does not change the config is not written.
+    int version = _gZkClient.getStat(instancePath).getVersion();
+    Assert.assertFalse(configAccessor.patchInstanceConfig(clusterName, instanceName,
+        new ConfigPatch().setSimpleField("writer_0", String.valueOf(numPatchesPerWriter - 1))
+            .removeMapFieldEntry("PATCHED", "nonexistent").removeSimpleField("nonexistent")));
+    Assert.assertEquals(_gZkClient.getStat(instancePath).getVersion(), version);
+    Assert.assertEquals(configAccessor.getPatchNoOpCount(), 1);
+
+    Assert.assertTrue(configAccessor.patchInstanceConfig(clusterName, instanceName,
+        new ConfigPatch().removeMapField("PATCHED").removeSimpleField("writer_0")));
+    instanceConfig = configAccessor.getInstanceConfig(clusterName, instanceName);
+    Assert.assertNull(instanceConfig.getRecord().getMapField("PATCHED"));
+    Assert.assertNull(instanceConfig.getRecord().getSimpleField("writer_0"));
+    Assert.assertEquals(instanceConfig.getRecord().getSimpleField("writer_1"),
+        String.valueOf(numPatchesPerWriter - 1));
+
+    // The resource config is created by the patch.
+    Assert.assertTrue(configAccessor.patchResourceConfig(clusterName, "TestDB",
+        ConfigPatch.fromUpdate(new ResourceConfig.Builder("TestDB").setNumReplica(3).build()
+            .getRecord())));
+    Assert.assertEquals(configAccessor.getResourceConfig(clusterName, "TestDB").getNumReplica(),
+        "3");
+
+    // The updates are applied as patches, so an update that changes nothing is not written.
+    version = _gZkClient.getStat(instancePath).getVersion();
+    configAccessor.updateInstanceConfig(clusterName, instanceName,
+        configAccessor.getInstanceConfig(clusterName, instanceName));
+    Assert.assertEquals(_gZkClient.getStat(instancePath).getVersion(), version);
+    Assert.assertEquals(configAccessor.getPatchNoOpCount(), 2);
+
+    // The patch counters are published as an MBean, which is unregistered on close.
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName monitorName = null;
+    for (ObjectName name : mBeanServer
+        .queryNames(new ObjectName(MonitorDomainNames.ConfigAccessor.name() + ":*"), null)) {
+      if (mBeanServer.getAttribute(name, "PatchNoOpCounter").equals(2L) && mBeanServer
+          .getAttribute(name, "PatchCounter").equals(configAccessor.getPatchCount())) {
+        monitorName = name;
+      }
+    }
+    Assert.assertNotNull(monitorName);
+
+    admin.dropCluster(clusterName);
+    configAccessor.close();
+    Assert.assertFalse(mBeanServer.isRegistered(monitorName));
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
   @Test
   public void testSetRestConfig() {
     String className = TestHelper.getTestClassName();
@@ -132,7 +132,7 @@ public class ZkTestBase {
     System.out.println("************ total memory:" + total + " free memory:" + free);
   }
 
-  @BeforeSuite
+  @BeforeSuite(alwaysRun = true)
   public void beforeSuite() throws Exception {
     // TODO: use logging.properties file to config java.util.logging.Logger levels
     java.util.logging.Logger topJavaLogger = java.util.logging.Logger.getLogger("");
@@ -208,7 +208,7 @@ public class ZkTestBase {
         .buildZkClient(new HelixZkClient.ZkConnectionConfig(zkAddress), clientConfig);
   }
 
-  @AfterSuite
+  @AfterSuite(alwaysRun = true)
   public void afterSuite() throws IOException {
     // Clean up all JMX objects
     for (ObjectName mbean : _server.queryNames(null, null)) {
@@ -228,7 +228,7 @@ public class ZkTestBase {
     }
   }
 
-  @BeforeClass
+  @BeforeClass(alwaysRun = true)
   public void beforeClass() throws Exception {
     cleanupJMXObjects();
     // Giving each test some time to settle (such as gc pause, etc).
@@ -612,7 +612,7 @@ public class ZkTestBase {
     return idealStates;
   }
 
-  @AfterClass
+  @AfterClass(alwaysRun = true)
   public void cleanupLiveInstanceOwners() throws InterruptedException {
     String testClassName = this.getShortClassName();
     System.out.println("AfterClass: " + testClassName + " called.");
@@ -0,0 +1,262 @@
+package org.apache.helix.controller.changedetector;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.HelixConstants.ChangeType;
+import org.apache.helix.controller.changedetector.trimmer.IdealStateTrimmer;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPropertyDigest {
+  private static final int NUM_PROPERTIES = 5000;
+  private static final int NUM_BENCHMARK_PROPERTIES = 50000;
+  private static final int NUM_PARTITIONS = 20;
+
+  @Test
+  public void testFingerprint() {
+    ZNRecord record = createRecord("Resource", 1);
+    Assert.assertEquals(PropertyDigest.fingerprint(record),
+        PropertyDigest.fingerprint(createRecord("Resource", 1)));
+    // The id is not compared, same as ZNRecord.equals()
+    Assert.assertEquals(PropertyDigest.fingerprint(record),
+        PropertyDigest.fingerprint(new ZNRecord(record, "AnotherResource")));
+    Assert.assertNotEquals(PropertyDigest.fingerprint(record),
+        PropertyDigest.fingerprint(createRecord("Resource", 2)));
+
+    // The fingerprint does not depend on the order of the map entries.
+    Map<String, String> hashMap = new HashMap<>();
+    Map<String, String> linkedHashMap = new LinkedHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      hashMap.put("instance_" + i, "MASTER");
+      linkedHashMap.put("instance_" + (99 - i), "MASTER");
+    }
+    ZNRecord first = new ZNRecord("Resource");
+    first.setMapField("partition", hashMap);
+    ZNRecord second = new ZNRecord("Resource");
+    second.setMapField("partition", linkedHashMap);
+    Assert.assertEquals(PropertyDigest.fingerprint(first), PropertyDigest.fingerprint(second));
+
+    // But it depends on the order of the list entries.
+    first.setListField("partition", Arrays.asList("instance_0", "instance_1"));
+    second.setListField("partition", Arrays.asList("instance_1", "instance_0"));
+    Assert.assertNotEquals(PropertyDigest.fingerprint(first), PropertyDigest.fingerprint(second));
+
+    // A moved value or a trimmed (null) value is a change.
+    first = new ZNRecord("Resource");
+    first.setSimpleField("key1", "value");
+    first.setSimpleField("key2", "");
+    second = new ZNRecord("Resource");
+    second.setSimpleField("key1", "");
+    second.setSimpleField("key2", "value");
+    Assert.assertNotEquals(PropertyDigest.fingerprint(first), PropertyDigest.fingerprint(second));
+    second.setSimpleField("key1", "value");
+    second.getSimpleFields().put("key2", null);
+    Assert.assertNotEquals(PropertyDigest.fingerprint(first), PropertyDigest.fingerprint(second));
+  }
+
+  @Test
+  public void testHasSameContent() {
+    IdealState idealState = createIdealState("Resource", 1, 1, 1000L);
+    PropertyDigest<IdealState> digest = new PropertyDigest<>(idealState, idealState);
+
+    // Same znode version, the records are not compared.
+    IdealState sameVersion = createIdealState("Resource", 2, 1, 1000L);
+    Assert.assertTrue(digest.isSameVersion(sameVersion));
+    Assert.assertTrue(digest.hasSameContent(new PropertyDigest<>(sameVersion, sameVersion)));
+
+    // New znode version, compare the fingerprints.
+    IdealState newVersion = createIdealState("Resource", 1, 2, 1000L);
+    Assert.assertFalse(digest.isSameVersion(newVersion));
+    Assert.assertTrue(digest.hasSameContent(new PropertyDigest<>(newVersion, newVersion)));
+    newVersion = createIdealState("Resource", 2, 2, 1000L);
+    Assert.assertFalse(digest.hasSameContent(new PropertyDigest<>(newVersion, newVersion)));
+
+    // A re-created znode restarts from version 0, so the creation time is also compared.
+    IdealState recreated = createIdealState("Resource", 2, 1, 2000L);
+    Assert.assertFalse(digest.isSameVersion(recreated));
+    Assert.assertFalse(digest.hasSameContent(new PropertyDigest<>(recreated, recreated)));
+
+    // The properties that are not read from ZooKeeper are always compared by the fingerprints.
+    IdealState inMemory = createIdealState("Resource", 1, 0, 0L);
+    PropertyDigest<IdealState> inMemoryDigest = new PropertyDigest<>(inMemory, inMemory);
+    IdealState modified = createIdealState("Resource", 2, 0, 0L);
+    Assert.assertFalse(inMemoryDigest.isSameVersion(modified));
+    Assert.assertFalse(inMemoryDigest.hasSameContent(new PropertyDigest<>(modified, modified)));
+
+    // The trimmed property is compared, but the stat of the original property is used.
+    IdealState trimmed = IdealStateTrimmer.getInstance().trimProperty(idealState);
+    PropertyDigest<IdealState> trimmedDigest = new PropertyDigest<>(idealState, trimmed);
+    Assert.assertTrue(trimmedDigest.isSameVersion(idealState));
+    Assert.assertEquals(trimmedDigest.getFingerprint(),
+        PropertyDigest.fingerprint(trimmed.getRecord()));
+  }
+
+  /**
+   * The change detection with the property digests finds the same changes as the deep comparison
+   * of the trimmed records.
+   */
+  @Test
+  public void testChangeDetectionMatchesRecordComparison() {
+    compareChangeDetection(NUM_PROPERTIES);
+  }
+
+  /**
+   * Compare the time of the change detection with the property digests and with the deep
+   * comparison of the trimmed records. Run with the benchmark profile.
+   */
+  @Test(groups = "benchmark")
+  public void testChangeDetectionBenchmark() {
+    long[] elapsedNs = compareChangeDetection(NUM_BENCHMARK_PROPERTIES);
+    System.out.println(String.format(
+        "Detected the changes of %d IdealStates: %d ms with the property digests, %d ms with"
+            + " ZNRecord.equals()", NUM_BENCHMARK_PROPERTIES,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNs[0]), TimeUnit.NANOSECONDS.toMillis(elapsedNs[1])));
+  }
+
+  /**
+   * Update 1% of the IdealStates, and detect the changes with the property digests and with the
+   * deep comparison of the trimmed records.
+   * @return the elapsed nanoseconds of the two change detections
+   */
+  private long[] compareChangeDetection(int numProperties) {
+    Map<String, IdealState> idealStates = new HashMap<>();
+    for (int i = 0; i < numProperties; i++) {
+      String resourceName = "Resource_" + i;
+      idealStates.put(resourceName, createIdealState(resourceName, 1, 1, 1000L));
+    }
+    ResourceControllerDataProvider dataProvider =
+        Mockito.mock(ResourceControllerDataProvider.class);
+    Mockito.when(dataProvider.getRefreshedChangeTypes())
+        .thenReturn(Collections.singleton(ChangeType.IDEAL_STATE));
+    Mockito.when(dataProvider.getIdealStates()).thenReturn(idealStates);
+
+    ResourceChangeDetector changeDetector = new ResourceChangeDetector(true);
+    changeDetector.updateSnapshots(dataProvider);
+    Assert.assertEquals(changeDetector.getAdditionsByType(ChangeType.IDEAL_STATE).size(),
+        numProperties);
+
+    // Update 1% of the IdealStates, half of them with a topology change.
+    Set<String> expectedChanges = new HashSet<>();
+    for (int i = 0; i < numProperties; i += 100) {
+      String resourceName = "Resource_" + i;
+      boolean topologyChange = i % 200 == 0;
+      IdealState idealState = createIdealState(resourceName, 1, 2, 1000L);
+      if (topologyChange) {
+        idealState.setNumPartitions(NUM_PARTITIONS + 1);
+        expectedChanges.add(resourceName);
+      } else {
+        idealState.setRebalanceDelay(1000L);
+      }
+      idealStates.put(resourceName, idealState);
+    }
+
+    long startTime = System.nanoTime();
+    changeDetector.updateSnapshots(dataProvider);
+    Assert.assertEquals(
+        new HashSet<>(changeDetector.getChangesByType(ChangeType.IDEAL_STATE)), expectedChanges);
+    long digestElapsedNs = System.nanoTime() - startTime;
+
+    // The previous implementation: trim all the properties and compare the records.
+    Map<String, IdealState> previousIdealStates = new HashMap<>();
+    for (int i = 0; i < numProperties; i++) {
+      String resourceName = "Resource_" + i;
+      previousIdealStates.put(resourceName,
+          IdealStateTrimmer.getInstance().trimProperty(createIdealState(resourceName, 1, 1, 1000L)));
+    }
+    startTime = System.nanoTime();
+    Set<String> changes = new HashSet<>();
+    idealStates.forEach((name, idealState) -> {
+      IdealState trimmed = IdealStateTrimmer.getInstance().trimProperty(idealState);
+      if (!previousIdealStates.get(name).getRecord().equals(trimmed.getRecord())) {
+        changes.add(name);
+      }
+    });
+    Assert.assertEquals(changes, expectedChanges);
+    long equalsElapsedNs = System.nanoTime() - startTime;
+
+    // No change since the last snapshot
+    changeDetector.updateSnapshots(dataProvider);
+    Assert.assertTrue(changeDetector.getChangesByType(ChangeType.IDEAL_STATE).isEmpty());
+    return new long[] {digestElapsedNs, equalsElapsedNs};
+  }
+
+  /**
+   * The snapshot keeps the same read-only views of the properties between the calls.
+   */
+  @Test
+  public void testPropertyViews() {
+    Map<String, IdealState> idealStates = new HashMap<>();
+    idealStates.put("Resource", createIdealState("Resource", 1, 1, 1000L));
+    ResourceControllerDataProvider dataProvider =
+        Mockito.mock(ResourceControllerDataProvider.class);
+    Mockito.when(dataProvider.getRefreshedChangeTypes())
+        .thenReturn(Collections.singleton(ChangeType.IDEAL_STATE));
+    Mockito.when(dataProvider.getIdealStates()).thenReturn(idealStates);
+
+    ResourceChangeSnapshot snapshot = new ResourceChangeSnapshot(dataProvider, false);
+    Map<String, IdealState> view = snapshot.getIdealStateMap();
+    Assert.assertSame(snapshot.getIdealStateMap(), view);
+    Assert.assertSame(view.get("Resource"), idealStates.get("Resource"));
+    Assert.assertSame(new ResourceChangeSnapshot(snapshot).getIdealStateMap().get("Resource"),
+        idealStates.get("Resource"));
+    try {
+      view.remove("Resource");
+      Assert.fail("The view of the snapshot should be read-only.");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  private static IdealState createIdealState(String resourceName, int replicas, int version,
+      long creationTime) {
+    ZNRecord record = createRecord(resourceName, replicas);
+    record.setVersion(version);
+    record.setCreationTime(creationTime);
+    return new IdealState(record);
+  }
+
+  private static ZNRecord createRecord(String resourceName, int replicas) {
+    IdealState idealState = new IdealState(resourceName);
+    idealState.setRebalanceMode(IdealState.RebalanceMode.SEMI_AUTO);
+    idealState.setStateModelDefRef("MasterSlave");
+    idealState.setNumPartitions(NUM_PARTITIONS);
+    idealState.setReplicas(String.valueOf(replicas));
+    for (int p = 0; p < NUM_PARTITIONS; p++) {
+      String partition = resourceName + "_" + p;
+      idealState.setPreferenceList(partition, Arrays.asList("instance_" + p, "instance_" + (p + 1)));
+      idealState.setPartitionState(partition, "instance_" + p, "MASTER");
+      idealState.setPartitionState(partition, "instance_" + (p + 1), "SLAVE");
+    }
+    return idealState.getRecord();
+  }
+}
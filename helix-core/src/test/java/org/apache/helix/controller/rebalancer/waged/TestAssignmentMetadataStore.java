@@ -162,6 +162,115 @@ public class TestAssignmentMetadataStore extends ZkTestBase {
     Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY).size(), bestPossibleVersionCount + 1);
   }
 
+  @Test(dependsOnMethods = "testClearAssignment")
+  public void testDeltaPersistence() {
+    AssignmentMetadataStore deltaStore = new AssignmentMetadataStore(
+        new ZkBucketDataAccessor(_manager.getMetadataStoreConnectionString(), DEFAULT_BUCKET_SIZE,
+            Integer.MAX_VALUE), _manager.getClusterName(), true);
+    try {
+      int baselineVersionCount = getExistingVersionNumbers(BASELINE_KEY).size();
+      Map<String, ResourceAssignment> baseline = getAssignment(10, "v0");
+
+      // The first persist writes a checkpoint
+      deltaStore.persistBaseline(baseline);
+      long checkpointBytes = deltaStore.getLastPersistedBaselineBytes();
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY).size(),
+          baselineVersionCount + 1);
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY + "_DELTA").size(), 0);
+
+      // Update one resource and remove another one, which are written as deltas
+      baseline = new HashMap<>(baseline);
+      baseline.put(TEST_DB + "_0", getAssignment(1, "v1").get(TEST_DB + "_0"));
+      deltaStore.persistBaseline(baseline);
+      Assert.assertTrue(deltaStore.getLastPersistedBaselineBytes() < checkpointBytes);
+      baseline.remove(TEST_DB + "_1");
+      deltaStore.persistBaseline(baseline);
+      Assert.assertTrue(deltaStore.getLastPersistedBaselineBytes() < checkpointBytes);
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY).size(),
+          baselineVersionCount + 1);
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY + "_DELTA").size(), 2);
+
+      // The assignment is reconstructed from the checkpoint and the delta
+      deltaStore.reset();
+      Assert.assertEquals(deltaStore.getBaseline(), baseline);
+      // A store that does not write deltas still reads them
+      AssignmentMetadataStore checkpointStore = new AssignmentMetadataStore(
+          new ZkBucketDataAccessor(_manager.getMetadataStoreConnectionString(),
+              DEFAULT_BUCKET_SIZE, Integer.MAX_VALUE), _manager.getClusterName(), false);
+      try {
+        Assert.assertEquals(checkpointStore.getBaseline(), baseline);
+      } finally {
+        checkpointStore.close();
+      }
+
+      // Changing more than half of the resources writes a new checkpoint
+      baseline = getAssignment(9, "v2");
+      deltaStore.persistBaseline(baseline);
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY).size(),
+          baselineVersionCount + 2);
+      Assert.assertEquals(getExistingVersionNumbers(BASELINE_KEY + "_DELTA").size(), 2);
+      deltaStore.reset();
+      Assert.assertEquals(deltaStore.getBaseline(), baseline);
+    } finally {
+      deltaStore.close();
+    }
+  }
+
+  @Test(dependsOnMethods = "testDeltaPersistence")
+  public void testDeltaCheckpointInterval() {
+    AssignmentMetadataStore deltaStore = new AssignmentMetadataStore(
+        new ZkBucketDataAccessor(_manager.getMetadataStoreConnectionString(), DEFAULT_BUCKET_SIZE,
+            Integer.MAX_VALUE), _manager.getClusterName(), true);
+    try {
+      Map<String, ResourceAssignment> bestPossible = getAssignment(10, "v0");
+      deltaStore.persistBestPossibleAssignment(bestPossible);
+      int checkpointCount = getExistingVersionNumbers(BEST_POSSIBLE_KEY).size();
+      int deltaCount = getExistingVersionNumbers(BEST_POSSIBLE_KEY + "_DELTA").size();
+
+      for (int i = 1; i <= AssignmentMetadataStore.DEFAULT_CHECKPOINT_INTERVAL; i++) {
+        bestPossible = new HashMap<>(bestPossible);
+        bestPossible.put(TEST_DB + "_0", getAssignment(1, "v" + i).get(TEST_DB + "_0"));
+        deltaStore.persistBestPossibleAssignment(bestPossible);
+      }
+      Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY).size(), checkpointCount);
+      Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY + "_DELTA").size(),
+          deltaCount + AssignmentMetadataStore.DEFAULT_CHECKPOINT_INTERVAL);
+
+      // A new leader continues with the deltas of the current checkpoint
+      deltaStore.reset();
+      Assert.assertEquals(deltaStore.getBestPossibleAssignment(), bestPossible);
+
+      // The checkpoint is rewritten once the interval is reached
+      bestPossible = new HashMap<>(bestPossible);
+      bestPossible.put(TEST_DB + "_1", getAssignment(2, "v-final").get(TEST_DB + "_1"));
+      deltaStore.persistBestPossibleAssignment(bestPossible);
+      Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY).size(),
+          checkpointCount + 1);
+      Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY + "_DELTA").size(),
+          deltaCount + AssignmentMetadataStore.DEFAULT_CHECKPOINT_INTERVAL);
+      deltaStore.reset();
+      Assert.assertEquals(deltaStore.getBestPossibleAssignment(), bestPossible);
+    } finally {
+      deltaStore.close();
+    }
+  }
+
+  /**
+   * Generates an assignment of the given number of resources, which differs for each version.
+   */
+  private Map<String, ResourceAssignment> getAssignment(int numResources, String version) {
+    Map<String, ResourceAssignment> assignments = new HashMap<>();
+    for (int i = 0; i < numResources; i++) {
+      String resourceName = TEST_DB + "_" + i;
+      ResourceAssignment assignment = new ResourceAssignment(resourceName);
+      Map<String, String> replicaMap = new HashMap<>();
+      replicaMap.put("localhost_" + version, "MASTER");
+      assignment.addReplicaMap(new Partition(resourceName + "_0"), replicaMap);
+      assignments.put(resourceName, assignment);
+    }
+    return assignments;
+  }
+
   private Map<String, ResourceAssignment> getDummyAssignment() {
     // Generate a dummy assignment
     Map<String, ResourceAssignment> dummyAssignment = new HashMap<>();
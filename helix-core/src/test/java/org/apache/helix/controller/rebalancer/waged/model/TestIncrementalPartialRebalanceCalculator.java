@@ -0,0 +1,180 @@
+package org.apache.helix.controller.rebalancer.waged.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
+import org.apache.helix.controller.rebalancer.waged.RebalanceAlgorithm;
+import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
+import org.apache.helix.controller.rebalancer.waged.constraints.ConstraintBasedAlgorithmFactory;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceAssignment;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class TestIncrementalPartialRebalanceCalculator extends AbstractTestClusterModel {
+
+  @Override
+  protected ResourceControllerDataProvider setupClusterDataCache() throws IOException {
+    ResourceControllerDataProvider testCache = super.setupClusterDataCache();
+
+    Map<String, IdealState> isMap = new HashMap<>();
+    for (String resource : _resourceNames) {
+      IdealState is = new IdealState(resource);
+      is.setNumPartitions(_partitionNames.size());
+      is.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+      is.setStateModelDefRef("MasterSlave");
+      is.setReplicas("2");
+      is.setRebalancerClassName(WagedRebalancer.class.getName());
+      _partitionNames
+          .forEach(partition -> is.setPreferenceList(partition, Collections.emptyList()));
+      isMap.put(resource, is);
+    }
+    when(testCache.getIdealState(anyString())).thenAnswer(
+        (Answer<IdealState>) invocationOnMock -> isMap.get(invocationOnMock.getArguments()[0]));
+
+    // Set up 4 instances in different fault zones.
+    Map<String, InstanceConfig> instanceConfigMap = testCache.getAssignableInstanceConfigMap();
+    Map<String, LiveInstance> liveInstanceMap = testCache.getAssignableLiveInstances();
+    for (int i = 1; i < 4; i++) {
+      String instanceName = _testInstanceId + i;
+      _instances.add(instanceName);
+      instanceConfigMap.put(instanceName, createMockInstanceConfig(instanceName));
+      liveInstanceMap.put(instanceName, createMockLiveInstance(instanceName));
+    }
+    Map<String, Integer> capacity = new HashMap<>();
+    _capacityDataMap.keySet().forEach(key -> capacity.put(key, 100));
+    instanceConfigMap.values().forEach(config -> {
+      config.setZoneId(config.getInstanceName());
+      config.setInstanceCapacityMap(capacity);
+    });
+    testCache.getClusterConfig().setMaxPartitionsPerInstance(10);
+    return testCache;
+  }
+
+  @Test
+  public void testIncrementalCalculation() throws IOException, HelixRebalanceException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+    Map<String, Resource> resourceMap = _resourceNames.stream()
+        .collect(Collectors.toMap(resource -> resource, resource -> new Resource(resource)));
+    RebalanceAlgorithm algorithm = ConstraintBasedAlgorithmFactory
+        .getInstance(testCache.getClusterConfig().getGlobalRebalancePreference());
+    Map<String, ResourceAssignment> baseline = WagedRebalanceUtil.calculateAssignment(
+        ClusterModelProvider.generateClusterModelForBaseline(testCache, resourceMap, _instances,
+            Collections.emptyMap(), Collections.emptyMap()), algorithm);
+    Assert.assertEquals(countReplicas(baseline, null), 16);
+
+    // 1. The first calculation evaluates all the resources.
+    IncrementalPartialRebalanceCalculator calculator = new IncrementalPartialRebalanceCalculator();
+    Map<String, ResourceAssignment> bestPossible =
+        calculator.calculateAssignment(testCache, resourceMap, _instances, baseline, baseline,
+            algorithm);
+    Assert.assertFalse(calculator.isLastCalculationIncremental());
+    Assert.assertEquals(calculator.getLastChangedResourceCount(), 2);
+    Assert.assertEquals(calculator.getLastReassignedReplicaCount(), 0);
+    Assert.assertEquals(bestPossible, baseline);
+
+    // 2. Nothing changed, so no resource is re-evaluated.
+    Map<String, ResourceAssignment> result =
+        calculator.calculateAssignment(testCache, resourceMap, _instances, baseline, bestPossible,
+            algorithm);
+    Assert.assertTrue(calculator.isLastCalculationIncremental());
+    Assert.assertEquals(calculator.getLastChangedResourceCount(), 0);
+    Assert.assertEquals(result, baseline);
+
+    // 3. One instance becomes inactive. Only the replicas on it are re-placed, and the result is
+    // the same as the one of the full calculation.
+    String inactiveInstance = _testInstanceId + 1;
+    Set<String> activeInstances = new HashSet<>(_instances);
+    activeInstances.remove(inactiveInstance);
+    result = calculator.calculateAssignment(testCache, resourceMap, activeInstances, baseline,
+        bestPossible, algorithm);
+    Assert.assertTrue(calculator.isLastCalculationIncremental());
+    Assert.assertEquals(calculator.getLastReassignedReplicaCount(),
+        countReplicas(baseline, inactiveInstance));
+    Assert.assertEquals(countReplicas(result, inactiveInstance), 0);
+    Assert.assertEquals(countReplicas(result, null), 16);
+    Assert.assertEquals(result, calculateFully(testCache, resourceMap, activeInstances, baseline,
+        bestPossible, algorithm));
+
+    // 4. The instance is back. The result is still the same as the one of the full calculation.
+    bestPossible = result;
+    result = calculator.calculateAssignment(testCache, resourceMap, _instances, baseline,
+        bestPossible, algorithm);
+    Assert.assertTrue(calculator.isLastCalculationIncremental());
+    Assert.assertEquals(result,
+        calculateFully(testCache, resourceMap, _instances, baseline, bestPossible, algorithm));
+
+    // 5. A failed calculation discards the cached state.
+    Map<String, Resource> invalidResourceMap = new HashMap<>(resourceMap);
+    invalidResourceMap.put("UnknownResource", new Resource("UnknownResource"));
+    try {
+      calculator.calculateAssignment(testCache, invalidResourceMap, _instances, baseline, result,
+          algorithm);
+      Assert.fail("The calculation should fail since the ideal state does not exist");
+    } catch (HelixRebalanceException expected) {
+      Assert.assertEquals(expected.getFailureType(),
+          HelixRebalanceException.Type.INVALID_CLUSTER_STATUS);
+    }
+    result = calculator.calculateAssignment(testCache, resourceMap, _instances, baseline,
+        baseline, algorithm);
+    Assert.assertFalse(calculator.isLastCalculationIncremental());
+    Assert.assertEquals(result, baseline);
+  }
+
+  private Map<String, ResourceAssignment> calculateFully(ResourceControllerDataProvider testCache,
+      Map<String, Resource> resourceMap, Set<String> activeInstances,
+      Map<String, ResourceAssignment> baseline, Map<String, ResourceAssignment> bestPossible,
+      RebalanceAlgorithm algorithm) throws HelixRebalanceException {
+    return WagedRebalanceUtil.calculateAssignment(ClusterModelProvider
+        .generateClusterModelForPartialRebalance(testCache, resourceMap, activeInstances, baseline,
+            bestPossible), algorithm);
+  }
+
+  // Count the replicas on the instance, or all the replicas if the instance is null.
+  private int countReplicas(Map<String, ResourceAssignment> assignment, String instanceName) {
+    int count = 0;
+    for (ResourceAssignment resourceAssignment : assignment.values()) {
+      for (Partition partition : resourceAssignment.getMappedPartitions()) {
+        Map<String, String> replicaMap = resourceAssignment.getReplicaMap(partition);
+        count += instanceName == null ? replicaMap.size()
+            : (replicaMap.containsKey(instanceName) ? 1 : 0);
+      }
+    }
+    return count;
+  }
+}
@@ -21,10 +21,12 @@ package org.apache.helix.controller.stages;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 
+import org.apache.helix.HelixConstants;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.model.ClusterConfig;
@@ -186,4 +188,109 @@ public class TestCurrentStateComputationStage extends BaseStageTest {
     AssertJUnit.assertEquals(taskCurrentState, "INIT");
   }
 
+  @Test
+  public void testIncrementalComputation() throws Exception {
+    String[] resources = new String[] {"TestDB0", "TestDB1"};
+    Map<String, Resource> resourceMap = getResourceMap(resources, 4, "MasterSlave");
+    setupLiveInstances(3);
+    Builder keyBuilder = accessor.keyBuilder();
+    for (int i = 0; i < 3; i++) {
+      for (String resource : resources) {
+        accessor.setProperty(keyBuilder.currentState(HOSTNAME_PREFIX + i, SESSION_PREFIX + i,
+            resource), newCurrentState(resource, SESSION_PREFIX + i, "SLAVE"));
+      }
+    }
+
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    ResourceControllerDataProvider dataCache = new ResourceControllerDataProvider();
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), dataCache);
+    CurrentStateComputationStage stage = new CurrentStateComputationStage();
+    // Every result is compared with a full rebuild, and process() throws if they are different.
+    stage.setValidateIncrementalComputation(true);
+
+    runStage(event, new ReadClusterDataStage());
+    stage.process(event);
+    CurrentStateOutput output1 = event.getAttribute(AttributeName.CURRENT_STATE.name());
+    AssertJUnit.assertEquals(output1.getCurrentStateMap("TestDB0", new Partition("TestDB0_0"))
+        .size(), 3);
+
+    // Nothing changed, so the previous output is reused.
+    stage.process(event);
+    AssertJUnit.assertSame(event.getAttribute(AttributeName.CURRENT_STATE.name()), output1);
+
+    // Change the current state of one instance.
+    accessor.setProperty(keyBuilder.currentState(HOSTNAME_PREFIX + 1, SESSION_PREFIX + 1,
+        "TestDB0"), newCurrentState("TestDB0", SESSION_PREFIX + 1, "MASTER"));
+    runStage(event, new ReadClusterDataStage());
+    stage.process(event);
+    CurrentStateOutput output2 = event.getAttribute(AttributeName.CURRENT_STATE.name());
+    AssertJUnit.assertEquals(
+        output2.getCurrentState("TestDB0", new Partition("TestDB0_2"), HOSTNAME_PREFIX + 1),
+        "MASTER");
+    // The published output is not modified.
+    AssertJUnit.assertEquals(
+        output1.getCurrentState("TestDB0", new Partition("TestDB0_2"), HOSTNAME_PREFIX + 1),
+        "SLAVE");
+
+    // Add a pending message and remove a live instance.
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg1");
+    message.setFromState("SLAVE");
+    message.setToState("MASTER");
+    message.setResourceName("TestDB1");
+    message.setPartitionName("TestDB1_3");
+    message.setTgtName(HOSTNAME_PREFIX + 0);
+    message.setTgtSessionId(SESSION_PREFIX + 0);
+    accessor.setProperty(keyBuilder.message(HOSTNAME_PREFIX + 0, message.getId()), message);
+    accessor.removeProperty(keyBuilder.liveInstance(HOSTNAME_PREFIX + 2));
+    dataCache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
+    runStage(event, new ReadClusterDataStage());
+    stage.process(event);
+    CurrentStateOutput output3 = event.getAttribute(AttributeName.CURRENT_STATE.name());
+    AssertJUnit.assertEquals(
+        output3.getPendingMessage("TestDB1", new Partition("TestDB1_3"), HOSTNAME_PREFIX + 0)
+            .getToState(), "MASTER");
+    AssertJUnit.assertEquals(output3.getCurrentStateMap("TestDB1", new Partition("TestDB1_3"))
+        .size(), 2);
+
+    // Drop a resource.
+    resourceMap.remove("TestDB1");
+    stage.process(event);
+    CurrentStateOutput output4 = event.getAttribute(AttributeName.CURRENT_STATE.name());
+    AssertJUnit.assertTrue(output4.getCurrentStateMap("TestDB1").isEmpty());
+    AssertJUnit.assertTrue(output4.getPendingMessageMap("TestDB1").isEmpty());
+  }
+
+  @Test
+  public void testCopyExcludingResources() {
+    CurrentStateOutput output = new CurrentStateOutput();
+    output.setCurrentState("TestDB0", new Partition("TestDB0_0"), "localhost_0", "MASTER");
+    output.setCurrentState("TestDB1", new Partition("TestDB1_0"), "localhost_0", "SLAVE");
+    output.setBucketSize("TestDB1", 2);
+
+    CurrentStateOutput copy = output.copyExcluding(Collections.singleton("TestDB1"));
+    AssertJUnit.assertSame(copy.getCurrentStateMap("TestDB0"), output.getCurrentStateMap("TestDB0"));
+    AssertJUnit.assertTrue(copy.getCurrentStateMap("TestDB1").isEmpty());
+    AssertJUnit.assertEquals(copy.getBucketSize("TestDB1"), 0);
+
+    CurrentStateOutput source = new CurrentStateOutput();
+    source.setCurrentState("TestDB1", new Partition("TestDB1_0"), "localhost_1", "MASTER");
+    copy.mergeResources(source, Collections.singleton("TestDB1"));
+    AssertJUnit.assertEquals(
+        copy.getCurrentState("TestDB1", new Partition("TestDB1_0"), "localhost_1"), "MASTER");
+    AssertJUnit.assertNull(
+        output.getCurrentState("TestDB1", new Partition("TestDB1_0"), "localhost_1"));
+    AssertJUnit.assertEquals(output.getInconsistentResources(copy),
+        Collections.singleton("TestDB1"));
+  }
+
+  private CurrentState newCurrentState(String resource, String sessionId, String state) {
+    CurrentState currentState = new CurrentState(resource);
+    currentState.setSessionId(sessionId);
+    currentState.setStateModelDefRef("MasterSlave");
+    for (int p = 0; p < 4; p++) {
+      currentState.setState(resource + "_" + p, state);
+    }
+    return currentState;
+  }
 }
@@ -20,6 +20,8 @@ package org.apache.helix.controller.stages;
  */
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
@@ -30,6 +32,9 @@ import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.spectator.publisher.LocalRoutingSnapshotPublisher;
+import org.apache.helix.spectator.publisher.RoutingDataSnapshot;
+import org.apache.helix.spectator.publisher.RoutingSnapshotPublishers;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -87,4 +92,88 @@ public class TestExternalViewStage extends ZkUnitTestBase {
     deleteLiveInstances(clusterName);
     deleteCluster(clusterName);
   }
+
+  @Test
+  public void testPublishRoutingSnapshot() throws Exception {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    AtomicBoolean isLeader = new AtomicBoolean(true);
+    HelixManager manager = new DummyClusterManager(clusterName, accessor) {
+      @Override
+      public boolean isLeader() {
+        return isLeader.get();
+      }
+    };
+
+    setupIdealState(clusterName, new int[] {
+        0, 1
+    }, new String[] {
+        "TestDB"
+    }, 1, 2);
+    setupInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupLiveInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupStateModel(clusterName);
+
+    LocalRoutingSnapshotPublisher publisher = new LocalRoutingSnapshotPublisher(clusterName);
+    RoutingSnapshotPublishers.register(publisher);
+    try {
+      ClusterEvent event = new ClusterEvent(ClusterEventType.Unknown);
+      ResourceControllerDataProvider cache = new ResourceControllerDataProvider(clusterName);
+      event.addAttribute(AttributeName.helixmanager.name(), manager);
+      event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+
+      ExternalViewComputeStage externalViewComputeStage = new ExternalViewComputeStage();
+      Pipeline dataRefresh = new Pipeline();
+      dataRefresh.addStage(new ReadClusterDataStage());
+      runPipeline(event, dataRefresh, false);
+      runStage(event, new ResourceComputationStage());
+      runStage(event, new CurrentStateComputationStage());
+      runStage(event, externalViewComputeStage);
+
+      // The published ExternalViews are the ones written to ZK.
+      RoutingDataSnapshot snapshot = publisher.getLatestSnapshot();
+      Assert.assertNotNull(snapshot);
+      Assert.assertEquals(snapshot.getClusterName(), clusterName);
+      Assert.assertEquals(snapshot.getVersion(), 1L);
+      Map<String, ExternalView> externalViews = snapshot.getExternalViews();
+      Assert.assertEquals(externalViews.keySet(), cache.getExternalViews().keySet());
+      for (ExternalView externalView : accessor
+          .<ExternalView>getChildValues(accessor.keyBuilder().externalViews(), true)) {
+        Assert.assertEquals(externalViews.get(externalView.getResourceName()).getRecord(),
+            externalView.getRecord());
+      }
+      Assert.assertEquals(snapshot.getInstanceConfigs().size(), 2);
+      Assert.assertEquals(snapshot.getLiveInstances().keySet(),
+          snapshot.getInstanceConfigs().keySet());
+
+      // Nothing changed, so no new snapshot is published.
+      runStage(event, externalViewComputeStage);
+      Assert.assertSame(publisher.getLatestSnapshot(), snapshot);
+
+      // After the leadership loss, the invalidated snapshot is not published again.
+      isLeader.set(false);
+      publisher.invalidate();
+      runStage(event, externalViewComputeStage);
+      Assert.assertNull(publisher.getLatestSnapshot());
+
+      // The new leader publishes the same data as a new version.
+      isLeader.set(true);
+      runStage(event, externalViewComputeStage);
+      Assert.assertEquals(publisher.getLatestSnapshot().getVersion(), 2L);
+    } finally {
+      RoutingSnapshotPublishers.unregister(clusterName);
+    }
+
+    if (manager.isConnected()) {
+      manager.disconnect(); // For DummyClusterManager, this is not necessary
+    }
+    deleteLiveInstances(clusterName);
+    deleteCluster(clusterName);
+  }
 }
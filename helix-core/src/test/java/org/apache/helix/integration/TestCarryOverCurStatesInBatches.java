@@ -0,0 +1,109 @@
+package org.apache.helix.integration;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+import java.util.Set;
+import javax.management.ObjectName;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.manager.zk.ParticipantManager;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.monitoring.mbeans.CurrentStateCarryOverMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCarryOverCurStatesInBatches extends ZkTestBase {
+  private static final int NUM_RESOURCES = 30;
+  private static final int NUM_PARTITIONS = 5;
+
+  @Test
+  public void testCarryOverCurStatesInBatches() throws Exception {
+    System.out.println(
+        "START testCarryOverCurStatesInBatches at " + new Date(System.currentTimeMillis()));
+
+    String clusterName = getShortClassName();
+    String instanceName = "localhost_12918";
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addInstanceToCluster(clusterName, instanceName);
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseAccessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    // current states of a previous session
+    for (int i = 0; i < NUM_RESOURCES; i++) {
+      String resource = "TestDB" + i;
+      CurrentState curState = new CurrentState(resource);
+      curState.setSessionId("session_0");
+      curState.setStateModelDefRef("MasterSlave");
+      for (int j = 0; j < NUM_PARTITIONS; j++) {
+        curState.setState(resource + "_" + j, j == 0 ? "MASTER" : "SLAVE");
+      }
+      Assert.assertTrue(accessor.setProperty(
+          keyBuilder.currentState(instanceName, "session_0", resource), curState));
+    }
+    // the current session already reports the state of a partition
+    CurrentState existingCurState = new CurrentState("TestDB0");
+    existingCurState.setSessionId("session_1");
+    existingCurState.setStateModelDefRef("MasterSlave");
+    existingCurState.setState("TestDB0_0", "SLAVE");
+    Assert.assertTrue(accessor.setProperty(
+        keyBuilder.currentState(instanceName, "session_1", "TestDB0"), existingCurState));
+
+    ParticipantStatusMonitor monitor = new ParticipantStatusMonitor(true, instanceName);
+    try {
+      ParticipantManager.carryOverPreviousCurrentState(accessor, instanceName, "session_1", null,
+          true, monitor);
+
+      for (int i = 0; i < NUM_RESOURCES; i++) {
+        String resource = "TestDB" + i;
+        CurrentState curState =
+            accessor.getProperty(keyBuilder.currentState(instanceName, "session_1", resource));
+        Assert.assertNotNull(curState);
+        Assert.assertEquals(curState.getPartitionStateMap().size(), NUM_PARTITIONS);
+        for (int j = 0; j < NUM_PARTITIONS; j++) {
+          String expectedState = i == 0 && j == 0 ? "SLAVE" : "OFFLINE";
+          Assert.assertEquals(curState.getState(resource + "_" + j), expectedState);
+        }
+      }
+      Assert.assertNull(accessor.getProperty(keyBuilder.currentStates(instanceName, "session_0")));
+
+      Set<ObjectName> objectNames = _server.queryNames(new ObjectName(String.format(
+          "%s:%s=%s,MonitorType=%s,*", MonitorDomainNames.CLMParticipantReport.name(),
+          ParticipantStatusMonitor.PARTICIPANT_KEY, instanceName,
+          CurrentStateCarryOverMonitor.class.getSimpleName())), null);
+      Assert.assertEquals(objectNames.size(), 1);
+      ObjectName objectName = objectNames.iterator().next();
+      Assert.assertEquals(_server.getAttribute(objectName, "TotalCarryOverCount"), 1L);
+      Assert.assertEquals(_server.getAttribute(objectName, "TotalCarriedOverCurrentStates"),
+          (long) NUM_RESOURCES);
+    } finally {
+      monitor.shutDown();
+    }
+
+    deleteCluster(clusterName);
+    System.out.println(
+        "END testCarryOverCurStatesInBatches at " + new Date(System.currentTimeMillis()));
+  }
+}
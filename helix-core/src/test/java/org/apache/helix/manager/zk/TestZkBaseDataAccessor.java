@@ -721,6 +721,63 @@ public class TestZkBaseDataAccessor extends ZkUnitTestBase {
 
   }
 
+  @Test
+  public void testCreateChildrenInBatches() {
+    String root = _rootPath;
+    _gZkClient.deleteRecursively("/" + root);
+
+    ZkBaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(_gZkClient);
+
+    // The parent paths do not exist yet, so the transactions fail and fall back to async create.
+    List<ZNRecord> records = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String msgId = "msg_" + i;
+      String instance = "host_" + (i % 2);
+      paths.add(PropertyPathBuilder.instanceMessage(root, instance, msgId));
+      records.add(new ZNRecord(msgId));
+    }
+    List<Integer> batchSizes = new ArrayList<>();
+    boolean[] success = accessor
+        .createChildrenInBatches(paths, records, AccessOption.PERSISTENT, 3, 2, batchSizes);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(success[i], "Should succeed in create " + paths.get(i));
+    }
+    // 2 transactions of each parent are submitted, and all the 10 children fall back.
+    Assert.assertEquals(batchSizes, Arrays.asList(3, 2, 3, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+
+    // The parent paths exist now, so the children are created in transactions.
+    records = new ArrayList<>();
+    paths = new ArrayList<>();
+    for (int i = 10; i < 20; i++) {
+      String msgId = "msg_" + i;
+      String instance = "host_" + (i % 2);
+      paths.add(PropertyPathBuilder.instanceMessage(root, instance, msgId));
+      records.add(new ZNRecord(msgId));
+    }
+    // msg_11 exists, so the transaction including it fails, and only msg_11 should be reported
+    // as failed.
+    _gZkClient.createPersistent(paths.get(1), new ZNRecord("msg_11"));
+    batchSizes.clear();
+    success = accessor
+        .createChildrenInBatches(paths, records, AccessOption.PERSISTENT, 3, 2, batchSizes);
+    // Only the 3 children of the failed transaction fall back.
+    Assert.assertEquals(batchSizes, Arrays.asList(3, 2, 3, 2, 1, 1, 1));
+    for (int i = 0; i < 10; i++) {
+      if (i == 1) {
+        Assert.assertFalse(success[i], "Should fail to create existing " + paths.get(i));
+      } else {
+        Assert.assertTrue(success[i], "Should succeed in create " + paths.get(i));
+      }
+      ZNRecord record = _gZkClient.readData(paths.get(i));
+      Assert.assertEquals(record.getId(), records.get(i).getId());
+    }
+    Assert.assertEquals(
+        _gZkClient.getChildren(PropertyPathBuilder.instanceMessage(root, "host_0")).size(), 10);
+    Assert.assertEquals(
+        _gZkClient.getChildren(PropertyPathBuilder.instanceMessage(root, "host_1")).size(), 10);
+  }
+
   @Test
   public void testAsyncZkBaseDataAccessor() {
     System.out.println(
@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
@@ -46,6 +47,7 @@ import org.apache.helix.PropertyType;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.api.exceptions.HelixConflictException;
+import org.apache.helix.api.status.BulkOperationResult;
 import org.apache.helix.api.status.ClusterManagementMode;
 import org.apache.helix.api.status.ClusterManagementModeRequest;
 import org.apache.helix.api.topology.ClusterTopology;
@@ -67,6 +69,7 @@ import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.IdealState.RebalanceMode;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.MasterSlaveSMD;
@@ -93,7 +96,7 @@ import org.testng.annotations.Test;
 public class TestZkHelixAdmin extends ZkUnitTestBase {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
-  @BeforeClass
+  @BeforeClass(alwaysRun = true)
   public void beforeClass() {
   }
 
@@ -454,6 +457,161 @@ public class TestZkHelixAdmin extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testBulkOperations() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    int numInstances = 50;
+    int numResources = 100;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    HelixAdmin tool = new ZKHelixAdmin(_gZkClient);
+    tool.addCluster(clusterName, true);
+    tool.addStateModelDef(clusterName, "MasterSlave",
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForMasterSlave()));
+
+    // Added one by one before the bulk operations
+    tool.addInstance(clusterName, new InstanceConfig("serial_0"));
+    tool.addResource(clusterName, "serial-db-0", createIdealState("serial-db-0", "MasterSlave"));
+
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < numInstances; i++) {
+      instanceConfigs.add(new InstanceConfig("bulk_" + i));
+    }
+    // Already added
+    instanceConfigs.add(new InstanceConfig("serial_0"));
+    List<IdealState> idealStates = new ArrayList<>();
+    for (int i = 0; i < numResources; i++) {
+      String resourceName = "bulk-db-" + i;
+      idealStates.add(createIdealState(resourceName, "MasterSlave"));
+    }
+    // Unknown state model and already added
+    idealStates.add(createIdealState("unknown-db", "UnknownStateModel"));
+    idealStates.add(createIdealState("serial-db-0", "MasterSlave"));
+
+    Map<String, BulkOperationResult> instanceResults =
+        tool.addInstances(clusterName, instanceConfigs);
+    Map<String, BulkOperationResult> resourceResults = tool.addResources(clusterName, idealStates);
+    Assert.assertEquals(instanceResults.size(), numInstances + 1);
+    Assert.assertEquals(resourceResults.size(), numResources + 2);
+
+    // The results are in the order of the input.
+    Assert.assertEquals(new ArrayList<>(instanceResults.keySet()),
+        instanceConfigs.stream().map(InstanceConfig::getInstanceName)
+            .collect(Collectors.toList()));
+    Assert.assertFalse(instanceResults.get("serial_0").isSucceeded());
+    Assert.assertFalse(resourceResults.get("unknown-db").isSucceeded());
+    Assert.assertFalse(resourceResults.get("serial-db-0").isSucceeded());
+
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    for (int i = 0; i < numInstances; i++) {
+      String instanceName = "bulk_" + i;
+      Assert.assertTrue(instanceResults.get(instanceName).isSucceeded());
+      Assert.assertNotNull(tool.getInstanceConfig(clusterName, instanceName));
+      Assert.assertTrue(
+          _gZkClient.exists(PropertyPathBuilder.instanceMessage(clusterName, instanceName)));
+      Assert.assertTrue(_gZkClient
+          .exists(PropertyPathBuilder.instanceCurrentState(clusterName, instanceName)));
+      Assert.assertNotNull(accessor.getProperty(keyBuilder.participantHistory(instanceName)));
+    }
+    for (int i = 0; i < numResources; i++) {
+      String resourceName = "bulk-db-" + i;
+      Assert.assertTrue(resourceResults.get(resourceName).isSucceeded());
+      Assert.assertEquals(tool.getResourceIdealState(clusterName, resourceName).getRecord(),
+          idealStates.get(i).getRecord());
+    }
+    Assert.assertNull(tool.getResourceIdealState(clusterName, "unknown-db"));
+    Assert.assertEquals(tool.getInstancesInCluster(clusterName).size(), numInstances + 1);
+    Assert.assertEquals(tool.getResourcesInCluster(clusterName).size(), numResources + 1);
+
+    List<String> instanceNames = new ArrayList<>();
+    for (int i = 0; i < numInstances; i++) {
+      instanceNames.add("bulk_" + i);
+    }
+    instanceNames.add("nonexistent_instance");
+    Map<String, BulkOperationResult> operationResults = tool.setInstanceOperations(clusterName,
+        instanceNames, InstanceConstants.InstanceOperation.EVACUATE, "bulk evacuation");
+    Assert.assertFalse(operationResults.get("nonexistent_instance").isSucceeded());
+    for (int i = 0; i < numInstances; i++) {
+      String instanceName = "bulk_" + i;
+      Assert.assertTrue(operationResults.get(instanceName).isSucceeded());
+      Assert.assertEquals(
+          tool.getInstanceConfig(clusterName, instanceName).getInstanceOperation().getOperation(),
+          InstanceConstants.InstanceOperation.EVACUATE);
+    }
+    Assert.assertEquals(
+        tool.getInstanceConfig(clusterName, "serial_0").getInstanceOperation().getOperation(),
+        InstanceConstants.InstanceOperation.ENABLE);
+
+    tool.dropCluster(clusterName);
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test(groups = "benchmark")
+  public void testBulkOperationsBenchmark() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    int numInstances = 200;
+    int numResources = 500;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    HelixAdmin tool = new ZKHelixAdmin(_gZkClient);
+    tool.addCluster(clusterName, true);
+    tool.addStateModelDef(clusterName, "MasterSlave",
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForMasterSlave()));
+
+    // Bootstrap the same number of instances and resources one by one and in bulk.
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numInstances; i++) {
+      tool.addInstance(clusterName, new InstanceConfig("serial_" + i));
+    }
+    for (int i = 0; i < numResources; i++) {
+      String resourceName = "serial-db-" + i;
+      tool.addResource(clusterName, resourceName, createIdealState(resourceName, "MasterSlave"));
+    }
+    long serialElapsedMs = System.currentTimeMillis() - startTime;
+
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < numInstances; i++) {
+      instanceConfigs.add(new InstanceConfig("bulk_" + i));
+    }
+    List<IdealState> idealStates = new ArrayList<>();
+    for (int i = 0; i < numResources; i++) {
+      idealStates.add(createIdealState("bulk-db-" + i, "MasterSlave"));
+    }
+    startTime = System.currentTimeMillis();
+    Map<String, BulkOperationResult> instanceResults =
+        tool.addInstances(clusterName, instanceConfigs);
+    Map<String, BulkOperationResult> resourceResults = tool.addResources(clusterName, idealStates);
+    long bulkElapsedMs = System.currentTimeMillis() - startTime;
+    System.out.println(String.format(
+        "Bootstrapped %d instances and %d resources: %d ms one by one, %d ms in bulk",
+        numInstances, numResources, serialElapsedMs, bulkElapsedMs));
+
+    Assert.assertTrue(instanceResults.values().stream().allMatch(BulkOperationResult::isSucceeded));
+    Assert.assertTrue(resourceResults.values().stream().allMatch(BulkOperationResult::isSucceeded));
+    Assert.assertEquals(tool.getInstancesInCluster(clusterName).size(), 2 * numInstances);
+    Assert.assertEquals(tool.getResourcesInCluster(clusterName).size(), 2 * numResources);
+
+    tool.dropCluster(clusterName);
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  private static IdealState createIdealState(String resourceName, String stateModelRef) {
+    IdealState idealState = new IdealState(resourceName);
+    idealState.setNumPartitions(4);
+    idealState.setStateModelDefRef(stateModelRef);
+    idealState.setRebalanceMode(RebalanceMode.SEMI_AUTO);
+    idealState.setReplicas("0");
+    return idealState;
+  }
+
   // test add/remove message constraint
   @Test
   public void testAddRemoveMsgConstraint() {
@@ -0,0 +1,232 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.helix.Criteria;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixException;
+import org.apache.helix.InstanceType;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.NotificationContext;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.api.listeners.ExternalViewChangeListener;
+import org.apache.helix.api.listeners.LiveInstanceChangeListener;
+import org.apache.helix.mock.MockManager;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.LiveInstance.LiveInstanceProperty;
+import org.apache.helix.tools.DefaultIdealStateCalculator;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestIndexedCriteriaEvaluator {
+  /**
+   * A manager that delivers the data in its accessor to the listeners once they are added, and on
+   * every call of notifyListeners().
+   */
+  class MockIndexManager extends MockManager {
+    private final List<ExternalViewChangeListener> _externalViewListeners = new ArrayList<>();
+    private final List<LiveInstanceChangeListener> _liveInstanceListeners = new ArrayList<>();
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    @Override
+    public void addExternalViewChangeListener(ExternalViewChangeListener listener) {
+      _externalViewListeners.add(listener);
+      notifyListeners(NotificationContext.Type.INIT);
+    }
+
+    @Override
+    public void addLiveInstanceChangeListener(LiveInstanceChangeListener listener) {
+      _liveInstanceListeners.add(listener);
+      notifyListeners(NotificationContext.Type.INIT);
+    }
+
+    void notifyListeners(NotificationContext.Type type) {
+      NotificationContext context = new NotificationContext(this);
+      context.setType(type);
+      HelixDataAccessor accessor = getHelixDataAccessor();
+      PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+      List<ExternalView> externalViews =
+          accessor.getChildValues(keyBuilder.externalViews(), false);
+      for (ExternalViewChangeListener listener : _externalViewListeners) {
+        listener.onExternalViewChange(externalViews, context);
+      }
+      List<LiveInstance> liveInstances =
+          accessor.getChildValues(keyBuilder.liveInstances(), false);
+      for (LiveInstanceChangeListener listener : _liveInstanceListeners) {
+        listener.onLiveInstanceChange(liveInstances, context);
+      }
+      if (type == NotificationContext.Type.FINALIZE) {
+        _externalViewListeners.clear();
+        _liveInstanceListeners.clear();
+      }
+    }
+  }
+
+  @Test
+  public void testIndexMatchesScan() {
+    MockIndexManager manager = new MockIndexManager();
+    HelixDataAccessor accessor = manager.getHelixDataAccessor();
+    setupCluster(accessor);
+
+    IndexedCriteriaEvaluator indexedEvaluator = new IndexedCriteriaEvaluator(manager);
+    CriteriaEvaluator scanEvaluator = new CriteriaEvaluator();
+    List<Criteria> criteriaList = new ArrayList<>();
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "DB", "%", "MASTER"));
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "%", "db_1%", "slave"));
+    criteriaList
+        .add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "localhost_1291_", "%", "", ""));
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "localhost_12918", "TestDB",
+        "TestDB_%", "%"));
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "", "TestDB", "%", ""));
+    // The instance pattern matching the resource name selects all the instances of the resource.
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "Test%", "%", "%", "%"));
+    criteriaList.add(createCriteria(Criteria.DataSource.EXTERNALVIEW, "*", "", "", ""));
+    criteriaList.add(createCriteria(Criteria.DataSource.LIVEINSTANCES, "%", "", "", ""));
+    criteriaList.add(createCriteria(Criteria.DataSource.LIVEINSTANCES, "localhost_12918", "%", "",
+        ""));
+    criteriaList.add(createCriteria(Criteria.DataSource.LIVEINSTANCES, "%", "%", "%", "MASTER"));
+
+    for (Criteria criteria : criteriaList) {
+      List<Map<String, String>> expected = scanEvaluator.evaluateCriteria(criteria, accessor);
+      List<Map<String, String>> result = indexedEvaluator.evaluateCriteria(criteria, accessor);
+      Assert.assertEquals(result.size(), expected.size(), criteria.toString());
+      Assert.assertEquals(new HashSet<>(result), new HashSet<>(expected), criteria.toString());
+    }
+    Assert.assertEquals(indexedEvaluator.getIndexHitCount(), criteriaList.size());
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 0);
+    Assert.assertEquals(indexedEvaluator.getLiveInstances().size(), 4);
+  }
+
+  @Test
+  public void testFallback() {
+    MockIndexManager manager = new MockIndexManager();
+    HelixDataAccessor accessor = manager.getHelixDataAccessor();
+    setupCluster(accessor);
+    IndexedCriteriaEvaluator indexedEvaluator = new IndexedCriteriaEvaluator(manager);
+
+    // A resource that is not in the index is read from the cluster.
+    try {
+      indexedEvaluator.evaluateCriteria(
+          createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "UnknownDB", "%", ""), accessor);
+      Assert.fail("The evaluation should fail since the external view does not exist");
+    } catch (HelixException expected) {
+      // expected
+    }
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 1);
+
+    // The ideal states are not indexed.
+    Criteria idealStateCriteria =
+        createCriteria(Criteria.DataSource.IDEALSTATES, "%", "%", "%", "");
+    indexedEvaluator.evaluateCriteria(idealStateCriteria, accessor);
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 2);
+
+    // The criteria on another cluster is evaluated with the scan.
+    Criteria criteria = createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "%", "%", "");
+    MockAccessor otherAccessor = new MockAccessor("otherCluster");
+    setupCluster(otherAccessor);
+    Assert.assertEquals(indexedEvaluator.evaluateCriteria(criteria, otherAccessor).size(),
+        new CriteriaEvaluator().evaluateCriteria(criteria, otherAccessor).size());
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 3);
+    Assert.assertEquals(indexedEvaluator.getIndexHitCount(), 0);
+  }
+
+  @Test
+  public void testIndexUpdate() {
+    MockIndexManager manager = new MockIndexManager();
+    HelixDataAccessor accessor = manager.getHelixDataAccessor();
+    setupCluster(accessor);
+    IndexedCriteriaEvaluator indexedEvaluator = new IndexedCriteriaEvaluator(manager);
+    Criteria criteria = createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "", "", "");
+    Assert.assertEquals(indexedEvaluator.evaluateCriteria(criteria, accessor).size(), 4);
+
+    // A new live instance is visible once the listener is notified.
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    accessor.setProperty(keyBuilder.liveInstance("localhost_12922"),
+        createLiveInstance("localhost_12922"));
+    Assert.assertEquals(indexedEvaluator.evaluateCriteria(criteria, accessor).size(), 4);
+    manager.notifyListeners(NotificationContext.Type.CALLBACK);
+    Assert.assertEquals(indexedEvaluator.evaluateCriteria(criteria, accessor).size(), 5);
+
+    // The removed external view is no longer selected.
+    accessor.removeProperty(keyBuilder.externalView("TestDB"));
+    manager.notifyListeners(NotificationContext.Type.CALLBACK);
+    criteria = createCriteria(Criteria.DataSource.EXTERNALVIEW, "%", "%", "%", "");
+    Assert.assertEquals(new HashSet<>(indexedEvaluator.evaluateCriteria(criteria, accessor)),
+        new HashSet<>(new CriteriaEvaluator().evaluateCriteria(criteria, accessor)));
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 0);
+
+    // The listeners are registered again after they are removed.
+    manager.notifyListeners(NotificationContext.Type.FINALIZE);
+    Assert.assertNull(indexedEvaluator.getLiveInstances());
+    indexedEvaluator.evaluateCriteria(criteria, accessor);
+    Assert.assertEquals(indexedEvaluator.getLiveInstances().size(), 5);
+    Assert.assertEquals(indexedEvaluator.getFallbackCount(), 0);
+  }
+
+  private void setupCluster(HelixDataAccessor accessor) {
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      instances.add("localhost_" + (12918 + i));
+    }
+    for (String resource : new String[] { "DB", "TestDB" }) {
+      ZNRecord record = DefaultIdealStateCalculator.calculateIdealState(instances, 20, 2, resource,
+          "MASTER", "SLAVE");
+      accessor.setProperty(keyBuilder.externalView(resource), new ExternalView(record));
+      accessor.setProperty(keyBuilder.idealStates(resource), new IdealState(record));
+    }
+    // The last instance is not alive.
+    for (String instance : instances.subList(0, 4)) {
+      accessor.setProperty(keyBuilder.liveInstance(instance), createLiveInstance(instance));
+    }
+  }
+
+  private LiveInstance createLiveInstance(String instance) {
+    LiveInstance liveInstance = new LiveInstance(instance);
+    liveInstance.getRecord().setSimpleField(LiveInstanceProperty.SESSION_ID.toString(),
+        UUID.randomUUID().toString());
+    return liveInstance;
+  }
+
+  private Criteria createCriteria(Criteria.DataSource dataSource, String instanceName,
+      String resourceName, String partitionName, String partitionState) {
+    Criteria criteria = new Criteria();
+    criteria.setRecipientInstanceType(InstanceType.PARTICIPANT);
+    criteria.setDataSource(dataSource);
+    criteria.setInstanceName(instanceName);
+    criteria.setResource(resourceName);
+    criteria.setPartition(partitionName);
+    criteria.setPartitionState(partitionState);
+    return criteria;
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.helix.messaging.handling;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -35,6 +36,9 @@ import com.google.common.collect.ImmutableList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
@@ -53,6 +57,9 @@ import org.apache.helix.mock.statemodel.MockMasterSlaveStateModel;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageState;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.apache.helix.participant.HelixStateMachineEngine;
 import org.apache.helix.participant.StateMachineEngine;
 import org.apache.helix.participant.statemachine.StateModel;
@@ -893,6 +900,53 @@ public class TestHelixTaskExecutor {
     System.out.println("END " + TestHelper.getTestMethodName());
   }
 
+  @Test()
+  public void testMessageTimeoutMetrics() throws Exception {
+    System.out.println("START " + TestHelper.getTestMethodName());
+    String instanceName = "localhost_" + TestHelper.getTestMethodName();
+    HelixTaskExecutor executor =
+        new HelixTaskExecutor(new ParticipantStatusMonitor(true, instanceName));
+    HelixManager manager = new MockClusterManager();
+
+    CancellableHandlerFactory factory = new CancellableHandlerFactory();
+    for (String type : factory.getMessageTypes()) {
+      executor.registerMessageHandlerFactory(type, factory);
+    }
+    NotificationContext changeContext = new NotificationContext(manager);
+
+    // The handler takes 1.5 seconds, so the first 2 timeouts fire and the other 2 are canceled.
+    List<Message> msgList = new ArrayList<Message>();
+    int nMsgs = 4;
+    for (int i = 0; i < nMsgs; i++) {
+      Message msg = new Message(factory.getMessageTypes().get(0), UUID.randomUUID().toString());
+      msg.setTgtSessionId("*");
+      msg.setTgtName("Localhost_1123");
+      msg.setSrcName("127.101.1.23_2234");
+      msg.setExecutionTimeout((i + 1) * 600);
+      msgList.add(msg);
+    }
+    changeContext.setChangeType(HelixConstants.ChangeType.MESSAGE);
+    executor.onMessage("someInstance", msgList, changeContext);
+
+    ObjectName messageMonitorName = new ObjectName(String
+        .format("%s:%s=%s,MonitorType=%s", MonitorDomainNames.CLMParticipantReport.name(),
+            ParticipantStatusMonitor.PARTICIPANT_KEY, instanceName,
+            ParticipantMessageMonitor.class.getSimpleName()));
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      Assert.assertTrue(TestHelper.verify(
+          () -> executor._taskMap.isEmpty() && factory._timedOutMsgIds.size() == 2, 10000L));
+      Assert.assertEquals(beanServer.getAttribute(messageMonitorName, "FiredMessageTimeouts"),
+          2L);
+      // Each timeout is counted down exactly once, whether it fires or is canceled.
+      Assert.assertEquals(
+          beanServer.getAttribute(messageMonitorName, "OutstandingMessageTimeouts"), 0L);
+    } finally {
+      executor.shutdown();
+    }
+    System.out.println("END " + TestHelper.getTestMethodName());
+  }
+
   @Test()
   public void testRetryOnce() throws InterruptedException {
     System.out.println("START " + TestHelper.getTestMethodName());
@@ -926,6 +980,8 @@ public class TestHelixTaskExecutor {
     AssertJUnit.assertTrue(msgList.get(1).getRecord().getSimpleField("Cancelcount").equals("1"));
     AssertJUnit.assertEquals(factory._timedOutMsgIds.size(), 2);
     AssertJUnit.assertTrue(executor._taskMap.size() == 0);
+    // The timeouts of the finished messages are removed from the scheduler.
+    AssertJUnit.assertEquals(executor._timeoutScheduler.getPendingTaskCount(), 0);
     System.out.println("END " + TestHelper.getTestMethodName());
   }
 
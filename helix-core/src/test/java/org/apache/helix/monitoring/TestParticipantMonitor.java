@@ -238,6 +238,23 @@ public class TestParticipantMonitor {
     Assert.assertEquals(monitorListener._beanValueMap.get(
         getObjectName("ParticipantName=participant_0,MonitorType=ParticipantMessageMonitor")
             .toString()).get("PendingMessages"), 0L);
+    monitorListener.disconnect();
+
+    // One message timeout is canceled and the other one fires.
+    monitor.reportMessageTimeoutScheduled();
+    monitor.reportMessageTimeoutScheduled();
+    monitor.reportMessageTimeoutCanceled();
+    monitor.reportMessageTimeoutFired();
+    Thread.sleep(1000);
+    monitorListener =
+        new ParticipantMonitorListener(DOMAIN_NAME, "ParticipantName", PARTICIPANT_NAME);
+    Thread.sleep(1000);
+    Assert.assertEquals(monitorListener._beanValueMap.get(
+        getObjectName("ParticipantName=participant_0,MonitorType=ParticipantMessageMonitor")
+            .toString()).get("OutstandingMessageTimeouts"), 0L);
+    Assert.assertEquals(monitorListener._beanValueMap.get(
+        getObjectName("ParticipantName=participant_0,MonitorType=ParticipantMessageMonitor")
+            .toString()).get("FiredMessageTimeouts"), 1L);
 
     monitorListener.disconnect();
 
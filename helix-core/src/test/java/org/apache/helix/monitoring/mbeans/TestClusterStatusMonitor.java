@@ -117,6 +117,7 @@ public class TestClusterStatusMonitor {
 
     monitor.setPerInstanceResourceStatus(bestPossibleStates, instanceConfigMap, resourceMap,
         stateModelDefMap);
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
 
     // localhost_12918 should have 1 partition because it's MASTER
     ObjectName objName =
@@ -156,6 +157,7 @@ public class TestClusterStatusMonitor {
         "localhost_12918");
     monitor.setPerInstanceResourceStatus(bestPossibleStates, instanceConfigMap, resourceMap,
         stateModelDefMap);
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
 
     objName =
         monitor.getObjectName(monitor.getPerInstanceResourceBeanName("localhost_12918", testDB));
@@ -226,6 +228,7 @@ public class TestClusterStatusMonitor {
 
     monitor.setClusterInstanceStatus(liveInstanceSet, liveInstanceSet, Collections.emptySet(),
         Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), instanceMessageMap);
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
 
     Assert.assertEquals(monitor.getInstanceMessageQueueBacklog(), 25 * n);
     Assert.assertEquals(monitor.getTotalPastDueMessageGauge(), 15 * n);
@@ -406,10 +409,151 @@ public class TestClusterStatusMonitor {
         "Failed to unregister ClusterStatusMonitor.");
   }
 
+  @Test
+  public void testSkipUnchangedResourceState() throws JMException {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName);
+    monitor.active();
+
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      instances.add("localhost_" + (12918 + i));
+    }
+    ZNRecord idealStateRecord = DefaultIdealStateCalculator
+        .calculateIdealState(instances, 4, 2, testDB, "MASTER", "SLAVE");
+    IdealState idealState = new IdealState(TestResourceMonitor.deepCopyZNRecord(idealStateRecord));
+    ExternalView externalView =
+        new ExternalView(TestResourceMonitor.deepCopyZNRecord(idealStateRecord));
+    StateModelDefinition stateModelDef =
+        BuiltInStateModelDefinitions.MasterSlave.getStateModelDefinition();
+    Map<Partition, Map<String, String>> bestPossibleStateMap = new HashMap<>();
+    for (String partition : idealState.getPartitionSet()) {
+      bestPossibleStateMap.put(new Partition(partition),
+          new HashMap<>(idealState.getInstanceStateMap(partition)));
+    }
+
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, bestPossibleStateMap, 1));
+    Assert.assertEquals(monitor.getTotalPartitionGauge(), 4);
+    Assert.assertEquals(monitor.getMissingTopStatePartitionGauge(), 0);
+
+    // The same inputs of the same data change version do not update the monitor again.
+    Assert.assertFalse(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, new HashMap<>(bestPossibleStateMap), 1));
+
+    // A best possible change without any data change, such as the expiry of a rebalance delay, is
+    // evaluated.
+    Map<Partition, Map<String, String>> changedStateMap = new HashMap<>(bestPossibleStateMap);
+    Partition changedPartition = changedStateMap.keySet().iterator().next();
+    changedStateMap.put(changedPartition, Collections.singletonMap(instances.get(0), "SLAVE"));
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, changedStateMap, 1));
+    Assert.assertFalse(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, changedStateMap, 1));
+
+    // A new data change version is evaluated, and so is an unknown version.
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, bestPossibleStateMap, 2));
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, bestPossibleStateMap, -1));
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, bestPossibleStateMap, -1));
+
+    // A new external view is evaluated.
+    ZNRecord externalViewRecord = TestResourceMonitor.deepCopyZNRecord(idealStateRecord);
+    String partition = externalViewRecord.getMapFields().keySet().iterator().next();
+    for (Map.Entry<String, String> entry : externalViewRecord.getMapField(partition).entrySet()) {
+      entry.setValue("SLAVE");
+    }
+    Assert.assertTrue(monitor.setResourceState(testDB, new ExternalView(externalViewRecord),
+        idealState, stateModelDef, null, bestPossibleStateMap, 2));
+    Assert.assertEquals(monitor.getMissingTopStatePartitionGauge(), 1);
+
+    // A resource registered again after being removed is not skipped.
+    monitor.setResourceState(testDB, externalView, idealState, stateModelDef, null,
+        bestPossibleStateMap, 2);
+    monitor.retainResourceMonitor(Collections.emptySet());
+    Assert.assertTrue(monitor.setResourceState(testDB, externalView, idealState, stateModelDef,
+        null, bestPossibleStateMap, 2));
+    Assert.assertEquals(monitor.getTotalResourceGauge(), 1);
+
+    monitor.reset();
+  }
+
+  @Test
+  public void testSkipUnchangedPerInstanceResourceStatus() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName);
+    monitor.active();
+
+    BestPossibleStateOutput bestPossibleStates = new BestPossibleStateOutput();
+    bestPossibleStates.setState(testDB, new Partition(testDB_0), "localhost_12918", "MASTER");
+    bestPossibleStates.setState(testDB, new Partition(testDB_0), "localhost_12919", "SLAVE");
+    Map<String, InstanceConfig> instanceConfigMap = Maps.newHashMap();
+    instanceConfigMap.put("localhost_12918", new InstanceConfig("localhost_12918"));
+    instanceConfigMap.put("localhost_12919", new InstanceConfig("localhost_12919"));
+    Map<String, Resource> resourceMap = Maps.newHashMap();
+    Resource db = new Resource(testDB);
+    db.setStateModelDefRef("MasterSlave");
+    db.addPartition(testDB_0);
+    resourceMap.put(testDB, db);
+    Map<String, StateModelDefinition> stateModelDefMap = Maps.newHashMap();
+    stateModelDefMap.put("MasterSlave",
+        BuiltInStateModelDefinitions.MasterSlave.getStateModelDefinition());
+
+    Assert.assertTrue(monitor.setPerInstanceResourceStatus(bestPossibleStates,
+        instanceConfigMap, resourceMap, stateModelDefMap, 1));
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
+    ObjectName objName =
+        monitor.getObjectName(monitor.getPerInstanceResourceBeanName("localhost_12918", testDB));
+    Assert.assertTrue(_server.isRegistered(objName));
+    Assert.assertEquals(_server.getAttribute(objName, "PartitionGauge"), 1L);
+
+    // The same data change version skips the update, and the beans stay registered.
+    InstanceConfig taggedConfig = new InstanceConfig("localhost_12918");
+    taggedConfig.addTag("testTag");
+    instanceConfigMap.put("localhost_12918", taggedConfig);
+    Assert.assertFalse(monitor.setPerInstanceResourceStatus(bestPossibleStates,
+        instanceConfigMap, resourceMap, stateModelDefMap, 1));
+    Assert.assertTrue(_server.isRegistered(objName));
+    Assert.assertEquals(_server.getAttribute(objName, "SensorName"), String
+        .format("%s.%s.%s.%s.%s", ClusterStatusMonitor.PARTICIPANT_STATUS_KEY, clusterName,
+            ClusterStatusMonitor.DEFAULT_TAG, "localhost_12918", testDB));
+
+    // A new data change version updates the tags of the bean.
+    Assert.assertTrue(monitor.setPerInstanceResourceStatus(bestPossibleStates,
+        instanceConfigMap, resourceMap, stateModelDefMap, 2));
+    Assert.assertEquals(_server.getAttribute(objName, "SensorName"), String
+        .format("%s.%s.%s.%s.%s", ClusterStatusMonitor.PARTICIPANT_STATUS_KEY, clusterName,
+            "testTag", "localhost_12918", testDB));
+
+    // A best possible change without any data change, such as the expiry of a rebalance delay,
+    // updates the beans.
+    bestPossibleStates.setState(testDB, new Partition(testDB_0), "localhost_12918", "OFFLINE");
+    Assert.assertTrue(monitor.setPerInstanceResourceStatus(bestPossibleStates,
+        instanceConfigMap, resourceMap, stateModelDefMap, 2));
+    Assert.assertEquals(_server.getAttribute(objName, "PartitionGauge"), 0L);
+
+    // The update without a data change version is never skipped.
+    bestPossibleStates.setState(testDB, new Partition(testDB_0), "localhost_12918", "MASTER");
+    monitor.setPerInstanceResourceStatus(bestPossibleStates, instanceConfigMap, resourceMap,
+        stateModelDefMap);
+    Assert.assertEquals(_server.getAttribute(objName, "PartitionGauge"), 1L);
+
+    monitor.reset();
+    Assert.assertFalse(_server.isRegistered(objName));
+  }
+
   @Test
   public void testUpdateInstanceCapacityStatus()
       throws MalformedObjectNameException, IOException, AttributeNotFoundException, MBeanException,
-             ReflectionException, InstanceNotFoundException {
+             ReflectionException, InstanceNotFoundException, InterruptedException {
     String clusterName = "testCluster";
     List<Double> maxUsageList = ImmutableList.of(0.0d, 0.32d, 0.85d, 1.0d, 0.50d, 0.75d);
     Map<String, Double> maxUsageMap = new HashMap<>();
@@ -446,6 +590,7 @@ public class TestClusterStatusMonitor {
     monitor.setClusterInstanceStatus(maxUsageMap.keySet(), maxUsageMap.keySet(),
         Collections.emptySet(), Collections.emptyMap(), Collections.emptyMap(),
         Collections.emptyMap(), Collections.emptyMap());
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
 
     // Update instance capacity status.
     for (Map.Entry<String, Double> usageEntry : maxUsageMap.entrySet()) {
@@ -536,6 +681,7 @@ public class TestClusterStatusMonitor {
         liveInstanceMap, instanceConfigMap);
 
     monitor.updateAvailableThreadsPerJob(assignableInstanceManager.getGlobalCapacityMap());
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
     ObjectName type1ObjectName = monitor.getObjectName(monitor.getJobBeanName("type1"));
     ObjectName type2ObjectName = monitor.getObjectName(monitor.getJobBeanName("type2"));
     Assert.assertTrue(_server.isRegistered(type1ObjectName));
@@ -557,6 +703,30 @@ public class TestClusterStatusMonitor {
     Assert.assertEquals(_server.getAttribute(type2ObjectName, "AvailableThreadGauge"), 29L);
   }
 
+  @Test
+  public void testMessageDispatchMetrics() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName);
+    monitor.active();
+    ObjectName dispatchObjectName =
+        monitor.getObjectName(monitor.clusterBeanName() + ",MessageDispatch=Messages");
+
+    // The MBean is registered in the background, so the first dispatch is still recorded.
+    monitor.updateMessageDispatchStats(10L, 1L, ImmutableList.of(5, 6), 20L);
+    Assert.assertTrue(monitor.flushMBeanRegistrations(10000L));
+    Assert.assertTrue(_server.isRegistered(dispatchObjectName));
+    monitor.updateMessageDispatchStats(4L, 0L, ImmutableList.of(4), 10L);
+    Assert.assertEquals(_server.getAttribute(dispatchObjectName, "SentMessageCounter"), 14L);
+    Assert.assertEquals(_server.getAttribute(dispatchObjectName, "FailedMessageCounter"), 1L);
+    Assert.assertEquals(_server.getAttribute(dispatchObjectName, "MessageBatchCounter"), 3L);
+
+    monitor.reset();
+    Assert.assertFalse(_server.isRegistered(dispatchObjectName));
+  }
+
   private void verifyCapacityMetrics(ClusterStatusMonitor monitor, Map<String, Double> maxUsageMap,
       Map<String, Map<String, Integer>> instanceCapacityMap)
       throws MalformedObjectNameException, IOException, AttributeNotFoundException, MBeanException,
@@ -0,0 +1,115 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import org.apache.helix.TestHelper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestMBeanRegistrationWorker {
+  private static final MBeanServerConnection _server = ManagementFactory.getPlatformMBeanServer();
+  private static final int NUM_MONITORS = 200;
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    ObjectName query = new ObjectName(String
+        .format("%s:%s=%s,*", MonitorDomainNames.ClusterStatus.name(),
+            ClusterStatusMonitor.CLUSTER_DN_KEY, clusterName));
+    MBeanRegistrationWorker worker = new MBeanRegistrationWorker(clusterName);
+
+    List<WorkflowMonitor> monitors = new ArrayList<>();
+    for (int i = 0; i < NUM_MONITORS; i++) {
+      WorkflowMonitor monitor = new WorkflowMonitor(clusterName, "type" + i);
+      monitors.add(monitor);
+      worker.register(monitor, null);
+    }
+    Assert.assertTrue(worker.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(_server.queryNames(query, null).size(), NUM_MONITORS);
+    Assert.assertEquals(worker.getPendingRequestCount(), 0);
+    // The requests submitted while the worker is busy are applied in batches.
+    Assert.assertTrue(worker.getBatchCount() <= worker.getAppliedRequestCount());
+
+    // The requests of the same monitor are applied in order.
+    for (WorkflowMonitor monitor : monitors) {
+      worker.unregister(monitor);
+      worker.register(monitor, null);
+      worker.unregister(monitor);
+    }
+    Assert.assertTrue(worker.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(_server.queryNames(query, null).size(), 0);
+  }
+
+  @Test
+  public void testRegistrationFailure() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    MBeanRegistrationWorker worker = new MBeanRegistrationWorker(clusterName);
+
+    // The workflow type is not a valid ObjectName value, so the registration fails.
+    AtomicInteger failureCount = new AtomicInteger();
+    worker.register(new WorkflowMonitor(clusterName, "invalid=type"),
+        failureCount::incrementAndGet);
+    // A failed request does not block the following ones.
+    WorkflowMonitor monitor = new WorkflowMonitor(clusterName, "type");
+    worker.register(monitor, failureCount::incrementAndGet);
+    Assert.assertTrue(worker.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(failureCount.get(), 1);
+
+    worker.unregister(monitor);
+    Assert.assertTrue(worker.flush(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    ObjectName query = new ObjectName(String
+        .format("%s:%s=%s,*", MonitorDomainNames.ClusterStatus.name(),
+            ClusterStatusMonitor.CLUSTER_DN_KEY, clusterName));
+    MBeanRegistrationWorker worker = new MBeanRegistrationWorker(clusterName);
+
+    int numThreads = 4;
+    CountDownLatch done = new CountDownLatch(numThreads);
+    for (int t = 0; t < numThreads; t++) {
+      int threadId = t;
+      new Thread(() -> {
+        for (int i = 0; i < NUM_MONITORS; i++) {
+          worker.register(new WorkflowMonitor(clusterName, "type" + threadId + "_" + i), null);
+        }
+        done.countDown();
+      }).start();
+    }
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertTrue(worker.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(_server.queryNames(query, null).size(), numThreads * NUM_MONITORS);
+
+    for (ObjectName name : _server.queryNames(query, null)) {
+      _server.unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingLookupTable {
+  private static final String RESOURCE = "TestDB";
+  private static final String CUSTOM_RESOURCE = "CustomDB";
+
+  private RoutingTable buildRoutingTable() {
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      instanceConfigs.add(new InstanceConfig("localhost_" + (12918 + i)));
+    }
+
+    // TestDB_2 is not in the view, so its slot should be empty.
+    ExternalView defaultNamed = new ExternalView(RESOURCE);
+    defaultNamed.setState(RESOURCE + "_0", "localhost_12918", "MASTER");
+    defaultNamed.setState(RESOURCE + "_0", "localhost_12919", "SLAVE");
+    defaultNamed.setState(RESOURCE + "_1", "localhost_12919", "MASTER");
+    defaultNamed.setState(RESOURCE + "_1", "localhost_12920", "SLAVE");
+    defaultNamed.setState(RESOURCE + "_3", "localhost_12920", "MASTER");
+
+    ExternalView customNamed = new ExternalView(CUSTOM_RESOURCE);
+    customNamed.setState("partitionA", "localhost_12918", "ONLINE");
+    customNamed.setState("partitionB", "localhost_12919", "ONLINE");
+
+    return new RoutingTable(Arrays.asList(defaultNamed, customNamed), instanceConfigs,
+        Collections.<LiveInstance> emptyList());
+  }
+
+  @Test
+  public void testLookupByIndex() {
+    RoutingTable routingTable = buildRoutingTable();
+    RoutingLookupTable lookupTable = routingTable.getLookupTable();
+    Assert.assertSame(routingTable.getLookupTable(), lookupTable);
+
+    RoutingLookupTable.ResourceLookup resourceLookup = lookupTable.getResourceLookup(RESOURCE);
+    Assert.assertTrue(resourceLookup.isDefaultPartitionNaming());
+    Assert.assertEquals(resourceLookup.getNumPartitions(), 4);
+    Assert.assertEquals(resourceLookup.getPartitionIndex(RESOURCE + "_3"), 3);
+    Assert.assertEquals(resourceLookup.getPartitionName(1), RESOURCE + "_1");
+    Assert.assertNull(resourceLookup.getPartitionName(2));
+    Assert.assertEquals(resourceLookup.getPartitionIndex(RESOURCE + "_5"), -1);
+
+    List<InstanceConfig> masters = resourceLookup.getInstances(1, "MASTER");
+    Assert.assertEquals(masters.size(), 1);
+    Assert.assertEquals(masters.get(0).getInstanceName(), "localhost_12919");
+    Assert.assertTrue(resourceLookup.getInstances(2, "MASTER").isEmpty());
+    Assert.assertTrue(resourceLookup.getInstances(10, "MASTER").isEmpty());
+    Assert.assertTrue(resourceLookup.getInstances(0, "OFFLINE").isEmpty());
+    Assert.assertEquals(resourceLookup.getInstanceCount(0, "SLAVE"), 1);
+    Assert.assertEquals(resourceLookup.getInstances("MASTER").size(), 3);
+
+    // The views are shared between the calls and could not be modified.
+    Assert.assertSame(resourceLookup.getInstances(1, "MASTER"), masters);
+    Assert.assertSame(lookupTable.getInstances(RESOURCE, RESOURCE + "_1", "MASTER"), masters);
+    try {
+      masters.clear();
+      Assert.fail("The returned list should be read-only");
+    } catch (UnsupportedOperationException expected) {
+      // expected
+    }
+
+    // The existing RoutingTable APIs are served from the same lookup table.
+    Assert.assertSame(routingTable.getInstancesForResource(RESOURCE, RESOURCE + "_1", "MASTER"),
+        masters);
+    Assert.assertEquals(routingTable.getInstancesForResource(RESOURCE, "MASTER").size(), 3);
+    Assert.assertTrue(routingTable.getInstancesForResource("NotExist", "MASTER").isEmpty());
+  }
+
+  @Test
+  public void testHashToPartition() {
+    RoutingLookupTable.ResourceLookup resourceLookup =
+        buildRoutingTable().getLookupTable().getResourceLookup(RESOURCE);
+    // TestDB_2 is missing, so the partition count is only known from the caller.
+    Assert.assertEquals(resourceLookup.getPartitionIndexForHash(5), -1);
+    Assert.assertEquals(resourceLookup.getPartitionIndexForHash(5, 4), 1);
+    Assert.assertEquals(resourceLookup.getPartitionIndexForHash(-1, 4), 3);
+    Assert.assertEquals(resourceLookup.getPartitionIndexForHash(7, 6), 1);
+    Assert.assertEquals(resourceLookup.getPartitionIndexForHash(7, 0), -1);
+
+    ExternalView complete = new ExternalView(RESOURCE);
+    for (int i = 0; i < 3; i++) {
+      complete.setState(RESOURCE + "_" + i, "localhost_12918", "MASTER");
+    }
+    RoutingLookupTable.ResourceLookup completeLookup =
+        new RoutingTable(Collections.singletonList(complete),
+            Collections.singletonList(new InstanceConfig("localhost_12918")),
+            Collections.<LiveInstance> emptyList()).getLookupTable().getResourceLookup(RESOURCE);
+    Assert.assertEquals(completeLookup.getPartitionIndexForHash(5), 2);
+    Assert.assertEquals(completeLookup.getPartitionIndexForHash(-1), 2);
+
+    RoutingLookupTable.ResourceLookup customLookup =
+        buildRoutingTable().getLookupTable().getResourceLookup(CUSTOM_RESOURCE);
+    Assert.assertFalse(customLookup.isDefaultPartitionNaming());
+    Assert.assertEquals(customLookup.getPartitionIndexForHash(5), -1);
+    Assert.assertEquals(customLookup.getPartitionIndexForHash(5, 2), -1);
+    Assert.assertEquals(customLookup.getNumPartitions(), 2);
+    int index = customLookup.getPartitionIndex("partitionB");
+    Assert.assertEquals(customLookup.getInstances(index, "ONLINE").get(0).getInstanceName(),
+        "localhost_12919");
+  }
+
+  @Test
+  public void testParseDefaultPartitionId() {
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_0"), 0);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_42"), 42);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_042"), -1);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_"), -1);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_1a"), -1);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DBX_1"), -1);
+    Assert.assertEquals(RoutingLookupTable.parseDefaultPartitionId("DB", "DB_99999999999"), -1);
+  }
+}
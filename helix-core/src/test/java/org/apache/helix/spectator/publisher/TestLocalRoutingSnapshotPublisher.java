@@ -0,0 +1,189 @@
+package org.apache.helix.spectator.publisher;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.TestHelper;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.spectator.RoutingTableProvider;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLocalRoutingSnapshotPublisher {
+  private static final String CLUSTER_NAME = "TestCluster";
+  private static final String RESOURCE_NAME = "TestDB";
+
+  @Test
+  public void testPublish() {
+    LocalRoutingSnapshotPublisher publisher = new LocalRoutingSnapshotPublisher(CLUSTER_NAME);
+    Assert.assertNull(publisher.getLatestSnapshot());
+
+    List<RoutingDataSnapshot> received = new ArrayList<>();
+    RoutingSnapshotListener listener = received::add;
+    publisher.subscribe(listener);
+
+    Map<String, ExternalView> externalViews = new HashMap<>();
+    externalViews.put(RESOURCE_NAME, createExternalView("localhost_0", "MASTER"));
+    Map<String, InstanceConfig> instanceConfigs = createInstanceConfigs(2);
+    Map<String, LiveInstance> liveInstances = createLiveInstances(2);
+
+    RoutingDataSnapshot snapshot =
+        publisher.publish(externalViews, instanceConfigs, liveInstances);
+    Assert.assertEquals(snapshot.getVersion(), 1L);
+    Assert.assertEquals(snapshot.getClusterName(), CLUSTER_NAME);
+    Assert.assertSame(publisher.getLatestSnapshot(), snapshot);
+    Assert.assertEquals(received, Collections.singletonList(snapshot));
+
+    // The snapshot is not affected by the later changes of the input maps.
+    externalViews.remove(RESOURCE_NAME);
+    Assert.assertEquals(snapshot.getExternalViews().size(), 1);
+    try {
+      snapshot.getExternalViews().clear();
+      Assert.fail("The snapshot should not be modifiable.");
+    } catch (UnsupportedOperationException expected) {
+      // expected
+    }
+
+    // The same data is not published again.
+    externalViews.put(RESOURCE_NAME, snapshot.getExternalViews().get(RESOURCE_NAME));
+    Assert.assertSame(publisher.publish(externalViews, instanceConfigs, liveInstances), snapshot);
+    Assert.assertEquals(received.size(), 1);
+
+    // A changed property is published as a new version.
+    externalViews.put(RESOURCE_NAME, createExternalView("localhost_1", "MASTER"));
+    RoutingDataSnapshot newSnapshot =
+        publisher.publish(externalViews, instanceConfigs, liveInstances);
+    Assert.assertEquals(newSnapshot.getVersion(), 2L);
+    Assert.assertEquals(received.size(), 2);
+
+    publisher.unsubscribe(listener);
+    Assert.assertEquals(
+        publisher.publish(externalViews, instanceConfigs, createLiveInstances(1)).getVersion(),
+        3L);
+    Assert.assertEquals(received.size(), 2);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    LocalRoutingSnapshotPublisher publisher = new LocalRoutingSnapshotPublisher(CLUSTER_NAME);
+    Assert.assertEquals(publisher.getLastPublishTime(), 0L);
+    List<RoutingDataSnapshot> received = new ArrayList<>();
+    publisher.subscribe(received::add);
+
+    Map<String, ExternalView> externalViews =
+        Collections.singletonMap(RESOURCE_NAME, createExternalView("localhost_0", "MASTER"));
+    Map<String, InstanceConfig> instanceConfigs = createInstanceConfigs(2);
+    Map<String, LiveInstance> liveInstances = createLiveInstances(2);
+    RoutingDataSnapshot snapshot =
+        publisher.publish(externalViews, instanceConfigs, liveInstances);
+    long lastPublishTime = publisher.getLastPublishTime();
+    Assert.assertTrue(lastPublishTime >= snapshot.getPublishTime());
+
+    publisher.invalidate();
+    Assert.assertNull(publisher.getLatestSnapshot());
+    // The publish time is kept, so the age of the routing data keeps growing.
+    Assert.assertEquals(publisher.getLastPublishTime(), lastPublishTime);
+
+    // The same data is published again as a new version after the invalidation.
+    RoutingDataSnapshot newSnapshot =
+        publisher.publish(externalViews, instanceConfigs, liveInstances);
+    Assert.assertEquals(newSnapshot.getVersion(), 2L);
+    Assert.assertSame(publisher.getLatestSnapshot(), newSnapshot);
+    Assert.assertEquals(received.size(), 2);
+  }
+
+  @Test
+  public void testRoutingTableProvider() throws Exception {
+    LocalRoutingSnapshotPublisher publisher = new LocalRoutingSnapshotPublisher(CLUSTER_NAME);
+    Map<String, InstanceConfig> instanceConfigs = createInstanceConfigs(2);
+    Map<String, LiveInstance> liveInstances = createLiveInstances(2);
+    // Published before the RoutingTableProvider subscribes
+    publisher.publish(
+        Collections.singletonMap(RESOURCE_NAME, createExternalView("localhost_0", "MASTER")),
+        instanceConfigs, liveInstances);
+
+    RoutingTableProvider routingTableProvider = new RoutingTableProvider(publisher);
+    try {
+      Assert.assertTrue(TestHelper.verify(() -> isMaster(routingTableProvider, "localhost_0"),
+          TestHelper.WAIT_DURATION));
+      Assert.assertEquals(routingTableProvider.getLiveInstances().size(), 2);
+
+      publisher.publish(
+          Collections.singletonMap(RESOURCE_NAME, createExternalView("localhost_1", "MASTER")),
+          instanceConfigs, liveInstances);
+      Assert.assertTrue(TestHelper.verify(() -> isMaster(routingTableProvider, "localhost_1"),
+          TestHelper.WAIT_DURATION));
+      Assert.assertTrue(routingTableProvider.getRoutingSnapshotAge() >= 0);
+
+      // The routing table is kept after the invalidation, and its age keeps growing.
+      publisher.invalidate();
+      long age = routingTableProvider.getRoutingSnapshotAge();
+      Assert.assertTrue(TestHelper.verify(() -> routingTableProvider.getRoutingSnapshotAge() > age,
+          TestHelper.WAIT_DURATION));
+      Assert.assertTrue(isMaster(routingTableProvider, "localhost_1"));
+
+      // The snapshot of the new leader is applied.
+      publisher.publish(
+          Collections.singletonMap(RESOURCE_NAME, createExternalView("localhost_0", "MASTER")),
+          instanceConfigs, liveInstances);
+      Assert.assertTrue(TestHelper.verify(() -> isMaster(routingTableProvider, "localhost_0"),
+          TestHelper.WAIT_DURATION));
+    } finally {
+      routingTableProvider.shutdown();
+    }
+  }
+
+  private static boolean isMaster(RoutingTableProvider routingTableProvider, String instance) {
+    List<InstanceConfig> masters =
+        routingTableProvider.getInstances(RESOURCE_NAME, RESOURCE_NAME + "_0", "MASTER");
+    return masters.size() == 1 && masters.get(0).getInstanceName().equals(instance);
+  }
+
+  private static ExternalView createExternalView(String master, String state) {
+    ExternalView externalView = new ExternalView(RESOURCE_NAME);
+    externalView.setState(RESOURCE_NAME + "_0", master, state);
+    return externalView;
+  }
+
+  private static Map<String, InstanceConfig> createInstanceConfigs(int numInstances) {
+    Map<String, InstanceConfig> instanceConfigs = new HashMap<>();
+    for (int i = 0; i < numInstances; i++) {
+      String instance = "localhost_" + i;
+      instanceConfigs.put(instance, new InstanceConfig(instance));
+    }
+    return instanceConfigs;
+  }
+
+  private static Map<String, LiveInstance> createLiveInstances(int numInstances) {
+    Map<String, LiveInstance> liveInstances = new HashMap<>();
+    for (int i = 0; i < numInstances; i++) {
+      String instance = "localhost_" + i;
+      liveInstances.put(instance, new LiveInstance(instance));
+    }
+    return liveInstances;
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Set;
 
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.integration.manager.MockParticipantManager;
 import org.apache.helix.integration.task.TaskTestBase;
@@ -33,6 +34,7 @@ import org.apache.helix.integration.task.TaskTestUtil;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.mock;
@@ -272,4 +274,36 @@ public class TestTaskUtil extends TaskTestBase {
     TaskUtil.getTargetThreadPoolSize(anyParticipantManager.getZkClient(),
         anyParticipantManager.getClusterName(), anyParticipantManager.getInstanceName());
   }
+
+  @Test(dependsOnMethods = "testGetTaskThreadPoolSizeClusterConfigDoesNotExist")
+  public void testGetTaskExecutionCapacity() {
+    if (!VirtualThreadFactory.isSupported()) {
+      throw new SkipException("Virtual threads are not supported before JDK 21");
+    }
+    MockParticipantManager anyParticipantManager = _participants[0];
+    InstanceConfig instanceConfig =
+        InstanceConfig.toInstanceConfig(anyParticipantManager.getInstanceName());
+    instanceConfig.setTargetTaskThreadPoolSize(TEST_TARGET_TASK_THREAD_POOL_SIZE);
+    anyParticipantManager.getConfigAccessor()
+        .setInstanceConfig(anyParticipantManager.getClusterName(),
+            anyParticipantManager.getInstanceName(), instanceConfig);
+
+    System.setProperty(SystemPropertyKeys.TASK_VIRTUAL_THREAD_ENABLED, "true");
+    try {
+      System.setProperty(SystemPropertyKeys.TASK_VIRTUAL_THREAD_CAPACITY, "500");
+      Assert.assertEquals(TaskUtil.getTaskExecutionCapacity(anyParticipantManager.getZkClient(),
+          anyParticipantManager.getClusterName(), anyParticipantManager.getInstanceName()), 500);
+
+      // A capacity that cannot run any task falls back to the target thread pool size.
+      for (String invalidCapacity : new String[] {"0", "-1"}) {
+        System.setProperty(SystemPropertyKeys.TASK_VIRTUAL_THREAD_CAPACITY, invalidCapacity);
+        Assert.assertEquals(TaskUtil.getTaskExecutionCapacity(anyParticipantManager.getZkClient(),
+            anyParticipantManager.getClusterName(), anyParticipantManager.getInstanceName()),
+            TEST_TARGET_TASK_THREAD_POOL_SIZE);
+      }
+    } finally {
+      System.clearProperty(SystemPropertyKeys.TASK_VIRTUAL_THREAD_ENABLED);
+      System.clearProperty(SystemPropertyKeys.TASK_VIRTUAL_THREAD_CAPACITY);
+    }
+  }
 }
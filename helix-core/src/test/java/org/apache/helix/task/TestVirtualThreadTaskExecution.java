@@ -0,0 +1,223 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.mock.MockManager;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class TestVirtualThreadTaskExecution {
+  private static final int NUM_TASKS = 1000;
+  private static final int NUM_BENCHMARK_TASKS = 2000;
+  private static final long TASK_SLEEP_MS = 20L;
+
+  /**
+   * A task that sleeps until it is canceled.
+   */
+  private static class BlockingTask implements Task {
+    private final CountDownLatch _canceled = new CountDownLatch(1);
+
+    @Override
+    public TaskResult run() {
+      try {
+        if (_canceled.await(1, TimeUnit.MINUTES)) {
+          return new TaskResult(TaskResult.Status.CANCELED, "canceled");
+        }
+        return new TaskResult(TaskResult.Status.COMPLETED, "completed");
+      } catch (InterruptedException e) {
+        return new TaskResult(TaskResult.Status.CANCELED, "interrupted");
+      }
+    }
+
+    @Override
+    public void cancel() {
+      _canceled.countDown();
+    }
+  }
+
+  @Test
+  public void testVirtualThreadFactory() throws Exception {
+    if (!VirtualThreadFactory.isSupported()) {
+      try {
+        new VirtualThreadFactory("test-");
+        Assert.fail("Virtual threads should not be supported before JDK 21");
+      } catch (UnsupportedOperationException expected) {
+        // expected
+      }
+      return;
+    }
+    Thread thread = new VirtualThreadFactory("test-").newThread(() -> {
+    });
+    Assert.assertEquals(thread.getName(), "test-0");
+    Assert.assertTrue(thread.isDaemon(), "Virtual threads are always daemon threads");
+  }
+
+  @Test
+  public void testTimeoutAndCancel() throws Exception {
+    skipIfVirtualThreadUnsupported();
+    ScheduledExecutorService taskExecutor = TaskStateModelFactory.createTaskExecutor(10, true);
+    ScheduledExecutorService timeoutExecutor = Executors.newSingleThreadScheduledExecutor();
+    MockManager manager = new MockManager();
+    TaskStateModel stateModel =
+        new TaskStateModel(manager, Collections.emptyMap(), taskExecutor, timeoutExecutor);
+    try {
+      // The timeout scheduled on the platform timer thread cancels the task on a virtual thread.
+      TaskRunner timedOutRunner =
+          new TaskRunner(new BlockingTask(), "job", "job_0", "instance", manager, "session",
+              stateModel);
+      taskExecutor.submit(timedOutRunner);
+      timedOutRunner.waitTillStarted();
+      timeoutExecutor.schedule(timedOutRunner::timeout, 100, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(timedOutRunner.waitTillDone().getStatus(), TaskResult.Status.CANCELED);
+      Assert.assertEquals(stateModel.getCurrentState(), TaskPartitionState.TIMED_OUT.name());
+
+      TaskRunner canceledRunner =
+          new TaskRunner(new BlockingTask(), "job", "job_1", "instance", manager, "session",
+              stateModel);
+      taskExecutor.submit(canceledRunner);
+      canceledRunner.waitTillStarted();
+      canceledRunner.cancel();
+      Assert.assertEquals(canceledRunner.waitTillDone().getStatus(), TaskResult.Status.CANCELED);
+
+      // Shutting down the executor interrupts the blocked virtual threads.
+      TaskRunner interruptedRunner =
+          new TaskRunner(new BlockingTask(), "job", "job_2", "instance", manager, "session",
+              stateModel);
+      taskExecutor.submit(interruptedRunner);
+      interruptedRunner.waitTillStarted();
+      taskExecutor.shutdownNow();
+      Assert.assertEquals(interruptedRunner.waitTillDone().getStatus(),
+          TaskResult.Status.CANCELED);
+      Assert.assertTrue(taskExecutor.awaitTermination(10, TimeUnit.SECONDS));
+    } finally {
+      taskExecutor.shutdownNow();
+      timeoutExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Blocking tasks on virtual threads are not bounded by the size of the default platform thread
+   * pool, so all of them run at the same time.
+   */
+  @Test
+  public void testBlockingTasksRunConcurrently() throws Exception {
+    skipIfVirtualThreadUnsupported();
+    Assert.assertTrue(NUM_TASKS > TaskConstants.DEFAULT_TASK_THREAD_POOL_SIZE);
+    ScheduledExecutorService executor = TaskStateModelFactory.createTaskExecutor(NUM_TASKS, true);
+    CountDownLatch started = new CountDownLatch(NUM_TASKS);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(NUM_TASKS);
+    AtomicInteger platformThreadTasks = new AtomicInteger();
+    try {
+      for (int i = 0; i < NUM_TASKS; i++) {
+        executor.submit(() -> {
+          if (!isVirtual(Thread.currentThread())) {
+            platformThreadTasks.incrementAndGet();
+          }
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        });
+      }
+      Assert.assertTrue(started.await(1, TimeUnit.MINUTES),
+          "Running tasks: " + (NUM_TASKS - started.getCount()));
+      Assert.assertEquals(platformThreadTasks.get(), 0);
+      release.countDown();
+      Assert.assertTrue(done.await(1, TimeUnit.MINUTES));
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Compare the throughput of sleep-heavy tasks on the default platform thread pool and on
+   * virtual threads with a much larger capacity.
+   */
+  @Test(groups = "benchmark")
+  public void testSleepTaskThroughput() throws Exception {
+    skipIfVirtualThreadUnsupported();
+    long platformElapsedMs = runSleepTasks(
+        TaskStateModelFactory.createTaskExecutor(TaskConstants.DEFAULT_TASK_THREAD_POOL_SIZE,
+            false));
+    long virtualElapsedMs = runSleepTasks(
+        TaskStateModelFactory.createTaskExecutor(NUM_BENCHMARK_TASKS, true));
+    System.out.println(String.format(
+        "Ran %d tasks sleeping %d ms each: %d ms on %d platform threads (%.0f tasks/s), %d ms on"
+            + " virtual threads (%.0f tasks/s)", NUM_BENCHMARK_TASKS, TASK_SLEEP_MS,
+        platformElapsedMs, TaskConstants.DEFAULT_TASK_THREAD_POOL_SIZE,
+        NUM_BENCHMARK_TASKS * 1000.0 / platformElapsedMs, virtualElapsedMs,
+        NUM_BENCHMARK_TASKS * 1000.0 / virtualElapsedMs));
+    Assert.assertTrue(virtualElapsedMs < platformElapsedMs,
+        "Virtual: " + virtualElapsedMs + " ms, platform: " + platformElapsedMs + " ms");
+  }
+
+  private long runSleepTasks(ScheduledExecutorService executor) throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(NUM_BENCHMARK_TASKS);
+    long startTime = System.currentTimeMillis();
+    try {
+      for (int i = 0; i < NUM_BENCHMARK_TASKS; i++) {
+        executor.submit(() -> {
+          try {
+            Thread.sleep(TASK_SLEEP_MS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        });
+      }
+      Assert.assertTrue(done.await(1, TimeUnit.MINUTES));
+      return System.currentTimeMillis() - startTime;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void skipIfVirtualThreadUnsupported() {
+    if (!VirtualThreadFactory.isSupported()) {
+      throw new SkipException("Virtual threads are not supported before JDK 21");
+    }
+  }
+
+  /**
+   * Thread.isVirtual() is only available since JDK 21, so it is called reflectively.
+   */
+  private static boolean isVirtual(Thread thread) {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+}
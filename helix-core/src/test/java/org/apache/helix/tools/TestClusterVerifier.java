@@ -20,6 +20,7 @@ package org.apache.helix.tools;
  */
 
 import java.util.Arrays;
+import java.util.Collections;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -27,6 +28,7 @@ import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.controller.rebalancer.DelayedAutoRebalancer;
 import org.apache.helix.controller.rebalancer.strategy.CrushEdRebalanceStrategy;
 import org.apache.helix.integration.manager.ClusterControllerManager;
 import org.apache.helix.integration.manager.MockParticipantManager;
@@ -35,6 +37,7 @@ import org.apache.helix.model.BuiltInStateModelDefinitions;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.IdealState.RebalanceMode;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
 import org.apache.helix.tools.ClusterVerifiers.HelixClusterVerifier;
 import org.apache.helix.tools.ClusterVerifiers.StrictMatchExternalViewVerifier;
@@ -236,6 +239,99 @@ public class TestClusterVerifier extends ZkUnitTestBase {
     _admin.enableCluster(_clusterName, true);
   }
 
+  @Test
+  public void testIncrementalVerification() throws InterruptedException {
+    BestPossibleExternalViewVerifier incrementalVerifier =
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient)
+            .setIncrementalVerification(true)
+            .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME)
+            .build();
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    Assert.assertTrue(incrementalVerifier.getLastTimeToConvergenceMs() >= 0);
+    // Nothing has changed, so no resource is verified again.
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    Assert.assertEquals(incrementalVerifier.getLastVerifiedResources().size(), 0);
+
+    // Only the resource whose ResourceConfig has changed is verified again.
+    ResourceConfig resourceConfig = new ResourceConfig(FULL_AUTO_RESOURCES[0]);
+    resourceConfig.getRecord().setSimpleField("TestIncrementalVerification", "true");
+    new ConfigAccessor(_gZkClient).updateResourceConfig(_clusterName, FULL_AUTO_RESOURCES[0],
+        resourceConfig);
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    Assert.assertEquals(incrementalVerifier.getLastVerifiedResources(),
+        Collections.singleton(FULL_AUTO_RESOURCES[0]));
+
+    // Disabling a partition changes the InstanceConfig, so all the resources are verified again.
+    _admin.enablePartition(false, _clusterName, _participants[0].getInstanceName(),
+        FULL_AUTO_RESOURCES[0], Lists.newArrayList(FULL_AUTO_RESOURCES[0] + "_0"));
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    _admin.enablePartition(true, _clusterName, _participants[0].getInstanceName(),
+        FULL_AUTO_RESOURCES[0], Lists.newArrayList(FULL_AUTO_RESOURCES[0] + "_0"));
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+
+    _participants[0].syncStop();
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+
+    // The incremental verification fails in the same way as the full verification.
+    _admin.enableCluster(_clusterName, false);
+    _participants[0] = new MockParticipantManager(ZK_ADDR, _clusterName,
+        _participants[0].getInstanceName());
+    _participants[0].syncStart();
+    Assert.assertFalse(incrementalVerifier.verifyByPolling(3000, 100));
+    Assert.assertFalse(
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient).build()
+            .verifyByPolling(3000, 100));
+
+    _admin.enableCluster(_clusterName, true);
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    Assert.assertTrue(incrementalVerifier.getLastTimeToConvergenceMs() > 0);
+  }
+
+  @Test
+  public void testIncrementalVerificationWithDelayedRebalance() throws InterruptedException {
+    final long DELAY = 5000L;
+    for (String resourceName : FULL_AUTO_RESOURCES) {
+      IdealState idealState = _admin.getResourceIdealState(_clusterName, resourceName);
+      idealState.setRebalancerClassName(DelayedAutoRebalancer.class.getName());
+      idealState.setMinActiveReplicas(1);
+      _admin.setResourceIdealState(_clusterName, resourceName, idealState);
+    }
+    ConfigAccessor configAccessor = new ConfigAccessor(_gZkClient);
+    ClusterConfig clusterConfig = configAccessor.getClusterConfig(_clusterName);
+    clusterConfig.setDelayRebalaceEnabled(true);
+    clusterConfig.setRebalanceDelayTime(DELAY);
+    configAccessor.setClusterConfig(_clusterName, clusterConfig);
+
+    BestPossibleExternalViewVerifier incrementalVerifier =
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient)
+            .setIncrementalVerification(true)
+            .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME)
+            .build();
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    // The best possible states of the delayed rebalance resources could change with time alone,
+    // so they are verified again even if nothing has changed.
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+    Assert.assertEquals(incrementalVerifier.getLastVerifiedResources(),
+        Sets.newHashSet(FULL_AUTO_RESOURCES));
+
+    // Within the delay window, the replicas of the stopped participant are not moved.
+    long stopTime = System.currentTimeMillis();
+    _participants[0].syncStop();
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(DELAY / 2, 100));
+
+    // Once the delay expires, the best possible states change without any input change, and the
+    // paused controller does not update the ExternalViews.
+    _admin.enableCluster(_clusterName, false);
+    Thread.sleep(Math.max(0, stopTime + DELAY + 1000 - System.currentTimeMillis()));
+    Assert.assertFalse(incrementalVerifier.verifyByPolling(3000, 100));
+    Assert.assertFalse(
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient).build()
+            .verifyByPolling(3000, 100));
+
+    _admin.enableCluster(_clusterName, true);
+    Assert.assertTrue(incrementalVerifier.verifyByPolling(10000, 100));
+  }
+
   @Test
   public void testSleepTransition() throws InterruptedException {
 
@@ -0,0 +1,340 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.TestHelper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestHierarchicalTimingWheel {
+  private static final int NUM_CANCELED_TASKS = 100000;
+  private static final int NUM_BENCHMARK_TASKS = 200000;
+
+  @Test
+  public void testScheduleOrder() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testScheduleOrder");
+    try {
+      List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch done = new CountDownLatch(5);
+      long startTime = System.nanoTime();
+      for (int delay : new int[] { 400, 100, 300, 0, 200 }) {
+        wheel.schedule(() -> {
+          order.add(delay);
+          done.countDown();
+        }, delay, TimeUnit.MILLISECONDS);
+      }
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(order.toArray(), new Integer[] { 0, 100, 200, 300, 400 });
+      Assert.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(400));
+
+      ScheduledFuture<String> future =
+          wheel.schedule(() -> "result", 50, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(future.get(10, TimeUnit.SECONDS), "result");
+      Assert.assertEquals(wheel.getPendingTaskCount(), 0);
+    } finally {
+      wheel.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testCancel");
+    try {
+      AtomicInteger runCount = new AtomicInteger();
+      List<ScheduledFuture<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        futures.add(wheel.schedule(runCount::incrementAndGet, 200, TimeUnit.MILLISECONDS));
+      }
+      Assert.assertEquals(wheel.getPendingTaskCount(), 100);
+      for (int i = 0; i < 100; i += 2) {
+        Assert.assertTrue(futures.get(i).cancel(false));
+      }
+      // The canceled tasks are removed right away.
+      Assert.assertEquals(wheel.getPendingTaskCount(), 50);
+
+      Assert.assertTrue(TestHelper.verify(() -> runCount.get() == 50, 10000));
+      Thread.sleep(100);
+      Assert.assertEquals(runCount.get(), 50);
+      for (int i = 0; i < 100; i++) {
+        Assert.assertTrue(futures.get(i).isDone());
+        Assert.assertEquals(futures.get(i).isCancelled(), i % 2 == 0);
+      }
+      Assert.assertEquals(wheel.getPendingTaskCount(), 0);
+    } finally {
+      wheel.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testOverflowWheels() throws Exception {
+    // A 4 ms span per wheel, so the delays below go through several levels of overflow wheels.
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testOverflowWheels", 1, 4, null);
+    try {
+      int[] delays = { 1, 3, 7, 20, 63, 150, 300 };
+      CountDownLatch done = new CountDownLatch(delays.length);
+      List<Long> lateness = Collections.synchronizedList(new ArrayList<>());
+      for (int delay : delays) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        wheel.schedule(() -> {
+          lateness.add(System.nanoTime() - deadline);
+          done.countDown();
+        }, delay, TimeUnit.MILLISECONDS);
+      }
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      for (long late : lateness) {
+        // Never early, but allow the clock to be rounded down by a tick.
+        Assert.assertTrue(late > -TimeUnit.MILLISECONDS.toNanos(2), "Task ran early: " + late);
+      }
+    } finally {
+      wheel.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPeriodicTasks() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testPeriodicTasks");
+    try {
+      CountDownLatch fixedRate = new CountDownLatch(5);
+      CountDownLatch fixedDelay = new CountDownLatch(5);
+      ScheduledFuture<?> fixedRateFuture =
+          wheel.scheduleAtFixedRate(fixedRate::countDown, 0, 20, TimeUnit.MILLISECONDS);
+      ScheduledFuture<?> fixedDelayFuture =
+          wheel.scheduleWithFixedDelay(fixedDelay::countDown, 10, 20, TimeUnit.MILLISECONDS);
+      Assert.assertTrue(fixedRate.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(fixedDelay.await(10, TimeUnit.SECONDS));
+
+      Assert.assertTrue(fixedRateFuture.cancel(false));
+      Assert.assertTrue(fixedDelayFuture.cancel(false));
+      Assert.assertTrue(TestHelper.verify(() -> wheel.getPendingTaskCount() == 0, 10000));
+
+      // A periodic task that throws is not run again.
+      AtomicInteger failureCount = new AtomicInteger();
+      ScheduledFuture<?> failedFuture = wheel.scheduleAtFixedRate(() -> {
+        failureCount.incrementAndGet();
+        throw new IllegalStateException("failure");
+      }, 0, 10, TimeUnit.MILLISECONDS);
+      Assert.assertTrue(TestHelper.verify(failedFuture::isDone, 10000));
+      Thread.sleep(50);
+      Assert.assertEquals(failureCount.get(), 1);
+    } finally {
+      wheel.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testShutdown");
+    AtomicInteger runCount = new AtomicInteger();
+    ScheduledFuture<?> future = wheel.schedule(runCount::incrementAndGet, 1, TimeUnit.HOURS);
+    wheel.scheduleAtFixedRate(runCount::incrementAndGet, 1, 1, TimeUnit.HOURS);
+
+    Assert.assertEquals(wheel.shutdownNow().size(), 2);
+    Assert.assertTrue(wheel.isShutdown());
+    Assert.assertTrue(future.isCancelled());
+    Assert.assertTrue(wheel.awaitTermination(10, TimeUnit.SECONDS));
+    Assert.assertEquals(wheel.getPendingTaskCount(), 0);
+    Assert.assertEquals(runCount.get(), 0);
+    try {
+      wheel.schedule(runCount::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+      Assert.fail("A shut down timing wheel should not accept tasks");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+
+    // Shutting down the shared timing wheel is ignored.
+    HierarchicalTimingWheel.getSharedInstance().shutdown();
+    Assert.assertTrue(HierarchicalTimingWheel.getSharedInstance().shutdownNow().isEmpty());
+    Assert.assertFalse(HierarchicalTimingWheel.getSharedInstance().isShutdown());
+  }
+
+  @Test
+  public void testGracefulShutdown() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testGracefulShutdown");
+    CountDownLatch delayedTaskDone = new CountDownLatch(1);
+    AtomicInteger periodicRunCount = new AtomicInteger();
+    ScheduledFuture<?> delayedFuture =
+        wheel.schedule(delayedTaskDone::countDown, 500, TimeUnit.MILLISECONDS);
+    ScheduledFuture<?> periodicFuture =
+        wheel.scheduleAtFixedRate(periodicRunCount::incrementAndGet, 1, 1, TimeUnit.HOURS);
+
+    // The pending delayed task still runs, while the periodic task is canceled.
+    wheel.shutdown();
+    Assert.assertTrue(wheel.isShutdown());
+    Assert.assertFalse(wheel.isTerminated());
+    Assert.assertTrue(periodicFuture.isCancelled());
+    Assert.assertFalse(delayedFuture.isCancelled());
+    try {
+      wheel.schedule(delayedTaskDone::countDown, 0, TimeUnit.MILLISECONDS);
+      Assert.fail("A shut down timing wheel should not accept tasks");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+
+    Assert.assertTrue(delayedTaskDone.await(10, TimeUnit.SECONDS));
+    Assert.assertTrue(wheel.awaitTermination(10, TimeUnit.SECONDS));
+    Assert.assertTrue(delayedFuture.isDone());
+    Assert.assertFalse(delayedFuture.isCancelled());
+    Assert.assertEquals(periodicRunCount.get(), 0);
+
+    // A timing wheel whose pending tasks are all canceled terminates as well.
+    HierarchicalTimingWheel canceledWheel = new HierarchicalTimingWheel("testGracefulShutdown");
+    ScheduledFuture<?> canceledFuture = canceledWheel.schedule(() -> {
+    }, 1, TimeUnit.HOURS);
+    canceledWheel.shutdown();
+    Assert.assertFalse(canceledWheel.awaitTermination(200, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(canceledFuture.cancel(false));
+    Assert.assertTrue(canceledWheel.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testLazyThreadStart() throws Exception {
+    String name = TestHelper.getTestMethodName() + "_" + System.nanoTime();
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(name);
+    try {
+      Assert.assertEquals(countThreads(name), 0);
+
+      CountDownLatch done = new CountDownLatch(1);
+      wheel.schedule(done::countDown, 10, TimeUnit.MILLISECONDS);
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      // The timer thread and the single worker thread
+      Assert.assertEquals(countThreads(name), 2);
+    } finally {
+      wheel.shutdownNow();
+    }
+    Assert.assertTrue(wheel.awaitTermination(10, TimeUnit.SECONDS));
+
+    // A timing wheel shut down before it is used never starts a thread.
+    HierarchicalTimingWheel unusedWheel = new HierarchicalTimingWheel(name + "_unused");
+    unusedWheel.shutdownNow();
+    Assert.assertTrue(unusedWheel.isTerminated());
+    Assert.assertEquals(countThreads(name + "_unused"), 0);
+  }
+
+  @Test
+  public void testSharedInstanceRunsTasksConcurrently() throws Exception {
+    int numTasks = HierarchicalTimingWheel.SHARED_WORKER_POOL_SIZE;
+    CountDownLatch started = new CountDownLatch(numTasks);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      for (int i = 0; i < numTasks; i++) {
+        HierarchicalTimingWheel.getSharedInstance().schedule(() -> {
+          started.countDown();
+          release.await();
+          return null;
+        }, 1, TimeUnit.MILLISECONDS);
+      }
+      // A blocked task does not hold up the other tasks.
+      Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private static int countThreads(String namePrefix) {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith(namePrefix + "-")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Compare scheduling and canceling a large number of timeouts, which is how the message and
+   * task timeouts are used, with a ScheduledThreadPoolExecutor. Run with the benchmark profile.
+   */
+  @Test(groups = "benchmark")
+  public void testScheduleAndCancelBenchmark() throws Exception {
+    ScheduledThreadPoolExecutor threadPoolExecutor = new ScheduledThreadPoolExecutor(1);
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testBenchmark");
+    try {
+      // warm up
+      runScheduleAndCancel(threadPoolExecutor, NUM_BENCHMARK_TASKS / 10);
+      runScheduleAndCancel(wheel, NUM_BENCHMARK_TASKS / 10);
+
+      long threadPoolElapsedNs = runScheduleAndCancel(threadPoolExecutor, NUM_BENCHMARK_TASKS);
+      long wheelElapsedNs = runScheduleAndCancel(wheel, NUM_BENCHMARK_TASKS);
+      System.out.println(String.format(
+          "Scheduled and canceled %d timeouts: %d ms with ScheduledThreadPoolExecutor, %d ms"
+              + " with HierarchicalTimingWheel", NUM_BENCHMARK_TASKS,
+          TimeUnit.NANOSECONDS.toMillis(threadPoolElapsedNs),
+          TimeUnit.NANOSECONDS.toMillis(wheelElapsedNs)));
+      Assert.assertEquals(threadPoolExecutor.getQueue().size(), 0);
+      Assert.assertEquals(wheel.getPendingTaskCount(), 0);
+    } finally {
+      threadPoolExecutor.shutdownNow();
+      wheel.shutdownNow();
+    }
+  }
+
+  private long runScheduleAndCancel(ScheduledExecutorService executor, int numTasks) {
+    // Same as the message timeouts which are removed once the messages are processed
+    if (executor instanceof ScheduledThreadPoolExecutor) {
+      ((ScheduledThreadPoolExecutor) executor).setRemoveOnCancelPolicy(true);
+    }
+    Runnable task = () -> Assert.fail("The timeout should be canceled");
+    List<ScheduledFuture<?>> futures = new ArrayList<>(numTasks);
+    long startTime = System.nanoTime();
+    for (int i = 0; i < numTasks; i++) {
+      futures.add(executor.schedule(task, 60000 + i % 60000, TimeUnit.MILLISECONDS));
+    }
+    for (ScheduledFuture<?> future : futures) {
+      future.cancel(false);
+    }
+    return System.nanoTime() - startTime;
+  }
+
+  /**
+   * Schedule and cancel a large number of timeouts, which is how the message and task timeouts
+   * are used. The canceled timeouts are removed from the wheel right away.
+   */
+  @Test
+  public void testScheduleAndCancelMany() throws Exception {
+    HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("testScheduleAndCancelMany");
+    AtomicInteger runCount = new AtomicInteger();
+    try {
+      List<ScheduledFuture<?>> futures = new ArrayList<>(NUM_CANCELED_TASKS);
+      for (int i = 0; i < NUM_CANCELED_TASKS; i++) {
+        futures.add(wheel.schedule(runCount::incrementAndGet, 60000 + i % 60000,
+            TimeUnit.MILLISECONDS));
+      }
+      Assert.assertEquals(wheel.getPendingTaskCount(), NUM_CANCELED_TASKS);
+      for (ScheduledFuture<?> future : futures) {
+        Assert.assertTrue(future.cancel(false));
+      }
+      Assert.assertEquals(wheel.getPendingTaskCount(), 0);
+      Assert.assertEquals(runCount.get(), 0);
+    } finally {
+      wheel.shutdownNow();
+    }
+  }
+}
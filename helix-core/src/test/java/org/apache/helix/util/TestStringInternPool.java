@@ -0,0 +1,179 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStringInternPool {
+  private static final long STRING_HEADER_BYTES = 24L;
+  private static final long ARRAY_HEADER_BYTES = 16L;
+
+  @Test
+  public void testIntern() {
+    StringInternPool pool = new StringInternPool(100);
+    Assert.assertEquals(pool.getCapacity(), 128);
+    Assert.assertNull(pool.intern(null));
+
+    String first = new String("localhost_12918");
+    String second = new String("localhost_12918");
+    Assert.assertSame(pool.intern(first), first);
+    Assert.assertSame(pool.intern(second), first);
+
+    // The pool is bounded, so interning many more strings than its capacity only evicts slots.
+    StringInternPool smallPool = new StringInternPool(4);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(smallPool.intern("partition_" + i), "partition_" + i);
+    }
+    Assert.assertEquals(smallPool.getCapacity(), 4);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new StringInternPool(0);
+  }
+
+  @Test
+  public void testInternRecord() {
+    ZNRecord record = new ZNRecord("TestDB");
+    record.setSimpleField(new String("STATE_MODEL_DEF"), new String("MasterSlave"));
+    record.setListField(new String("TestDB_0"),
+        Arrays.asList(new String("localhost_2"), new String("localhost_1")));
+    Map<String, String> stateMap = new LinkedHashMap<>();
+    stateMap.put(new String("localhost_2"), new String("MASTER"));
+    stateMap.put(new String("localhost_1"), new String("SLAVE"));
+    record.setMapField(new String("TestDB_0"), stateMap);
+    record.setMapField("TestDB_1", null);
+    ZNRecord expected = new ZNRecord(record);
+
+    StringInternPool pool = new StringInternPool(1024);
+    String instance = pool.intern("localhost_2");
+    pool.internRecord(record);
+
+    Assert.assertEquals(record.getSimpleFields(), expected.getSimpleFields());
+    Assert.assertEquals(record.getListFields(), expected.getListFields());
+    Assert.assertEquals(record.getMapFields(), expected.getMapFields());
+    Assert.assertSame(record.getListField("TestDB_0").get(0), instance);
+    Assert.assertSame(record.getMapField("TestDB_0").keySet().iterator().next(), instance);
+    // The order of the inner map is kept.
+    Assert.assertEquals(new ArrayList<>(record.getMapField("TestDB_0").keySet()),
+        Arrays.asList("localhost_2", "localhost_1"));
+    Assert.assertSame(record.getListFields().keySet().iterator().next(),
+        record.getMapFields().keySet().iterator().next());
+  }
+
+  /**
+   * Deserialize the current states of a synthetic cluster and bound the heap retained by the
+   * strings of the records. With interning, the records retain a single instance of every distinct
+   * string value, so the retained size is bounded by the size of the distinct values.
+   */
+  @Test
+  public void testCurrentStateFootprint() {
+    int numInstances = 100;
+    int numResources = 20;
+    int numPartitions = 50;
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    List<byte[]> serializedStates = new ArrayList<>();
+    for (int i = 0; i < numInstances; i++) {
+      for (int r = 0; r < numResources; r++) {
+        CurrentState currentState = new CurrentState("Resource_" + r);
+        currentState.setSessionId("session_" + i);
+        currentState.setStateModelDefRef("MasterSlave");
+        for (int p = 0; p < numPartitions; p++) {
+          currentState.setState("Resource_" + r + "_" + p, p % 3 == 0 ? "MASTER" : "SLAVE");
+        }
+        serializedStates.add(serializer.serialize(currentState.getRecord()));
+      }
+    }
+
+    List<ZNRecord> plainRecords = new ArrayList<>();
+    List<ZNRecord> internedRecords = new ArrayList<>();
+    StringInternPool pool = new StringInternPool(1 << 16);
+    for (byte[] bytes : serializedStates) {
+      plainRecords.add((ZNRecord) serializer.deserialize(bytes));
+      ZNRecord record = (ZNRecord) serializer.deserialize(bytes);
+      pool.internRecord(record);
+      internedRecords.add(record);
+    }
+    Assert.assertEquals(internedRecords, plainRecords);
+
+    Set<String> plainStrings = collectStrings(plainRecords);
+    Set<String> internedStrings = collectStrings(internedRecords);
+    long distinctValueBytes = estimateRetainedBytes(new HashSet<>(internedStrings));
+    long internedBytes = estimateRetainedBytes(internedStrings);
+    long plainBytes = estimateRetainedBytes(plainStrings);
+    // The pool is larger than the number of distinct values, so every value is shared.
+    Assert.assertTrue(internedBytes <= distinctValueBytes,
+        "Interned: " + internedBytes + " bytes, distinct values: " + distinctValueBytes + " bytes");
+    // Partition names are shared by all the instances, so interning should save more than half.
+    Assert.assertTrue(internedBytes * 2 < plainBytes,
+        "Interned: " + internedBytes + " bytes, plain: " + plainBytes + " bytes");
+  }
+
+  /**
+   * @return the distinct string instances retained by the records
+   */
+  private static Set<String> collectStrings(List<ZNRecord> records) {
+    Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+    for (ZNRecord record : records) {
+      for (Map.Entry<String, String> entry : record.getSimpleFields().entrySet()) {
+        strings.add(entry.getKey());
+        strings.add(entry.getValue());
+      }
+      for (Map.Entry<String, Map<String, String>> entry : record.getMapFields().entrySet()) {
+        strings.add(entry.getKey());
+        for (Map.Entry<String, String> fieldEntry : entry.getValue().entrySet()) {
+          strings.add(fieldEntry.getKey());
+          strings.add(fieldEntry.getValue());
+        }
+      }
+    }
+    return strings;
+  }
+
+  /**
+   * Estimate the heap retained by the strings: a String header and a char array each, aligned to
+   * 8 bytes. The UTF-16 array size is an upper bound of the compact strings of Java 9+.
+   */
+  private static long estimateRetainedBytes(Set<String> strings) {
+    long bytes = 0;
+    for (String string : strings) {
+      bytes += STRING_HEADER_BYTES + align(ARRAY_HEADER_BYTES + 2L * string.length());
+    }
+    return bytes;
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) / 8 * 8;
+  }
+}
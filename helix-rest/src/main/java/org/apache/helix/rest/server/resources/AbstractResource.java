@@ -19,10 +19,20 @@ package org.apache.helix.rest.server.resources;
  * under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
@@ -30,10 +40,15 @@ import javax.ws.rs.core.Application;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.helix.HelixException;
 import org.apache.helix.rest.common.ContextPropertyKeys;
 import org.apache.helix.rest.common.HelixRestNamespace;
@@ -53,9 +68,23 @@ public class AbstractResource {
     disabled,
     history,
     count,
-    error
+    error,
+    nextCursor
   }
 
+  /**
+   * The output formats of the listings. A json listing is a single object, while a ndjson listing
+   * writes one object per line for every entry.
+   */
+  public enum ListFormat {
+    json,
+    ndjson
+  }
+
+  public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+  /** The header carrying the cursor of the next page of a paginated listing */
+  public static final String NEXT_CURSOR_HEADER = "X-Helix-Next-Cursor";
+
   public enum Command {
     activate,
     deactivate,
@@ -193,6 +222,211 @@ public class AbstractResource {
       .setAnnotationIntrospector(new CodehausJacksonIntrospector())
       .readerFor(ZNRecord.class);
 
+  // Never indents, since every entry of a ndjson listing must be on a single line
+  private static final ObjectWriter STREAMING_WRITER =
+      new ObjectMapper().writer().without(SerializationFeature.INDENT_OUTPUT);
+
+  /**
+   * Writes the fields of an entry of a streamed listing following its id. The entry is read from
+   * the metadata store when it is written, so only one entry is kept in memory at a time.
+   */
+  protected interface ListEntryWriter {
+    void writeFields(String name, JsonGenerator generator) throws IOException;
+  }
+
+  /**
+   * A page of the names of a listing, ordered by name.
+   */
+  protected static class ListPage {
+    private final List<String> _names;
+    private final String _nextCursor;
+    private final boolean _paginated;
+
+    private ListPage(List<String> names, String nextCursor, boolean paginated) {
+      _names = names;
+      _nextCursor = nextCursor;
+      _paginated = paginated;
+    }
+
+    public List<String> getNames() {
+      return _names;
+    }
+
+    /**
+     * @return the cursor to request the next page with, or null if this is the last page
+     */
+    public String getNextCursor() {
+      return _nextCursor;
+    }
+
+    /**
+     * @return true if the page size is limited, false if the page has all the names
+     */
+    public boolean isPaginated() {
+      return _paginated;
+    }
+  }
+
+  /**
+   * Get the page of the names following the cursor. The cursor is the last name of the previous
+   * page, so the pages stay consistent while the entries are added or removed. The names are
+   * sorted only if the listing is paginated, otherwise they are kept in their original order.
+   * @param names all the names of the listing
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the maximum number of names of the page, or non-positive for all of them
+   * @param filter the names to include, or null to include all of them. It is called with the
+   *          batches of the candidate names in order, and returns the ones to include, so it can
+   *          read the entries of a batch at once. It is only evaluated on the names up to the end
+   *          of the page and the next one.
+   * @throws IllegalArgumentException if the cursor is invalid
+   */
+  protected static ListPage getListPage(Collection<String> names, String cursor, int limit,
+      Function<List<String>, Collection<String>> filter) {
+    String after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+    boolean paginated = limit > 0 || after != null;
+    List<String> candidates;
+    if (paginated) {
+      candidates = new ArrayList<>(names.size());
+      for (String name : names) {
+        if (after == null || name.compareTo(after) > 0) {
+          candidates.add(name);
+        }
+      }
+      Collections.sort(candidates);
+    } else {
+      candidates = new ArrayList<>(names);
+    }
+    int maxSize = limit > 0 ? limit : Integer.MAX_VALUE;
+    List<String> pageNames;
+    if (filter == null) {
+      pageNames = candidates;
+    } else {
+      pageNames = new ArrayList<>();
+      int index = 0;
+      // Filter one more name than the page size, to know if there is a next page.
+      while (index < candidates.size() && pageNames.size() <= maxSize) {
+        int end = (int) Math.min(candidates.size(), (long) index + maxSize + 1 - pageNames.size());
+        List<String> batch = candidates.subList(index, end);
+        Set<String> included = new HashSet<>(filter.apply(batch));
+        for (String name : batch) {
+          if (included.contains(name)) {
+            pageNames.add(name);
+          }
+        }
+        index = end;
+      }
+    }
+    if (pageNames.size() <= maxSize) {
+      return new ListPage(pageNames, null, paginated);
+    }
+    pageNames = new ArrayList<>(pageNames.subList(0, maxSize));
+    return new ListPage(pageNames, encodeCursor(pageNames.get(maxSize - 1)), paginated);
+  }
+
+  private static String encodeCursor(String name) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(name.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeCursor(String cursor) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  /**
+   * Stream the entries of the page with a JsonGenerator instead of building the response in
+   * memory. A json listing is written as {"id": id, listName: [entries], "nextCursor": cursor},
+   * and a ndjson listing writes every entry on its own line with the cursor in the
+   * {@link #NEXT_CURSOR_HEADER} header.
+   * The status is sent before the entries are read, so if an entry fails to be read, the failure
+   * is logged and the response is aborted. The client sees an incomplete response instead of a
+   * truncated listing with an OK status.
+   */
+  protected Response streamList(String id, String listName, ListPage page, ListFormat format,
+      ListEntryWriter entryWriter) {
+    StreamingOutput output = outputStream -> {
+      JsonFactory factory = STREAMING_WRITER.getFactory();
+      if (format == ListFormat.ndjson) {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (String name : page.getNames()) {
+          line.reset();
+          try (JsonGenerator generator = factory.createGenerator(line)) {
+            writeListEntry(name, generator, entryWriter);
+          } catch (IOException | RuntimeException e) {
+            _logger.error("Failed to write entry {} of listing {} of {}, aborting the response.",
+                name, listName, id, e);
+            throw e;
+          }
+          line.write('\n');
+          line.writeTo(outputStream);
+        }
+        outputStream.flush();
+        return;
+      }
+      JsonGenerator generator = factory.createGenerator(outputStream);
+      try {
+        generator.writeStartObject();
+        generator.writeStringField(Properties.id.name(), id);
+        generator.writeArrayFieldStart(listName);
+        for (String name : page.getNames()) {
+          try {
+            writeListEntry(name, generator, entryWriter);
+          } catch (IOException | RuntimeException e) {
+            _logger.error("Failed to write entry {} of listing {} of {}, aborting the response.",
+                name, listName, id, e);
+            throw e;
+          }
+        }
+        generator.writeEndArray();
+        if (page.getNextCursor() != null) {
+          generator.writeStringField(Properties.nextCursor.name(), page.getNextCursor());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      } finally {
+        // Not closed, since closing would complete the open arrays and objects of a failed listing
+        generator.flush();
+      }
+    };
+    Response.ResponseBuilder builder = Response.ok(output,
+        format == ListFormat.ndjson ? NDJSON_MEDIA_TYPE : MediaType.APPLICATION_JSON);
+    if (page.getNextCursor() != null) {
+      builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+    }
+    return builder.build();
+  }
+
+  /**
+   * The JSON representation of a listing built in memory, with the cursor of the next page.
+   */
+  protected Response listRepresentation(ObjectNode root, ListPage page) {
+    if (page.getNextCursor() == null) {
+      return JSONRepresentation(root);
+    }
+    root.put(Properties.nextCursor.name(), page.getNextCursor());
+    return JSONRepresentation(root, NEXT_CURSOR_HEADER, page.getNextCursor());
+  }
+
+  private static void writeListEntry(String name, JsonGenerator generator,
+      ListEntryWriter entryWriter) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(Properties.id.name(), name);
+    entryWriter.writeFields(name, generator);
+    generator.writeEndObject();
+  }
+
+  /**
+   * Write an object field of a streamed listing entry, such as a ZNRecord.
+   */
+  protected static void writeObjectField(JsonGenerator generator, String fieldName, Object value)
+      throws IOException {
+    generator.writeFieldName(fieldName);
+    STREAMING_WRITER.writeValue(generator, value);
+  }
+
   protected static String toJson(Object object)
       throws IOException {
     OBJECT_MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
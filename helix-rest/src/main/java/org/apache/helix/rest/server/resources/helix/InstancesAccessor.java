@@ -87,18 +87,39 @@ public class InstancesAccessor extends AbstractHelixResource {
     cross_zone_based
   }
 
+  /**
+   * Returns the instances of the cluster for the getAllInstances command. The listing is
+   * paginated with the limit and the cursor, and with the expand option or the ndjson format, the
+   * entries are streamed with their instance configs.
+   * @param clusterId
+   * @param command getAllInstances or validateWeight
+   * @param cursor the nextCursor of the previous page
+   * @param limit the maximum number of instances to return, or non-positive for all of them
+   * @param format json or ndjson
+   * @param expand whether to return the instance config of every instance
+   * @return JSON result
+   */
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
   public Response getAllInstances(@PathParam("clusterId") String clusterId,
-      @DefaultValue("getAllInstances") @QueryParam("command") String command) {
+      @DefaultValue("getAllInstances") @QueryParam("command") String command,
+      @QueryParam("cursor") String cursor, @DefaultValue("-1") @QueryParam("limit") int limit,
+      @DefaultValue("json") @QueryParam("format") String format,
+      @DefaultValue("false") @QueryParam("expand") boolean expand) {
     // Get the command. If not provided, the default would be "getAllInstances"
     Command cmd;
+    ListFormat listFormat;
     try {
       cmd = Command.valueOf(command);
     } catch (Exception e) {
       return badRequest("Invalid command : " + command);
     }
+    try {
+      listFormat = ListFormat.valueOf(format);
+    } catch (IllegalArgumentException e) {
+      return badRequest("Invalid format : " + format);
+    }
 
     HelixDataAccessor accessor = getDataAccssor(clusterId);
     List<String> instances = accessor.getChildNames(accessor.keyBuilder().instanceConfigs());
@@ -108,19 +129,43 @@ public class InstancesAccessor extends AbstractHelixResource {
 
     switch (cmd) {
     case getAllInstances:
+      ListPage page;
+      try {
+        page = getListPage(instances, cursor, limit, null);
+      } catch (IllegalArgumentException e) {
+        return badRequest(e.getMessage());
+      }
+      Set<String> liveInstances =
+          new HashSet<>(accessor.getChildNames(accessor.keyBuilder().liveInstances()));
+      ClusterConfig clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
+
+      if (expand || listFormat == ListFormat.ndjson) {
+        return streamList(clusterId, InstancesProperties.instances.name(), page, listFormat,
+            (instanceName, generator) -> {
+              InstanceConfig instanceConfig =
+                  accessor.getProperty(accessor.keyBuilder().instanceConfig(instanceName));
+              generator.writeBooleanField(InstancesProperties.online.name(),
+                  instanceConfig != null && liveInstances.contains(instanceName));
+              generator.writeBooleanField(InstancesProperties.disabled.name(),
+                  instanceConfig != null && !InstanceValidationUtil
+                      .isInstanceEnabled(instanceConfig, clusterConfig));
+              if (expand) {
+                writeObjectField(generator, InstanceConfig.class.getSimpleName(),
+                    instanceConfig == null ? null : instanceConfig.getRecord());
+              }
+            });
+      }
+
       ObjectNode root = JsonNodeFactory.instance.objectNode();
       root.put(Properties.id.name(), JsonNodeFactory.instance.textNode(clusterId));
 
       ArrayNode instancesNode =
           root.putArray(InstancesAccessor.InstancesProperties.instances.name());
-      instancesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(instances));
+      instancesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(page.getNames()));
       ArrayNode onlineNode = root.putArray(InstancesAccessor.InstancesProperties.online.name());
       ArrayNode disabledNode = root.putArray(InstancesAccessor.InstancesProperties.disabled.name());
 
-      List<String> liveInstances = accessor.getChildNames(accessor.keyBuilder().liveInstances());
-      ClusterConfig clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
-
-      for (String instanceName : instances) {
+      for (String instanceName : page.getNames()) {
         InstanceConfig instanceConfig =
             accessor.getProperty(accessor.keyBuilder().instanceConfig(instanceName));
         if (instanceConfig != null) {
@@ -133,7 +178,7 @@ public class InstancesAccessor extends AbstractHelixResource {
           }
         }
       }
-      return JSONRepresentation(root);
+      return listRepresentation(root, page);
     case validateWeight:
       // Validate all instances for WAGED rebalance
       HelixAdmin admin = getHelixAdmin();
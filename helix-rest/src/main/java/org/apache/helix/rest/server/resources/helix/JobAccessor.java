@@ -69,7 +69,16 @@ public class JobAccessor extends AbstractHelixResource {
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
   public Response getJobs(@PathParam("clusterId") String clusterId,
-      @PathParam("workflowName") String workflowName) {
+      @PathParam("workflowName") String workflowName, @QueryParam("cursor") String cursor,
+      @DefaultValue("-1") @QueryParam("limit") int limit,
+      @DefaultValue("json") @QueryParam("format") String format,
+      @DefaultValue("false") @QueryParam("expand") boolean expand) {
+    ListFormat listFormat;
+    try {
+      listFormat = ListFormat.valueOf(format);
+    } catch (IllegalArgumentException e) {
+      return badRequest("Invalid format : " + format);
+    }
     TaskDriver driver = getTaskDriver(clusterId);
     WorkflowConfig workflowConfig = driver.getWorkflowConfig(workflowName);
     ObjectNode root = JsonNodeFactory.instance.objectNode();
@@ -79,13 +88,35 @@ public class JobAccessor extends AbstractHelixResource {
     }
 
     Set<String> jobs = workflowConfig.getJobDag().getAllNodes();
+    ListPage page;
+    try {
+      page = getListPage(jobs == null ? Collections.<String> emptySet() : jobs, cursor, limit,
+          null);
+    } catch (IllegalArgumentException e) {
+      return badRequest(e.getMessage());
+    }
+
+    if (expand || listFormat == ListFormat.ndjson) {
+      return streamList(JobProperties.Jobs.name(), JobProperties.Jobs.name(), page, listFormat,
+          (jobName, generator) -> {
+            if (expand) {
+              JobConfig jobConfig = driver.getJobConfig(jobName);
+              JobContext jobContext = driver.getJobContext(jobName);
+              writeObjectField(generator, JobProperties.JobConfig.name(),
+                  jobConfig == null ? null : jobConfig.getRecord());
+              writeObjectField(generator, JobProperties.JobContext.name(),
+                  jobContext == null ? null : jobContext.getRecord());
+            }
+          });
+    }
+
     root.put(Properties.id.name(), JobProperties.Jobs.name());
     ArrayNode jobsNode = root.putArray(JobProperties.Jobs.name());
 
     if (jobs != null) {
-      jobsNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(jobs));
+      jobsNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(page.getNames()));
     }
-    return JSONRepresentation(root);
+    return listRepresentation(root, page);
   }
 
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
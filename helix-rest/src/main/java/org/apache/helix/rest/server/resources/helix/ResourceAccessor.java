@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,7 +46,9 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixAdmin;
+import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.model.CustomizedView;
 import org.apache.helix.model.ExternalView;
@@ -80,32 +83,80 @@ public class ResourceAccessor extends AbstractHelixResource {
     UNHEALTHY
   }
 
+  /**
+   * Returns the resources of the cluster. The listing is paginated with the limit and the cursor,
+   * and with the expand option or the ndjson format, the entries are streamed with their ideal
+   * states and external views.
+   * @param clusterId
+   * @param cursor the nextCursor of the previous page
+   * @param limit the maximum number of resources to return, or non-positive for all of them
+   * @param format json or ndjson
+   * @param expand whether to return the ideal state and the external view of every resource
+   * @return JSON result
+   */
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
-  public Response getResources(@PathParam("clusterId") String clusterId) {
-    ObjectNode root = JsonNodeFactory.instance.objectNode();
-    root.put(Properties.id.name(), JsonNodeFactory.instance.textNode(clusterId));
+  public Response getResources(@PathParam("clusterId") String clusterId,
+      @QueryParam("cursor") String cursor, @DefaultValue("-1") @QueryParam("limit") int limit,
+      @DefaultValue("json") @QueryParam("format") String format,
+      @DefaultValue("false") @QueryParam("expand") boolean expand) {
+    ListFormat listFormat;
+    try {
+      listFormat = ListFormat.valueOf(format);
+    } catch (IllegalArgumentException e) {
+      return badRequest("Invalid format : " + format);
+    }
 
     RealmAwareZkClient zkClient = getRealmAwareZkClient();
 
+    List<String> idealStates = zkClient.getChildren(PropertyPathBuilder.idealState(clusterId));
+    if (idealStates == null) {
+      return notFound();
+    }
+    ListPage page;
+    try {
+      page = getListPage(idealStates, cursor, limit, null);
+    } catch (IllegalArgumentException e) {
+      return badRequest(e.getMessage());
+    }
+
+    if (expand || listFormat == ListFormat.ndjson) {
+      HelixDataAccessor dataAccessor = getDataAccssor(clusterId);
+      PropertyKey.Builder keyBuilder = dataAccessor.keyBuilder();
+      return streamList(clusterId, ResourceProperties.idealStates.name(), page, listFormat,
+          (resourceName, generator) -> {
+            if (expand) {
+              IdealState idealState = dataAccessor.getProperty(keyBuilder.idealStates(resourceName));
+              ExternalView externalView =
+                  dataAccessor.getProperty(keyBuilder.externalView(resourceName));
+              writeObjectField(generator, ResourceProperties.idealState.name(),
+                  idealState == null ? null : idealState.getRecord());
+              writeObjectField(generator, ResourceProperties.externalView.name(),
+                  externalView == null ? null : externalView.getRecord());
+            }
+          });
+    }
+
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+    root.put(Properties.id.name(), JsonNodeFactory.instance.textNode(clusterId));
+
     ArrayNode idealStatesNode = root.putArray(ResourceProperties.idealStates.name());
     ArrayNode externalViewsNode = root.putArray(ResourceProperties.externalViews.name());
 
-    List<String> idealStates = zkClient.getChildren(PropertyPathBuilder.idealState(clusterId));
     List<String> externalViews = zkClient.getChildren(PropertyPathBuilder.externalView(clusterId));
 
-    if (idealStates != null) {
-      idealStatesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(idealStates));
-    } else {
-      return notFound();
-    }
+    idealStatesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(page.getNames()));
 
     if (externalViews != null) {
+      if (page.isPaginated()) {
+        // Only the external views of the resources in the page
+        Set<String> pageResources = new HashSet<>(page.getNames());
+        externalViews.retainAll(pageResources);
+      }
       externalViewsNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(externalViews));
     }
-
-    return JSONRepresentation(root);
+    return listRepresentation(root, page);
   }
 
   /**
@@ -45,7 +45,10 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.rest.common.HttpConstants;
 import org.apache.helix.rest.server.filters.ClusterAuth;
 import org.apache.helix.task.JobConfig;
@@ -80,16 +83,86 @@ public class WorkflowAccessor extends AbstractHelixResource {
     clean
   }
 
+  /**
+   * Returns the workflows of the cluster. The listing is paginated with the limit and the cursor,
+   * and with the expand option or the ndjson format, the entries are streamed with their workflow
+   * configs and contexts. The workflow configs are read one at a time for a paginated or streamed
+   * listing, instead of reading all of them at once.
+   * @param clusterId
+   * @param cursor the nextCursor of the previous page
+   * @param limit the maximum number of workflows to return, or non-positive for all of them
+   * @param format json or ndjson
+   * @param expand whether to return the config and the context of every workflow
+   * @return JSON result
+   */
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
-  public Response getWorkflows(@PathParam("clusterId") String clusterId) {
+  public Response getWorkflows(@PathParam("clusterId") String clusterId,
+      @QueryParam("cursor") String cursor, @DefaultValue("-1") @QueryParam("limit") int limit,
+      @DefaultValue("json") @QueryParam("format") String format,
+      @DefaultValue("false") @QueryParam("expand") boolean expand) {
+    ListFormat listFormat;
+    try {
+      listFormat = ListFormat.valueOf(format);
+    } catch (IllegalArgumentException e) {
+      return badRequest("Invalid format : " + format);
+    }
     TaskDriver taskDriver = getTaskDriver(clusterId);
-    Map<String, WorkflowConfig> workflowConfigMap = taskDriver.getWorkflows();
-    Map<String, List<String>> dataMap = new HashMap<>();
-    dataMap.put(WorkflowProperties.Workflows.name(), new ArrayList<>(workflowConfigMap.keySet()));
+    boolean paginated = limit > 0 || (cursor != null && !cursor.isEmpty());
+    if (!paginated && !expand && listFormat == ListFormat.json) {
+      Map<String, WorkflowConfig> workflowConfigMap = taskDriver.getWorkflows();
+      Map<String, List<String>> dataMap = new HashMap<>();
+      dataMap.put(WorkflowProperties.Workflows.name(),
+          new ArrayList<>(workflowConfigMap.keySet()));
+
+      return JSONRepresentation(dataMap);
+    }
 
-    return JSONRepresentation(dataMap);
+    HelixDataAccessor accessor = getDataAccssor(clusterId);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    ListPage page;
+    try {
+      // The workflows are the resource configs with a DAG. The configs of a batch are read at once.
+      page = getListPage(accessor.getChildNames(keyBuilder.resourceConfigs()), cursor, limit,
+          resourceNames -> {
+            List<PropertyKey> keys = new ArrayList<>(resourceNames.size());
+            for (String resourceName : resourceNames) {
+              keys.add(keyBuilder.resourceConfig(resourceName));
+            }
+            List<HelixProperty> resourceConfigs = accessor.getProperty(keys, false);
+            List<String> workflows = new ArrayList<>();
+            for (int i = 0; i < resourceNames.size(); i++) {
+              HelixProperty resourceConfig = resourceConfigs.get(i);
+              if (resourceConfig != null && resourceConfig.getRecord()
+                  .getSimpleField(WorkflowConfig.WorkflowConfigProperty.Dag.name()) != null) {
+                workflows.add(resourceNames.get(i));
+              }
+            }
+            return workflows;
+          });
+    } catch (IllegalArgumentException e) {
+      return badRequest(e.getMessage());
+    }
+
+    if (expand || listFormat == ListFormat.ndjson) {
+      return streamList(clusterId, WorkflowProperties.Workflows.name(), page, listFormat,
+          (workflowId, generator) -> {
+            if (expand) {
+              WorkflowConfig workflowConfig = taskDriver.getWorkflowConfig(workflowId);
+              WorkflowContext workflowContext = taskDriver.getWorkflowContext(workflowId);
+              writeObjectField(generator, WorkflowProperties.WorkflowConfig.name(),
+                  workflowConfig == null ? null : workflowConfig.getRecord());
+              writeObjectField(generator, WorkflowProperties.WorkflowContext.name(),
+                  workflowContext == null ? null : workflowContext.getRecord());
+            }
+          });
+    }
+
+    ObjectNode root = JsonNodeFactory.instance.objectNode();
+    root.putArray(WorkflowProperties.Workflows.name())
+        .addAll((ArrayNode) OBJECT_MAPPER.valueToTree(page.getNames()));
+    return listRepresentation(root, page);
   }
 
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
@@ -23,8 +23,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
@@ -33,6 +35,7 @@ import javax.ws.rs.core.Response;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.TestHelper;
 import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.model.ClusterConfig;
@@ -414,6 +417,67 @@ public class TestInstancesAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetAllInstances")
+  public void testGetAllInstancesPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    List<String> expectedInstances =
+        _gZkClient.getChildren(PropertyPathBuilder.instanceConfig(CLUSTER_NAME));
+    Collections.sort(expectedInstances);
+
+    // Walk through the pages with the cursors
+    List<String> instances = new ArrayList<>();
+    String cursor = null;
+    do {
+      Map<String, String> queryParams = new HashMap<>();
+      queryParams.put("limit", "2");
+      if (cursor != null) {
+        queryParams.put("cursor", cursor);
+      }
+      String body = get("clusters/" + CLUSTER_NAME + "/instances", queryParams,
+          Response.Status.OK.getStatusCode(), true);
+      JsonNode node = OBJECT_MAPPER.readTree(body);
+      JsonNode instancesNode = node.get(InstancesAccessor.InstancesProperties.instances.name());
+      Assert.assertTrue(instancesNode.size() <= 2);
+      for (JsonNode instance : instancesNode) {
+        instances.add(instance.textValue());
+      }
+      // The online instances are reported for the instances of the page only
+      for (JsonNode instance : node.get(InstancesAccessor.InstancesProperties.online.name())) {
+        Assert.assertTrue(instancesNode.toString().contains(instance.toString()));
+      }
+      JsonNode nextCursor = node.get(InstancesAccessor.Properties.nextCursor.name());
+      cursor = nextCursor == null ? null : nextCursor.textValue();
+    } while (cursor != null);
+    Assert.assertEquals(instances, expectedInstances);
+
+    // The ndjson listing streams an entry per line, with the cursor in the header
+    Response response = target("clusters/" + CLUSTER_NAME + "/instances").queryParam("limit", 2)
+        .queryParam("format", "ndjson").queryParam("expand", true).request().get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    Assert.assertEquals(response.getMediaType().toString(), InstancesAccessor.NDJSON_MEDIA_TYPE);
+    Assert.assertNotNull(response.getHeaderString(InstancesAccessor.NEXT_CURSOR_HEADER));
+    String[] lines = response.readEntity(String.class).split("\n");
+    Assert.assertEquals(lines.length, 2);
+    for (int i = 0; i < lines.length; i++) {
+      JsonNode entry = OBJECT_MAPPER.readTree(lines[i]);
+      String instance = entry.get(InstancesAccessor.Properties.id.name()).textValue();
+      Assert.assertEquals(instance, expectedInstances.get(i));
+      Assert.assertTrue(entry.get(InstancesAccessor.InstancesProperties.online.name()).isBoolean());
+      Assert.assertTrue(
+          entry.get(InstancesAccessor.InstancesProperties.disabled.name()).isBoolean());
+      InstanceConfig instanceConfig = new InstanceConfig(
+          toZNRecord(entry.get(InstanceConfig.class.getSimpleName()).toString()));
+      Assert.assertEquals(instanceConfig.getInstanceName(), instance);
+    }
+
+    // An invalid cursor or format is rejected
+    get("clusters/" + CLUSTER_NAME + "/instances", ImmutableMap.of("cursor", "***"),
+        Response.Status.BAD_REQUEST.getStatusCode(), false);
+    get("clusters/" + CLUSTER_NAME + "/instances", ImmutableMap.of("format", "xml"),
+        Response.Status.BAD_REQUEST.getStatusCode(), false);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(enabled = false)
   public void testUpdateInstances() throws IOException {
     // TODO: Reenable the test after storage node fix the problem
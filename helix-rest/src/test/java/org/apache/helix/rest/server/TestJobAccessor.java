@@ -20,8 +20,11 @@ package org.apache.helix.rest.server;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
@@ -40,6 +43,7 @@ import org.apache.helix.task.TaskDriver;
 import org.apache.helix.task.TaskPartitionState;
 import org.apache.helix.task.TaskUtil;
 import org.apache.helix.task.WorkflowConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -70,6 +74,58 @@ public class TestJobAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetJobs")
+  public void testGetJobsPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    List<String> expectedJobs = new ArrayList<>(
+        _workflowMap.get(CLUSTER_NAME).get(WORKFLOW_NAME).getWorkflowConfig().getJobDag()
+            .getAllNodes());
+    Collections.sort(expectedJobs);
+
+    // Walk through the pages with the cursors
+    List<String> jobs = new ArrayList<>();
+    String cursor = null;
+    int pageCount = 0;
+    do {
+      Map<String, String> queryParams = new HashMap<>();
+      queryParams.put("limit", "1");
+      if (cursor != null) {
+        queryParams.put("cursor", cursor);
+      }
+      String body = get("clusters/" + CLUSTER_NAME + "/workflows/" + WORKFLOW_NAME + "/jobs",
+          queryParams, Response.Status.OK.getStatusCode(), true);
+      JsonNode node = OBJECT_MAPPER.readTree(body);
+      JsonNode jobsNode = node.get(JobAccessor.JobProperties.Jobs.name());
+      Assert.assertTrue(jobsNode.size() <= 1);
+      for (JsonNode job : jobsNode) {
+        jobs.add(job.textValue());
+      }
+      JsonNode nextCursor = node.get(JobAccessor.Properties.nextCursor.name());
+      cursor = nextCursor == null ? null : nextCursor.textValue();
+      pageCount++;
+    } while (cursor != null);
+    Assert.assertEquals(jobs, expectedJobs);
+    Assert.assertEquals(pageCount, expectedJobs.size());
+
+    // The ndjson listing of all the jobs has no cursor
+    Response response = target("clusters/" + CLUSTER_NAME + "/workflows/" + WORKFLOW_NAME
+        + "/jobs").queryParam("format", "ndjson").queryParam("expand", true).request().get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    Assert.assertEquals(response.getMediaType().toString(), JobAccessor.NDJSON_MEDIA_TYPE);
+    Assert.assertNull(response.getHeaderString(JobAccessor.NEXT_CURSOR_HEADER));
+    Set<String> streamedJobs = new HashSet<>();
+    for (String line : response.readEntity(String.class).split("\n")) {
+      JsonNode entry = OBJECT_MAPPER.readTree(line);
+      String job = entry.get(JobAccessor.Properties.id.name()).textValue();
+      streamedJobs.add(job);
+      ZNRecord jobConfig =
+          toZNRecord(entry.get(JobAccessor.JobProperties.JobConfig.name()).toString());
+      Assert.assertEquals(jobConfig.getId(), job);
+    }
+    Assert.assertEquals(streamedJobs, new HashSet<>(expectedJobs));
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetJobs")
   public void testGetJob() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -82,6 +82,64 @@ public class TestResourceAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetResources")
+  public void testGetResourcesPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    List<String> expectedResources =
+        _gZkClient.getChildren(PropertyPathBuilder.idealState(CLUSTER_NAME));
+    Collections.sort(expectedResources);
+
+    // Walk through the pages with the cursors
+    List<String> resources = new ArrayList<>();
+    String cursor = null;
+    int pageCount = 0;
+    do {
+      Map<String, String> queryParams = new HashMap<>();
+      queryParams.put("limit", "3");
+      if (cursor != null) {
+        queryParams.put("cursor", cursor);
+      }
+      String body = get("clusters/" + CLUSTER_NAME + "/resources", queryParams,
+          Response.Status.OK.getStatusCode(), true);
+      JsonNode node = OBJECT_MAPPER.readTree(body);
+      JsonNode idealStates = node.get(ResourceAccessor.ResourceProperties.idealStates.name());
+      Assert.assertTrue(idealStates.size() <= 3);
+      for (JsonNode idealState : idealStates) {
+        resources.add(idealState.textValue());
+      }
+      JsonNode nextCursor = node.get(ResourceAccessor.Properties.nextCursor.name());
+      cursor = nextCursor == null ? null : nextCursor.textValue();
+      pageCount++;
+    } while (cursor != null);
+    Assert.assertEquals(resources, expectedResources);
+    Assert.assertEquals(pageCount, (expectedResources.size() + 2) / 3);
+
+    // The ndjson listing streams an entry per line, with the cursor in the header
+    Response response = target("clusters/" + CLUSTER_NAME + "/resources").queryParam("limit", 2)
+        .queryParam("format", "ndjson").queryParam("expand", true).request().get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    Assert.assertEquals(response.getMediaType().toString(), ResourceAccessor.NDJSON_MEDIA_TYPE);
+    Assert.assertNotNull(response.getHeaderString(ResourceAccessor.NEXT_CURSOR_HEADER));
+    String[] lines = response.readEntity(String.class).split("\n");
+    Assert.assertEquals(lines.length, 2);
+    for (int i = 0; i < lines.length; i++) {
+      JsonNode entry = OBJECT_MAPPER.readTree(lines[i]);
+      String resource = entry.get(ResourceAccessor.Properties.id.name()).textValue();
+      Assert.assertEquals(resource, expectedResources.get(i));
+      IdealState idealState = new IdealState(toZNRecord(
+          entry.get(ResourceAccessor.ResourceProperties.idealState.name()).toString()));
+      Assert.assertEquals(idealState,
+          _gSetupTool.getClusterManagementTool().getResourceIdealState(CLUSTER_NAME, resource));
+    }
+
+    // An invalid cursor or format is rejected
+    get("clusters/" + CLUSTER_NAME + "/resources", ImmutableMap.of("cursor", "***"),
+        Response.Status.BAD_REQUEST.getStatusCode(), false);
+    get("clusters/" + CLUSTER_NAME + "/resources", ImmutableMap.of("format", "xml"),
+        Response.Status.BAD_REQUEST.getStatusCode(), false);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetResources")
   public void testGetResource() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -22,6 +22,7 @@ package org.apache.helix.rest.server;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
@@ -71,6 +72,40 @@ public class TestWorkflowAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetWorkflows")
+  public void testGetWorkflowsStreamed() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    Set<String> expectedWorkflows = getTaskDriver(CLUSTER_NAME).getWorkflows().keySet();
+
+    // Only the resource configs of the workflows are listed.
+    Response response = target("clusters/" + CLUSTER_NAME + "/workflows")
+        .queryParam("format", "ndjson").queryParam("expand", true).request().get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    Assert.assertNull(response.getHeaderString(WorkflowAccessor.NEXT_CURSOR_HEADER));
+    Set<String> workflows = new HashSet<>();
+    for (String line : response.readEntity(String.class).split("\n")) {
+      JsonNode entry = OBJECT_MAPPER.readTree(line);
+      workflows.add(entry.get(WorkflowAccessor.Properties.id.name()).textValue());
+      Assert.assertNotNull(entry.get(WorkflowAccessor.WorkflowProperties.WorkflowConfig.name())
+          .get("simpleFields"));
+    }
+    Assert.assertEquals(workflows, expectedWorkflows);
+
+    // The expanded json listing is paginated as well
+    Map<String, String> queryParams = new HashMap<>();
+    queryParams.put("limit", "1");
+    queryParams.put("expand", "true");
+    String body = get("clusters/" + CLUSTER_NAME + "/workflows", queryParams,
+        Response.Status.OK.getStatusCode(), true);
+    JsonNode node = OBJECT_MAPPER.readTree(body);
+    JsonNode workflowsNode = node.get(WorkflowAccessor.WorkflowProperties.Workflows.name());
+    Assert.assertEquals(workflowsNode.size(), 1);
+    Assert.assertTrue(expectedWorkflows.contains(
+        workflowsNode.get(0).get(WorkflowAccessor.Properties.id.name()).textValue()));
+    Assert.assertNotNull(node.get(WorkflowAccessor.Properties.nextCursor.name()));
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetWorkflows")
   public void testGetWorkflow() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
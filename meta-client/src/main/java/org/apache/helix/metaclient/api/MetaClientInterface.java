@@ -19,6 +19,7 @@ package org.apache.helix.metaclient.api;
  * under the License.
  */
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -40,6 +41,10 @@ public interface MetaClientInterface<T> {
     // An ephemeral node cannot have sub entry.
     PERSISTENT,
 
+    // Same as EPHEMERAL, but a monotonically increasing sequence number is appended to the key by
+    // the metadata store. The sequence numbers order the entries created under the same parent.
+    EPHEMERAL_SEQUENTIAL,
+
     // For metadata storage that has hierarchical key space (e.g. ZK), the node will be
     // automatically deleted at some point in the future if the last child of the node is deleted.
     // For metadata storage that has non-hierarchical key space (e.g. etcd), the node will be
@@ -609,5 +614,30 @@ public interface MetaClientInterface<T> {
    */
    T deserialize(byte[] bytes, String path);
 
+  /**
+   * Get the raw data of the entry without deserializing it. The returned buffer is read-only.
+   * This can be used together with a deserializer that reads from a ByteBuffer, to avoid the
+   * intermediate objects of the deserialization of type T.
+   * @param key key to identify the entry
+   * @return the raw data of the entry, or null if the entry does not exist
+   */
+  default ByteBuffer getRaw(String key) {
+    T data = get(key);
+    return data == null ? null : ByteBuffer.wrap(serialize(data, key)).asReadOnlyBuffer();
+  }
+
+  /**
+   * Set the raw data of the entry without serializing it. The remaining bytes of the buffer are
+   * written, and the position of the buffer is not changed.
+   * @param key key to identify the entry
+   * @param data the raw data of the entry
+   * @param version expected version of the entry. -1 matched any version.
+   */
+  default void setRaw(String key, ByteBuffer data, int version) {
+    byte[] bytes = new byte[data.remaining()];
+    data.duplicate().get(bytes);
+    set(key, deserialize(bytes, key), version);
+  }
+
   // TODO: Secure CRUD APIs
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ package org.apache.helix.metaclient.impl.zk;
  * under the License.
  */
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -40,6 +42,7 @@ import org.apache.helix.metaclient.api.MetaClientInterface;
 import org.apache.helix.metaclient.api.Op;
 import org.apache.helix.metaclient.api.OpResult;
 import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientInterruptException;
 import org.apache.helix.metaclient.exception.MetaClientNoNodeException;
 import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
 import org.apache.helix.metaclient.impl.zk.adapter.ChildListenerAdapter;
@@ -57,7 +60,9 @@ import org.apache.helix.zookeeper.api.client.ChildrenSubscribeResult;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Watcher;
@@ -70,6 +75,8 @@ import static org.apache.helix.metaclient.impl.zk.util.ZkMetaClientUtil.translat
 
 public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(ZkMetaClient.class);
+  // The max number of the outstanding async ZK calls of a batch operation
+  public static final int BATCH_OPERATION_WINDOW_SIZE = 1000;
   private final ZkClient _zkClient;
   private final long _initConnectionTimeout;
   private final long _reconnectTimeout;
@@ -132,8 +139,9 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     List<String> nodePaths = separateIntoUniqueNodePaths(key);
     int i = 0;
     // Ephemeral nodes cant have children, so change mode when creating parents
-    EntryMode parentMode = (EntryMode.EPHEMERAL.equals(mode) ?
-        EntryMode.PERSISTENT : mode);
+    EntryMode parentMode =
+        (EntryMode.EPHEMERAL.equals(mode) || EntryMode.EPHEMERAL_SEQUENTIAL.equals(mode)
+            ? EntryMode.PERSISTENT : mode);
 
     // Iterate over paths, starting with full key then attempting each successive parent
     // Try /a/b/c, if parent /a/b, does not exist, then try to create parent, etc..
@@ -453,9 +461,37 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     return null;
   }
 
+  /**
+   * Batch version of get. The reads are pipelined with the async ZK calls, and at most
+   * {@link #BATCH_OPERATION_WINDOW_SIZE} reads are outstanding at the same time.
+   * @return A list of entry values. The value is null if the entry does not exist.
+   */
   @Override
   public List<T> get(List<String> keys) {
-    return null;
+    List<T> results = new ArrayList<>(keys.size());
+    for (int start = 0; start < keys.size(); start += BATCH_OPERATION_WINDOW_SIZE) {
+      int end = Math.min(keys.size(), start + BATCH_OPERATION_WINDOW_SIZE);
+      List<ZkAsyncCallbacks.GetDataCallbackHandler> callbacks = new ArrayList<>(end - start);
+      for (String key : keys.subList(start, end)) {
+        ZkAsyncCallbacks.GetDataCallbackHandler cb = new ZkAsyncCallbacks.GetDataCallbackHandler();
+        callbacks.add(cb);
+        _zkClient.asyncGetData(key, cb);
+      }
+      for (int i = 0; i < callbacks.size(); i++) {
+        ZkAsyncCallbacks.GetDataCallbackHandler cb = callbacks.get(i);
+        String key = keys.get(start + i);
+        KeeperException.Code rc = waitForResult(cb, key);
+        if (rc == KeeperException.Code.OK) {
+          results.add(_zkClient.deserialize(cb.getData(), key));
+        } else if (rc == KeeperException.Code.NONODE) {
+          results.add(null);
+        } else {
+          throw translateZkExceptionToMetaclientException(
+              ZkException.create(KeeperException.create(rc, key)));
+        }
+      }
+    }
+    return results;
   }
 
   @Override
@@ -463,9 +499,81 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     return null;
   }
 
+  /**
+   * Batch version of set. The writes are pipelined with the async ZK calls, and at most
+   * {@link #BATCH_OPERATION_WINDOW_SIZE} writes are outstanding at the same time.
+   */
   @Override
   public boolean[] set(List<String> keys, List<T> datas, List<Integer> version) {
-    return new boolean[0];
+    if (keys.size() != datas.size() || keys.size() != version.size()) {
+      throw new IllegalArgumentException(
+          "The keys, datas and versions of the batch set must be in the same length.");
+    }
+    boolean[] results = new boolean[keys.size()];
+    for (int start = 0; start < keys.size(); start += BATCH_OPERATION_WINDOW_SIZE) {
+      int end = Math.min(keys.size(), start + BATCH_OPERATION_WINDOW_SIZE);
+      List<ZkAsyncCallbacks.SetDataCallbackHandler> callbacks = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        ZkAsyncCallbacks.SetDataCallbackHandler cb = new ZkAsyncCallbacks.SetDataCallbackHandler();
+        callbacks.add(cb);
+        _zkClient.asyncSetData(keys.get(i), datas.get(i), version.get(i), cb);
+      }
+      for (int i = 0; i < callbacks.size(); i++) {
+        results[start + i] =
+            waitForResult(callbacks.get(i), keys.get(start + i)) == KeeperException.Code.OK;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Read the raw data of the entry with a single ZK read. The returned buffer wraps the data
+   * received from ZK, so no copy or deserialization is made.
+   */
+  @Override
+  public ByteBuffer getRaw(String key) {
+    try {
+      byte[] data = _zkClient
+          .retryUntilConnected(() -> _zkClient.getConnection().readData(key, null, false));
+      return data == null ? null : ByteBuffer.wrap(data).asReadOnlyBuffer();
+    } catch (ZkNoNodeException e) {
+      return null;
+    } catch (ZkException e) {
+      throw translateZkExceptionToMetaclientException(e);
+    }
+  }
+
+  /**
+   * Write the raw data to the entry with a single ZK write, without serialization. The backing
+   * array of the buffer is written directly if the buffer covers the whole array.
+   */
+  @Override
+  public void setRaw(String key, ByteBuffer data, int version) {
+    byte[] bytes;
+    if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0
+        && data.remaining() == data.array().length) {
+      bytes = data.array();
+    } else {
+      bytes = new byte[data.remaining()];
+      data.duplicate().get(bytes);
+    }
+    try {
+      _zkClient.retryUntilConnected(() -> {
+        _zkClient.getConnection().writeData(key, bytes, version);
+        return null;
+      });
+    } catch (ZkException e) {
+      throw translateZkExceptionToMetaclientException(e);
+    }
+  }
+
+  private static KeeperException.Code waitForResult(ZkAsyncCallbacks.DefaultCallback cb,
+      String key) {
+    if (!cb.waitForSuccess()) {
+      throw new MetaClientInterruptException(
+          "Interrupted while waiting for the batch operation of key: " + key);
+    }
+    return KeeperException.Code.get(cb.getRc());
   }
 
   @Override
@@ -483,7 +591,12 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     // Convert list of MetaClient Ops to Zk Ops
     List<org.apache.zookeeper.Op> zkOps = ZkMetaClientUtil.metaClientOpsToZkOps(ops);
     // Execute Zk transactional support
-    List<org.apache.zookeeper.OpResult> zkResult = _zkClient.multi(zkOps);
+    List<org.apache.zookeeper.OpResult> zkResult;
+    try {
+      zkResult = _zkClient.multi(zkOps);
+    } catch (ZkException e) {
+      throw translateZkExceptionToMetaclientException(e);
+    }
     // Convert list of Zk OpResults to MetaClient OpResults
     return ZkMetaClientUtil.zkOpResultToMetaClientOpResults(zkResult);
   }
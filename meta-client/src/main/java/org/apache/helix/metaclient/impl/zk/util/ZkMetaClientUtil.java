@@ -120,6 +120,8 @@ public class ZkMetaClientUtil {
         return CreateMode.PERSISTENT;
       case EPHEMERAL:
         return CreateMode.EPHEMERAL;
+      case EPHEMERAL_SEQUENTIAL:
+        return CreateMode.EPHEMERAL_SEQUENTIAL;
       case CONTAINER:
         return CreateMode.CONTAINER;
       default:
@@ -186,11 +188,7 @@ public class ZkMetaClientUtil {
       opResultMap.put(org.apache.zookeeper.OpResult.SetDataResult.class, opResult -> {
         org.apache.zookeeper.OpResult.SetDataResult zkOpSetDataResult =
             (org.apache.zookeeper.OpResult.SetDataResult) opResult;
-        MetaClientInterface.Stat metaClientStat = new MetaClientInterface.Stat(
-            convertZkEntryModeToMetaClientEntryMode(
-                zkOpSetDataResult.getStat().getEphemeralOwner()),
-            zkOpSetDataResult.getStat().getVersion());
-        return new OpResult.SetDataResult(metaClientStat);
+        return new OpResult.SetDataResult(convertZkStatToStat(zkOpSetDataResult.getStat()));
       });
 
       opResultMap.put(org.apache.zookeeper.OpResult.GetChildrenResult.class,
@@ -19,13 +19,179 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.helix.metaclient.datamodel.DataRecord;
-import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Serializes DataRecords in the same format as {@link ZNRecordSerializer}. The records are
+ * deserialized with a streaming parser directly into a DataRecord, instead of building a Jackson
+ * object tree and a ZNRecord that is then copied into a DataRecord. The data can also be
+ * deserialized from a ByteBuffer into a caller-provided record, so a caller that reads the raw
+ * data (@see org.apache.helix.metaclient.api.MetaClientInterface#getRaw(String)) can reuse its
+ * records.
+ */
 public class DataRecordSerializer extends ZNRecordSerializer {
+  private static final Logger LOG = LoggerFactory.getLogger(DataRecordSerializer.class);
+  // JsonFactory is thread-safe, so it is shared by all the serializers.
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
   @Override
   public Object deserialize(byte[] bytes) {
-    return new DataRecord((ZNRecord) super.deserialize(bytes));
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+    try {
+      return deserialize(ByteBuffer.wrap(bytes), null);
+    } catch (ZkMarshallingError e) {
+      LOG.error("Exception during deserialization of bytes: {}", new String(bytes), e);
+      return null;
+    }
+  }
+
+  /**
+   * Deserialize the data into the given record. The simple fields, list fields, map fields and
+   * the raw payload of the record are replaced by the ones in the data, and the id of the record
+   * is kept. The record is only changed if the whole data is parsed successfully. The position of
+   * the buffer is not changed.
+   * @param data the serialized record
+   * @param target the record to deserialize into, or null to create a new record
+   * @return the target record or the new record, or null if the data is empty
+   * @throws ZkMarshallingError if the data is not a serialized record
+   */
+  public DataRecord deserialize(ByteBuffer data, DataRecord target) throws ZkMarshallingError {
+    if (data == null || !data.hasRemaining()) {
+      return null;
+    }
+    byte[] bytes;
+    int offset;
+    int length = data.remaining();
+    if (data.hasArray()) {
+      bytes = data.array();
+      offset = data.arrayOffset() + data.position();
+    } else {
+      // Only the direct buffers are copied.
+      bytes = new byte[length];
+      data.duplicate().get(bytes);
+      offset = 0;
+    }
+
+    // Parse into new maps, so the target is not changed if the data is invalid or truncated.
+    Map<String, String> simpleFields = new TreeMap<>();
+    Map<String, List<String>> listFields = new TreeMap<>();
+    Map<String, Map<String, String>> mapFields = new TreeMap<>();
+    String id = null;
+    byte[] rawPayload = null;
+
+    try {
+      if (length >= 2 && isCompressed(bytes, offset)) {
+        bytes = GZipCompressionUtil.uncompress(new ByteArrayInputStream(bytes, offset, length));
+        offset = 0;
+        length = bytes.length;
+      }
+      try (JsonParser jp = JSON_FACTORY.createParser(bytes, offset, length)) {
+        if (jp.nextToken() != JsonToken.START_OBJECT) {
+          throw new ZkMarshallingError("The data is not a serialized record.");
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          String fieldName = jp.getCurrentName();
+          JsonToken token = jp.nextToken();
+          if (token == JsonToken.VALUE_NULL) {
+            continue;
+          }
+          switch (fieldName) {
+          case "id":
+            id = jp.getValueAsString();
+            break;
+          case "simpleFields":
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+              String key = jp.getCurrentName();
+              jp.nextToken();
+              simpleFields.put(key, jp.getValueAsString());
+            }
+            break;
+          case "listFields":
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+              String key = jp.getCurrentName();
+              List<String> list = null;
+              if (jp.nextToken() != JsonToken.VALUE_NULL) {
+                list = new ArrayList<>();
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                  list.add(jp.getValueAsString());
+                }
+              }
+              listFields.put(key, list);
+            }
+            break;
+          case "mapFields":
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+              String key = jp.getCurrentName();
+              Map<String, String> map = null;
+              if (jp.nextToken() != JsonToken.VALUE_NULL) {
+                map = new TreeMap<>();
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                  String mapKey = jp.getCurrentName();
+                  jp.nextToken();
+                  map.put(mapKey, jp.getValueAsString());
+                }
+              }
+              mapFields.put(key, map);
+            }
+            break;
+          case "rawPayload":
+            rawPayload = jp.getBinaryValue();
+            break;
+          default:
+            // Same as ZNRecord, ignore the unknown properties.
+            jp.skipChildren();
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new ZkMarshallingError(e);
+    }
+
+    if (target == null) {
+      if (id == null) {
+        throw new ZkMarshallingError("The id of the record is missing.");
+      }
+      target = new DataRecord(id);
+      target.setSimpleFields(simpleFields);
+      target.setListFields(listFields);
+      target.setMapFields(mapFields);
+    } else {
+      replace(target.getSimpleFields(), simpleFields);
+      replace(target.getListFields(), listFields);
+      replace(target.getMapFields(), mapFields);
+    }
+    target.setRawPayload(rawPayload);
+    return target;
+  }
+
+  private static <V> void replace(Map<String, V> fields, Map<String, V> newFields) {
+    fields.clear();
+    fields.putAll(newFields);
+  }
+
+  private static boolean isCompressed(byte[] bytes, int offset) {
+    // Same as GZipCompressionUtil.isCompressed(), but checks the bytes from the offset.
+    return bytes[offset] == (byte) GZIPInputStream.GZIP_MAGIC
+        && bytes[offset + 1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
   }
 }
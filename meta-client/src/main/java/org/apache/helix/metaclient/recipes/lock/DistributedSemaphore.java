@@ -19,29 +19,64 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
-import org.apache.commons.lang3.NotImplementedException;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.helix.metaclient.api.DataChangeListener;
 import org.apache.helix.metaclient.api.MetaClientInterface;
+import org.apache.helix.metaclient.api.Op;
+import org.apache.helix.metaclient.api.OpResult;
 import org.apache.helix.metaclient.datamodel.DataRecord;
+import org.apache.helix.metaclient.exception.MetaClientBadVersionException;
 import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientInterruptException;
+import org.apache.helix.metaclient.exception.MetaClientNoNodeException;
+import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientFactory;
-import org.apache.helix.metaclient.impl.zk.util.ZkMetaClientUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.management.JMException;
 
-public class DistributedSemaphore {
+/**
+ * A fair distributed semaphore. The capacity of the semaphore is kept in the semaphore entry.
+ * The clients that acquire permits are queued as sequential ephemeral entries under the
+ * semaphore entry, and only the head of the queue takes permits from the semaphore, so the permits
+ * are granted in the order of the acquire calls. Each waiter only watches its predecessor in the
+ * queue, and only the head watches the semaphore entry, so a change does not wake up all the
+ * waiters. The permits of an acquire call are taken, and the waiter is dequeued, in one
+ * transaction. When nobody is waiting, an acquire call first tries to take the permits directly,
+ * and only joins the wait queue if there are not enough permits. Every waiter bumps the version of
+ * the wait queue entry when it joins, and the direct take checks that version in its transaction,
+ * so it cannot overtake a waiter that joins concurrently.
+ * <p>
+ * The metrics of the semaphore are registered as an MBean on the first acquire call. The client
+ * should be closed by {@link #close()} when it is no longer used, to unregister the MBean.
+ */
+public class DistributedSemaphore implements AutoCloseable {
   private final MetaClientInterface<DataRecord> _metaClient;
   private String _path;
+  private volatile DistributedSemaphoreMonitor _monitor;
+  // Not to retry the registration on every acquire call after it failed
+  private boolean _monitorRegistrationFailed;
   private static final String INITIAL_CAPACITY_NAME = "INITIAL_CAPACITY";
   private static final String REMAINING_CAPACITY_NAME = "REMAINING_CAPACITY";
+  private static final String WAIT_QUEUE_NAME = "WAIT_QUEUE";
   private static final long DEFAULT_REMAINING_CAPACITY = -1;
   private static final Logger LOG = LoggerFactory.getLogger(DistributedSemaphore.class);
 
+  // Orders the waiters by the sequence number appended to the name by the metadata store.
+  private static final Comparator<String> WAITER_ORDER =
+      Comparator.comparing(waiter -> waiter.substring(waiter.lastIndexOf('-') + 1));
+
   /**
    * Create a distributed semaphore client with the given configuration.
    * @param config configuration of the client
@@ -104,7 +139,8 @@ public class DistributedSemaphore {
       dataRecord.setLongField(INITIAL_CAPACITY_NAME, capacity);
       dataRecord.setLongField(REMAINING_CAPACITY_NAME, capacity);
       _metaClient.create(path, dataRecord);
-      _path = path;
+      setPath(path);
+      createWaitQueue();
     }
   }
 
@@ -119,35 +155,32 @@ public class DistributedSemaphore {
     if (_metaClient.exists(path) == null) {
       throw new MetaClientException("Semaphore does not exist");
     }
-    _path = path;
+    setPath(path);
   }
 
   /**
-   * Acquire a permit. If no permit is available, log error and return null.
+   * Acquire a permit. If no permit is available, or other clients are waiting for permits, log
+   * error and return null.
    * @return a permit
    */
   public Permit acquire() {
-    try {
-      updateAcquirePermit(1);
-      return retrievePermit(_path);
-    } catch (MetaClientException e) {
-      LOG.error("Failed to acquire permit.", e);
-      return null;
-    }
+    Collection<Permit> permits = acquire(1);
+    return permits == null ? null : permits.iterator().next();
   }
 
 
   /**
-   * Try to acquire multiple permits. If not enough permits are available, log error and return null.
+   * Try to acquire multiple permits. If not enough permits are available, or other clients are
+   * waiting for permits, log error and return null.
    * @param count number of permits to acquire
    * @return a collection of permits
    */
   public Collection<Permit> acquire(int count) {
     try {
-      updateAcquirePermit(count);
-      Collection<Permit> permits = new ArrayList<>();
-      for (int i = 0; i < count; i++) {
-        permits.add(retrievePermit(_path));
+      Collection<Permit> permits = acquire(count, 0, TimeUnit.MILLISECONDS);
+      if (permits == null) {
+        LOG.error("Failed to acquire {} permits of semaphore {}. No sufficient permits available,"
+            + " or other clients are waiting for permits.", count, _path);
       }
       return permits;
     } catch (MetaClientException e) {
@@ -159,13 +192,75 @@ public class DistributedSemaphore {
   /**
    * Try to acquire a permit. If no enough permit is available, wait for a specific time or return when it was able to acquire.
    * If timeout <=0, then return immediately when not able to acquire.
+   * The permits are granted in the order of the calls: a call waits until the calls before it
+   * have acquired their permits or timed out, even if the semaphore has enough permits for it.
    * @param count number of permits to acquire
    * @param timeout time to wait
    * @param unit time unit
-   * @return a collection of permits
+   * @return a collection of permits, or null if the permits cannot be acquired before timeout
    */
   public Collection<Permit> acquire(int count, long timeout, TimeUnit unit) {
-    throw new NotImplementedException("Not implemented yet.");
+    if (count <= 0) {
+      throw new MetaClientException("Count must be positive");
+    }
+    long startTime = System.currentTimeMillis();
+    long deadline = startTime + Math.max(0, unit.toMillis(timeout));
+    registerMonitor();
+    // Take the permits without joining the wait queue if nobody is waiting.
+    Collection<Permit> acquiredPermits = takePermitsIfNoWaiter(count);
+    if (acquiredPermits != null) {
+      if (_monitor != null) {
+        _monitor.updateAcquire(count, System.currentTimeMillis() - startTime);
+      }
+      return acquiredPermits;
+    }
+    if (deadline <= startTime) {
+      // Not to wait, or to take the permits ahead of the waiters.
+      if (_monitor != null) {
+        _monitor.increaseAcquireTimeoutCounter();
+      }
+      return null;
+    }
+    String waiterPath = enqueueWaiter();
+    try {
+      while (true) {
+        List<String> waiters = getWaiters();
+        int index = waiters.indexOf(waiterPath.substring(waiterPath.lastIndexOf('/') + 1));
+        if (index < 0) {
+          throw new MetaClientException(
+              "Waiter " + waiterPath + " is removed from the wait queue of semaphore " + _path);
+        }
+        boolean changed;
+        if (index > 0) {
+          // Wait for the predecessor to acquire its permits or to give up.
+          String predecessorPath = getWaitQueuePath() + "/" + waiters.get(index - 1);
+          changed = awaitChange(predecessorPath, () -> _metaClient.exists(predecessorPath) == null,
+              deadline);
+        } else {
+          Collection<Permit> permits = takePermits(count, waiterPath);
+          if (permits != null) {
+            // The waiter is removed in the same transaction.
+            waiterPath = null;
+            if (_monitor != null) {
+              _monitor.updateAcquire(count, System.currentTimeMillis() - startTime);
+            }
+            return permits;
+          }
+          // Wait for the permits to be returned.
+          changed = awaitChange(_path, () -> getRemainingCapacity() >= count, deadline);
+        }
+        if (!changed) {
+          if (_monitor != null) {
+            _monitor.increaseAcquireTimeoutCounter();
+          }
+          return null;
+        }
+      }
+    } finally {
+      if (waiterPath != null) {
+        removeWaiter(waiterPath);
+      }
+    }
   }
 
   /**
@@ -176,6 +271,14 @@ public class DistributedSemaphore {
     return getSemaphore().getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
   }
 
+  /**
+   * Get the number of the clients waiting for permits.
+   * @return wait queue depth
+   */
+  public int getWaitQueueDepth() {
+    return getWaiters().size();
+  }
+
   /**
    * Get the semaphore data record
    * @return semaphore data record
@@ -194,7 +297,7 @@ public class DistributedSemaphore {
     if (permit.isReleased()) {
       LOG.info("The permit has already been released");
     } else {
-      updateReturnPermit();
+      updateReturnPermits(1);
       permit.releasePermit();
     }
   }
@@ -204,45 +307,243 @@ public class DistributedSemaphore {
    * log and return void.
    */
   public void returnAllPermits(Collection<Permit> permits) {
+    List<Permit> permitsToReturn = new ArrayList<>();
     for (Permit permit : permits) {
-      returnPermit(permit);
+      if (permit.isReleased()) {
+        LOG.info("The permit has already been released");
+      } else {
+        permitsToReturn.add(permit);
+      }
+    }
+    if (!permitsToReturn.isEmpty()) {
+      updateReturnPermits(permitsToReturn.size());
+      permitsToReturn.forEach(Permit::releasePermit);
     }
   }
 
   /**
-   * Retrieve a permit from the semaphore data record.
-   * @param path path of the permit
-   * @return a permit
+   * Unregister the metrics of the semaphore. The permits held by the client and the meta client
+   * are not affected. The metrics are registered again if the client acquires permits after it is
+   * closed.
+   */
+  @Override
+  public synchronized void close() {
+    if (_monitor != null) {
+      _monitor.unregister();
+      _monitor = null;
+    }
+    _monitorRegistrationFailed = false;
+  }
+
+  private void setPath(String path) {
+    close();
+    _path = path;
+  }
+
+  /**
+   * Register the metrics of the semaphore if they are not registered yet.
+   */
+  private synchronized void registerMonitor() {
+    if (_monitor != null || _monitorRegistrationFailed) {
+      return;
+    }
+    try {
+      _monitor = new DistributedSemaphoreMonitor(_path).register();
+    } catch (JMException e) {
+      LOG.warn("Failed to register the monitor of semaphore {}.", _path, e);
+      _monitorRegistrationFailed = true;
+    }
+  }
+
+  private String getWaitQueuePath() {
+    return _path + "/" + WAIT_QUEUE_NAME;
+  }
+
+  private void createWaitQueue() {
+    try {
+      _metaClient.create(getWaitQueuePath(), new DataRecord(WAIT_QUEUE_NAME));
+    } catch (MetaClientNodeExistsException e) {
+      // Created by another client.
+    }
+  }
+
+  /**
+   * Get the version of the wait queue entry, which is bumped whenever a waiter joins.
    */
-  private Permit retrievePermit(String path) {
-    MetaClientInterface.Stat stat = _metaClient.exists(path);
-    return new Permit(getSemaphore(), stat);
+  private int getWaitQueueVersion() {
+    try {
+      return _metaClient.getDataAndStat(getWaitQueuePath()).getRight().getVersion();
+    } catch (MetaClientNoNodeException e) {
+      // The semaphore was created before the wait queue was introduced.
+      createWaitQueue();
+      return _metaClient.getDataAndStat(getWaitQueuePath()).getRight().getVersion();
+    }
+  }
+
+  /**
+   * Add a sequential ephemeral waiter to the wait queue, and bump the version of the wait queue
+   * entry in the same transaction.
+   * @return the path of the waiter
+   */
+  private String enqueueWaiter() {
+    String waitQueuePath = getWaitQueuePath();
+    String prefix = UUID.randomUUID().toString() + "-";
+    String prefixPath = waitQueuePath + "/" + prefix;
+    List<Op> ops = new ArrayList<>(2);
+    ops.add(Op.create(prefixPath, _metaClient.serialize(new DataRecord(prefix), prefixPath),
+        MetaClientInterface.EntryMode.EPHEMERAL_SEQUENTIAL));
+    ops.add(Op.set(waitQueuePath,
+        _metaClient.serialize(new DataRecord(WAIT_QUEUE_NAME), waitQueuePath), -1));
+    List<OpResult> results;
+    try {
+      results = _metaClient.transactionOP(ops);
+    } catch (MetaClientNoNodeException e) {
+      // The semaphore was created before the wait queue was introduced.
+      createWaitQueue();
+      results = _metaClient.transactionOP(ops);
+    }
+    return ((OpResult.CreateResult) results.get(0)).getPath();
+  }
+
+  private void removeWaiter(String waiterPath) {
+    try {
+      _metaClient.delete(waiterPath);
+    } catch (MetaClientException e) {
+      // The waiter is ephemeral, so it is removed when the session expires anyway.
+      LOG.warn("Failed to remove waiter {} of semaphore {}.", waiterPath, _path, e);
+    }
+  }
+
+  /**
+   * @return the waiters in the order they were enqueued
+   */
+  private List<String> getWaiters() {
+    List<String> waiters;
+    try {
+      waiters = new ArrayList<>(_metaClient.getDirectChildrenKeys(getWaitQueuePath()));
+    } catch (MetaClientNoNodeException e) {
+      waiters = new ArrayList<>();
+    }
+    waiters.sort(WAITER_ORDER);
+    if (_monitor != null) {
+      _monitor.updateWaitQueueDepth(waiters.size());
+    }
+    return waiters;
+  }
+
+  /**
+   * Take the permits from the semaphore if nobody is waiting. The transaction checks that the
+   * version of the wait queue entry is not changed since the wait queue was found empty, so the
+   * permits are not taken ahead of a waiter that joins in between.
+   * @param count number of permits to acquire
+   * @return the permits, or null if other clients are waiting or not enough permits are available
+   */
+  private Collection<Permit> takePermitsIfNoWaiter(int count) {
+    while (true) {
+      int waitQueueVersion = getWaitQueueVersion();
+      if (!getWaiters().isEmpty()) {
+        return null;
+      }
+      try {
+        return tryTakePermits(count, Op.check(getWaitQueuePath(), waitQueueVersion));
+      } catch (MetaClientBadVersionException e) {
+        // Permits were taken or returned, or a waiter joined concurrently. Check again.
+      }
+    }
   }
 
   /**
-   * Update the remaining capacity of the semaphore after acquiring a permit.
+   * Take the permits from the semaphore and remove the waiter in one transaction.
    * @param count number of permits to acquire
+   * @param waiterPath the path of the waiter at the head of the wait queue
+   * @return the permits, or null if not enough permits are available
    */
-  private void updateAcquirePermit(int count) {
-    _metaClient.update(_path, record -> {
-      long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
-      if (permitsAvailable < count) {
-        throw new MetaClientException("No sufficient permits available. Attempt to acquire " + count + " permits, but only "
-            + permitsAvailable + " permits available");
+  private Collection<Permit> takePermits(int count, String waiterPath) {
+    while (true) {
+      try {
+        return tryTakePermits(count, Op.delete(waiterPath, -1));
+      } catch (MetaClientBadVersionException e) {
+        // Permits were returned concurrently, retry with the latest capacity.
       }
-      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable - count);
-      return record;
-    });
+    }
   }
 
   /**
-   * Update the remaining capacity of the semaphore after returning a permit.
+   * Take the permits from the semaphore in one transaction with the given op.
+   * @param count number of permits to acquire
+   * @param op the op to be done in the same transaction
+   * @return the permits, or null if not enough permits are available
+   * @throws MetaClientBadVersionException if the semaphore or the entry of the op is changed
+   *           concurrently
    */
-  private void updateReturnPermit() {
-    _metaClient.update(_path, record -> {
-      long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
-      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + 1);
-      return record;
-    });
+  private Collection<Permit> tryTakePermits(int count, Op op) {
+    ImmutablePair<DataRecord, MetaClientInterface.Stat> dataAndStat =
+        _metaClient.getDataAndStat(_path);
+    DataRecord record = dataAndStat.getLeft();
+    long permitsAvailable =
+        record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
+    if (permitsAvailable < count) {
+      return null;
+    }
+    record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable - count);
+    List<Op> ops = new ArrayList<>(2);
+    ops.add(Op.set(_path, _metaClient.serialize(record, _path),
+        dataAndStat.getRight().getVersion()));
+    ops.add(op);
+    List<OpResult> results = _metaClient.transactionOP(ops);
+    // Build the permits from the result of the transaction without reading the semaphore again.
+    MetaClientInterface.Stat stat = ((OpResult.SetDataResult) results.get(0)).getStat();
+    Collection<Permit> permits = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      permits.add(new Permit(record, stat));
+    }
+    return permits;
+  }
+
+  /**
+   * Wait until the entry is changed or the deadline passes.
+   * @param key the entry to watch
+   * @param ready the condition to be checked after the entry is watched, so a change before the
+   *              watch is not missed
+   * @param deadline the deadline in ms
+   * @return true if the condition is met or the entry is changed, false on timeout
+   */
+  private boolean awaitChange(String key, BooleanSupplier ready, long deadline) {
+    CountDownLatch latch = new CountDownLatch(1);
+    DataChangeListener listener = (changedKey, data, changeType) -> latch.countDown();
+    _metaClient.subscribeDataChange(key, listener, false);
+    try {
+      if (ready.getAsBoolean()) {
+        return true;
+      }
+      long waitTime = deadline - System.currentTimeMillis();
+      return waitTime > 0 && latch.await(waitTime, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MetaClientInterruptException("Interrupted while waiting for semaphore " + _path, e);
+    } finally {
+      _metaClient.unsubscribeDataChange(key, listener);
+    }
+  }
+
+  /**
+   * Update the remaining capacity of the semaphore after returning permits.
+   * @param count number of permits to return
+   */
+  private void updateReturnPermits(int count) {
+    while (true) {
+      ImmutablePair<DataRecord, MetaClientInterface.Stat> dataAndStat =
+          _metaClient.getDataAndStat(_path);
+      DataRecord record = dataAndStat.getLeft();
+      long permitsAvailable =
+          record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
+      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + count);
+      try {
+        _metaClient.set(_path, record, dataAndStat.getRight().getVersion());
+        return;
+      } catch (MetaClientBadVersionException e) {
+        // Updated concurrently, retry with the latest capacity.
+      }
+    }
   }
 }
@@ -0,0 +1,96 @@
+package org.apache.helix.metaclient.recipes.lock;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Reports the permit acquisitions of a DistributedSemaphore client, and the depth of the wait
+ * queue of the semaphore as seen by the client.
+ */
+public class DistributedSemaphoreMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Meta Client Distributed Semaphore Monitor";
+  private static final String SEMAPHORE_KEY = "Semaphore";
+  private final String _sensorName;
+  private final String _semaphorePath;
+
+  private final SimpleDynamicMetric<Long> _acquiredPermitCounter;
+  private final SimpleDynamicMetric<Long> _acquireTimeoutCounter;
+  private final SimpleDynamicMetric<Long> _waitQueueDepthGauge;
+  private final HistogramDynamicMetric _acquireLatencyGauge;
+
+  public DistributedSemaphoreMonitor(String semaphorePath) {
+    _semaphorePath = semaphorePath;
+    _sensorName = String.format("%s.%s.%s", MonitorDomainNames.MetaClient.name(),
+        DistributedSemaphore.class.getSimpleName(), semaphorePath);
+
+    _acquiredPermitCounter = new SimpleDynamicMetric<>("AcquiredPermitCounter", 0L);
+    _acquireTimeoutCounter = new SimpleDynamicMetric<>("AcquireTimeoutCounter", 0L);
+    _waitQueueDepthGauge = new SimpleDynamicMetric<>("WaitQueueDepthGauge", 0L);
+    _acquireLatencyGauge = new HistogramDynamicMetric("AcquireLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * @param permitCount the number of the acquired permits
+   * @param latency the time in ms from the acquire call to the permits being granted
+   */
+  public synchronized void updateAcquire(int permitCount, long latency) {
+    incrementSimpleDynamicMetric(_acquiredPermitCounter, permitCount);
+    _acquireLatencyGauge.updateValue(latency);
+  }
+
+  public synchronized void increaseAcquireTimeoutCounter() {
+    incrementSimpleDynamicMetric(_acquireTimeoutCounter);
+  }
+
+  public void updateWaitQueueDepth(long depth) {
+    _waitQueueDepthGauge.updateValue(depth);
+  }
+
+  @Override
+  public DistributedSemaphoreMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_acquiredPermitCounter);
+    attributeList.add(_acquireTimeoutCounter);
+    attributeList.add(_waitQueueDepthGauge);
+    attributeList.add(_acquireLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, MonitorDomainNames.MetaClient.name(),
+        "MonitorType", DistributedSemaphoreMonitor.class.getSimpleName(), SEMAPHORE_KEY,
+        _semaphorePath);
+    return this;
+  }
+}
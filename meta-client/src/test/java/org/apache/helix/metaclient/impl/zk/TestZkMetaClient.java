@@ -27,6 +27,7 @@ import org.apache.helix.metaclient.exception.MetaClientException;
 import org.apache.helix.metaclient.api.DirectChildChangeListener;
 
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -43,6 +44,7 @@ import org.apache.commons.lang3.NotImplementedException;
 import org.apache.helix.metaclient.api.DataChangeListener;
 import org.apache.helix.metaclient.api.Op;
 import org.apache.helix.metaclient.api.OpResult;
+import org.apache.helix.metaclient.exception.MetaClientBadVersionException;
 import org.apache.helix.metaclient.exception.MetaClientNoNodeException;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.apache.zookeeper.KeeperException;
@@ -214,6 +216,80 @@ public class TestZkMetaClient extends ZkMetaClientTestBase{
     }
   }
 
+  @Test
+  public void testBatchGetAndSet() {
+    final String key = "/TestZkMetaClient_testBatchGetAndSet";
+    final int count = ZkMetaClient.BATCH_OPERATION_WINDOW_SIZE + 10;
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      zkMetaClient.create(key, ENTRY_STRING_VALUE);
+      List<String> keys = new ArrayList<>();
+      List<String> values = new ArrayList<>();
+      List<Integer> versions = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        keys.add(key + "/" + i);
+        values.add(ENTRY_STRING_VALUE + "-" + i);
+        versions.add(0);
+        // Leave the last one absent.
+        if (i < count - 1) {
+          zkMetaClient.create(keys.get(i), ENTRY_STRING_VALUE);
+        }
+      }
+
+      boolean[] results = zkMetaClient.set(keys, values, versions);
+      for (int i = 0; i < count - 1; i++) {
+        Assert.assertTrue(results[i]);
+      }
+      Assert.assertFalse(results[count - 1]);
+
+      List<String> dataValues = zkMetaClient.get(keys);
+      Assert.assertEquals(dataValues.size(), count);
+      for (int i = 0; i < count - 1; i++) {
+        Assert.assertEquals(dataValues.get(i), values.get(i));
+      }
+      Assert.assertNull(dataValues.get(count - 1));
+
+      // The versions are 1 now, so the set with version 0 fails.
+      results = zkMetaClient.set(keys.subList(0, 1), values.subList(0, 1), versions.subList(0, 1));
+      Assert.assertFalse(results[0]);
+
+      zkMetaClient.recursiveDelete(key);
+    }
+  }
+
+  @Test
+  public void testRawData() {
+    final String key = "/TestZkMetaClient_testRawData";
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      Assert.assertNull(zkMetaClient.getRaw(key));
+      zkMetaClient.create(key, ENTRY_STRING_VALUE);
+
+      ByteBuffer rawData = zkMetaClient.getRaw(key);
+      Assert.assertTrue(rawData.isReadOnly());
+      byte[] bytes = new byte[rawData.remaining()];
+      rawData.get(bytes);
+      Assert.assertEquals(zkMetaClient.deserialize(bytes, key), ENTRY_STRING_VALUE);
+
+      String testValueV1 = ENTRY_STRING_VALUE + "-v1";
+      byte[] serialized = zkMetaClient.serialize(testValueV1, key);
+      // Write a slice of a larger buffer.
+      ByteBuffer buffer = ByteBuffer.allocate(serialized.length + 2);
+      buffer.put((byte) 0).put(serialized).put((byte) 0);
+      buffer.position(1).limit(serialized.length + 1);
+      zkMetaClient.setRaw(key, buffer.slice(), 0);
+      Assert.assertEquals(zkMetaClient.get(key), testValueV1);
+      Assert.assertEquals(zkMetaClient.exists(key).getVersion(), 1);
+
+      try {
+        zkMetaClient.setRaw(key, ByteBuffer.wrap(serialized), 0);
+        Assert.fail("Should have failed with a wrong version.");
+      } catch (MetaClientBadVersionException ignored) {
+      }
+      zkMetaClient.delete(key);
+    }
+  }
+
   @Test
   public void testUpdate() {
     final String key = "/TestZkMetaClient_testUpdate";
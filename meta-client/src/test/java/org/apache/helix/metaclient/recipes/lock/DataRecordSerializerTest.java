@@ -0,0 +1,113 @@
+package org.apache.helix.metaclient.recipes.lock;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.metaclient.datamodel.DataRecord;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DataRecordSerializerTest {
+  private final DataRecordSerializer _serializer = new DataRecordSerializer();
+
+  @Test
+  public void testDeserialize() {
+    DataRecord record = createRecord("record", 10);
+    byte[] bytes = _serializer.serialize(record);
+
+    Object deserialized = _serializer.deserialize(bytes);
+    Assert.assertTrue(deserialized instanceof DataRecord);
+    Assert.assertEquals(deserialized, record);
+    Assert.assertEquals(((DataRecord) deserialized).getId(), record.getId());
+    // Same as ZNRecordSerializer
+    Assert.assertEquals(deserialized, new ZNRecordSerializer().deserialize(bytes));
+
+    // Compressed data
+    ZNRecord compressed = createRecord("compressed", 10);
+    compressed.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+    bytes = _serializer.serialize(compressed);
+    Assert.assertEquals(_serializer.deserialize(bytes), compressed);
+
+    Assert.assertNull(_serializer.deserialize(new byte[0]));
+    Assert.assertNull(_serializer.deserialize("invalid".getBytes()));
+  }
+
+  @Test
+  public void testDeserializeIntoRecord() {
+    DataRecord record = createRecord("record", 10);
+    byte[] bytes = _serializer.serialize(record);
+    // Deserialize from a slice of a larger buffer.
+    ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 2);
+    buffer.put((byte) 0).put(bytes).put((byte) 0);
+    buffer.position(1).limit(bytes.length + 1);
+    ByteBuffer data = buffer.slice();
+
+    DataRecord target = createRecord("target", 20);
+    Map<String, String> simpleFields = target.getSimpleFields();
+    Assert.assertSame(_serializer.deserialize(data, target), target);
+    Assert.assertEquals(target, record);
+    // The id and the field maps of the target are kept.
+    Assert.assertEquals(target.getId(), "target");
+    Assert.assertSame(target.getSimpleFields(), simpleFields);
+    Assert.assertEquals(data.position(), 0);
+
+    // Direct buffer
+    ByteBuffer directData = ByteBuffer.allocateDirect(bytes.length);
+    directData.put(bytes).flip();
+    Assert.assertEquals(_serializer.deserialize(directData, null), record);
+
+    // The target is not changed by invalid or truncated data.
+    DataRecord expected = new DataRecord(target, target.getId());
+    try {
+      _serializer.deserialize(ByteBuffer.wrap("invalid".getBytes()), target);
+      Assert.fail("Should have failed with invalid data.");
+    } catch (ZkMarshallingError ignored) {
+    }
+    Assert.assertEquals(target, expected);
+    byte[] otherBytes = _serializer.serialize(createRecord("other", 5));
+    try {
+      _serializer.deserialize(ByteBuffer.wrap(otherBytes, 0, otherBytes.length / 2), target);
+      Assert.fail("Should have failed with truncated data.");
+    } catch (ZkMarshallingError ignored) {
+    }
+    Assert.assertEquals(target, expected);
+    Assert.assertEquals(target.getRawPayload(), expected.getRawPayload());
+  }
+
+  private static DataRecord createRecord(String id, int size) {
+    DataRecord record = new DataRecord(id);
+    for (int i = 0; i < size; i++) {
+      record.setSimpleField("simple_" + i, "value_" + i);
+      record.setListField("list_" + i, Arrays.asList("a_" + i, "b_" + i));
+      Map<String, String> mapField = new HashMap<>();
+      mapField.put("key_" + i, "value_" + i);
+      record.setMapField("map_" + i, mapField);
+    }
+    record.setRawPayload(new byte[]{1, 2, 3});
+    return record;
+  }
+}
@@ -19,12 +19,25 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
+import org.apache.helix.metaclient.MetaClientTestUtil;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
+import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
 
@@ -98,8 +111,119 @@ public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
   }
 
   @Test
-  public void testTryAcquirePermit() {
-    // Not implemented
+  public void testTryAcquirePermit() throws Exception {
+    final String key = "/TestSemaphore_testTryAcquirePermit";
+    int capacity = 2;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+    Collection<Permit> permits = semaphoreClient.acquire(capacity, 0, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(permits.size(), capacity);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 0);
+
+    // Times out when no permit is returned.
+    long startTime = System.currentTimeMillis();
+    Assert.assertNull(semaphoreClient.acquire(1, 200, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 200);
+    Assert.assertEquals(semaphoreClient.getWaitQueueDepth(), 0);
+
+    // Blocks until the permits are returned.
+    DistributedSemaphore waitingClient = createSemaphoreClient(key);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Collection<Permit>> waitingPermits =
+          executor.submit(() -> waitingClient.acquire(capacity, 30, TimeUnit.SECONDS));
+      Assert.assertTrue(MetaClientTestUtil.verify(() -> semaphoreClient.getWaitQueueDepth() == 1,
+          MetaClientTestUtil.WAIT_DURATION));
+
+      // Fairness: the permit cannot be taken ahead of the waiting client.
+      semaphoreClient.returnPermit(permits.iterator().next());
+      Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 1);
+      Assert.assertNull(semaphoreClient.acquire(1, 0, TimeUnit.MILLISECONDS));
+      Assert.assertFalse(waitingPermits.isDone());
+
+      semaphoreClient.returnAllPermits(permits);
+      Assert.assertEquals(waitingPermits.get(30, TimeUnit.SECONDS).size(), capacity);
+      Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 0);
+      Assert.assertEquals(semaphoreClient.getWaitQueueDepth(), 0);
+    } finally {
+      executor.shutdownNow();
+      waitingClient.close();
+      semaphoreClient.close();
+    }
+  }
+
+  @Test
+  public void testMonitorRegistration() throws Exception {
+    final String key = "/TestSemaphore_testMonitorRegistration";
+    int capacity = 2;
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName monitorName = MBeanRegistrar.buildObjectName(MonitorDomainNames.MetaClient.name(),
+        "MonitorType", DistributedSemaphoreMonitor.class.getSimpleName(), "Semaphore", key);
+
+    try (DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key,
+        capacity)) {
+      // Not registered until the first acquire call
+      Assert.assertFalse(beanServer.isRegistered(monitorName));
+
+      // Nobody is waiting, so the permits are taken without joining the wait queue.
+      Collection<Permit> permits = semaphoreClient.acquire(capacity, 0, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(permits.size(), capacity);
+      Assert.assertTrue(beanServer.isRegistered(monitorName));
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "AcquiredPermitCounter"),
+          (long) capacity);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "WaitQueueDepthGauge"), 0L);
+
+      // Not enough permits, and not to wait
+      Assert.assertNull(semaphoreClient.acquire(1, 0, TimeUnit.MILLISECONDS));
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "AcquireTimeoutCounter"), 1L);
+      Assert.assertEquals(semaphoreClient.getWaitQueueDepth(), 0);
+      semaphoreClient.returnAllPermits(permits);
+    }
+    Assert.assertFalse(beanServer.isRegistered(monitorName));
+  }
+
+  @Test
+  public void testConcurrentAcquire() throws Exception {
+    final String key = "/TestSemaphore_testConcurrentAcquire";
+    int capacity = 3;
+    int numClients = 6;
+    int numAcquiresPerClient = 5;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+    ExecutorService executor = Executors.newFixedThreadPool(numClients);
+    AtomicInteger holders = new AtomicInteger();
+    AtomicInteger maxHolders = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < numClients; i++) {
+        DistributedSemaphore client = createSemaphoreClient(key);
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < numAcquiresPerClient; j++) {
+            Permit permit = client.acquire(1, 30, TimeUnit.SECONDS).iterator().next();
+            maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            holders.decrementAndGet();
+            client.returnPermit(permit);
+          }
+          client.close();
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+      semaphoreClient.close();
+    }
+    Assert.assertTrue(maxHolders.get() <= capacity);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+  }
+
+  private DistributedSemaphore createSemaphoreClient(String path) {
+    MetaClientConfig config = new MetaClientConfig.MetaClientConfigBuilder<>().setConnectionAddress(ZK_ADDR)
+        .setStoreType(MetaClientConfig.StoreType.ZOOKEEPER).build();
+    DistributedSemaphore client = new DistributedSemaphore(config);
+    client.connectSemaphore(path);
+    return client;
   }
 
 }
@@ -30,5 +30,7 @@ public enum MonitorDomainNames {
   RoutingTableProvider,
   CLMParticipantReport,
   Rebalancer,
-  AggregatedView
+  AggregatedView,
+  MetaClient,
+  ConfigAccessor
 }
@@ -19,32 +19,70 @@ package org.apache.helix.filestore;
  * under the License.
  */
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.helix.filestore.FileSystemWatchService.ChangeType;
 
+/**
+ * Appends the changes to a segmented change log. The segments are named log.N and a new segment
+ * is started once the current one reaches {@link #MAX_SEGMENT_SIZE} bytes. Every record is written
+ * to the file right away so that the readers see it, but the writes are only forced to the
+ * storage device every {@link #SYNC_INTERVAL_RECORDS} records, by a background flush at most
+ * {@link #SYNC_INTERVAL_MS} milliseconds after a record is appended, and on {@link #close()}.
+ */
 public class ChangeLogGenerator implements FileChangeWatcher {
+  static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+  static final int SYNC_INTERVAL_RECORDS = 100;
+  static final long SYNC_INTERVAL_MS = 1000L;
+
   Lock lock;
   private long currentSeq;
   private long currentGen;
-  private int entriesLogged;
-  private DataOutputStream out;
+  private int unsyncedEntries;
+  private FileChannel channel;
+  private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+  private final DataOutputStream out = new DataOutputStream(recordBytes);
   private final String directory;
+  private final long maxSegmentSize;
+  // forces the records of an idle writer to the storage device
+  private final ScheduledExecutorService flushScheduler;
 
   public ChangeLogGenerator(String directory, long startGen, long startSeq) throws Exception {
+    this(directory, startGen, startSeq, MAX_SEGMENT_SIZE);
+  }
+
+  ChangeLogGenerator(String directory, long startGen, long startSeq, long maxSegmentSize)
+      throws Exception {
     this.directory = directory;
+    this.maxSegmentSize = maxSegmentSize;
     lock = new ReentrantLock();
     currentSeq = startSeq;
     currentGen = startGen;
-    setLogFile();
+    setLogFile(false);
+    flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ChangeLogGenerator-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flushScheduler.scheduleWithFixedDelay(this::flushIfDue, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS,
+        TimeUnit.MILLISECONDS);
   }
 
-  private void setLogFile() throws Exception {
+  /**
+   * Open the last segment for append, or a new segment after it if rollOver is set.
+   */
+  private void setLogFile(boolean rollOver) throws IOException {
     File file = new File(directory);
     String[] list = file.list();
     if (list == null) {
@@ -52,22 +90,21 @@ public class ChangeLogGenerator implements FileChangeWatcher {
     }
     int max = 1;
     for (String name : list) {
-      String[] split = name.split("\\.");
-      if (split.length == 2) {
-        try {
-          int index = Integer.parseInt(split[1]);
-          if (index > max) {
-            max = index;
-          }
-        } catch (NumberFormatException e) {
-          System.err.println("Invalid transaction log file found:" + name);
-        }
+      int index = ChangeLogIndex.getSegmentNumber(name);
+      if (index > max) {
+        max = index;
+      } else if (index < 0 && name.startsWith(ChangeLogIndex.SEGMENT_PREFIX)) {
+        System.err.println("Invalid transaction log file found:" + name);
       }
     }
+    if (rollOver) {
+      max++;
+    }
 
-    String transLogFile = directory + "/" + "log." + (max);
+    String transLogFile = directory + "/" + ChangeLogIndex.SEGMENT_PREFIX + (max);
     System.out.println("Current file name:" + transLogFile);
-    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(transLogFile, true)));
+    channel = new RandomAccessFile(transLogFile, "rw").getChannel();
+    channel.position(channel.size());
   }
 
   @Override
@@ -90,10 +127,10 @@ public class ChangeLogGenerator implements FileChangeWatcher {
   }
 
   public boolean appendChange(String path, ChangeType type) {
-    lock.lock();
     if (new File(path).isDirectory()) {
       return true;
     }
+    lock.lock();
     try {
       ChangeRecord record = new ChangeRecord();
       record.file = path;
@@ -112,17 +149,60 @@ public class ChangeLogGenerator implements FileChangeWatcher {
     return true;
   }
 
+  /**
+   * Force the pending writes to the storage device and close the current segment.
+   */
+  public void close() throws IOException {
+    flushScheduler.shutdownNow();
+    lock.lock();
+    try {
+      if (channel != null && channel.isOpen()) {
+        channel.force(false);
+        channel.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Force the records appended since the last sync, so the tail of the log is synced even if no
+   * more records are appended.
+   */
+  private void flushIfDue() {
+    lock.lock();
+    try {
+      if (unsyncedEntries > 0 && channel.isOpen()) {
+        channel.force(false);
+        unsyncedEntries = 0;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      lock.unlock();
+    }
+  }
+
   private void write(ChangeRecord record) throws Exception {
+    recordBytes.reset();
     out.writeLong(record.txid);
     out.writeShort(record.type);
     out.writeLong(record.timestamp);
     out.writeUTF(record.file);
-    out.flush();
-    entriesLogged++;
-    if (entriesLogged == 10000) {
-      entriesLogged = 0;
-      out.close();
-      setLogFile();
+    ByteBuffer buffer = ByteBuffer.wrap(recordBytes.toByteArray());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    unsyncedEntries++;
+    if (unsyncedEntries >= SYNC_INTERVAL_RECORDS) {
+      channel.force(false);
+      unsyncedEntries = 0;
+    }
+    if (channel.size() >= maxSegmentSize) {
+      channel.force(false);
+      unsyncedEntries = 0;
+      channel.close();
+      setLogFile(true);
     }
   }
 
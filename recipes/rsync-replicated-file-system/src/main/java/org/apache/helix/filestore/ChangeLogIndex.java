@@ -0,0 +1,315 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sparse in-memory index over the segments of a change log directory. Every segment is a file
+ * named log.N written by {@link ChangeLogGenerator}; the segments are read through read-only
+ * memory mappings, and the txid and the offset of every {@link #INDEX_INTERVAL}th record are kept
+ * so that the position of a txid is found with a binary search followed by a scan of at most
+ * INDEX_INTERVAL records.
+ * The index only covers complete records, so a segment that is still being written or copied is
+ * picked up incrementally by the next {@link #refresh()}. Only the bytes appended since the last
+ * refresh are read: they are kept on the heap until they add up to {@link #MIN_MAPPING_SIZE},
+ * and then mapped together, so a growing segment is never mapped again as a whole.
+ */
+public class ChangeLogIndex {
+  public static final String SEGMENT_PREFIX = "log.";
+  static final int INDEX_INTERVAL = 64;
+  static final int MIN_MAPPING_SIZE = 1024 * 1024;
+  // txid, type, timestamp and the length of the file name
+  private static final int RECORD_HEADER_SIZE = 8 + 2 + 8 + 2;
+
+  private final String changeLogDir;
+  // segment number -> segment
+  private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+
+  public ChangeLogIndex(String changeLogDir) {
+    this.changeLogDir = changeLogDir;
+  }
+
+  /**
+   * Index the segments and the records that were added since the last refresh.
+   */
+  public synchronized void refresh() throws IOException {
+    String[] list = new File(changeLogDir).list();
+    if (list == null) {
+      return;
+    }
+    for (String name : list) {
+      int number = getSegmentNumber(name);
+      if (number > 0 && !segments.containsKey(number)) {
+        segments.put(number, new Segment(name));
+      }
+    }
+    for (Segment segment : segments.values()) {
+      segment.refresh();
+    }
+  }
+
+  /**
+   * @return the name of the first segment, or null if there is none
+   */
+  public synchronized String getFirstSegment() {
+    return segments.isEmpty() ? null : segments.firstEntry().getValue().name;
+  }
+
+  /**
+   * @return the name of the segment following the given one, or null if there is none
+   */
+  public synchronized String getNextSegment(String segmentName) {
+    Map.Entry<Integer, Segment> entry = segments.higherEntry(getSegmentNumber(segmentName));
+    return entry == null ? null : entry.getValue().name;
+  }
+
+  /**
+   * @return the length of the complete records of the segment, or -1 if it is not indexed
+   */
+  public synchronized long getIndexedLength(String segmentName) {
+    Segment segment = segments.get(getSegmentNumber(segmentName));
+    return segment == null ? -1 : segment.indexedLength;
+  }
+
+  /**
+   * Find the position of the first record whose txid is greater than the given one.
+   * @return the position, or null if no such record is indexed
+   */
+  public synchronized ChangeRecord seekAfter(long txid) throws IOException {
+    // The txids increase across the segments, so this is the first segment ending after the txid.
+    for (Segment segment : segments.values()) {
+      if (segment.count > 0 && segment.lastTxid > txid) {
+        long offset = segment.seekAfter(txid);
+        ChangeRecord position = new ChangeRecord();
+        position.txid = txid;
+        position.changeLogFileName = segment.name;
+        position.endOffset = offset;
+        return position;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read the complete records of the segment starting at the given offset.
+   */
+  public synchronized List<ChangeRecord> read(String segmentName, long offset, int maxRecords)
+      throws IOException {
+    List<ChangeRecord> records = new ArrayList<ChangeRecord>();
+    Segment segment = segments.get(getSegmentNumber(segmentName));
+    if (segment == null || offset >= segment.indexedLength) {
+      return records;
+    }
+    long position = offset;
+    while (records.size() < maxRecords && position < segment.indexedLength) {
+      // The records never cross the chunks, so read the chunk of the position to its end.
+      Map.Entry<Long, ByteBuffer> chunk = segment.chunks.floorEntry(position);
+      ByteBuffer buffer = chunk.getValue().duplicate();
+      buffer.position((int) (position - chunk.getKey()));
+      while (records.size() < maxRecords && buffer.hasRemaining()) {
+        ChangeRecord record = new ChangeRecord();
+        record.changeLogFileName = segmentName;
+        record.startOffset = chunk.getKey() + buffer.position();
+        record.txid = buffer.getLong();
+        record.type = buffer.getShort();
+        record.timestamp = buffer.getLong();
+        record.file = readUTF(buffer);
+        record.endOffset = chunk.getKey() + buffer.position();
+        records.add(record);
+      }
+      position = chunk.getKey() + buffer.position();
+    }
+    return records;
+  }
+
+  static int getSegmentNumber(String name) {
+    if (name == null || !name.startsWith(SEGMENT_PREFIX)) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(name.substring(SEGMENT_PREFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static String readUTF(ByteBuffer buffer) throws IOException {
+    // The file name is written with DataOutput.writeUTF(), which prefixes the modified UTF-8
+    // bytes with their length.
+    int length = buffer.getShort(buffer.position()) & 0xFFFF;
+    byte[] bytes = new byte[2 + length];
+    buffer.get(bytes);
+    return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+  }
+
+  private class Segment {
+    private final String name;
+    private final File file;
+    // end of the last complete record
+    private long indexedLength;
+    private int count;
+    private long lastTxid;
+    // txid and offset of every INDEX_INTERVAL-th record
+    private long[] indexTxids = new long[16];
+    private long[] indexOffsets = new long[16];
+    private int indexSize;
+    // start offset -> the complete records from the offset. The chunks cover the indexed records
+    // without gaps, and every chunk starts and ends at a record boundary.
+    private final TreeMap<Long, ByteBuffer> chunks = new TreeMap<Long, ByteBuffer>();
+    // end of the mapped chunks, the chunks after it are on the heap
+    private long mappedLength;
+
+    Segment(String name) {
+      this.name = name;
+      this.file = new File(changeLogDir, name);
+    }
+
+    void refresh() throws IOException {
+      long length = file.length();
+      if (length <= indexedLength) {
+        return;
+      }
+      boolean mapped = length - mappedLength >= MIN_MAPPING_SIZE;
+      long start;
+      ByteBuffer buffer;
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = raf.getChannel();
+        if (mapped) {
+          // Map the heap chunks together with the new bytes. The mapping stays valid after the
+          // channel is closed.
+          start = mappedLength;
+          buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length - start);
+          buffer.position((int) (indexedLength - start));
+        } else {
+          start = indexedLength;
+          buffer = ByteBuffer.allocate((int) (length - start));
+          while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+              break;
+            }
+          }
+          buffer.flip();
+        }
+      } finally {
+        raf.close();
+      }
+
+      while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+        int recordStart = buffer.position();
+        long txid = buffer.getLong();
+        buffer.position(recordStart + RECORD_HEADER_SIZE - 2);
+        int nameLength = buffer.getShort() & 0xFFFF;
+        if (buffer.remaining() < nameLength) {
+          break;
+        }
+        buffer.position(buffer.position() + nameLength);
+        if (count % INDEX_INTERVAL == 0) {
+          addIndexEntry(txid, start + recordStart);
+        }
+        count++;
+        lastTxid = txid;
+        indexedLength = start + buffer.position();
+      }
+      if (indexedLength <= start) {
+        // No complete record is added.
+        return;
+      }
+      // Drop the partial record at the end, which is read again by the next refresh.
+      buffer.limit((int) (indexedLength - start));
+      buffer.position(0);
+      if (mapped) {
+        chunks.tailMap(start, true).clear();
+        mappedLength = indexedLength;
+      }
+      chunks.put(start, buffer.slice());
+    }
+
+    /**
+     * @return the chunk that contains the byte at the offset, positioned at the offset
+     */
+    private ByteBuffer getChunk(long offset) {
+      Map.Entry<Long, ByteBuffer> chunk = chunks.floorEntry(offset);
+      ByteBuffer buffer = chunk.getValue().duplicate();
+      buffer.position((int) (offset - chunk.getKey()));
+      return buffer;
+    }
+
+    /**
+     * @return the offset of the first record whose txid is greater than the given one
+     */
+    long seekAfter(long txid) throws IOException {
+      // The last indexed record whose txid is not greater than the given one
+      int low = 0;
+      int high = indexSize - 1;
+      int found = -1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (indexTxids[mid] <= txid) {
+          found = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      if (found < 0) {
+        return 0;
+      }
+      long position = indexOffsets[found];
+      try {
+        while (position < indexedLength) {
+          ByteBuffer buffer = getChunk(position);
+          int recordStart = buffer.position();
+          if (buffer.getLong(recordStart) > txid) {
+            break;
+          }
+          int length = buffer.getShort(recordStart + RECORD_HEADER_SIZE - 2) & 0xFFFF;
+          position += RECORD_HEADER_SIZE + length;
+        }
+      } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+        throw new IOException("Corrupted change log segment " + file, e);
+      }
+      return position;
+    }
+
+    private void addIndexEntry(long txid, long offset) {
+      if (indexSize == indexTxids.length) {
+        indexTxids = Arrays.copyOf(indexTxids, indexSize * 2);
+        indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+      }
+      indexTxids[indexSize] = txid;
+      indexOffsets[indexSize] = offset;
+      indexSize++;
+    }
+  }
+}
@@ -19,24 +19,30 @@ package org.apache.helix.filestore;
  * under the License.
  */
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Reads the segmented change log written by {@link ChangeLogGenerator} through a
+ * {@link ChangeLogIndex}, so that the position of a change is found without scanning the log.
+ */
 public class ChangeLogReader implements FileChangeWatcher {
   int MAX_ENTRIES_TO_READ = 100;
   private final String changeLogDir;
+  private final ChangeLogIndex index;
   Lock lock;
   private Condition condition;
 
   public ChangeLogReader(String changeLogDir) {
     this.changeLogDir = changeLogDir;
+    index = new ChangeLogIndex(changeLogDir);
     lock = new ReentrantLock();
     condition = lock.newCondition();
 
@@ -44,65 +50,122 @@ public class ChangeLogReader implements FileChangeWatcher {
 
   /**
    * Blocking call
-   * @param record
-   * @return
+   * @param record the last record processed, or null to read from the beginning of the log
+   * @return the changes following the record, or an empty list if the call is interrupted
    */
   public List<ChangeRecord> getChangeSince(ChangeRecord record) {
     List<ChangeRecord> changes = new ArrayList<ChangeRecord>();
-    String fileName;
-    long endOffset;
-    if (record == null) {
-      fileName = "log.1";
-      endOffset = 0;
-    } else {
-      fileName = record.changeLogFileName;
-      endOffset = record.endOffset;
-    }
     try {
       lock.lock();
-
-      File file;
-      file = new File(changeLogDir + "/" + fileName);
-      while (!file.exists() || file.length() <= endOffset) {
-        // wait
-        try {
-          System.out.println("Waiting for new changes");
-          condition.await();
-          System.out.println("Detected changes");
-        } catch (InterruptedException e) {
-          e.printStackTrace();
+      while (true) {
+        index.refresh();
+        ChangeRecord position = getReadPosition(record);
+        if (position != null) {
+          changes =
+              index.read(position.changeLogFileName, position.endOffset, MAX_ENTRIES_TO_READ);
+          if (!changes.isEmpty()) {
+            break;
+          }
         }
+        // wait
+        System.out.println("Waiting for new changes");
+        condition.await();
+        System.out.println("Detected changes");
       }
-      RandomAccessFile raf = new RandomAccessFile(changeLogDir + "/" + fileName, "r");
-      raf.seek(endOffset);
-      // out.writeLong(record.txid);
-      // out.writeShort(record.type);
-      // out.writeLong(record.timestamp);
-      // out.writeUTF(record.file);
-
-      int count = 0;
-      do {
-        ChangeRecord newRecord = new ChangeRecord();
-        newRecord.changeLogFileName = fileName;
-        newRecord.startOffset = raf.getFilePointer();
-        newRecord.txid = raf.readLong();
-        newRecord.type = raf.readShort();
-        newRecord.timestamp = raf.readLong();
-        newRecord.file = raf.readUTF();
-        newRecord.endOffset = raf.getFilePointer();
-        changes.add(newRecord);
-        count++;
-      } while (count < MAX_ENTRIES_TO_READ && raf.getFilePointer() < raf.length());
-    } catch (FileNotFoundException e) {
-      e.printStackTrace();
     } catch (IOException e) {
       e.printStackTrace();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+      Thread.currentThread().interrupt();
     } finally {
       lock.unlock();
     }
     return changes;
   }
 
+  /**
+   * Blocking call
+   * @param txid the transaction id built from the generation and the sequence number of the last
+   *          change processed
+   * @return the changes following the transaction id
+   */
+  public List<ChangeRecord> getChangeSince(long txid) {
+    ChangeRecord record = new ChangeRecord();
+    record.txid = txid;
+    return getChangeSince(record);
+  }
+
+  /**
+   * Stream the change log following the record to the target without copying it through the
+   * heap. Only the complete records of the segment of the next change are transferred.
+   * @param record the last record processed, or null to start from the beginning of the log
+   * @return the position following the last transferred byte, or null if there are no new
+   *         changes
+   */
+  public ChangeRecord transferChangesSince(ChangeRecord record, WritableByteChannel target)
+      throws IOException {
+    ChangeRecord position;
+    long endOffset;
+    lock.lock();
+    try {
+      index.refresh();
+      position = getReadPosition(record);
+      if (position == null) {
+        return null;
+      }
+      endOffset = index.getIndexedLength(position.changeLogFileName);
+    } finally {
+      lock.unlock();
+    }
+    if (endOffset <= position.endOffset) {
+      return null;
+    }
+    RandomAccessFile raf =
+        new RandomAccessFile(changeLogDir + "/" + position.changeLogFileName, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long offset = position.endOffset;
+      while (offset < endOffset) {
+        offset += channel.transferTo(offset, endOffset - offset, target);
+      }
+    } finally {
+      raf.close();
+    }
+    ChangeRecord next = new ChangeRecord();
+    next.changeLogFileName = position.changeLogFileName;
+    next.startOffset = position.endOffset;
+    next.endOffset = endOffset;
+    return next;
+  }
+
+  /**
+   * @return the segment and the offset to read the changes following the record from, or null if
+   *         they are not available yet
+   */
+  private ChangeRecord getReadPosition(ChangeRecord record) throws IOException {
+    ChangeRecord position = new ChangeRecord();
+    if (record == null) {
+      position.changeLogFileName = index.getFirstSegment();
+      position.endOffset = 0;
+      return position.changeLogFileName == null ? null : position;
+    }
+    long indexedLength = index.getIndexedLength(record.changeLogFileName);
+    if (indexedLength < 0) {
+      // The record does not refer to a known segment, so look up its txid.
+      return index.seekAfter(record.txid);
+    }
+    if (record.endOffset < indexedLength) {
+      position.changeLogFileName = record.changeLogFileName;
+      position.endOffset = record.endOffset;
+      return position;
+    }
+    // The segment is consumed. The generator only starts a new segment once the current one is
+    // complete.
+    position.changeLogFileName = index.getNextSegment(record.changeLogFileName);
+    position.endOffset = 0;
+    return position.changeLogFileName == null ? null : position;
+  }
+
   @Override
   public void onEntryModified(String path) {
     try {
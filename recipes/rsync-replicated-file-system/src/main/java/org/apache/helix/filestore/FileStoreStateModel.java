@@ -183,6 +183,7 @@ public class FileStoreStateModel extends StateModel {
   public void onBecomeSlaveFromMaster(Message message, NotificationContext context)
       throws Exception {
     service.stop();
+    generator.close();
     LOG.info(_serverId + " transitioning from " + message.getFromState() + " to "
         + message.getToState() + " for " + _partition);
     replicator.start();
@@ -0,0 +1,228 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.helix.filestore.FileSystemWatchService.ChangeType;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestChangeLogIndex {
+  private static final long GENERATION = 1;
+
+  private File _changeLogDir;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    _changeLogDir = Files.createTempDirectory("TestChangeLogIndex").toFile();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    File[] files = _changeLogDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    _changeLogDir.delete();
+  }
+
+  @Test
+  public void testSeekByTxid() throws Exception {
+    int numRecords = ChangeLogIndex.INDEX_INTERVAL * 3 + 5;
+    appendChanges(ChangeLogGenerator.MAX_SEGMENT_SIZE, numRecords);
+
+    ChangeLogIndex index = new ChangeLogIndex(_changeLogDir.getPath());
+    index.refresh();
+    // Seek before the first record, onto an index entry, between the index entries and onto the
+    // last record
+    for (int seq : new int[] {
+        0, ChangeLogIndex.INDEX_INTERVAL, ChangeLogIndex.INDEX_INTERVAL * 2 + 7, numRecords - 1
+    }) {
+      ChangeRecord position = index.seekAfter(txid(seq));
+      Assert.assertNotNull(position, "seq: " + seq);
+      List<ChangeRecord> records = index.read(position.changeLogFileName, position.endOffset, 1);
+      Assert.assertEquals(records.size(), 1);
+      Assert.assertEquals(records.get(0).txid, txid(seq + 1));
+      Assert.assertEquals(records.get(0).file, fileName(seq + 1));
+    }
+    Assert.assertNull(index.seekAfter(txid(numRecords)));
+
+    ChangeLogReader reader = new ChangeLogReader(_changeLogDir.getPath());
+    List<ChangeRecord> changes = reader.getChangeSince(txid(10));
+    Assert.assertEquals(changes.get(0).txid, txid(11));
+  }
+
+  @Test
+  public void testSegmentRollover() throws Exception {
+    int numRecords = 200;
+    appendChanges(1024, numRecords);
+
+    ChangeLogIndex index = new ChangeLogIndex(_changeLogDir.getPath());
+    index.refresh();
+    Assert.assertTrue(_changeLogDir.list().length > 2);
+
+    // Read all segments in order, the txids continue across the segments.
+    List<ChangeRecord> records = new ArrayList<ChangeRecord>();
+    for (String segment = index.getFirstSegment(); segment != null;
+        segment = index.getNextSegment(segment)) {
+      Assert.assertEquals(index.getIndexedLength(segment),
+          new File(_changeLogDir, segment).length());
+      records.addAll(index.read(segment, 0, Integer.MAX_VALUE));
+    }
+    Assert.assertEquals(records.size(), numRecords);
+    for (int i = 0; i < numRecords; i++) {
+      Assert.assertEquals(records.get(i).txid, txid(i + 1));
+    }
+
+    // Seek to the first record of the second segment
+    String secondSegment = index.getNextSegment(index.getFirstSegment());
+    ChangeRecord firstOfSecond = index.read(secondSegment, 0, 1).get(0);
+    ChangeRecord position = index.seekAfter(firstOfSecond.txid - 1);
+    Assert.assertEquals(position.changeLogFileName, secondSegment);
+    Assert.assertEquals(position.endOffset, 0L);
+  }
+
+  @Test
+  public void testPartialTrailingRecord() throws Exception {
+    int numRecords = 10;
+    appendChanges(ChangeLogGenerator.MAX_SEGMENT_SIZE, numRecords);
+    File segmentFile = new File(_changeLogDir, ChangeLogIndex.SEGMENT_PREFIX + 1);
+    long completeLength = segmentFile.length();
+
+    // Write the next record into another directory, and copy it in two parts.
+    File otherDir = Files.createTempDirectory("TestChangeLogIndex").toFile();
+    byte[] nextRecord;
+    try {
+      ChangeLogGenerator generator =
+          new ChangeLogGenerator(otherDir.getPath(), GENERATION, numRecords);
+      generator.appendChange(fileName(numRecords + 1), ChangeType.CREATE);
+      generator.close();
+      nextRecord =
+          Files.readAllBytes(new File(otherDir, ChangeLogIndex.SEGMENT_PREFIX + 1).toPath());
+    } finally {
+      for (File file : otherDir.listFiles()) {
+        file.delete();
+      }
+      otherDir.delete();
+    }
+
+    ChangeLogIndex index = new ChangeLogIndex(_changeLogDir.getPath());
+    // Only the header
+    append(segmentFile, nextRecord, 0, 10);
+    index.refresh();
+    Assert.assertEquals(index.getIndexedLength(segmentFile.getName()), completeLength);
+    Assert.assertEquals(index.read(segmentFile.getName(), 0, Integer.MAX_VALUE).size(),
+        numRecords);
+    Assert.assertNull(index.seekAfter(txid(numRecords)));
+
+    // The header and a part of the file name
+    append(segmentFile, nextRecord, 10, nextRecord.length - 3);
+    index.refresh();
+    Assert.assertEquals(index.getIndexedLength(segmentFile.getName()), completeLength);
+    Assert.assertNull(index.seekAfter(txid(numRecords)));
+
+    // The record is complete
+    append(segmentFile, nextRecord, nextRecord.length - 3, nextRecord.length);
+    index.refresh();
+    Assert.assertEquals(index.getIndexedLength(segmentFile.getName()), segmentFile.length());
+    ChangeRecord position = index.seekAfter(txid(numRecords));
+    Assert.assertEquals(position.endOffset, completeLength);
+    List<ChangeRecord> records = index.read(segmentFile.getName(), position.endOffset, 10);
+    Assert.assertEquals(records.size(), 1);
+    Assert.assertEquals(records.get(0).txid, txid(numRecords + 1));
+    Assert.assertEquals(records.get(0).file, fileName(numRecords + 1));
+  }
+
+  @Test
+  public void testReadAcrossChunks() throws Exception {
+    // Enough records for the index to map the segment, refreshed after every batch so that the
+    // segment is read in both heap and mapped chunks.
+    ChangeLogGenerator generator = new ChangeLogGenerator(_changeLogDir.getPath(), GENERATION, 0);
+    ChangeLogIndex index = new ChangeLogIndex(_changeLogDir.getPath());
+    String segment = ChangeLogIndex.SEGMENT_PREFIX + 1;
+    int numRecords = 0;
+    try {
+      while (new File(_changeLogDir, segment).length() < 2L * ChangeLogIndex.MIN_MAPPING_SIZE) {
+        for (int i = 0; i < 1000; i++) {
+          numRecords++;
+          generator.appendChange(fileName(numRecords), ChangeType.MODIFY);
+        }
+        index.refresh();
+      }
+    } finally {
+      generator.close();
+    }
+
+    List<ChangeRecord> records = index.read(segment, 0, Integer.MAX_VALUE);
+    Assert.assertEquals(records.size(), numRecords);
+    long offset = 0;
+    for (int i = 0; i < numRecords; i++) {
+      ChangeRecord record = records.get(i);
+      Assert.assertEquals(record.txid, txid(i + 1));
+      Assert.assertEquals(record.file, fileName(i + 1));
+      Assert.assertEquals(record.startOffset, offset);
+      offset = record.endOffset;
+    }
+    Assert.assertEquals(offset, new File(_changeLogDir, segment).length());
+
+    ChangeRecord position = index.seekAfter(txid(numRecords / 2));
+    Assert.assertEquals(index.read(segment, position.endOffset, 1).get(0).txid,
+        txid(numRecords / 2 + 1));
+  }
+
+  private void appendChanges(long maxSegmentSize, int numRecords) throws Exception {
+    ChangeLogGenerator generator =
+        new ChangeLogGenerator(_changeLogDir.getPath(), GENERATION, 0, maxSegmentSize);
+    try {
+      for (int i = 1; i <= numRecords; i++) {
+        Assert.assertTrue(generator.appendChange(fileName(i), ChangeType.CREATE));
+      }
+    } finally {
+      generator.close();
+    }
+  }
+
+  private static void append(File file, byte[] bytes, int from, int to) throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(raf.length());
+      raf.write(bytes, from, to - from);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static long txid(int seq) {
+    return (GENERATION << 32) + seq;
+  }
+
+  private String fileName(int seq) {
+    return _changeLogDir.getPath() + "/data/file_" + seq;
+  }
+}
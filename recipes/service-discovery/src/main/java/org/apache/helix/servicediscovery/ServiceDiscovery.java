@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
@@ -42,16 +44,34 @@ import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Registers services as live instances of a cluster and looks them up from an immutable snapshot
+ * of the registry. The snapshot is replaced as a whole when the registry changes, so the lookups
+ * do not lock or allocate, and the metadata of the services that did not change is carried over
+ * to the new snapshot.
+ */
 public class ServiceDiscovery {
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceDiscovery.class);
   private final String zkAddress;
   private final String cluster;
   private HelixManager admin;
-  List<ServiceMetadata> cache;
+  private volatile RegistrySnapshot snapshot;
   static int DEFAULT_POLL_INTERVAL = 30 * 1000; // in ms
   private final Mode mode;
   Map<String, HelixManager> serviceMap;
   private Timer timer;
+  private final Map<String, AtomicInteger> roundRobinCounters =
+      new ConcurrentHashMap<String, AtomicInteger>();
+
+  // registry metrics
+  private volatile long lastRefreshTime = -1;
+  // the propagation latency is only measured for the changes after the initial snapshot
+  private boolean initialized;
+  private volatile long lastPropagationLatency = -1;
+  private volatile long maxPropagationLatency = -1;
 
   enum Mode {
     NONE, // No monitoring, only registration, on demand reading zk
@@ -59,12 +79,17 @@ public class ServiceDiscovery {
     POLL// Polls zk at some intervals
   }
 
+  public enum SelectionPolicy {
+    ROUND_ROBIN, // Cycles through the instances of the service
+    LEAST_LOADED // Picks the instance with the fewest outstanding requests of this client
+  }
+
   public ServiceDiscovery(String zkAddress, String cluster, Mode mode) {
     this.zkAddress = zkAddress;
     this.cluster = cluster;
     this.mode = mode;
     serviceMap = new HashMap<String, HelixManager>();
-    cache = Collections.emptyList();
+    snapshot = new RegistrySnapshot(Collections.<String, RegisteredService> emptyMap(), 0);
   }
 
   /**
@@ -89,6 +114,9 @@ public class ServiceDiscovery {
       break;
     case WATCH:
       setupWatcher();
+      // Resync at the poll interval as well, so a missed watch event is caught, and the staleness
+      // of a stable registry stays bounded by the poll interval.
+      startBackgroundTask();
       break;
     case NONE:// dont monitor changes, supports only registration
 
@@ -102,7 +130,12 @@ public class ServiceDiscovery {
 
       @Override
       public void run() {
-        refreshCache();
+        try {
+          refreshCache();
+        } catch (Exception e) {
+          // Not to cancel the timer, the staleness grows until a refresh succeeds
+          LOG.warn("Failed to refresh the registry of cluster {}.", cluster, e);
+        }
       }
     };
     timer = new Timer();
@@ -116,7 +149,8 @@ public class ServiceDiscovery {
       public void onLiveInstanceChange(List<LiveInstance> liveInstances,
           NotificationContext changeContext) {
         if (changeContext.getType() != NotificationContext.Type.FINALIZE) {
-          refreshCache();
+          // The callback carries the current live instances, so there is no need to read them
+          refreshCache(liveInstances);
         }
       }
     };
@@ -171,26 +205,174 @@ public class ServiceDiscovery {
     refreshCache(liveInstances);
   }
 
-  private void refreshCache(List<LiveInstance> liveInstances) {
-    List<ServiceMetadata> services = new ArrayList<ServiceMetadata>();
+  synchronized void refreshCache(List<LiveInstance> liveInstances) {
+    long now = System.currentTimeMillis();
+    Map<String, RegisteredService> current = snapshot.services;
+    Map<String, RegisteredService> services = new HashMap<String, RegisteredService>();
+    boolean changed = liveInstances.size() != current.size();
+    long propagationLatency = -1;
     for (LiveInstance liveInstance : liveInstances) {
-      ServiceMetadata metadata = new ServiceMetadata();
       ZNRecord rec = liveInstance.getRecord();
-      metadata.setPort(Integer.parseInt(rec.getSimpleField("PORT")));
-      metadata.setHost(rec.getSimpleField("HOST"));
-      metadata.setServiceName(rec.getSimpleField("SERVICE_NAME"));
-      services.add(metadata);
+      RegisteredService service = current.get(liveInstance.getInstanceName());
+      if (service == null || !service.isSameVersion(rec)) {
+        service = new RegisteredService(rec);
+        changed = true;
+        // Only a znode created or updated after the initial snapshot was propagated by this
+        // refresh. A record without the stat was not read from ZooKeeper, so it is not a change.
+        if (initialized && rec.getEphemeralOwner() != 0 && rec.getModifiedTime() > 0) {
+          // The modification time is set by the ZooKeeper server, so this includes clock skew
+          propagationLatency = Math.max(propagationLatency, now - rec.getModifiedTime());
+        }
+      }
+      services.put(liveInstance.getInstanceName(), service);
     }
-    // protect against multiple threads updating this
-    synchronized (this) {
-      cache = services;
+    if (changed) {
+      snapshot = new RegistrySnapshot(services, snapshot.version + 1);
     }
+    if (propagationLatency >= 0) {
+      lastPropagationLatency = propagationLatency;
+      maxPropagationLatency = Math.max(maxPropagationLatency, propagationLatency);
+    }
+    initialized = true;
+    lastRefreshTime = now;
   }
 
   public List<ServiceMetadata> findAllServices() {
     if (mode == Mode.NONE) {
       refreshCache();
     }
-    return cache;
+    return snapshot.allServices;
+  }
+
+  /**
+   * @return the registered instances of the service, or an empty list if there is none
+   */
+  public List<ServiceMetadata> findServices(String serviceName) {
+    if (mode == Mode.NONE) {
+      refreshCache();
+    }
+    List<ServiceMetadata> services = snapshot.servicesByName.get(serviceName);
+    return services == null ? Collections.<ServiceMetadata> emptyList() : services;
+  }
+
+  /**
+   * Select an instance of the service on the client side. The least-loaded selection relies on
+   * the callers marking their requests with {@link ServiceMetadata#beginRequest()} and
+   * {@link ServiceMetadata#endRequest()}, and breaks ties in round-robin order.
+   * @return the selected instance, or null if the service has no registered instance
+   */
+  public ServiceMetadata selectService(String serviceName, SelectionPolicy policy) {
+    List<ServiceMetadata> services = findServices(serviceName);
+    int size = services.size();
+    if (size == 0) {
+      return null;
+    }
+    AtomicInteger counter = roundRobinCounters.get(serviceName);
+    if (counter == null) {
+      roundRobinCounters.putIfAbsent(serviceName, new AtomicInteger());
+      counter = roundRobinCounters.get(serviceName);
+    }
+    int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % size;
+    if (policy == SelectionPolicy.ROUND_ROBIN) {
+      return services.get(start);
+    }
+    ServiceMetadata selected = null;
+    for (int i = 0; i < size; i++) {
+      ServiceMetadata service = services.get((start + i) % size);
+      if (selected == null
+          || service.getOutstandingRequests() < selected.getOutstandingRequests()) {
+        selected = service;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * @return the number of times the registry snapshot was replaced
+   */
+  public long getSnapshotVersion() {
+    return snapshot.version;
+  }
+
+  /**
+   * @return the time in ms since the last successful refresh or watch event, or -1 if the registry
+   *         has not been read yet. In WATCH and POLL modes the registry is refreshed at the poll
+   *         interval, so the staleness only grows beyond it when the refreshes fail.
+   */
+  public long getStaleness() {
+    long refreshTime = lastRefreshTime;
+    return refreshTime < 0 ? -1 : System.currentTimeMillis() - refreshTime;
+  }
+
+  /**
+   * @return the time in ms between the last registration change and its arrival in the snapshot,
+   *         or -1 if no change was observed after the initial snapshot
+   */
+  public long getLastPropagationLatency() {
+    return lastPropagationLatency;
+  }
+
+  /**
+   * @return the longest propagation latency observed in ms, or -1 if no change was observed
+   */
+  public long getMaxPropagationLatency() {
+    return maxPropagationLatency;
+  }
+
+  /**
+   * A registered service and the version of its live instance.
+   */
+  private static class RegisteredService {
+    private final long ephemeralOwner;
+    private final int version;
+    private final ServiceMetadata metadata;
+
+    RegisteredService(ZNRecord rec) {
+      ephemeralOwner = rec.getEphemeralOwner();
+      version = rec.getVersion();
+      metadata = new ServiceMetadata();
+      metadata.setPort(Integer.parseInt(rec.getSimpleField("PORT")));
+      metadata.setHost(rec.getSimpleField("HOST"));
+      metadata.setServiceName(rec.getSimpleField("SERVICE_NAME"));
+    }
+
+    boolean isSameVersion(ZNRecord rec) {
+      // A record that was not read from ZooKeeper has no version, so it is always parsed again
+      return ephemeralOwner != 0 && ephemeralOwner == rec.getEphemeralOwner()
+          && version == rec.getVersion();
+    }
+  }
+
+  /**
+   * An immutable view of the registry.
+   */
+  private static class RegistrySnapshot {
+    private final long version;
+    // instance name -> registered service
+    private final Map<String, RegisteredService> services;
+    private final List<ServiceMetadata> allServices;
+    private final Map<String, List<ServiceMetadata>> servicesByName;
+
+    RegistrySnapshot(Map<String, RegisteredService> services, long version) {
+      this.version = version;
+      this.services = services;
+      List<ServiceMetadata> allServices = new ArrayList<ServiceMetadata>();
+      Map<String, List<ServiceMetadata>> servicesByName =
+          new HashMap<String, List<ServiceMetadata>>();
+      for (RegisteredService service : services.values()) {
+        allServices.add(service.metadata);
+        List<ServiceMetadata> instances = servicesByName.get(service.metadata.getServiceName());
+        if (instances == null) {
+          instances = new ArrayList<ServiceMetadata>();
+          servicesByName.put(service.metadata.getServiceName(), instances);
+        }
+        instances.add(service.metadata);
+      }
+      for (Map.Entry<String, List<ServiceMetadata>> entry : servicesByName.entrySet()) {
+        entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      }
+      this.allServices = Collections.unmodifiableList(allServices);
+      this.servicesByName = servicesByName;
+    }
   }
 }
@@ -118,5 +118,13 @@ public class ServiceDiscoveryDemo {
       System.out.printf("\t\t%s \t%s \t\t%s\n", serviceMetadata.getServiceName(),
           serviceMetadata.getHost(), serviceMetadata.getPort());
     }
+    if (!findAllServices.isEmpty()) {
+      String serviceName = findAllServices.get(0).getServiceName();
+      ServiceMetadata selected =
+          serviceDiscovery.selectService(serviceName, ServiceDiscovery.SelectionPolicy.ROUND_ROBIN);
+      System.out.printf("\tSELECTED %s:%s (snapshot version %d, staleness %d ms)\n",
+          selected.getHost(), selected.getPort(), serviceDiscovery.getSnapshotVersion(),
+          serviceDiscovery.getStaleness());
+    }
   }
 }
@@ -19,6 +19,8 @@ package org.apache.helix.servicediscovery;
  * under the License.
  */
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ServiceMetadata {
 
   private int _port;
@@ -55,4 +57,24 @@ public class ServiceMetadata {
     this._serviceName = serviceName;
   }
 
+  // requests sent to this service by the local client that are not completed yet
+  private final AtomicInteger _outstandingRequests = new AtomicInteger();
+
+  /**
+   * Mark the start of a request to this service, which is counted by the least-loaded selection
+   * of {@link ServiceDiscovery#selectService(String, ServiceDiscovery.SelectionPolicy)} until
+   * {@link #endRequest()} is called.
+   */
+  public void beginRequest() {
+    _outstandingRequests.incrementAndGet();
+  }
+
+  public void endRequest() {
+    _outstandingRequests.decrementAndGet();
+  }
+
+  public int getOutstandingRequests() {
+    return _outstandingRequests.get();
+  }
+
 }
@@ -0,0 +1,201 @@
+package org.apache.helix.servicediscovery;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.servicediscovery.ServiceDiscovery.Mode;
+import org.apache.helix.servicediscovery.ServiceDiscovery.SelectionPolicy;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestServiceDiscovery {
+  private static final String SERVICE_NAME = "TestService";
+  private static final long SESSION_ID = 1234L;
+
+  @Test
+  public void testSelectServiceRoundRobin() {
+    ServiceDiscovery serviceDiscovery = createServiceDiscovery();
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME, 0),
+        liveInstance(1, SERVICE_NAME, 0), liveInstance(2, SERVICE_NAME, 0),
+        liveInstance(3, "OtherService", 0)));
+    List<ServiceMetadata> services = serviceDiscovery.findServices(SERVICE_NAME);
+    Assert.assertEquals(services.size(), 3);
+
+    // Every instance is selected once in each round, in the same order.
+    List<ServiceMetadata> firstRound = new ArrayList<>();
+    for (int i = 0; i < services.size(); i++) {
+      firstRound.add(serviceDiscovery.selectService(SERVICE_NAME, SelectionPolicy.ROUND_ROBIN));
+    }
+    Assert.assertEquals(firstRound, services);
+    for (ServiceMetadata service : services) {
+      Assert.assertSame(serviceDiscovery.selectService(SERVICE_NAME, SelectionPolicy.ROUND_ROBIN),
+          service);
+    }
+    Assert.assertNull(serviceDiscovery.selectService("UnknownService", SelectionPolicy.ROUND_ROBIN));
+  }
+
+  @Test
+  public void testSelectServiceLeastLoaded() {
+    ServiceDiscovery serviceDiscovery = createServiceDiscovery();
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME, 0),
+        liveInstance(1, SERVICE_NAME, 0), liveInstance(2, SERVICE_NAME, 0)));
+    List<ServiceMetadata> services = serviceDiscovery.findServices(SERVICE_NAME);
+    services.get(0).beginRequest();
+    services.get(0).beginRequest();
+    services.get(1).beginRequest();
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertSame(serviceDiscovery.selectService(SERVICE_NAME, SelectionPolicy.LEAST_LOADED),
+          services.get(2));
+    }
+
+    // The ties are broken in round-robin order.
+    services.get(0).endRequest();
+    services.get(0).endRequest();
+    Set<ServiceMetadata> selected = new HashSet<>();
+    for (int i = 0; i < services.size(); i++) {
+      selected.add(serviceDiscovery.selectService(SERVICE_NAME, SelectionPolicy.LEAST_LOADED));
+    }
+    Assert.assertEquals(selected, new HashSet<>(Arrays.asList(services.get(0), services.get(2))));
+  }
+
+  @Test
+  public void testSnapshotReuse() {
+    ServiceDiscovery serviceDiscovery = createServiceDiscovery();
+    List<LiveInstance> liveInstances =
+        Arrays.asList(liveInstance(0, SERVICE_NAME, 0), liveInstance(1, SERVICE_NAME, 0));
+    serviceDiscovery.refreshCache(liveInstances);
+    long version = serviceDiscovery.getSnapshotVersion();
+    List<ServiceMetadata> allServices = serviceDiscovery.findAllServices();
+
+    // Nothing has changed, so the snapshot is kept.
+    serviceDiscovery.refreshCache(
+        Arrays.asList(liveInstance(0, SERVICE_NAME, 0), liveInstance(1, SERVICE_NAME, 0)));
+    Assert.assertEquals(serviceDiscovery.getSnapshotVersion(), version);
+    Assert.assertSame(serviceDiscovery.findAllServices(), allServices);
+
+    // Only the updated instance is parsed again.
+    ServiceMetadata unchanged = findService(serviceDiscovery, 0);
+    LiveInstance updated = liveInstance(1, SERVICE_NAME, 0);
+    updated.getRecord().setVersion(1);
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME, 0), updated));
+    Assert.assertEquals(serviceDiscovery.getSnapshotVersion(), version + 1);
+    Assert.assertNotSame(serviceDiscovery.findAllServices(), allServices);
+    Assert.assertSame(findService(serviceDiscovery, 0), unchanged);
+
+    // A removed instance replaces the snapshot.
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME, 0)));
+    Assert.assertEquals(serviceDiscovery.getSnapshotVersion(), version + 2);
+    Assert.assertEquals(serviceDiscovery.findAllServices().size(), 1);
+  }
+
+  @Test
+  public void testPropagationLatency() {
+    ServiceDiscovery serviceDiscovery = createServiceDiscovery();
+    long oldRegistrationAge = TimeUnit.DAYS.toMillis(1);
+
+    // The instances of the initial snapshot were not propagated by the refresh.
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME,
+        oldRegistrationAge)));
+    Assert.assertEquals(serviceDiscovery.getLastPropagationLatency(), -1L);
+    Assert.assertEquals(serviceDiscovery.getMaxPropagationLatency(), -1L);
+
+    // An unchanged instance is not a change.
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME,
+        oldRegistrationAge)));
+    Assert.assertEquals(serviceDiscovery.getLastPropagationLatency(), -1L);
+
+    // A record that was not read from ZooKeeper is not a change either.
+    LiveInstance notFromZk = liveInstance(1, SERVICE_NAME, 0);
+    notFromZk.getRecord().setEphemeralOwner(0);
+    serviceDiscovery.refreshCache(
+        Arrays.asList(liveInstance(0, SERVICE_NAME, oldRegistrationAge), notFromZk));
+    Assert.assertEquals(serviceDiscovery.getLastPropagationLatency(), -1L);
+
+    // A new instance is measured from its modification time.
+    long registrationAge = 500;
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME,
+        oldRegistrationAge), liveInstance(2, SERVICE_NAME, registrationAge)));
+    long latency = serviceDiscovery.getLastPropagationLatency();
+    Assert.assertTrue(latency >= registrationAge && latency < oldRegistrationAge, "" + latency);
+    Assert.assertEquals(serviceDiscovery.getMaxPropagationLatency(), latency);
+
+    // The max is kept after a faster propagation.
+    LiveInstance updated = liveInstance(2, SERVICE_NAME, 0);
+    updated.getRecord().setVersion(1);
+    serviceDiscovery.refreshCache(Arrays.asList(liveInstance(0, SERVICE_NAME,
+        oldRegistrationAge), updated));
+    Assert.assertTrue(serviceDiscovery.getLastPropagationLatency() < registrationAge);
+    Assert.assertEquals(serviceDiscovery.getMaxPropagationLatency(), latency);
+  }
+
+  @Test
+  public void testStaleness() throws InterruptedException {
+    ServiceDiscovery serviceDiscovery = createServiceDiscovery();
+    Assert.assertEquals(serviceDiscovery.getStaleness(), -1L);
+
+    List<LiveInstance> liveInstances = Arrays.asList(liveInstance(0, SERVICE_NAME, 0));
+    serviceDiscovery.refreshCache(liveInstances);
+    Thread.sleep(100);
+    long staleness = serviceDiscovery.getStaleness();
+    Assert.assertTrue(staleness >= 100, "" + staleness);
+
+    // A refresh that finds no change still resets the staleness.
+    serviceDiscovery.refreshCache(liveInstances);
+    Assert.assertTrue(serviceDiscovery.getStaleness() < staleness);
+  }
+
+  private static ServiceDiscovery createServiceDiscovery() {
+    // Not started, the registry is fed by the tests.
+    return new ServiceDiscovery("localhost:2181", "TestCluster", Mode.WATCH);
+  }
+
+  private static ServiceMetadata findService(ServiceDiscovery serviceDiscovery, int id) {
+    for (ServiceMetadata service : serviceDiscovery.findAllServices()) {
+      if (service.getPort() == 12000 + id) {
+        return service;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param age the time in ms since the live instance was last modified
+   */
+  private static LiveInstance liveInstance(int id, String serviceName, long age) {
+    LiveInstance liveInstance = new LiveInstance("localhost_" + (12000 + id));
+    ZNRecord record = liveInstance.getRecord();
+    record.setSimpleField("HOST", "localhost");
+    record.setSimpleField("PORT", String.valueOf(12000 + id));
+    record.setSimpleField("SERVICE_NAME", serviceName);
+    record.setEphemeralOwner(SESSION_ID);
+    record.setVersion(0);
+    record.setModifiedTime(System.currentTimeMillis() - age);
+    return liveInstance;
+  }
+}
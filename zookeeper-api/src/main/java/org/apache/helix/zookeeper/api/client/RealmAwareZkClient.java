@@ -299,6 +299,18 @@ public interface RealmAwareZkClient {
 
   List<OpResult> multi(final Iterable<Op> ops);
 
+  /**
+   * Asynchronously executes the ops in a single transaction.
+   * @param ops the ops of the transaction
+   * @param expectedSessionId if not null or empty, the transaction is only submitted when the
+   *                          current session matches the expected session
+   * @param cb the callback handler that is notified once the transaction is done
+   */
+  default void asyncMulti(final Iterable<Op> ops, final String expectedSessionId,
+      final ZkAsyncCallbacks.MultiCallbackHandler cb) {
+    throw new UnsupportedOperationException("asyncMulti is not supported.");
+  }
+
   // ZK state control
   boolean waitUntilConnected(long time, TimeUnit timeUnit);
 
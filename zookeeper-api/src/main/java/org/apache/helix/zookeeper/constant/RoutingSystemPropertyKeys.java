@@ -35,4 +35,34 @@ public class RoutingSystemPropertyKeys {
    * The interval to use between routing data updates from the routing data source.
    */
   public static final String ROUTING_DATA_UPDATE_INTERVAL_MS = "routing.data.update.interval.ms";
+
+  /**
+   * The maximum number of realm ZkClients that a FederatedZkClient keeps. Once the limit is
+   * reached, the least recently used realm ZkClient without any listener is closed before a new
+   * one is created.
+   * <p>
+   * The default value is unlimited.
+   */
+  public static final String FEDERATED_ZK_CLIENT_MAX_REALM_CLIENTS =
+      "federated.zkclient.max.realm.clients";
+
+  /**
+   * The time in milliseconds after which a realm ZkClient of a FederatedZkClient that has not
+   * been used and has no listener is closed. The client is created again on the next access to
+   * the realm.
+   * <p>
+   * The default value is 0, which disables closing the idle realm ZkClients.
+   */
+  public static final String FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS =
+      "federated.zkclient.realm.client.idle.timeout.ms";
+
+  /**
+   * The maximum number of threads that a FederatedZkClient uses to issue the scatter-gather reads.
+   * Each realm being read takes one thread while its ZkClient is connected and its reads are
+   * issued, and the other realms wait for a free thread within their read timeout.
+   * <p>
+   * The default value is 8.
+   */
+  public static final String FEDERATED_ZK_CLIENT_SCATTER_GATHER_THREADS =
+      "federated.zkclient.scatter.gather.threads";
 }
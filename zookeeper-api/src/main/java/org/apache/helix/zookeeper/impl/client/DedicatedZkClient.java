@@ -512,6 +512,12 @@ public class DedicatedZkClient implements RealmAwareZkClient {
     return _rawZkClient.multi(ops);
   }
 
+  @Override
+  public void asyncMulti(Iterable<Op> ops, String expectedSessionId,
+      ZkAsyncCallbacks.MultiCallbackHandler cb) {
+    _rawZkClient.asyncMulti(ops, expectedSessionId, cb);
+  }
+
   @Override
   public boolean waitUntilConnected(long time, TimeUnit timeUnit) {
     return _rawZkClient.waitUntilConnected(time, timeUnit);
@@ -21,7 +21,16 @@ package org.apache.helix.zookeeper.impl.client;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -40,10 +49,12 @@ import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
 import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
+import org.apache.helix.zookeeper.zkclient.metric.FederatedZkClientMonitor;
 import org.apache.helix.zookeeper.zkclient.serialize.BasicZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Op;
 import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.ZooDefs;
@@ -67,6 +78,15 @@ import org.slf4j.LoggerFactory;
  * queue. The concurrency of listeners should be aware of when implementing listeners for different
  * ZK realms. The users should use thread-safe data structures if they wish to handle change
  * callbacks.
+ * <p>
+ * The realm of a path is resolved through a sharding key -> realm cache, which is replaced when
+ * the routing data is updated. The number of realm ZkClients could be bounded by
+ * {@link RoutingSystemPropertyKeys#FEDERATED_ZK_CLIENT_MAX_REALM_CLIENTS}, and the realm ZkClients
+ * that are idle for {@link RoutingSystemPropertyKeys#FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS}
+ * are closed. A realm ZkClient that has listeners is never closed before the FederatedZkClient,
+ * and a realm ZkClient is not closed while it has in-flight calls or pending asynchronous
+ * callbacks.
+ * Note the limit should be larger than the number of realms that are accessed concurrently.
  */
 public class FederatedZkClient implements RealmAwareZkClient {
   private static final Logger LOG = LoggerFactory.getLogger(FederatedZkClient.class);
@@ -75,19 +95,32 @@ public class FederatedZkClient implements RealmAwareZkClient {
   private static final String DEDICATED_ZK_CLIENT_FACTORY =
       DedicatedZkClientFactory.class.getSimpleName();
 
-  private volatile MetadataStoreRoutingData _metadataStoreRoutingData;
+  // A realm ZkClient is never closed by the eviction while it has in-flight calls, or within this
+  // time after it is used.
+  private static final long MIN_IDLE_TIME_BEFORE_EVICTION_MS = 1000L;
+  private static final int DEFAULT_SCATTER_GATHER_THREADS = 8;
+
+  // The routing data and the sharding key -> realm cache of it
+  private volatile ShardingKeyRealmCache _realmCache;
   private final RealmAwareZkClient.RealmAwareZkConnectionConfig _connectionConfig;
   private final RealmAwareZkClient.RealmAwareZkClientConfig _clientConfig;
 
   // ZK realm -> ZkClient
-  private final Map<String, ZkClient> _zkRealmToZkClientMap;
+  private final Map<String, RealmZkClient> _zkRealmToZkClientMap;
+  private final int _maxRealmClients;
+  private final long _realmClientIdleTimeoutMs;
+  private final AtomicLong _nextIdleCheckTime = new AtomicLong(0L);
+  private final FederatedZkClientMonitor _monitor;
+  // Issues the scatter-gather reads, created on the first use.
+  private final int _scatterGatherThreads;
+  private final Object _scatterGatherExecutorLock = new Object();
+  private ExecutorService _scatterGatherExecutor;
 
   private volatile boolean _isClosed;
   private PathBasedZkSerializer _pathBasedZkSerializer;
   private final boolean _routingDataUpdateOnCacheMissEnabled = Boolean.parseBoolean(
       System.getProperty(RoutingSystemPropertyKeys.UPDATE_ROUTING_DATA_ON_CACHE_MISS));
 
-  // TODO: support capacity of ZkClient number in one FederatedZkClient and do garbage collection.
   public FederatedZkClient(RealmAwareZkClient.RealmAwareZkConnectionConfig connectionConfig,
       RealmAwareZkClient.RealmAwareZkClientConfig clientConfig) throws InvalidRoutingDataException {
     if (connectionConfig == null) {
@@ -96,44 +129,61 @@ public class FederatedZkClient implements RealmAwareZkClient {
     if (clientConfig == null) {
       throw new IllegalArgumentException("RealmAwareZkClientConfig cannot be null!");
     }
-    _metadataStoreRoutingData = RealmAwareZkClient.getMetadataStoreRoutingData(connectionConfig);
+    _realmCache = new ShardingKeyRealmCache(
+        RealmAwareZkClient.getMetadataStoreRoutingData(connectionConfig));
     _isClosed = false;
     _connectionConfig = connectionConfig;
     _clientConfig = clientConfig;
     _pathBasedZkSerializer = clientConfig.getZkSerializer();
     _zkRealmToZkClientMap = new ConcurrentHashMap<>();
+    _maxRealmClients = Integer.getInteger(
+        RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_MAX_REALM_CLIENTS, Integer.MAX_VALUE);
+    _realmClientIdleTimeoutMs = Long.getLong(
+        RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS, 0L);
+    int scatterGatherThreads = Integer.getInteger(
+        RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_SCATTER_GATHER_THREADS,
+        DEFAULT_SCATTER_GATHER_THREADS);
+    if (scatterGatherThreads <= 0) {
+      LOG.warn("Invalid number of scatter-gather threads {}, use the default {} instead.",
+          scatterGatherThreads, DEFAULT_SCATTER_GATHER_THREADS);
+      scatterGatherThreads = DEFAULT_SCATTER_GATHER_THREADS;
+    }
+    _scatterGatherThreads = scatterGatherThreads;
+    _monitor = createMonitor(clientConfig);
   }
 
   @Override
   public List<String> subscribeChildChanges(String path, IZkChildListener listener) {
-    return getZkClient(path).subscribeChildChanges(path, listener);
+    return callZkClient(path, zkClient -> zkClient.subscribeChildChanges(path, listener));
   }
 
   @Override
   public ChildrenSubscribeResult subscribeChildChanges(String path, IZkChildListener listener,
       boolean skipWatchingNodeNotExist) {
-    return getZkClient(path).subscribeChildChanges(path, listener, skipWatchingNodeNotExist);
+    return callZkClient(path,
+        zkClient -> zkClient.subscribeChildChanges(path, listener, skipWatchingNodeNotExist));
   }
 
   @Override
   public void unsubscribeChildChanges(String path, IZkChildListener listener) {
-    getZkClient(path).unsubscribeChildChanges(path, listener);
+    runZkClient(path, zkClient -> zkClient.unsubscribeChildChanges(path, listener));
   }
 
   @Override
   public void subscribeDataChanges(String path, IZkDataListener listener) {
-    getZkClient(path).subscribeDataChanges(path, listener);
+    runZkClient(path, zkClient -> zkClient.subscribeDataChanges(path, listener));
   }
 
   @Override
   public boolean subscribeDataChanges(String path, IZkDataListener listener,
       boolean skipWatchingNodeNotExist) {
-    return getZkClient(path).subscribeDataChanges(path, listener, skipWatchingNodeNotExist);
+    return callZkClient(path,
+        zkClient -> zkClient.subscribeDataChanges(path, listener, skipWatchingNodeNotExist));
   }
 
   @Override
   public void unsubscribeDataChanges(String path, IZkDataListener listener) {
-    getZkClient(path).unsubscribeDataChanges(path, listener);
+    runZkClient(path, zkClient -> zkClient.unsubscribeDataChanges(path, listener));
   }
 
   @Override
@@ -160,7 +210,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public void unsubscribeAll() {
-    _zkRealmToZkClientMap.values().forEach(ZkClient::unsubscribeAll);
+    _zkRealmToZkClientMap.values()
+        .forEach(realmZkClient -> realmZkClient.getZkClient().unsubscribeAll());
   }
 
   @Override
@@ -175,7 +226,7 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public void createPersistent(String path, boolean createParents, List<ACL> acl) {
-    getZkClient(path).createPersistent(path, createParents, acl);
+    runZkClient(path, zkClient -> zkClient.createPersistent(path, createParents, acl));
   }
 
   @Override
@@ -200,7 +251,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public void createPersistentWithTTL(String path, boolean createParents, List<ACL> acl, long ttl) {
-    getZkClient(path).createPersistentWithTTL(path, createParents, acl, ttl);
+    runZkClient(path,
+        zkClient -> zkClient.createPersistentWithTTL(path, createParents, acl, ttl));
   }
 
   @Override
@@ -245,7 +297,7 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public void createContainer(String path, boolean createParents, List<ACL> acl) {
-    getZkClient(path).createContainer(path, createParents, acl);
+    runZkClient(path, zkClient -> zkClient.createContainer(path, createParents, acl));
   }
 
   @Override
@@ -342,32 +394,32 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public List<String> getChildren(String path) {
-    return getZkClient(path).getChildren(path);
+    return callZkClient(path, zkClient -> zkClient.getChildren(path));
   }
 
   @Override
   public int countChildren(String path) {
-    return getZkClient(path).countChildren(path);
+    return callZkClient(path, zkClient -> zkClient.countChildren(path));
   }
 
   @Override
   public boolean exists(String path) {
-    return getZkClient(path).exists(path);
+    return callZkClient(path, zkClient -> zkClient.exists(path));
   }
 
   @Override
   public Stat getStat(String path) {
-    return getZkClient(path).getStat(path);
+    return callZkClient(path, zkClient -> zkClient.getStat(path));
   }
 
   @Override
   public boolean waitUntilExists(String path, TimeUnit timeUnit, long time) {
-    return getZkClient(path).waitUntilExists(path, timeUnit, time);
+    return callZkClient(path, zkClient -> zkClient.waitUntilExists(path, timeUnit, time));
   }
 
   @Override
   public void deleteRecursively(String path) {
-    getZkClient(path).deleteRecursively(path);
+    runZkClient(path, zkClient -> zkClient.deleteRecursively(path));
   }
 
   @Override
@@ -377,7 +429,7 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public boolean delete(String path, int expectedVersion) {
-    return getZkClient(path).delete(path, expectedVersion);
+    return callZkClient(path, zkClient -> zkClient.delete(path, expectedVersion));
   }
 
   @Override
@@ -388,22 +440,23 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public <T> T readData(String path, boolean returnNullIfPathNotExists) {
-    return getZkClient(path).readData(path, returnNullIfPathNotExists);
+    return callZkClient(path, zkClient -> zkClient.readData(path, returnNullIfPathNotExists));
   }
 
   @Override
   public <T> T readData(String path, Stat stat) {
-    return getZkClient(path).readData(path, stat);
+    return callZkClient(path, zkClient -> zkClient.readData(path, stat));
   }
 
   @Override
   public <T> T readData(String path, Stat stat, boolean watch) {
-    return getZkClient(path).readData(path, stat, watch);
+    return callZkClient(path, zkClient -> zkClient.readData(path, stat, watch));
   }
 
   @Override
   public <T> T readDataAndStat(String path, Stat stat, boolean returnNullIfPathNotExists) {
-    return getZkClient(path).readData(path, stat, returnNullIfPathNotExists);
+    return callZkClient(path,
+        zkClient -> zkClient.readData(path, stat, returnNullIfPathNotExists));
   }
 
   @Override
@@ -413,7 +466,7 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public <T> void updateDataSerialized(String path, DataUpdater<T> updater) {
-    getZkClient(path).updateDataSerialized(path, updater);
+    runZkClient(path, zkClient -> zkClient.updateDataSerialized(path, updater));
   }
 
   @Override
@@ -423,7 +476,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
   @Override
   public Stat writeDataReturnStat(String path, Object data, int expectedVersion) {
-    return getZkClient(path).writeDataReturnStat(path, data, expectedVersion);
+    return callZkClient(path,
+        zkClient -> zkClient.writeDataReturnStat(path, data, expectedVersion));
   }
 
   @Override
@@ -434,49 +488,49 @@ public class FederatedZkClient implements RealmAwareZkClient {
   @Override
   public void asyncCreate(String path, Object data, CreateMode mode, long ttl,
       ZkAsyncCallbacks.CreateCallbackHandler cb) {
-    getZkClient(path).asyncCreate(path, data, mode, ttl, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncCreate(path, data, mode, ttl, cb));
   }
 
   @Override
   public void asyncCreate(String path, Object data, CreateMode mode,
       ZkAsyncCallbacks.CreateCallbackHandler cb) {
-    getZkClient(path).asyncCreate(path, data, mode, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncCreate(path, data, mode, cb));
   }
 
   @Override
   public void asyncSetData(String path, Object data, int version,
       ZkAsyncCallbacks.SetDataCallbackHandler cb) {
-    getZkClient(path).asyncSetData(path, data, version, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncSetData(path, data, version, cb));
   }
 
   @Override
   public void asyncGetData(String path, ZkAsyncCallbacks.GetDataCallbackHandler cb) {
-    getZkClient(path).asyncGetData(path, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncGetData(path, cb));
   }
 
   @Override
   public void asyncExists(String path, ZkAsyncCallbacks.ExistsCallbackHandler cb) {
-    getZkClient(path).asyncExists(path, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncExists(path, cb));
   }
 
   @Override
   public void asyncDelete(String path, ZkAsyncCallbacks.DeleteCallbackHandler cb) {
-    getZkClient(path).asyncDelete(path, cb);
+    asyncCallZkClient(path, cb, zkClient -> zkClient.asyncDelete(path, cb));
   }
 
   @Override
   public void watchForData(String path) {
-    getZkClient(path).watchForData(path);
+    runZkClient(path, zkClient -> zkClient.watchForData(path));
   }
 
   @Override
   public List<String> watchForChilds(String path) {
-    return getZkClient(path).watchForChilds(path);
+    return callZkClient(path, zkClient -> zkClient.watchForChilds(path));
   }
 
   @Override
   public long getCreationTime(String path) {
-    return getZkClient(path).getCreationTime(path);
+    return callZkClient(path, zkClient -> zkClient.getCreationTime(path));
   }
 
   /**
@@ -499,7 +553,32 @@ public class FederatedZkClient implements RealmAwareZkClient {
       throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
     }
     // No different zk realms so call multi on the realm of the first op
-    return getZkClient(ops.iterator().next().getPath()).multi(ops);
+    return callZkClient(ops.iterator().next().getPath(), zkClient -> zkClient.multi(ops));
+  }
+
+  /**
+   * Asynchronously executes ZkMulti on operations that are connected to the same Zk server.
+   * Will throw exception if any operation's server connection is different.
+   * @param ops
+   * @param expectedSessionId
+   * @param cb
+   * @throws IllegalArgumentException
+   */
+  @Override
+  public void asyncMulti(Iterable<Op> ops, String expectedSessionId,
+      ZkAsyncCallbacks.MultiCallbackHandler cb) {
+    if (ops == null) {
+      throw new NullPointerException("ops must not be null.");
+    }
+    String firstRealm = getZkRealm(ops.iterator().next().getPath());
+    boolean anyDifferent = StreamSupport.stream(ops.spliterator(), false)
+        .map(op -> getZkRealm(op.getPath()))
+        .anyMatch(s -> !s.equals(firstRealm));
+    if (anyDifferent) {
+      throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
+    }
+    asyncCallZkClient(ops.iterator().next().getPath(), cb,
+        zkClient -> zkClient.asyncMulti(ops, expectedSessionId, cb));
   }
 
   @Override
@@ -529,12 +608,13 @@ public class FederatedZkClient implements RealmAwareZkClient {
     _isClosed = true;
 
     synchronized (_zkRealmToZkClientMap) {
-      Iterator<Map.Entry<String, ZkClient>> iterator = _zkRealmToZkClientMap.entrySet().iterator();
+      Iterator<Map.Entry<String, RealmZkClient>> iterator =
+          _zkRealmToZkClientMap.entrySet().iterator();
 
       while (iterator.hasNext()) {
-        Map.Entry<String, ZkClient> entry = iterator.next();
+        Map.Entry<String, RealmZkClient> entry = iterator.next();
         String zkRealm = entry.getKey();
-        ZkClient zkClient = entry.getValue();
+        ZkClient zkClient = entry.getValue().getZkClient();
 
         // Catch any exception from ZkClient's close() to avoid that there is leakage of
         // remaining unclosed ZkClient.
@@ -546,6 +626,14 @@ public class FederatedZkClient implements RealmAwareZkClient {
         iterator.remove();
       }
     }
+    if (_monitor != null) {
+      _monitor.unregister();
+    }
+    synchronized (_scatterGatherExecutorLock) {
+      if (_scatterGatherExecutor != null) {
+        _scatterGatherExecutor.shutdownNow();
+      }
+    }
 
     LOG.info("{} is successfully closed.", FEDERATED_ZK_CLIENT);
   }
@@ -555,27 +643,122 @@ public class FederatedZkClient implements RealmAwareZkClient {
     return _isClosed;
   }
 
+  /**
+   * Read the data of the paths from all of their realms concurrently (scatter-gather). The paths
+   * are grouped by realm, and the reads of every realm are issued as asynchronous getData calls on
+   * the ZkClient of the realm, so the time to read N realms does not grow with N. The reads are
+   * issued on a bounded number of threads, see
+   * {@link RoutingSystemPropertyKeys#FEDERATED_ZK_CLIENT_SCATTER_GATHER_THREADS}. A realm that
+   * waits for a thread longer than the timeout is reported as timed out.
+   * <p>
+   * The results are partial: the failure of one path or one realm does not fail the others. The
+   * result of a path reports why it has no data, for example, the realm of the path cannot be
+   * resolved or connected, or the realm does not respond within the timeout.
+   * @param paths the paths to read, which could be in different realms
+   * @param timeout the maximum time to wait for the reads of each realm
+   * @param unit the unit of the timeout
+   * @return path -> the read result of the path
+   */
+  public <T> Map<String, ScatterGatherResult<T>> scatterGatherReadData(Collection<String> paths,
+      long timeout, TimeUnit unit) {
+    checkClosedState();
+    Map<String, ScatterGatherResult<T>> results = new HashMap<>();
+    // ZK realm -> the paths in the realm
+    Map<String, List<String>> realmPaths = new HashMap<>();
+    for (String path : new LinkedHashSet<>(paths)) {
+      try {
+        realmPaths.computeIfAbsent(getZkRealm(path), realm -> new ArrayList<>()).add(path);
+      } catch (RuntimeException e) {
+        results.put(path, new ScatterGatherResult<>(path, null, ScatterGatherResult.Status.FAILED,
+            null, null, e));
+      }
+    }
+
+    // Scatter: the realms are read in parallel. Getting a realm ZkClient and issuing the reads
+    // may block while the realm is being connected, so do it on the executor.
+    long timeoutNs = unit.toNanos(timeout);
+    List<RealmRead> realmReads = new ArrayList<>();
+    for (Map.Entry<String, List<String>> entry : realmPaths.entrySet()) {
+      RealmRead realmRead =
+          new RealmRead(entry.getKey(), entry.getValue(), System.nanoTime() + timeoutNs);
+      realmReads.add(realmRead);
+      try {
+        getScatterGatherExecutor().execute(realmRead::issueReads);
+      } catch (RuntimeException e) {
+        realmRead.fail(e);
+      }
+    }
+
+    // Gather: wait for each realm until its own deadline.
+    for (RealmRead realmRead : realmReads) {
+      realmRead.await();
+      realmRead.collectResults(results);
+    }
+    return results;
+  }
+
+  /**
+   * Read the data of the same sub-path under every sharding key in the routing data, for example,
+   * "/CONFIGS/CLUSTER" of all the clusters. See {@link #scatterGatherReadData(Collection, long,
+   * TimeUnit)}.
+   * @param subPath the path relative to the sharding keys, which starts with "/"
+   * @param timeout the maximum time to wait for the reads of each realm
+   * @param unit the unit of the timeout
+   * @return path -> the read result of the path
+   */
+  public <T> Map<String, ScatterGatherResult<T>> scatterGatherReadDataUnderShardingKeys(
+      String subPath, long timeout, TimeUnit unit) {
+    checkClosedState();
+    List<String> paths = new ArrayList<>();
+    for (String shardingKey : _realmCache.getRoutingData().getAllMappingUnderPath("/")
+        .keySet()) {
+      paths.add(shardingKey.equals("/") ? subPath : shardingKey + subPath);
+    }
+    return scatterGatherReadData(paths, timeout, unit);
+  }
+
+  private ExecutorService getScatterGatherExecutor() {
+    synchronized (_scatterGatherExecutorLock) {
+      checkClosedState();
+      if (_scatterGatherExecutor == null) {
+        // At most one thread per realm that is being read, the other realms are queued, and the
+        // idle threads exit.
+        ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(_scatterGatherThreads, _scatterGatherThreads, 60L,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+              Thread thread = new Thread(r, FEDERATED_ZK_CLIENT + "-ScatterGather");
+              thread.setDaemon(true);
+              return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        _scatterGatherExecutor = executor;
+      }
+      return _scatterGatherExecutor;
+    }
+  }
+
   @Override
   public byte[] serialize(Object data, String path) {
-    return getZkClient(path).serialize(data, path);
+    return callZkClient(path, zkClient -> zkClient.serialize(data, path));
   }
 
   @Override
   public <T> T deserialize(byte[] data, String path) {
-    return getZkClient(path).deserialize(data, path);
+    return callZkClient(path, zkClient -> zkClient.deserialize(data, path));
   }
 
   @Override
   public void setZkSerializer(ZkSerializer zkSerializer) {
     _pathBasedZkSerializer = new BasicZkSerializer(zkSerializer);
     _zkRealmToZkClientMap.values()
-        .forEach(zkClient -> zkClient.setZkSerializer(_pathBasedZkSerializer));
+        .forEach(realmZkClient -> realmZkClient.getZkClient().setZkSerializer(_pathBasedZkSerializer));
   }
 
   @Override
   public void setZkSerializer(PathBasedZkSerializer zkSerializer) {
     _pathBasedZkSerializer = zkSerializer;
-    _zkRealmToZkClientMap.values().forEach(zkClient -> zkClient.setZkSerializer(zkSerializer));
+    _zkRealmToZkClientMap.values()
+        .forEach(realmZkClient -> realmZkClient.getZkClient().setZkSerializer(zkSerializer));
   }
 
   @Override
@@ -606,45 +789,120 @@ public class FederatedZkClient implements RealmAwareZkClient {
 
     // Create mode is not session-aware, so the node does not have to be created
     // by the expectedSessionId.
-    return getZkClient(path).create(path, dataObject, acl, mode, ttl);
+    return callZkClient(path, zkClient -> zkClient.create(path, dataObject, acl, mode, ttl));
+  }
+
+  /**
+   * Run the operation on the ZkClient of the realm of the path. The ZkClient is not evicted until
+   * the operation returns.
+   */
+  private <T> T callZkClient(String path, Function<ZkClient, T> operation) {
+    RealmZkClient realmZkClient = acquireZkClient(path);
+    try {
+      return operation.apply(realmZkClient.getZkClient());
+    } finally {
+      realmZkClient.release();
+    }
+  }
+
+  private void runZkClient(String path, Consumer<ZkClient> operation) {
+    RealmZkClient realmZkClient = acquireZkClient(path);
+    try {
+      operation.accept(realmZkClient.getZkClient());
+    } finally {
+      realmZkClient.release();
+    }
+  }
+
+  /**
+   * Issue the asynchronous operation on the ZkClient of the realm of the path. The ZkClient is not
+   * evicted until the callback of the operation is done.
+   */
+  private void asyncCallZkClient(String path, ZkAsyncCallbacks.DefaultCallback cb,
+      Consumer<ZkClient> operation) {
+    RealmZkClient realmZkClient = acquireZkClient(path);
+    AtomicBoolean released = new AtomicBoolean(false);
+    Runnable release = () -> {
+      if (released.compareAndSet(false, true)) {
+        realmZkClient.release();
+      }
+    };
+    try {
+      operation.accept(realmZkClient.getZkClient());
+    } catch (RuntimeException e) {
+      release.run();
+      throw e;
+    }
+    cb.runWhenOperationDone(release);
   }
 
-  private ZkClient getZkClient(String path) {
+  /**
+   * Get the ZkClient of the realm of the path, and count the caller as an in-flight call of it.
+   * The caller must call {@link RealmZkClient#release()} once the call is done.
+   */
+  private RealmZkClient acquireZkClient(String path) {
     // If FederatedZkClient is closed, should not return ZkClient.
     checkClosedState();
 
     String zkRealm = getZkRealm(path);
-    // Use this zkClient reference to protect the returning zkClient from being null because of
-    // race condition. Once we get the reference, even _zkRealmToZkClientMap is cleared by closed(),
-    // this zkClient is not null which guarantees the returned value not null.
-    ZkClient zkClient = _zkRealmToZkClientMap.get(zkRealm);
-
-    if (zkClient == null) {
-      // 1. Synchronized to avoid creating duplicate ZkClient for the same ZkRealm.
-      // 2. Synchronized with close() to avoid creating new ZkClient when all ZkClients are
-      // being closed and _zkRealmToZkClientMap is being cleared.
-      synchronized (_zkRealmToZkClientMap) {
-        // Because of potential race condition: thread B to get ZkClient could be blocked by this
-        // synchronized, while thread A is executing closed() in its synchronized block. So thread B
-        // could still enter this synchronized block once A completes executing closed() and
-        // releases the synchronized lock.
-        // Check closed state again to avoid creating a new ZkClient after FederatedZkClient
-        // is already closed.
-        checkClosedState();
-
-        if (!_zkRealmToZkClientMap.containsKey(zkRealm)) {
-          zkClient = createZkClient(zkRealm);
-          _zkRealmToZkClientMap.put(zkRealm, zkClient);
-        } else {
-          zkClient = _zkRealmToZkClientMap.get(zkRealm);
+    evictIdleZkClientsIfNeeded();
+
+    while (true) {
+      // Use this reference to protect the returning zkClient from being null because of race
+      // condition. Once we get the reference, even _zkRealmToZkClientMap is cleared by closed(),
+      // this zkClient is not null which guarantees the returned value not null.
+      RealmZkClient realmZkClient = _zkRealmToZkClientMap.get(zkRealm);
+
+      if (realmZkClient == null) {
+        Map<String, RealmZkClient> evictedZkClients = new HashMap<>();
+        // 1. Synchronized to avoid creating duplicate ZkClient for the same ZkRealm.
+        // 2. Synchronized with close() to avoid creating new ZkClient when all ZkClients are
+        // being closed and _zkRealmToZkClientMap is being cleared.
+        synchronized (_zkRealmToZkClientMap) {
+          // Because of potential race condition: thread B to get ZkClient could be blocked by this
+          // synchronized, while thread A is executing closed() in its synchronized block. So thread
+          // B could still enter this synchronized block once A completes executing closed() and
+          // releases the synchronized lock.
+          // Check closed state again to avoid creating a new ZkClient after FederatedZkClient
+          // is already closed.
+          checkClosedState();
+
+          realmZkClient = _zkRealmToZkClientMap.get(zkRealm);
+          if (realmZkClient == null) {
+            if (_zkRealmToZkClientMap.size() >= _maxRealmClients) {
+              evictLeastRecentlyUsedZkClient(evictedZkClients);
+            }
+            realmZkClient = new RealmZkClient(createZkClient(zkRealm));
+            _zkRealmToZkClientMap.put(zkRealm, realmZkClient);
+            if (_monitor != null) {
+              _monitor.increaseRealmClientCreatedCounter();
+              _monitor.updateRealmClientGauge(_zkRealmToZkClientMap.size());
+            }
+          }
         }
+        closeEvictedZkClients(evictedZkClients);
       }
-    }
 
-    return zkClient;
+      if (realmZkClient.markAccessed()) {
+        return realmZkClient;
+      }
+      // The ZkClient is being evicted, so look it up again.
+      realmZkClient.release();
+    }
   }
 
   private String getZkRealm(String path) {
+    ShardingKeyRealmCache realmCache = _realmCache;
+    String zkRealm = realmCache.getCachedRealm(path);
+    if (zkRealm != null) {
+      if (_monitor != null) {
+        _monitor.increaseRealmCacheHitCounter();
+      }
+      return zkRealm;
+    }
+    if (_monitor != null) {
+      _monitor.increaseRealmCacheMissCounter();
+    }
     if (_routingDataUpdateOnCacheMissEnabled) {
       try {
         return updateRoutingDataOnCacheMiss(path);
@@ -653,7 +911,19 @@ public class FederatedZkClient implements RealmAwareZkClient {
             + "data!", e);
       }
     }
-    return _metadataStoreRoutingData.getMetadataStoreRealm(path);
+    return realmCache.getRealm(path);
+  }
+
+  /**
+   * Replace the routing data. The realm cache of the previous routing data is discarded.
+   */
+  private void setRoutingData(MetadataStoreRoutingData routingData) {
+    if (routingData != _realmCache.getRoutingData()) {
+      _realmCache = new ShardingKeyRealmCache(routingData);
+      if (_monitor != null) {
+        _monitor.increaseRoutingDataUpdateCounter();
+      }
+    }
   }
 
   /**
@@ -667,33 +937,32 @@ public class FederatedZkClient implements RealmAwareZkClient {
   private String updateRoutingDataOnCacheMiss(String path) throws InvalidRoutingDataException {
     String zkRealm;
     try {
-      zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
+      zkRealm = _realmCache.getRealm(path);
     } catch (NoSuchElementException e1) {
       synchronized (this) {
         try {
-          zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
+          zkRealm = _realmCache.getRealm(path);
         } catch (NoSuchElementException e2) {
           // Try 1) Refresh MetadataStoreRoutingData from RoutingDataManager
           // This is an in-memory refresh from the Singleton RoutingDataManager - other
           // ZkClient objects may have triggered a cache refresh, so we first update the
           // in-memory reference. This refresh only affects this object/thread, so we synchronize
           // on "this".
-          _metadataStoreRoutingData =
-              RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig);
+          setRoutingData(RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig));
           try {
-            zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
+            zkRealm = _realmCache.getRealm(path);
           } catch (NoSuchElementException e3) {
             try {
-              zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
+              zkRealm = _realmCache.getRealm(path);
             } catch (NoSuchElementException e4) {
               // Try 2) Reset RoutingDataManager and re-read the routing data from routing data
               // source via I/O, since RoutingDataManager's cache doesn't have it either.
               RoutingDataManager.getInstance().reset(false);
-              _metadataStoreRoutingData = RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig);
+              setRoutingData(RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig));
               // No try-catch for the following call because if this throws a
               // NoSuchElementException, it means the ZK path sharding key doesn't exist even
               // after a full cache refresh
-              zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
+              zkRealm = _realmCache.getRealm(path);
             }
           }
         }
@@ -707,7 +976,135 @@ public class FederatedZkClient implements RealmAwareZkClient {
     return new ZkClient(new ZkConnection(zkAddress), (int) _clientConfig.getConnectInitTimeout(),
         _clientConfig.getOperationRetryTimeout(), _pathBasedZkSerializer,
         _clientConfig.getMonitorType(), _clientConfig.getMonitorKey(),
-        _clientConfig.getMonitorInstanceName(), _clientConfig.isMonitorRootPathOnly());
+        getRealmMonitorInstanceName(zkAddress), _clientConfig.isMonitorRootPathOnly());
+  }
+
+  /**
+   * Each realm ZkClient reports its latency and connection metrics with its own monitor, so the
+   * realm is added to the monitor instance name.
+   */
+  private String getRealmMonitorInstanceName(String zkRealm) {
+    // The realm address may contain the characters that are not allowed in an ObjectName value.
+    String realm = zkRealm.replaceAll("[^A-Za-z0-9_.\\-]", "_");
+    String instanceName = _clientConfig.getMonitorInstanceName();
+    return instanceName == null ? realm : instanceName + "." + realm;
+  }
+
+  private static FederatedZkClientMonitor createMonitor(RealmAwareZkClientConfig clientConfig) {
+    String monitorType = clientConfig.getMonitorType();
+    String monitorKey = clientConfig.getMonitorKey();
+    if (monitorType == null || monitorType.isEmpty() || monitorKey == null || monitorKey
+        .isEmpty()) {
+      return null;
+    }
+    FederatedZkClientMonitor monitor = new FederatedZkClientMonitor(monitorType, monitorKey,
+        clientConfig.getMonitorInstanceName());
+    try {
+      monitor.register();
+    } catch (Exception e) {
+      LOG.error("Failed to register the monitor of {}.", FEDERATED_ZK_CLIENT, e);
+    }
+    return monitor;
+  }
+
+  /**
+   * Close the realm ZkClients that are idle for the idle timeout. The check runs at most once per
+   * half of the idle timeout on the calling thread.
+   */
+  private void evictIdleZkClientsIfNeeded() {
+    if (_realmClientIdleTimeoutMs <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long nextIdleCheckTime = _nextIdleCheckTime.get();
+    if (now < nextIdleCheckTime || !_nextIdleCheckTime
+        .compareAndSet(nextIdleCheckTime, now + Math.max(_realmClientIdleTimeoutMs / 2, 1L))) {
+      return;
+    }
+    Map<String, RealmZkClient> evictedZkClients = new HashMap<>();
+    synchronized (_zkRealmToZkClientMap) {
+      if (isClosed()) {
+        return;
+      }
+      long idleThreshold =
+          Math.max(_realmClientIdleTimeoutMs, MIN_IDLE_TIME_BEFORE_EVICTION_MS);
+      new ArrayList<>(_zkRealmToZkClientMap.entrySet()).forEach(entry -> {
+        if (entry.getValue().isEvictable(now, idleThreshold)) {
+          evictZkClient(entry.getKey(), entry.getValue(), now, idleThreshold, evictedZkClients);
+        }
+      });
+    }
+    closeEvictedZkClients(evictedZkClients);
+  }
+
+  /**
+   * Evict the least recently used realm ZkClient to keep the number of the realm ZkClients within
+   * the limit. Must be called while holding the lock of _zkRealmToZkClientMap.
+   * @param evictedZkClients collects the evicted ZkClient, to be closed after the lock is released
+   */
+  private void evictLeastRecentlyUsedZkClient(Map<String, RealmZkClient> evictedZkClients) {
+    long now = System.currentTimeMillis();
+    List<Map.Entry<String, RealmZkClient>> candidates = new ArrayList<>();
+    for (Map.Entry<String, RealmZkClient> entry : _zkRealmToZkClientMap.entrySet()) {
+      if (entry.getValue().isEvictable(now, MIN_IDLE_TIME_BEFORE_EVICTION_MS)) {
+        candidates.add(entry);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(entry -> entry.getValue().getLastAccessTime()));
+    for (Map.Entry<String, RealmZkClient> candidate : candidates) {
+      if (evictZkClient(candidate.getKey(), candidate.getValue(), now,
+          MIN_IDLE_TIME_BEFORE_EVICTION_MS, evictedZkClients)) {
+        return;
+      }
+    }
+    LOG.warn("{} has {} realm ZkClients, which exceeds the limit {}, but none of them can be "
+            + "closed because they are in use or have listeners.", FEDERATED_ZK_CLIENT,
+        _zkRealmToZkClientMap.size(), _maxRealmClients);
+  }
+
+  /**
+   * Remove the realm ZkClient from the map if it is still evictable. The ZkClient is not closed
+   * here, because closing it waits for its event thread and ZooKeeper session, which must not
+   * block the other callers on the lock.
+   * Must be called while holding the lock of _zkRealmToZkClientMap.
+   * @param evictedZkClients collects the evicted ZkClient, to be closed after the lock is released
+   * @return true if the realm ZkClient is evicted
+   */
+  private boolean evictZkClient(String zkRealm, RealmZkClient realmZkClient, long now,
+      long idleThreshold, Map<String, RealmZkClient> evictedZkClients) {
+    if (!realmZkClient.markEvicted(now, idleThreshold)) {
+      return false;
+    }
+    _zkRealmToZkClientMap.remove(zkRealm, realmZkClient);
+    evictedZkClients.put(zkRealm, realmZkClient);
+    if (_monitor != null) {
+      _monitor.increaseRealmClientEvictedCounter();
+      _monitor.updateRealmClientGauge(_zkRealmToZkClientMap.size());
+    }
+    return true;
+  }
+
+  /**
+   * Close the evicted realm ZkClients. Must be called without holding the lock of
+   * _zkRealmToZkClientMap.
+   */
+  private void closeEvictedZkClients(Map<String, RealmZkClient> evictedZkClients) {
+    evictedZkClients.forEach((zkRealm, realmZkClient) -> {
+      try {
+        realmZkClient.getZkClient().close();
+      } catch (Exception e) {
+        LOG.error("Exception thrown when closing idle ZkClient for ZkRealm: {}!", zkRealm, e);
+      }
+      LOG.info("Closed idle ZkClient for ZkRealm: {}.", zkRealm);
+    });
+  }
+
+  int getRealmZkClientCount() {
+    return _zkRealmToZkClientMap.size();
+  }
+
+  int getCachedShardingKeyCount() {
+    return _realmCache.size();
   }
 
   private void checkClosedState() {
@@ -722,4 +1119,277 @@ public class FederatedZkClient implements RealmAwareZkClient {
             + ". Instead, please use " + DEDICATED_ZK_CLIENT_FACTORY
             + " to create a dedicated RealmAwareZkClient for this operation.");
   }
+
+  /**
+   * The ZkClient of a realm, its last access time and the number of its in-flight calls.
+   */
+  private static class RealmZkClient {
+    private final ZkClient _zkClient;
+    private final AtomicInteger _inFlightCalls = new AtomicInteger(0);
+    private volatile long _lastAccessTime;
+    private volatile boolean _evicted = false;
+
+    RealmZkClient(ZkClient zkClient) {
+      _zkClient = zkClient;
+      _lastAccessTime = System.currentTimeMillis();
+    }
+
+    ZkClient getZkClient() {
+      return _zkClient;
+    }
+
+    long getLastAccessTime() {
+      return _lastAccessTime;
+    }
+
+    int getInFlightCalls() {
+      return _inFlightCalls.get();
+    }
+
+    /**
+     * Count a new in-flight call. The call must be released by {@link #release()} even if this
+     * method returns false.
+     * @return false if the ZkClient is being evicted and should not be used
+     */
+    boolean markAccessed() {
+      _inFlightCalls.incrementAndGet();
+      _lastAccessTime = System.currentTimeMillis();
+      return !_evicted;
+    }
+
+    /**
+     * Finish an in-flight call.
+     */
+    void release() {
+      _lastAccessTime = System.currentTimeMillis();
+      _inFlightCalls.decrementAndGet();
+    }
+
+    boolean isEvictable(long now, long idleThreshold) {
+      return _inFlightCalls.get() == 0 && now - _lastAccessTime >= idleThreshold
+          && _zkClient.numberOfListeners() == 0;
+    }
+
+    /**
+     * Mark the ZkClient evicted if it is still evictable. Together with markAccessed(), either
+     * the accessing thread sees the mark and looks up the ZkClient again, or this method sees the
+     * new in-flight call and keeps the ZkClient.
+     * @return true if the ZkClient is marked evicted
+     */
+    boolean markEvicted(long now, long idleThreshold) {
+      _evicted = true;
+      if (!isEvictable(now, idleThreshold)) {
+        _evicted = false;
+        return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The scatter-gather reads of one realm.
+   */
+  private class RealmRead {
+    private final String _zkRealm;
+    private final List<String> _paths;
+    private final long _deadlineNs;
+    private final CountDownLatch _latch;
+    private final ReadCallback[] _callbacks;
+    private volatile ZkClient _zkClient;
+
+    RealmRead(String zkRealm, List<String> paths, long deadlineNs) {
+      _zkRealm = zkRealm;
+      _paths = paths;
+      _deadlineNs = deadlineNs;
+      _latch = new CountDownLatch(paths.size());
+      _callbacks = new ReadCallback[paths.size()];
+      for (int i = 0; i < paths.size(); i++) {
+        _callbacks[i] = new ReadCallback(_latch);
+      }
+    }
+
+    void issueReads() {
+      if (System.nanoTime() - _deadlineNs >= 0) {
+        // The realm waited for a thread until its deadline and is already reported as timed out.
+        return;
+      }
+      for (int i = 0; i < _paths.size(); i++) {
+        String path = _paths.get(i);
+        ReadCallback callback = _callbacks[i];
+        try {
+          // Each pending read keeps the realm ZkClient from being evicted.
+          asyncCallZkClient(path, callback, zkClient -> {
+            _zkClient = zkClient;
+            zkClient.asyncGetData(path, callback);
+          });
+        } catch (Exception e) {
+          if (_zkClient == null) {
+            // The realm ZkClient cannot be created, so the remaining reads fail as well.
+            for (int j = i; j < _paths.size(); j++) {
+              _callbacks[j].fail(e);
+            }
+            return;
+          }
+          callback.fail(e);
+        }
+      }
+    }
+
+    void fail(Exception e) {
+      for (ReadCallback callback : _callbacks) {
+        callback.fail(e);
+      }
+    }
+
+    void await() {
+      long remainingNs = _deadlineNs - System.nanoTime();
+      try {
+        if (remainingNs > 0) {
+          _latch.await(remainingNs, TimeUnit.NANOSECONDS);
+        }
+      } catch (InterruptedException e) {
+        LOG.warn("Interrupted while waiting for the reads of ZkRealm: {}.", _zkRealm);
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    <T> void collectResults(Map<String, ScatterGatherResult<T>> results) {
+      for (int i = 0; i < _paths.size(); i++) {
+        results.put(_paths.get(i), _callbacks[i].toResult(_paths.get(i), _zkRealm, _zkClient));
+      }
+    }
+  }
+
+  /**
+   * Records the result of an asynchronous read and counts down the latch of the realm.
+   */
+  private static class ReadCallback extends ZkAsyncCallbacks.GetDataCallbackHandler {
+    private final CountDownLatch _latch;
+    private volatile boolean _done = false;
+    private volatile Exception _error;
+
+    ReadCallback(CountDownLatch latch) {
+      _latch = latch;
+    }
+
+    @Override
+    public void handle() {
+      complete();
+    }
+
+    void fail(Exception e) {
+      _error = e;
+      complete();
+    }
+
+    private synchronized void complete() {
+      if (!_done) {
+        _done = true;
+        _latch.countDown();
+      }
+    }
+
+    <T> ScatterGatherResult<T> toResult(String path, String zkRealm, ZkClient zkClient) {
+      if (!_done) {
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.TIMED_OUT,
+            null, null, null);
+      }
+      if (_error != null) {
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.FAILED, null,
+            null, _error);
+      }
+      KeeperException.Code code = KeeperException.Code.get(getRc());
+      if (code == KeeperException.Code.NONODE) {
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.NO_NODE,
+            null, null, null);
+      }
+      if (code != KeeperException.Code.OK) {
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.FAILED, null,
+            null, KeeperException.create(code, path));
+      }
+      try {
+        T data = zkClient.deserialize(getData(), path);
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.OK, data,
+            getStat(), null);
+      } catch (Exception e) {
+        return new ScatterGatherResult<>(path, zkRealm, ScatterGatherResult.Status.FAILED, null,
+            null, e);
+      }
+    }
+  }
+
+  /**
+   * The result of reading one path in {@link #scatterGatherReadData(Collection, long, TimeUnit)}.
+   */
+  public static class ScatterGatherResult<T> {
+    public enum Status {
+      // The data is read.
+      OK,
+      // The path does not exist.
+      NO_NODE,
+      // The realm does not respond within the timeout.
+      TIMED_OUT,
+      // The path cannot be read. See getError() for the reason.
+      FAILED
+    }
+
+    private final String _path;
+    private final String _zkRealm;
+    private final Status _status;
+    private final T _data;
+    private final Stat _stat;
+    private final Exception _error;
+
+    ScatterGatherResult(String path, String zkRealm, Status status, T data, Stat stat,
+        Exception error) {
+      _path = path;
+      _zkRealm = zkRealm;
+      _status = status;
+      _data = data;
+      _stat = stat;
+      _error = error;
+    }
+
+    public String getPath() {
+      return _path;
+    }
+
+    /**
+     * @return the realm of the path, or null if the realm cannot be resolved
+     */
+    public String getZkRealm() {
+      return _zkRealm;
+    }
+
+    public Status getStatus() {
+      return _status;
+    }
+
+    /**
+     * @return the data of the path if the status is OK, or null otherwise
+     */
+    public T getData() {
+      return _data;
+    }
+
+    /**
+     * @return the stat of the path if the status is OK, or null otherwise
+     */
+    public Stat getStat() {
+      return _stat;
+    }
+
+    /**
+     * @return the reason of the failure if the status is FAILED, or null otherwise
+     */
+    public Exception getError() {
+      return _error;
+    }
+
+    @Override
+    public String toString() {
+      return "ScatterGatherResult{path=" + _path + ", zkRealm=" + _zkRealm + ", status=" + _status
+          + (_error == null ? "" : ", error=" + _error) + "}";
+    }
+  }
 }
@@ -0,0 +1,114 @@
+package org.apache.helix.zookeeper.impl.client;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.msdcommon.datamodel.MetadataStoreRoutingData;
+import org.apache.helix.msdcommon.util.ZkValidationUtil;
+
+
+/**
+ * A concurrent cache of the sharding key -> realm mapping of one version of the routing data.
+ * A path is validated and resolved by looking up its prefixes in the cache, so the path is not split
+ * and matched against the routing data trie on every operation. Only the first lookup of a
+ * sharding key goes to the routing data.
+ * <p>
+ * The cache never becomes stale because it is bound to the routing data it is created with: when
+ * the routing data is updated, a new cache is created for it and this one is discarded.
+ */
+class ShardingKeyRealmCache {
+  private static final String DELIMITER = "/";
+
+  private final MetadataStoreRoutingData _routingData;
+  // sharding key -> realm
+  private final Map<String, String> _shardingKeyToRealmMap = new ConcurrentHashMap<>();
+  // the realm of the root sharding key "/", which covers all the paths
+  private volatile String _rootRealm;
+
+  ShardingKeyRealmCache(MetadataStoreRoutingData routingData) {
+    _routingData = routingData;
+  }
+
+  MetadataStoreRoutingData getRoutingData() {
+    return _routingData;
+  }
+
+  /**
+   * @param path the ZK path
+   * @return the realm of the path if its sharding key is cached, or null otherwise
+   * @throws IllegalArgumentException if the path is not a valid ZK path
+   */
+  String getCachedRealm(String path) throws IllegalArgumentException {
+    // Validate the same way as the routing data, so a cached sharding key does not resolve an
+    // invalid path that the routing data would reject.
+    if (!ZkValidationUtil.isPathValid(path)) {
+      throw new IllegalArgumentException("Provided path is not a valid Zookeeper path: " + path);
+    }
+    if (_rootRealm != null) {
+      return _rootRealm;
+    }
+    if (_shardingKeyToRealmMap.isEmpty()) {
+      return null;
+    }
+    // The sharding keys never contain each other, so the first cached prefix is the sharding key
+    // of the path.
+    int end = path.indexOf(DELIMITER, 1);
+    while (end > 0) {
+      String realm = _shardingKeyToRealmMap.get(path.substring(0, end));
+      if (realm != null) {
+        return realm;
+      }
+      end = path.indexOf(DELIMITER, end + 1);
+    }
+    return _shardingKeyToRealmMap.get(path);
+  }
+
+  /**
+   * Resolve the realm of the path, and cache it by the sharding key of the path.
+   * @param path the ZK path
+   * @return the realm of the path
+   * @throws IllegalArgumentException if the path is not a valid ZK path
+   * @throws NoSuchElementException if the path does not have a sharding key in the routing data
+   */
+  String getRealm(String path) throws IllegalArgumentException, NoSuchElementException {
+    String realm = getCachedRealm(path);
+    if (realm != null) {
+      return realm;
+    }
+    String shardingKey = _routingData.getShardingKeyInPath(path);
+    realm = _routingData.getMetadataStoreRealm(path);
+    if (shardingKey.equals(DELIMITER)) {
+      _rootRealm = realm;
+    } else {
+      _shardingKeyToRealmMap.put(shardingKey, realm);
+    }
+    return realm;
+  }
+
+  /**
+   * @return the number of cached sharding keys
+   */
+  int size() {
+    return _rootRealm == null ? _shardingKeyToRealmMap.size() : 1;
+  }
+}
@@ -544,6 +544,12 @@ public class SharedZkClient implements RealmAwareZkClient {
     return _innerSharedZkClient.multi(ops);
   }
 
+  @Override
+  public void asyncMulti(Iterable<Op> ops, String expectedSessionId,
+      ZkAsyncCallbacks.MultiCallbackHandler cb) {
+    _innerSharedZkClient.asyncMulti(ops, expectedSessionId, cb);
+  }
+
   @Override
   public boolean waitUntilConnected(long time, TimeUnit timeUnit) {
     return _innerSharedZkClient.waitUntilConnected(time, timeUnit);
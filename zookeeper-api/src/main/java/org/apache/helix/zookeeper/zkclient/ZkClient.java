@@ -2503,6 +2503,41 @@ public class ZkClient implements Watcher {
     }
   }
 
+  /**
+   * Asynchronously executes the ops in a single transaction. The callback is notified once the
+   * whole transaction is committed or rolled back.
+   * @param ops the ops of the transaction
+   * @param expectedSessionId if not null or empty, the transaction is only submitted when the
+   *                          current session matches the expected session
+   * @param cb the callback handler
+   */
+  public void asyncMulti(final Iterable<Op> ops, final String expectedSessionId,
+      final ZkAsyncCallbacks.MultiCallbackHandler cb) {
+    if (ops == null) {
+      throw new NullPointerException("ops must not be null.");
+    }
+    final long startT = System.currentTimeMillis();
+    // Use the first path for monitoring since the transaction is usually under the same parent.
+    final String path = ops.iterator().hasNext() ? ops.iterator().next().getPath() : null;
+    try {
+      retryUntilConnected(() -> {
+        getExpectedZookeeper(expectedSessionId).multi(ops, cb,
+            new ZkAsyncRetryCallContext(_asyncCallRetryThread, cb, _monitor, startT, 0, false) {
+              @Override
+              protected void doRetry() {
+                asyncMulti(ops, expectedSessionId, cb);
+              }
+            });
+        return null;
+      });
+    } catch (RuntimeException e) {
+      // Process callback to release caller from waiting
+      cb.processResult(KeeperException.Code.APIERROR.intValue(), path,
+          new ZkAsyncCallMonitorContext(_monitor, startT, 0, false), null);
+      throw e;
+    }
+  }
+
   private void checkDataSizeLimit(String path, byte[] data) {
     if (data == null) {
       return;
@@ -19,17 +19,22 @@ package org.apache.helix.zookeeper.zkclient.callback;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.AsyncCallback.Create2Callback;
 import org.apache.zookeeper.AsyncCallback.DataCallback;
+import org.apache.zookeeper.AsyncCallback.MultiCallback;
 import org.apache.zookeeper.AsyncCallback.StatCallback;
 import org.apache.zookeeper.AsyncCallback.StringCallback;
 import org.apache.zookeeper.AsyncCallback.VoidCallback;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -153,6 +158,31 @@ public class ZkAsyncCallbacks {
     }
   }
 
+  public static class MultiCallbackHandler extends DefaultCallback implements MultiCallback {
+    List<OpResult> _opResults = Collections.emptyList();
+
+    @Override
+    public void processResult(int rc, String path, Object ctx, List<OpResult> opResults) {
+      if (opResults != null) {
+        _opResults = opResults;
+      }
+      callback(rc, path, ctx);
+    }
+
+    /**
+     * @return the result of each op in the transaction. If the transaction fails, the failed op
+     *         has an ErrorResult with the actual error code, and the other ops are rolled back.
+     */
+    public List<OpResult> getOpResults() {
+      return _opResults;
+    }
+
+    @Override
+    public void handle() {
+      // Make compiler happy, not used.
+    }
+  }
+
   public static class SyncCallbackHandler extends DefaultCallback implements AsyncCallback.VoidCallback {
     private String _sessionId;
 
@@ -195,6 +225,8 @@ public class ZkAsyncCallbacks {
     AtomicBoolean _isOperationDone = new AtomicBoolean(false);
     int _rc = KeeperException.Code.APIERROR.intValue();
     String _path;
+    // Guarded by _isOperationDone
+    private List<Runnable> _operationDoneActions;
 
     public void callback(int rc, String path, Object ctx) {
       if (rc != 0) {
@@ -292,10 +324,41 @@ public class ZkAsyncCallbacks {
      */
     abstract public void handle();
 
+    /**
+     * Run the action once the operation is done, after the callback is handled. The action runs
+     * immediately if the operation is already done.
+     * @param action the action to run on the thread that completes the operation
+     */
+    public void runWhenOperationDone(Runnable action) {
+      synchronized (_isOperationDone) {
+        if (!_isOperationDone.get()) {
+          if (_operationDoneActions == null) {
+            _operationDoneActions = new ArrayList<>();
+          }
+          _operationDoneActions.add(action);
+          return;
+        }
+      }
+      action.run();
+    }
+
     private void markOperationDone() {
+      List<Runnable> actions;
       synchronized (_isOperationDone) {
         _isOperationDone.set(true);
         _isOperationDone.notifyAll();
+        actions = _operationDoneActions;
+        _operationDoneActions = null;
+      }
+      if (actions != null) {
+        for (Runnable action : actions) {
+          try {
+            action.run();
+          } catch (Exception ex) {
+            LOG.error("Exception while running the action after the operation on path {} is done.",
+                _path, ex);
+          }
+        }
       }
     }
 
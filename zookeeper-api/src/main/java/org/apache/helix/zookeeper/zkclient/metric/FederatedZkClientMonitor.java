@@ -0,0 +1,168 @@
+package org.apache.helix.zookeeper.zkclient.metric;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+import org.apache.helix.monitoring.mbeans.exception.MetricException;
+
+
+/**
+ * Monitors the realm resolution and the realm ZkClients of a FederatedZkClient. The latency and
+ * the connection metrics of each realm are reported by the ZkClientMonitor of the realm ZkClient.
+ */
+public class FederatedZkClientMonitor extends DynamicMBeanProvider {
+  protected static final String MBEAN_DESCRIPTION = "Helix Federated Zookeeper Client Monitor";
+  public static final String FEDERATED_ZK_CLIENT_INSTANCE_NAME = "FederatedZkClient";
+
+  private final String _sensorName;
+  private final String _monitorType;
+  private final String _monitorKey;
+  private final String _monitorInstanceName;
+
+  private final SimpleDynamicMetric<Long> _realmClientGauge;
+  private final SimpleDynamicMetric<Long> _realmClientCreatedCounter;
+  private final SimpleDynamicMetric<Long> _realmClientEvictedCounter;
+  private final SimpleDynamicMetric<Long> _routingDataUpdateCounter;
+  // Updated on every operation, so use LongAdders instead of synchronized updates.
+  private final LongAdder _realmCacheHits = new LongAdder();
+  private final LongAdder _realmCacheMisses = new LongAdder();
+  private final LongAdderMetric _realmCacheHitCounter;
+  private final LongAdderMetric _realmCacheMissCounter;
+
+  public FederatedZkClientMonitor(String monitorType, String monitorKey,
+      String monitorInstanceName) {
+    if (monitorKey == null || monitorKey.isEmpty() || monitorType == null || monitorType
+        .isEmpty()) {
+      throw new MetricException(
+          "Cannot create FederatedZkClientMonitor without monitor key and type.");
+    }
+    _sensorName = String
+        .format("%s.%s.%s.%s", MonitorDomainNames.HelixZkClient.name(), monitorType, monitorKey,
+            FEDERATED_ZK_CLIENT_INSTANCE_NAME);
+    _monitorType = monitorType;
+    _monitorKey = monitorKey;
+    _monitorInstanceName = monitorInstanceName == null ? FEDERATED_ZK_CLIENT_INSTANCE_NAME
+        : monitorInstanceName + "." + FEDERATED_ZK_CLIENT_INSTANCE_NAME;
+
+    _realmClientGauge = new SimpleDynamicMetric<>("RealmClientGauge", 0L);
+    _realmClientCreatedCounter = new SimpleDynamicMetric<>("RealmClientCreatedCounter", 0L);
+    _realmClientEvictedCounter = new SimpleDynamicMetric<>("RealmClientEvictedCounter", 0L);
+    _routingDataUpdateCounter = new SimpleDynamicMetric<>("RoutingDataUpdateCounter", 0L);
+    _realmCacheHitCounter = new LongAdderMetric("RealmCacheHitCounter", _realmCacheHits);
+    _realmCacheMissCounter = new LongAdderMetric("RealmCacheMissCounter", _realmCacheMisses);
+  }
+
+  @Override
+  public DynamicMBeanProvider register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_realmClientGauge);
+    attributeList.add(_realmClientCreatedCounter);
+    attributeList.add(_realmClientEvictedCounter);
+    attributeList.add(_routingDataUpdateCounter);
+    attributeList.add(_realmCacheHitCounter);
+    attributeList.add(_realmCacheMissCounter);
+    doRegister(attributeList, MBEAN_DESCRIPTION,
+        ZkClientMonitor.getObjectName(_monitorType, _monitorKey, _monitorInstanceName));
+    return this;
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  public void increaseRealmCacheHitCounter() {
+    _realmCacheHits.increment();
+  }
+
+  public void increaseRealmCacheMissCounter() {
+    _realmCacheMisses.increment();
+  }
+
+  public void increaseRoutingDataUpdateCounter() {
+    synchronized (_routingDataUpdateCounter) {
+      _routingDataUpdateCounter.updateValue(_routingDataUpdateCounter.getValue() + 1);
+    }
+  }
+
+  public void increaseRealmClientCreatedCounter() {
+    synchronized (_realmClientCreatedCounter) {
+      _realmClientCreatedCounter.updateValue(_realmClientCreatedCounter.getValue() + 1);
+    }
+  }
+
+  public void increaseRealmClientEvictedCounter() {
+    synchronized (_realmClientEvictedCounter) {
+      _realmClientEvictedCounter.updateValue(_realmClientEvictedCounter.getValue() + 1);
+    }
+  }
+
+  public void updateRealmClientGauge(long realmClientCount) {
+    _realmClientGauge.updateValue(realmClientCount);
+  }
+
+  /**
+   * A counter metric that reads the sum of a LongAdder. Updating the value resets the counter to
+   * the new value.
+   */
+  private static class LongAdderMetric extends DynamicMetric<LongAdder, Long> {
+    private final String _metricName;
+
+    LongAdderMetric(String metricName, LongAdder adder) {
+      super(metricName, adder);
+      _metricName = metricName;
+    }
+
+    @Override
+    protected Set<MBeanAttributeInfo> generateAttributeInfos(String metricName,
+        LongAdder adder) {
+      return Collections.singleton(new MBeanAttributeInfo(metricName, Long.class.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+    }
+
+    @Override
+    public Object getAttributeValue(String attributeName) {
+      if (!attributeName.equals(_metricName)) {
+        return null;
+      }
+      return getMetricObject().sum();
+    }
+
+    @Override
+    public void updateValue(Long newValue) {
+      LongAdder adder = getMetricObject();
+      adder.reset();
+      if (newValue != null) {
+        adder.add(newValue);
+      }
+    }
+  }
+}
@@ -20,13 +20,21 @@ package org.apache.helix.zookeeper.impl.client;
  */
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.helix.msdcommon.constant.MetadataStoreRoutingConstants;
 import org.apache.helix.msdcommon.datamodel.MetadataStoreRoutingData;
@@ -38,9 +46,14 @@ import org.apache.helix.zookeeper.constant.RoutingSystemPropertyKeys;
 import org.apache.helix.zookeeper.constant.TestConstants;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.impl.TestHelper;
 import org.apache.helix.zookeeper.routing.RoutingDataManager;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
+import org.apache.helix.zookeeper.zkclient.ZkServer;
 import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
+import org.apache.helix.zookeeper.zkclient.metric.FederatedZkClientMonitor;
+import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.Watcher;
 import org.testng.Assert;
@@ -354,6 +367,223 @@ public class TestFederatedZkClient extends RealmAwareZkClientTestBase {
     Assert.assertFalse(_realmAwareZkClient.exists(TEST_REALM_TWO_VALID_PATH));
   }
 
+  /**
+   * Test that the idle realm ZkClients without listeners are closed, and are re-created on the
+   * next access.
+   */
+  @Test(dependsOnMethods = "testMultiRealmCRUD")
+  public void testIdleRealmZkClientEviction() throws Exception {
+    System.setProperty(RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS,
+        "1000");
+    String monitorKey = TestFederatedZkClient.class.getSimpleName();
+    FederatedZkClient federatedZkClient = null;
+    try {
+      federatedZkClient = new FederatedZkClient(
+          new RealmAwareZkClient.RealmAwareZkConnectionConfig.Builder().build(),
+          new RealmAwareZkClient.RealmAwareZkClientConfig().setMonitorType("Test")
+              .setMonitorKey(monitorKey));
+      ObjectName monitorName = ZkClientMonitor.getObjectName("Test", monitorKey,
+          FederatedZkClientMonitor.FEDERATED_ZK_CLIENT_INSTANCE_NAME);
+      MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+
+      Assert.assertFalse(federatedZkClient.exists(TEST_REALM_ONE_VALID_PATH));
+      Assert.assertFalse(federatedZkClient.exists(TEST_REALM_TWO_VALID_PATH));
+      Assert.assertEquals(federatedZkClient.getRealmZkClientCount(), 1);
+      Assert.assertEquals(federatedZkClient.getCachedShardingKeyCount(), 1);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmCacheMissCounter"), 1L);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmCacheHitCounter"), 1L);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientCreatedCounter"), 1L);
+
+      // The idle ZkClient is closed and re-created on the next access.
+      Thread.sleep(1500L);
+      Assert.assertFalse(federatedZkClient.exists(TEST_REALM_ONE_VALID_PATH));
+      Assert.assertEquals(federatedZkClient.getRealmZkClientCount(), 1);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientEvictedCounter"), 1L);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientCreatedCounter"), 2L);
+
+      // The ZkClient that has listeners is never closed.
+      IZkDataListener listener = new IZkDataListener() {
+        @Override
+        public void handleDataChange(String dataPath, Object data) {
+        }
+
+        @Override
+        public void handleDataDeleted(String dataPath) {
+        }
+      };
+      federatedZkClient.subscribeDataChanges(TEST_REALM_ONE_VALID_PATH, listener);
+      Thread.sleep(1500L);
+      Assert.assertFalse(federatedZkClient.exists(TEST_REALM_ONE_VALID_PATH));
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientEvictedCounter"), 1L);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientCreatedCounter"), 2L);
+      federatedZkClient.unsubscribeDataChanges(TEST_REALM_ONE_VALID_PATH, listener);
+    } finally {
+      if (federatedZkClient != null) {
+        federatedZkClient.close();
+      }
+      System.clearProperty(
+          RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS);
+    }
+  }
+
+  /**
+   * Test that a realm ZkClient is not closed by the eviction while a call on it is in flight,
+   * even if the call takes longer than the idle timeout.
+   */
+  @Test(dependsOnMethods = "testIdleRealmZkClientEviction")
+  public void testNoEvictionWithInFlightCall() throws Exception {
+    System.setProperty(RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS,
+        "1000");
+    String monitorKey = TestFederatedZkClient.class.getSimpleName() + "InFlight";
+    FederatedZkClient federatedZkClient = null;
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      federatedZkClient = new FederatedZkClient(
+          new RealmAwareZkClient.RealmAwareZkConnectionConfig.Builder().build(),
+          new RealmAwareZkClient.RealmAwareZkClientConfig().setMonitorType("Test")
+              .setMonitorKey(monitorKey));
+      ObjectName monitorName = ZkClientMonitor.getObjectName("Test", monitorKey,
+          FederatedZkClientMonitor.FEDERATED_ZK_CLIENT_INSTANCE_NAME);
+      MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+      federatedZkClient.createPersistent(TEST_REALM_ONE_VALID_PATH, true);
+      federatedZkClient.writeData(TEST_REALM_ONE_VALID_PATH, new ZNRecord("inFlight"));
+
+      // Block a call on the realm ZkClient for longer than the idle timeout.
+      CountDownLatch updating = new CountDownLatch(1);
+      CountDownLatch unblock = new CountDownLatch(1);
+      FederatedZkClient client = federatedZkClient;
+      Future<?> blockedCall = executor.submit(() -> client.<ZNRecord>updateDataSerialized(
+          TEST_REALM_ONE_VALID_PATH, currentData -> {
+            updating.countDown();
+            try {
+              unblock.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            currentData.setSimpleField("key", "value");
+            return currentData;
+          }));
+      Assert.assertTrue(updating.await(10L, TimeUnit.SECONDS));
+      Thread.sleep(1500L);
+
+      // The eviction check runs on this access, but the realm ZkClient is in use.
+      Assert.assertTrue(federatedZkClient.exists(TEST_REALM_ONE_VALID_PATH));
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientEvictedCounter"), 0L);
+      Assert.assertEquals(federatedZkClient.getRealmZkClientCount(), 1);
+
+      unblock.countDown();
+      blockedCall.get(10L, TimeUnit.SECONDS);
+      ZNRecord record = federatedZkClient.readData(TEST_REALM_ONE_VALID_PATH);
+      Assert.assertEquals(record.getSimpleField("key"), "value");
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientCreatedCounter"), 1L);
+
+      // Once the call is done, the idle realm ZkClient is evicted.
+      Thread.sleep(1500L);
+      Assert.assertTrue(federatedZkClient.exists(TEST_REALM_ONE_VALID_PATH));
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientEvictedCounter"), 1L);
+      Assert.assertEquals(beanServer.getAttribute(monitorName, "RealmClientCreatedCounter"), 2L);
+    } finally {
+      executor.shutdownNow();
+      if (federatedZkClient != null) {
+        federatedZkClient.deleteRecursively(TEST_REALM_ONE_VALID_PATH);
+        federatedZkClient.close();
+      }
+      System.clearProperty(
+          RoutingSystemPropertyKeys.FEDERATED_ZK_CLIENT_REALM_CLIENT_IDLE_TIMEOUT_MS);
+    }
+  }
+
+  /**
+   * Test that the scatter-gather read returns the result of every path, and the failed paths do
+   * not fail the others.
+   */
+  @Test(dependsOnMethods = "testMultiRealmCRUD")
+  public void testScatterGatherReadData() {
+    FederatedZkClient federatedZkClient = (FederatedZkClient) _realmAwareZkClient;
+    String secondShardingKeyPath = "/sharding-key-1/scatter-gather";
+    ZNRecord realmOneZnRecord = new ZNRecord("realmOne");
+    realmOneZnRecord.setSimpleField("realmOne", "Value");
+    ZNRecord secondShardingKeyZnRecord = new ZNRecord("secondShardingKey");
+    federatedZkClient.createPersistent(TEST_REALM_ONE_VALID_PATH, true);
+    federatedZkClient.writeData(TEST_REALM_ONE_VALID_PATH, realmOneZnRecord);
+    federatedZkClient.createPersistent(secondShardingKeyPath, secondShardingKeyZnRecord);
+
+    try {
+      Map<String, FederatedZkClient.ScatterGatherResult<ZNRecord>> results = federatedZkClient
+          .scatterGatherReadData(Arrays.asList(TEST_REALM_ONE_VALID_PATH, secondShardingKeyPath,
+              TEST_REALM_TWO_VALID_PATH, TEST_INVALID_PATH), 10L, TimeUnit.SECONDS);
+      Assert.assertEquals(results.size(), 4);
+
+      FederatedZkClient.ScatterGatherResult<ZNRecord> result =
+          results.get(TEST_REALM_ONE_VALID_PATH);
+      Assert.assertEquals(result.getStatus(), FederatedZkClient.ScatterGatherResult.Status.OK);
+      Assert.assertEquals(result.getData(), realmOneZnRecord);
+      Assert.assertEquals(result.getZkRealm(), "localhost:2127");
+      Assert.assertNotNull(result.getStat());
+
+      result = results.get(secondShardingKeyPath);
+      Assert.assertEquals(result.getStatus(), FederatedZkClient.ScatterGatherResult.Status.OK);
+      Assert.assertEquals(result.getData(), secondShardingKeyZnRecord);
+
+      result = results.get(TEST_REALM_TWO_VALID_PATH);
+      Assert.assertEquals(result.getStatus(),
+          FederatedZkClient.ScatterGatherResult.Status.NO_NODE);
+      Assert.assertNull(result.getData());
+
+      // The path without a sharding key fails alone.
+      result = results.get(TEST_INVALID_PATH);
+      Assert.assertEquals(result.getStatus(), FederatedZkClient.ScatterGatherResult.Status.FAILED);
+      Assert.assertNull(result.getZkRealm());
+      Assert.assertTrue(result.getError() instanceof NoSuchElementException);
+    } finally {
+      federatedZkClient.delete(TEST_REALM_ONE_VALID_PATH);
+      federatedZkClient.delete(secondShardingKeyPath);
+    }
+  }
+
+  /**
+   * Test that a realm that does not respond is reported as timed out, without failing or delaying
+   * the reads of the other realms.
+   */
+  @Test(dependsOnMethods = "testScatterGatherReadData")
+  public void testScatterGatherReadDataTimedOut() throws Exception {
+    // Connecting to the realm blocks while its ZooKeeper is down.
+    String blockedRealm = ZK_PREFIX + (ZK_START_PORT + 2);
+    String blockedPath = TestConstants.TEST_KEY_LIST_3.get(0) + "/scatter-gather";
+    ZkServer blockedServer = _zkServerMap.get(blockedRealm);
+    if (blockedServer != null) {
+      TestHelper.stopZkServer(blockedServer);
+    }
+    FederatedZkClient federatedZkClient = new FederatedZkClient(
+        new RealmAwareZkClient.RealmAwareZkConnectionConfig.Builder().build(),
+        new RealmAwareZkClient.RealmAwareZkClientConfig().setConnectInitTimeout(5000L));
+    try {
+      federatedZkClient.createPersistent(TEST_REALM_ONE_VALID_PATH, true);
+
+      long startTime = System.currentTimeMillis();
+      Map<String, FederatedZkClient.ScatterGatherResult<ZNRecord>> results = federatedZkClient
+          .scatterGatherReadData(Arrays.asList(TEST_REALM_ONE_VALID_PATH, blockedPath), 1L,
+              TimeUnit.SECONDS);
+      Assert.assertTrue(System.currentTimeMillis() - startTime < 5000L);
+      Assert.assertEquals(results.size(), 2);
+      Assert.assertEquals(results.get(TEST_REALM_ONE_VALID_PATH).getStatus(),
+          FederatedZkClient.ScatterGatherResult.Status.OK);
+
+      FederatedZkClient.ScatterGatherResult<ZNRecord> result = results.get(blockedPath);
+      Assert.assertEquals(result.getStatus(),
+          FederatedZkClient.ScatterGatherResult.Status.TIMED_OUT);
+      Assert.assertEquals(result.getZkRealm(), blockedRealm);
+      Assert.assertNull(result.getData());
+      Assert.assertNull(result.getError());
+    } finally {
+      federatedZkClient.delete(TEST_REALM_ONE_VALID_PATH);
+      federatedZkClient.close();
+      if (blockedServer != null) {
+        blockedServer.start();
+      }
+    }
+  }
+
   /**
    * This tests the routing data update feature only enabled when
    * RoutingSystemPropertyKeys.UPDATE_ROUTING_DATA_ON_CACHE_MISS is set to true.
@@ -0,0 +1,102 @@
+package org.apache.helix.zookeeper.impl.client;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.helix.msdcommon.datamodel.TrieRoutingData;
+import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestShardingKeyRealmCache {
+  private static final String REALM_1 = "localhost:2127";
+  private static final String REALM_2 = "localhost:2128";
+
+  @Test
+  public void testGetRealm() throws InvalidRoutingDataException {
+    Map<String, List<String>> routingData = new HashMap<>();
+    routingData.put(REALM_1, Arrays.asList("/a/b", "/c"));
+    routingData.put(REALM_2, Arrays.asList("/a/d/e"));
+    ShardingKeyRealmCache cache = new ShardingKeyRealmCache(new TrieRoutingData(routingData));
+
+    Assert.assertNull(cache.getCachedRealm("/a/b/x"));
+    Assert.assertEquals(cache.getRealm("/a/b/x"), REALM_1);
+    Assert.assertEquals(cache.size(), 1);
+    // The other paths of the same sharding key are resolved by the cache.
+    Assert.assertEquals(cache.getCachedRealm("/a/b"), REALM_1);
+    Assert.assertEquals(cache.getCachedRealm("/a/b/y/z"), REALM_1);
+    // A path that only shares a prefix of the name is not covered by the sharding key.
+    Assert.assertNull(cache.getCachedRealm("/a/bc"));
+    Assert.assertNull(cache.getCachedRealm("/a/d/e/f"));
+
+    Assert.assertEquals(cache.getRealm("/a/d/e/f"), REALM_2);
+    Assert.assertEquals(cache.getRealm("/c"), REALM_1);
+    Assert.assertEquals(cache.size(), 3);
+    Assert.assertEquals(cache.getCachedRealm("/a/d/e"), REALM_2);
+    Assert.assertEquals(cache.getCachedRealm("/c/x"), REALM_1);
+
+    try {
+      cache.getRealm("/a/d");
+      Assert.fail("A path without a sharding key should not be resolved.");
+    } catch (NoSuchElementException expected) {
+      // expected
+    }
+    try {
+      cache.getRealm("a/b/c");
+      Assert.fail("An invalid path should not be resolved.");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    // An invalid path under a cached sharding key is rejected as well.
+    for (String invalidPath : new String[] {"/a/b/", "/a/b//x", "/c/x y"}) {
+      try {
+        cache.getCachedRealm(invalidPath);
+        Assert.fail("An invalid path should not be resolved by the cache: " + invalidPath);
+      } catch (IllegalArgumentException expected) {
+        // expected
+      }
+    }
+    Assert.assertEquals(cache.size(), 3);
+  }
+
+  @Test
+  public void testRootShardingKey() throws InvalidRoutingDataException {
+    ShardingKeyRealmCache cache = new ShardingKeyRealmCache(new TrieRoutingData(
+        Collections.singletonMap(REALM_1, Collections.singletonList("/"))));
+    Assert.assertNull(cache.getCachedRealm("/a"));
+    Assert.assertEquals(cache.getRealm("/a"), REALM_1);
+    Assert.assertEquals(cache.getCachedRealm("/"), REALM_1);
+    Assert.assertEquals(cache.getCachedRealm("/b/c"), REALM_1);
+    Assert.assertEquals(cache.size(), 1);
+    try {
+      cache.getCachedRealm("b/c");
+      Assert.fail("An invalid path should not be resolved by the root sharding key.");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}